@@ -2,41 +2,62 @@ package com.oneagent.monitor.agent;
 
 import com.oneagent.monitor.config.AgentScopeProperties;
 import com.oneagent.monitor.hook.ToolMonitorHook;
+import com.oneagent.monitor.llm.LlmCallScheduler;
+import com.oneagent.monitor.llm.LlmHedger;
+import com.oneagent.monitor.llm.PromptCacheMetrics;
+import com.oneagent.monitor.llm.TieredModelRouter;
+import com.oneagent.monitor.llm.UsageRecordingTransport;
+import com.oneagent.monitor.llm.WorkloadClass;
 import com.oneagent.monitor.model.config.MonitorProperties;
+import com.oneagent.monitor.rag.KnowledgeLoader;
+import com.oneagent.monitor.rag.KnowledgePrefetcher;
+import com.oneagent.monitor.rag.PrefetchingKnowledge;
+import com.oneagent.monitor.rag.SwappableKnowledge;
 import com.oneagent.monitor.service.KnowledgeBaseService;
+import com.oneagent.monitor.service.MonitorService;
+import com.oneagent.monitor.studio.LazyStudioHook;
 import com.oneagent.monitor.tool.ApifoxApiTool;
 import com.oneagent.monitor.tool.FeishuWebhookTool;
 import com.oneagent.monitor.tool.MonitorCheckTool;
+import com.oneagent.monitor.tool.ReadOnlyToolCache;
 import io.agentscope.core.ReActAgent;
 import io.agentscope.core.embedding.EmbeddingModel;
 import io.agentscope.core.embedding.openai.OpenAITextEmbedding;
 import io.agentscope.core.formatter.openai.OpenAIChatFormatter;
 import io.agentscope.core.hook.Hook;
 import io.agentscope.core.memory.InMemoryMemory;
+import io.agentscope.core.memory.Memory;
+import io.agentscope.core.model.ExecutionConfig;
 import io.agentscope.core.model.GenerateOptions;
+import io.agentscope.core.model.Model;
 import io.agentscope.core.model.OpenAIChatModel;
+import io.agentscope.core.model.transport.HttpTransportFactory;
+import io.agentscope.core.rag.Knowledge;
 import io.agentscope.core.rag.RAGMode;
-import io.agentscope.core.rag.knowledge.SimpleKnowledge;
-import io.agentscope.core.rag.model.Document;
 import io.agentscope.core.rag.model.RetrieveConfig;
-import io.agentscope.core.rag.reader.ReaderInput;
-import io.agentscope.core.rag.reader.SplitStrategy;
-import io.agentscope.core.rag.reader.TextReader;
-import io.agentscope.core.rag.store.InMemoryStore;
-import io.agentscope.core.studio.StudioManager;
-import io.agentscope.core.studio.StudioMessageHook;
 import io.agentscope.core.tool.Toolkit;
+import io.agentscope.core.tool.ToolkitConfig;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Scope;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Agent 配置类
@@ -45,15 +66,29 @@ import java.util.List;
 @Configuration
 @RequiredArgsConstructor
 @EnableConfigurationProperties(AgentScopeProperties.class)
-@DependsOn("studioInitializer")  // 确保 Studio 先初始化
 public class AgentConfig {
 
+    /**
+     * 支持按工具名覆盖超时的工具
+     */
+    private static final Set<String> TIMEOUT_OVERRIDABLE_TOOLS =
+            Set.of(FeishuWebhookTool.TOOL_NAME, ApifoxApiTool.TOOL_NAME);
+
     private final AgentScopeProperties agentScopeProperties;
     private final MonitorProperties monitorProperties;
     private final FeishuWebhookTool feishuWebhookTool;
     private final ApifoxApiTool apifoxApiTool;
-    private final MonitorCheckTool monitorCheckTool;
+    private final MonitorService monitorService;
+    private final MeterRegistry meterRegistry;
     private final KnowledgeBaseService knowledgeBaseService;
+    private final KnowledgePrefetcher knowledgePrefetcher;
+    private final LlmHedger llmHedger;
+    private final TieredModelRouter tieredModelRouter;
+    private final PromptLayout promptLayout;
+    private final KnowledgeLoader knowledgeLoader;
+    private final PromptCacheMetrics promptCacheMetrics;
+
+    private Model servingModel;
 
     /**
      * 创建兼容 OpenAI 的聊天模型
@@ -66,12 +101,19 @@ public class AgentConfig {
                 llmConfig.getBaseUrl(),
                 llmConfig.getModelName());
 
+        return createChatModel(llmConfig.getBaseUrl(), llmConfig.getApiKey(), llmConfig.getModelName());
+    }
+
+    private OpenAIChatModel createChatModel(String baseUrl, String apiKey, String modelName) {
+        AgentScopeProperties.LlmConfig llmConfig = agentScopeProperties.getLlm();
         return OpenAIChatModel.builder()
-                .baseUrl(llmConfig.getBaseUrl())
-                .apiKey(llmConfig.getApiKey())
-                .modelName(llmConfig.getModelName())
+                .baseUrl(baseUrl)
+                .apiKey(apiKey)
+                .modelName(modelName)
                 .stream(llmConfig.getStream())
                 .formatter(new OpenAIChatFormatter())
+                // 读取响应中的缓存 token 数，记录前缀缓存命中率
+                .httpTransport(new UsageRecordingTransport(HttpTransportFactory.getDefault(), promptCacheMetrics))
                 .defaultOptions(GenerateOptions.builder()
                         .temperature(llmConfig.getTemperature())
                         .maxTokens(llmConfig.getMaxTokens())
@@ -79,6 +121,61 @@ public class AgentConfig {
                 .build();
     }
 
+    /**
+     * Agent 实际使用的模型：配置了分级模型时按复杂度路由，否则使用单一聊天模型，均带对冲
+     * 各级模型与健康统计在所有 Agent 之间共享，只创建一次
+     */
+    private synchronized Model servingModel(OpenAIChatModel chatModel) {
+        if (servingModel != null) {
+            return servingModel;
+        }
+        AgentScopeProperties.LlmConfig llmConfig = agentScopeProperties.getLlm();
+        if (llmConfig.getTiers().isEmpty()) {
+            servingModel = withHedging(chatModel, hedgeChatModel(chatModel));
+            return servingModel;
+        }
+
+        List<TieredModelRouter.Tier> tiers = new ArrayList<>();
+        for (AgentScopeProperties.TierConfig tierConfig : llmConfig.getTiers()) {
+            log.info("Creating tier chat model: tier={}, model={}", tierConfig.getName(), tierConfig.getModelName());
+            OpenAIChatModel tierModel = createChatModel(
+                    StringUtils.defaultIfBlank(tierConfig.getBaseUrl(), llmConfig.getBaseUrl()),
+                    StringUtils.defaultIfBlank(tierConfig.getApiKey(), llmConfig.getApiKey()),
+                    tierConfig.getModelName());
+            tiers.add(tieredModelRouter.tier(tierConfig, withHedging(tierModel, tierModel)));
+        }
+        servingModel = tieredModelRouter.route(tiers);
+        return servingModel;
+    }
+
+    /**
+     * 为聊天模型加上对冲请求
+     */
+    private Model withHedging(Model chatModel, Model hedgeModel) {
+        if (!llmHedger.isEnabled()) {
+            return chatModel;
+        }
+        return llmHedger.wrap(chatModel, hedgeModel);
+    }
+
+    /**
+     * 对冲请求使用的模型：配置了备用地址或模型时创建备用模型，否则与主模型相同
+     */
+    private Model hedgeChatModel(OpenAIChatModel chatModel) {
+        AgentScopeProperties.LlmConfig llmConfig = agentScopeProperties.getLlm();
+        AgentScopeProperties.HedgeConfig hedgeConfig = llmConfig.getHedge();
+        if (StringUtils.isAllBlank(hedgeConfig.getBaseUrl(), hedgeConfig.getModelName())) {
+            return chatModel;
+        }
+        String baseUrl = StringUtils.defaultIfBlank(hedgeConfig.getBaseUrl(), llmConfig.getBaseUrl());
+        String modelName = StringUtils.defaultIfBlank(hedgeConfig.getModelName(), llmConfig.getModelName());
+        log.info("Creating hedge chat model: url={}, model={}", baseUrl, modelName);
+        return createChatModel(
+                baseUrl,
+                StringUtils.defaultIfBlank(hedgeConfig.getApiKey(), llmConfig.getApiKey()),
+                modelName);
+    }
+
     /**
      * 创建 OpenAI TextEmbedding 模型
      */
@@ -108,148 +205,204 @@ public class AgentConfig {
      */
     @Bean
     @ConditionalOnBean({EmbeddingModel.class, KnowledgeBaseService.class})
-    public SimpleKnowledge ragKnowledge(
-            ObjectProvider<EmbeddingModel> embeddingModelProvider,
-            KnowledgeBaseService knowledgeBaseService) {
-        
+    public SwappableKnowledge ragKnowledge(ObjectProvider<EmbeddingModel> embeddingModelProvider) {
+
         EmbeddingModel textEmbeddingModel = embeddingModelProvider.getIfAvailable();
         if (textEmbeddingModel == null) {
             log.warn("Cannot initialize RAG: embeddingModel is null or not available");
             return null;
         }
 
-        log.info("Initializing RAG knowledge base...");
-
-        try {
-            // 创建向量存储
-            InMemoryStore vectorStore =
-                    InMemoryStore.builder()
-                            .dimensions(1536)
-                            .build();
-
-            // 创建知识库
-            SimpleKnowledge knowledge =
-                    SimpleKnowledge.builder()
-                            .embeddingModel(textEmbeddingModel)
-                            .embeddingStore(vectorStore)
-                            .build();
-
-            // 使用 TextReader 进行文档分块
-            TextReader reader =
-                    new TextReader(
-                            512,
-                            SplitStrategy.PARAGRAPH,
-                            50
-                    );
-
-            // 加载文档
-            int docCount = 0;
-            for (String doc : knowledgeBaseService.getDocuments()) {
-                try {
-                    ReaderInput input =
-                            ReaderInput.fromString(doc);
-                    List<Document> docs =
-                            reader.read(input).block();
-                    if (docs != null && !docs.isEmpty()) {
-                        knowledge.addDocuments(docs).block();
-                        docCount++;
-                    }
-                } catch (Exception e) {
-                    log.error("Error adding document to knowledge base: {}", e.getMessage());
-                }
-            }
-
-            log.info("RAG knowledge base initialized with {} documents", docCount);
-            return knowledge;
-
-        } catch (Exception e) {
-            log.error("Failed to initialize RAG knowledge base: {}", e.getMessage(), e);
-            return null;
-        }
+        // 后台构建索引，不阻塞启动；构建完成前检索降级为关键词匹配
+        log.info("Initializing RAG knowledge base in background...");
+        return knowledgeLoader.start(textEmbeddingModel);
     }
 
     /**
      * 创建包含所有注册工具的工具包
+     * 每个 Agent 一份，只读工具的结果缓存随之按 Agent 隔离
      */
-    @Bean
-    public Toolkit toolkit(OpenAIChatModel chatModel) {
-        log.info("Creating toolkit and registering tools");
-
-        Toolkit toolkit = new Toolkit();
+    private Toolkit toolkit(ExecutorService toolExecutor, ReadOnlyToolCache toolCache) {
+        AgentScopeProperties.ToolsConfig toolsConfig = agentScopeProperties.getTools();
+        log.debug("Creating toolkit and registering tools: parallel={}, timeout={}",
+                toolsConfig.getParallel(), toolsConfig.getTimeout());
+
+        // 同一步推理中的多个工具调用并行执行，结果按调用顺序写回记忆；
+        // 工具包的整体超时取默认值和各工具覆盖值中最长的一个，避免较长的覆盖值被提前截断，
+        // 较短的覆盖值由对应工具的 HTTP 客户端自己执行（callTimeout）
+        Toolkit toolkit = new Toolkit(ToolkitConfig.builder()
+                .parallel(toolsConfig.getParallel())
+                .executorService(toolExecutor)
+                .executionConfig(ExecutionConfig.builder()
+                        .timeout(toolsConfig.maxTimeout())
+                        .build())
+                .build());
 
         // 注册工具实例
         toolkit.registerTool(feishuWebhookTool);
         toolkit.registerTool(apifoxApiTool);
-        toolkit.registerTool(monitorCheckTool);
+        toolkit.registerTool(toolCache.register(new MonitorCheckTool(monitorService, toolCache)));
 
         log.debug("Registered tools: {}", toolkit.getToolNames());
+        validateToolTimeouts(toolsConfig);
 
         return toolkit;
     }
 
+    /**
+     * 按工具名覆盖的超时只对自己执行超时的工具生效，配置了其他工具名（拼写错误或不支持）时启动失败，
+     * 不会静默地按默认超时运行
+     */
+    private static void validateToolTimeouts(AgentScopeProperties.ToolsConfig toolsConfig) {
+        Set<String> unsupported = new TreeSet<>(toolsConfig.getTimeouts().keySet());
+        unsupported.removeAll(TIMEOUT_OVERRIDABLE_TOOLS);
+        if (!unsupported.isEmpty()) {
+            throw new IllegalStateException("agentscope.tools.timeouts 中的工具不存在或不支持单独设置超时: "
+                    + unsupported + "，可配置的工具: " + new TreeSet<>(TIMEOUT_OVERRIDABLE_TOOLS));
+        }
+    }
+
+    /**
+     * 工具执行线程池，有界队列满时由调用线程执行
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService toolExecutor() {
+        AgentScopeProperties.ToolsConfig toolsConfig = agentScopeProperties.getTools();
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                toolsConfig.getMaxConcurrency(),
+                toolsConfig.getMaxConcurrency(),
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(toolsConfig.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "agent-tool-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
     /**
      * 创建 hook
      */
     public List<Hook> hookList() {
         ToolMonitorHook hook = new ToolMonitorHook();
-        return List.of(hook);
+        return List.of(hook, promptLayout.prefixReuseHook());
     }
 
     /**
      * 创建包含所有配置的 ReActAgent
      * 使用原型作用域，确保每个请求都有独立的 Agent 实例
      * 集成 RAG 功能（Agentic 模式）
+     * LLM 调用按交互式负载调度，优先于批量任务
      */
     @Bean
+    @Primary
     @Scope("prototype")
     public ReActAgent customerServiceAgent(
             OpenAIChatModel chatModel,
-            Toolkit toolkit,
-            ObjectProvider<SimpleKnowledge> ragKnowledgeProvider) {
+            ExecutorService toolExecutor,
+            ObjectProvider<SwappableKnowledge> ragKnowledgeProvider,
+            LlmCallScheduler llmCallScheduler) {
+        return buildAgent(
+                llmCallScheduler.wrap(servingModel(chatModel), WorkloadClass.INTERACTIVE),
+                toolExecutor,
+                ragKnowledgeProvider.getIfAvailable());
+    }
 
-        SimpleKnowledge ragKnowledge = ragKnowledgeProvider.getIfAvailable();
-        String systemPrompt = buildSystemPrompt();
+    /**
+     * 批量处理使用的 ReActAgent，LLM 调用按批量负载调度
+     */
+    @Bean
+    @Scope("prototype")
+    public ReActAgent batchCustomerServiceAgent(
+            OpenAIChatModel chatModel,
+            ExecutorService toolExecutor,
+            ObjectProvider<SwappableKnowledge> ragKnowledgeProvider,
+            LlmCallScheduler llmCallScheduler) {
+        return buildAgent(
+                llmCallScheduler.wrap(servingModel(chatModel), WorkloadClass.BATCH),
+                toolExecutor,
+                ragKnowledgeProvider.getIfAvailable());
+    }
+
+    private ReActAgent buildAgent(Model model, ExecutorService toolExecutor, Knowledge ragKnowledge) {
+        String basePrompt = buildSystemPrompt();
+        String systemPrompt = promptLayout.systemPrompt(basePrompt);
+        Memory memory = createMemory();
+        ReadOnlyToolCache toolCache = new ReadOnlyToolCache(monitorService, meterRegistry);
+        Toolkit toolkit = toolkit(toolExecutor, toolCache);
+        List<Hook> hooks = new ArrayList<>();
+        // 每次调用开始时清空只读工具的结果缓存
+        hooks.add(toolCache.hook());
+        if (memory instanceof TokenBudgetMemory budgetMemory) {
+            // 先替换为压缩后的历史，之后的 Hook（前缀统计等）看到的是实际发送的消息
+            hooks.add(budgetMemory.promptHook());
+        }
+        // 知识库重新加载后系统提示词中的知识库要点随之更新
+        hooks.add(promptLayout.systemPromptHook(basePrompt));
+        hooks.addAll(hookList());
 
         ReActAgent.Builder builder = ReActAgent.builder()
                 .name("CustomerServiceAgent")
-                .model(chatModel)
+                .model(model)
                 .sysPrompt(systemPrompt)
-                .memory(new InMemoryMemory())
+                .memory(memory)
                 .toolkit(toolkit)
-                .hooks(hookList())
+                .hooks(hooks)
                 .maxIters(10);
 
         // 集成 RAG 功能（Agentic 模式）
+        PrefetchingKnowledge prefetchingKnowledge = null;
         if (ragKnowledge != null) {
             log.info("Creating CustomerServiceAgent with RAG support");
             log.info("Enabling RAG in Agentic mode");
 
+            RetrieveConfig retrieveConfig = RetrieveConfig.builder()
+                    .limit(3)
+                    .scoreThreshold(0.3)
+                    .build();
+
+            // 预取：请求入口接受问题时就开始检索，与第一次模型调用并行，工具调用直接复用结果
+            if (knowledgePrefetcher.isEnabled()) {
+                prefetchingKnowledge = knowledgePrefetcher.wrap(ragKnowledge, retrieveConfig);
+                builder.knowledge(prefetchingKnowledge)
+                        .hook(prefetchingKnowledge.hook());
+            } else {
+                builder.knowledge(ragKnowledge);
+            }
+
             // 配置 RAG 为 Agentic 模式
-            builder.knowledge(ragKnowledge)
-                    .ragMode(RAGMode.AGENTIC)
-                    .retrieveConfig(
-                            RetrieveConfig.builder()
-                                    .limit(3)
-                                    .scoreThreshold(0.3)
-                                    .build()
-                    );
+            builder.ragMode(RAGMode.AGENTIC)
+                    .retrieveConfig(retrieveConfig);
 
             log.info("RAG enabled successfully");
         } else {
             log.warn("RAG not enabled: ragKnowledge is null");
         }
 
-        // 添加 Studio 集成 Hook
+        // 添加 Studio 集成 Hook：Studio 在后台连接，连接完成后才开始转发事件
         if (monitorProperties.getStudio().isEnabled()) {
             log.info("Studio is enabled, adding StudioMessageHook to agent");
-            try {
-                builder.hook(new StudioMessageHook(StudioManager.getClient()));
-            } catch (Exception e) {
-                log.warn("Failed to add StudioMessageHook (Studio may not be initialized): {}", e.getMessage());
-            }
+            builder.hook(new LazyStudioHook());
+        }
+
+        ReActAgent agent = builder.build();
+        if (prefetchingKnowledge != null) {
+            knowledgePrefetcher.register(agent, prefetchingKnowledge);
         }
+        return agent;
+    }
 
-        return builder.build();
+    /**
+     * 创建会话记忆：默认使用带 token 预算的记忆，避免长会话的每次调用都重发全部历史
+     */
+    private Memory createMemory() {
+        AgentScopeProperties.MemoryConfig memoryConfig = agentScopeProperties.getMemory();
+        if (!memoryConfig.getEnabled()) {
+            return new InMemoryMemory();
+        }
+        return new TokenBudgetMemory(memoryConfig);
     }
 
     /**
@@ -0,0 +1,113 @@
+package com.oneagent.monitor.agent;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.hook.PrefixReuseHook;
+import com.oneagent.monitor.hook.SystemPromptHook;
+import com.oneagent.monitor.llm.PromptCacheMetrics;
+import com.oneagent.monitor.model.event.KnowledgeIndexUpdatedEvent;
+import com.oneagent.monitor.service.KnowledgeBaseService;
+import com.oneagent.monitor.util.TokenEstimator;
+import io.agentscope.core.hook.Hook;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 提示词布局
+ * <p>
+ * 为了命中服务商的前缀（KV）缓存，每次调用发送的内容按稳定程度排列：
+ * 系统提示词（末尾附带固定的知识库要点，同一知识库版本下逐字节不变）和工具定义在前，
+ * 会话历史其次，本轮问题和监控上下文、预取的检索结果等易变内容放在最后。
+ * 知识库索引更新后重新生成知识库要点，已创建的 Agent 通过 {@link #systemPromptHook(String)} 获取新内容。
+ */
+@Slf4j
+@Component
+public class PromptLayout {
+
+    private final AgentScopeProperties.PromptConfig config;
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final DistributionSummary reuseRatio;
+    private final Counter totalTokens;
+    private final Counter reusedTokens;
+    private final PromptCacheMetrics promptCacheMetrics;
+
+    /**
+     * 以下字段由 this 保护
+     */
+    private String pinnedVersion;
+    private String pinnedBlock = "";
+
+    public PromptLayout(AgentScopeProperties agentScopeProperties,
+                        KnowledgeBaseService knowledgeBaseService,
+                        MeterRegistry meterRegistry,
+                        PromptCacheMetrics promptCacheMetrics) {
+        this.config = agentScopeProperties.getPrompt();
+        this.knowledgeBaseService = knowledgeBaseService;
+        this.reuseRatio = DistributionSummary.builder("llm.prompt.prefix_reuse")
+                .description("估算的前缀缓存命中率（与上一次调用相同的前导 token 占比）")
+                .publishPercentiles(0.5, 0.9)
+                .register(meterRegistry);
+        this.totalTokens = meterRegistry.counter("llm.prompt.tokens", "part", "total");
+        this.reusedTokens = meterRegistry.counter("llm.prompt.tokens", "part", "reused_prefix");
+        this.promptCacheMetrics = promptCacheMetrics;
+    }
+
+    /**
+     * 系统提示词 + 固定的知识库要点，组成稳定前缀
+     */
+    public String systemPrompt(String basePrompt) {
+        String pinned = pinnedKnowledge();
+        return pinned.isEmpty() ? basePrompt : basePrompt + "\n" + pinned;
+    }
+
+    /**
+     * 为一个 Agent 创建 Hook，推理前把系统提示词中的知识库要点更新为当前版本
+     */
+    public Hook systemPromptHook(String basePrompt) {
+        return new SystemPromptHook(() -> systemPrompt(basePrompt));
+    }
+
+    /**
+     * 知识库索引更新后立即重新生成知识库要点，不等到下一次推理
+     */
+    @EventListener
+    public void onKnowledgeIndexUpdated(KnowledgeIndexUpdatedEvent event) {
+        if (config.getPinnedKnowledgeTokens() <= 0) {
+            return;
+        }
+        synchronized (this) {
+            pinnedVersion = null;
+        }
+        pinnedKnowledge();
+        log.info("Pinned knowledge rebuilt after index update, version={}", event.version());
+    }
+
+    /**
+     * 为一个 Agent 创建前缀复用统计 Hook，服务商不返回缓存 token 数时它的估算值作为命中率
+     */
+    public Hook prefixReuseHook() {
+        return new PrefixReuseHook(reuseRatio, totalTokens, reusedTokens, promptCacheMetrics);
+    }
+
+    /**
+     * 知识库开头的若干 token 作为固定要点，只在知识库版本变化时重新生成
+     */
+    private synchronized String pinnedKnowledge() {
+        int maxTokens = config.getPinnedKnowledgeTokens();
+        if (maxTokens <= 0) {
+            return "";
+        }
+        String version = knowledgeBaseService.getVersion();
+        if (!version.equals(pinnedVersion)) {
+            String docs = String.join("\n", knowledgeBaseService.getDocuments());
+            pinnedBlock = docs.isBlank()
+                    ? ""
+                    : "【知识库要点】\n" + TokenEstimator.truncate(docs, maxTokens).strip() + "\n";
+            pinnedVersion = version;
+        }
+        return pinnedBlock;
+    }
+}
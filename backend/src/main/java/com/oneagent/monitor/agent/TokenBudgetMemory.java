@@ -0,0 +1,293 @@
+package com.oneagent.monitor.agent;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.QueryNormalizer;
+import com.oneagent.monitor.util.TokenEstimator;
+import io.agentscope.core.hook.Hook;
+import io.agentscope.core.hook.HookEvent;
+import io.agentscope.core.hook.PreReasoningEvent;
+import io.agentscope.core.memory.InMemoryMemory;
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.MsgRole;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.message.ToolResultBlock;
+import io.agentscope.core.message.ToolUseBlock;
+import org.apache.commons.lang3.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 带 token 预算的会话记忆
+ * <p>
+ * 完整消息仍由 {@link InMemoryMemory} 保存，{@link #getMessages()} 返回完整历史（Session 持久化、回答缓存的会话指纹等都依赖它）；
+ * 只有发给模型的消息通过 {@link #promptHook()} 替换为受预算约束的视图：
+ * <ul>
+ *     <li>最近的若干轮对话原样保留</li>
+ *     <li>更早的轮次折叠为一条滚动摘要（抽取式，不额外调用 LLM）</li>
+ *     <li>非当前轮次中过长的工具返回结果被截断</li>
+ * </ul>
+ * 超出预算时一次性折叠到预算的一半，使摘要在之后若干轮内保持不变，不破坏服务商的前缀缓存。
+ */
+public class TokenBudgetMemory extends InMemoryMemory {
+
+    private static final double RETAIN_RATIO = 0.5;
+    private static final int SUMMARY_QUESTION_TOKENS = 60;
+    private static final int SUMMARY_ANSWER_TOKENS = 120;
+
+    private final int tokenBudget;
+    private final int maxToolResultTokens;
+    private final int summaryMaxTokens;
+
+    /**
+     * 以下字段由 this 保护
+     */
+    private int foldedCount;
+    private final Deque<String> summaryLines = new ArrayDeque<>();
+    private Msg summaryMsg;
+
+    public TokenBudgetMemory(AgentScopeProperties.MemoryConfig config) {
+        this.tokenBudget = config.getTokenBudget();
+        this.maxToolResultTokens = config.getMaxToolResultTokens();
+        this.summaryMaxTokens = config.getSummaryMaxTokens();
+    }
+
+    /**
+     * 在每次推理前把输入中的完整历史替换为压缩后的视图，需排在其他 Hook 之前
+     */
+    public Hook promptHook() {
+        return new PromptHook();
+    }
+
+    /**
+     * 提供给模型的历史视图：滚动摘要 + 最近的轮次
+     */
+    public synchronized List<Msg> getPromptMessages() {
+        List<Msg> raw = super.getMessages();
+        if (raw.size() < foldedCount) {
+            // 底层消息被删除过，重新从头折叠
+            resetSummary();
+        }
+
+        List<Msg> recent = compactToolResults(raw.subList(foldedCount, raw.size()));
+        if (estimate(recent) + summaryTokens() > tokenBudget) {
+            fold(raw);
+            recent = compactToolResults(raw.subList(foldedCount, raw.size()));
+        }
+
+        List<Msg> view = new ArrayList<>(recent.size() + 1);
+        if (summaryMsg != null) {
+            view.add(summaryMsg);
+        }
+        view.addAll(recent);
+        return view;
+    }
+
+    /**
+     * 找到输入中与完整历史对应的连续消息，替换为压缩后的视图；找不到时保持原样
+     */
+    synchronized List<Msg> toPrompt(List<Msg> inputMessages) {
+        List<Msg> raw = super.getMessages();
+        if (raw.isEmpty()) {
+            return inputMessages;
+        }
+        int start = inputMessages.indexOf(raw.get(0));
+        if (start < 0 || start + raw.size() > inputMessages.size()
+                || !inputMessages.subList(start, start + raw.size()).equals(raw)) {
+            return inputMessages;
+        }
+        List<Msg> prompt = new ArrayList<>(inputMessages.size());
+        prompt.addAll(inputMessages.subList(0, start));
+        prompt.addAll(getPromptMessages());
+        prompt.addAll(inputMessages.subList(start + raw.size(), inputMessages.size()));
+        return prompt;
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        resetSummary();
+    }
+
+    /**
+     * 将较早的轮次折叠进摘要，保留最近的轮次直到占用预算的一半，最新一轮总是保留
+     */
+    private void fold(List<Msg> raw) {
+        List<Integer> turnStarts = turnStarts(raw, foldedCount);
+        if (turnStarts.size() <= 1) {
+            return;
+        }
+
+        int keepFrom = turnStarts.get(turnStarts.size() - 1);
+        int retained = estimate(compactToolResults(raw.subList(keepFrom, raw.size())));
+        for (int i = turnStarts.size() - 2; i >= 0; i--) {
+            int start = turnStarts.get(i);
+            int turnTokens = estimate(compactToolResults(raw.subList(start, keepFrom)));
+            if (retained + turnTokens > tokenBudget * RETAIN_RATIO) {
+                break;
+            }
+            retained += turnTokens;
+            keepFrom = start;
+        }
+
+        for (int i = 0; i < turnStarts.size() && turnStarts.get(i) < keepFrom; i++) {
+            int start = turnStarts.get(i);
+            int end = i + 1 < turnStarts.size() ? Math.min(turnStarts.get(i + 1), keepFrom) : keepFrom;
+            summaryLines.addLast(summarizeTurn(raw.subList(start, end)));
+        }
+        while (summaryLines.size() > 1
+                && TokenEstimator.estimate(String.join("\n", summaryLines)) > summaryMaxTokens) {
+            summaryLines.removeFirst();
+        }
+
+        foldedCount = keepFrom;
+        summaryMsg = Msg.builder()
+                .name("memory_summary")
+                .role(MsgRole.SYSTEM)
+                .textContent("以下是与该用户更早对话的摘要：\n" + String.join("\n", summaryLines))
+                .build();
+    }
+
+    /**
+     * 从 from 开始，每条用户消息作为一轮的起点（第一段即使不以用户消息开头也视为一轮）
+     */
+    private List<Integer> turnStarts(List<Msg> raw, int from) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = from; i < raw.size(); i++) {
+            if (i == from || raw.get(i).getRole() == MsgRole.USER) {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    private String summarizeTurn(List<Msg> turn) {
+        String question = "";
+        String answer = "";
+        Set<String> tools = new LinkedHashSet<>();
+        for (Msg msg : turn) {
+            if (msg.getRole() == MsgRole.USER && question.isEmpty()) {
+                question = QueryNormalizer.extractQuestion(msg.getTextContent());
+            } else if (msg.getRole() == MsgRole.ASSISTANT) {
+                String text = msg.getTextContent();
+                if (StringUtils.isNotBlank(text)) {
+                    answer = text;
+                }
+            }
+            for (ContentBlock block : msg.getContent()) {
+                if (block instanceof ToolUseBlock toolUse) {
+                    tools.add(toolUse.getName());
+                }
+            }
+        }
+
+        StringBuilder line = new StringBuilder("- 用户: ")
+                .append(oneLine(TokenEstimator.truncate(question, SUMMARY_QUESTION_TOKENS)));
+        if (!answer.isEmpty()) {
+            line.append("；助手: ").append(oneLine(TokenEstimator.truncate(answer, SUMMARY_ANSWER_TOKENS)));
+        }
+        if (!tools.isEmpty()) {
+            line.append("（调用工具: ").append(String.join(", ", tools)).append("）");
+        }
+        return line.toString();
+    }
+
+    /**
+     * 截断除最新一轮以外的过长工具结果；最新一轮的工具结果模型可能正在使用，保持原样
+     */
+    private List<Msg> compactToolResults(List<Msg> messages) {
+        List<Integer> starts = turnStarts(messages, 0);
+        int currentTurnStart = starts.isEmpty() ? messages.size() : starts.get(starts.size() - 1);
+
+        List<Msg> result = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Msg msg = messages.get(i);
+            result.add(i < currentTurnStart ? truncateToolResults(msg) : msg);
+        }
+        return result;
+    }
+
+    private Msg truncateToolResults(Msg msg) {
+        boolean changed = false;
+        List<ContentBlock> blocks = new ArrayList<>(msg.getContent().size());
+        for (ContentBlock block : msg.getContent()) {
+            if (block instanceof ToolResultBlock toolResult) {
+                String output = toolResult.getOutput().stream()
+                        .filter(TextBlock.class::isInstance)
+                        .map(b -> ((TextBlock) b).getText())
+                        .reduce("", String::concat);
+                if (TokenEstimator.estimate(output) > maxToolResultTokens) {
+                    blocks.add(ToolResultBlock.builder()
+                            .id(toolResult.getId())
+                            .name(toolResult.getName())
+                            .output(List.of(TextBlock.builder()
+                                    .text(TokenEstimator.truncate(output, maxToolResultTokens) + "…[结果过长已截断]")
+                                    .build()))
+                            .build());
+                    changed = true;
+                    continue;
+                }
+            }
+            blocks.add(block);
+        }
+        if (!changed) {
+            return msg;
+        }
+        return Msg.builder()
+                .name(msg.getName())
+                .role(msg.getRole())
+                .content(blocks)
+                .build();
+    }
+
+    private int estimate(List<Msg> messages) {
+        int tokens = 0;
+        for (Msg msg : messages) {
+            for (ContentBlock block : msg.getContent()) {
+                if (block instanceof TextBlock text) {
+                    tokens += TokenEstimator.estimate(text.getText());
+                } else if (block instanceof ToolResultBlock toolResult) {
+                    for (ContentBlock output : toolResult.getOutput()) {
+                        if (output instanceof TextBlock text) {
+                            tokens += TokenEstimator.estimate(text.getText());
+                        }
+                    }
+                } else if (block instanceof ToolUseBlock toolUse) {
+                    tokens += TokenEstimator.estimate(String.valueOf(toolUse.getInput()));
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private int summaryTokens() {
+        return summaryMsg == null ? 0 : TokenEstimator.estimate(summaryMsg.getTextContent());
+    }
+
+    private void resetSummary() {
+        foldedCount = 0;
+        summaryLines.clear();
+        summaryMsg = null;
+    }
+
+    private static String oneLine(String text) {
+        return text == null ? "" : text.replaceAll("\\s+", " ").trim();
+    }
+
+    private final class PromptHook implements Hook {
+
+        @Override
+        public <T extends HookEvent> Mono<T> onEvent(T event) {
+            if (event instanceof PreReasoningEvent e && e.getInputMessages() != null) {
+                e.setInputMessages(toPrompt(e.getInputMessages()));
+            }
+            return Mono.just(event);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.oneagent.monitor.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求的并发合并（single-flight）
+ * <p>
+ * 同一个 key 同时只有一次真正的执行，其余请求订阅同一个共享流；共享流会缓存已产生的事件，
+ * 晚到的请求先重放前缀再继续接收后续事件。执行结束后 key 被移除，之后的请求重新执行。
+ * 所有订阅者都取消时，执行仍会继续完成，以便结果写入回答缓存。
+ */
+@Slf4j
+@Component
+public class InflightRequestCoalescer {
+
+    private final Map<String, Flux<?>> inflight = new ConcurrentHashMap<>();
+    private final Counter executions;
+    private final Counter joined;
+
+    public InflightRequestCoalescer(MeterRegistry meterRegistry) {
+        this.executions = meterRegistry.counter("agent.request.coalesce", "result", "execute");
+        this.joined = meterRegistry.counter("agent.request.coalesce", "result", "joined");
+        Gauge.builder("agent.request.inflight", inflight, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * 加入或发起一次执行
+     *
+     * @param key       合并 key
+     * @param execution 真正的执行，只有发起者会订阅
+     * @return 共享的事件流，以及当前请求是否为发起者
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Execution<T> join(String key, Supplier<Flux<T>> execution) {
+        boolean[] leader = {false};
+        Flux<T> shared = (Flux<T>) inflight.computeIfAbsent(key, k -> {
+            leader[0] = true;
+            return share(k, execution);
+        });
+
+        if (leader[0]) {
+            executions.increment();
+        } else {
+            joined.increment();
+            log.info("合并进行中的相同请求: {}", key);
+        }
+        return new Execution<>(shared, leader[0]);
+    }
+
+    private <T> Flux<T> share(String key, Supplier<Flux<T>> execution) {
+        AtomicReference<Flux<T>> self = new AtomicReference<>();
+        Flux<T> shared = Flux.defer(execution)
+                .doFinally(signal -> inflight.remove(key, self.get()))
+                .cache();
+        self.set(shared);
+        return shared;
+    }
+
+    /**
+     * 一次合并后的执行
+     *
+     * @param flux   共享事件流
+     * @param leader 当前请求是否为真正发起执行的一方
+     */
+    public record Execution<T>(Flux<T> flux, boolean leader) {
+    }
+}
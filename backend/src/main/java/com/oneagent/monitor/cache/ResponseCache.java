@@ -0,0 +1,230 @@
+package com.oneagent.monitor.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oneagent.monitor.model.config.MonitorProperties;
+import com.oneagent.monitor.model.event.KnowledgeBaseReloadedEvent;
+import com.oneagent.monitor.model.event.KnowledgeIndexUpdatedEvent;
+import com.oneagent.monitor.model.event.MonitorHealthChangedEvent;
+import com.oneagent.monitor.service.KnowledgeBaseService;
+import com.oneagent.monitor.service.MonitorService;
+import com.oneagent.monitor.util.QueryNormalizer;
+import io.agentscope.core.message.Msg;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agent 回答缓存
+ * <p>
+ * key 由归一化后的用户问题、知识库版本、监控状态分桶和会话历史指纹组成，按容量（LRU）和 TTL 淘汰。
+ * 追问（如"那企业版呢"）的回答依赖之前的对话，只在历史完全相同的会话之间复用。
+ * 知识库重新加载或监控健康状态变化时整体失效。
+ * 精确匹配未命中时，再由 {@link SemanticResponseCache} 按语义相似度查找。
+ */
+@Slf4j
+@Component
+public class ResponseCache {
+
+    private final MonitorProperties.ResponseCacheConfig config;
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final MonitorService monitorService;
+    private final SemanticResponseCache semanticCache;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Key, Entry> entries;
+    private final Counter hits;
+    private final Counter semanticHits;
+    private final Counter misses;
+
+    public ResponseCache(MonitorProperties monitorProperties,
+                         KnowledgeBaseService knowledgeBaseService,
+                         MonitorService monitorService,
+                         SemanticResponseCache semanticCache,
+                         MeterRegistry meterRegistry) {
+        this.config = monitorProperties.getResponseCache();
+        this.knowledgeBaseService = knowledgeBaseService;
+        this.monitorService = monitorService;
+        this.semanticCache = semanticCache;
+        int maxSize = config.getMaxSize();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.hits = meterRegistry.counter("agent.response.cache", "result", "hit");
+        this.semanticHits = meterRegistry.counter("agent.response.cache", "result", "semantic_hit");
+        this.misses = meterRegistry.counter("agent.response.cache", "result", "miss");
+        Gauge.builder("agent.response.cache.size", this, ResponseCache::size).register(meterRegistry);
+    }
+
+    /**
+     * 根据当前知识库版本、监控状态和会话历史生成缓存 key
+     *
+     * @param history 本轮提问之前的会话消息，新会话为空
+     */
+    public Key currentKey(String userQuery, List<Msg> history) {
+        return new Key(
+                QueryNormalizer.normalize(userQuery),
+                knowledgeBaseService.getVersion(),
+                monitorService.getStateBucket(),
+                historyFingerprint(history)
+        );
+    }
+
+    /**
+     * 会话历史指纹，没有历史时为空字符串
+     */
+    private static String historyFingerprint(List<Msg> history) {
+        if (history == null || history.isEmpty()) {
+            return "";
+        }
+        StringBuilder content = new StringBuilder();
+        for (Msg msg : history) {
+            content.append(msg.getRole()).append('\u0000')
+                    .append(msg.getTextContent()).append('\u0001');
+        }
+        return DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 查询缓存：先精确匹配，再语义匹配，均未命中时返回空
+     */
+    public Mono<CachedAnswer> find(Key key) {
+        if (!config.isEnabled() || key.query().isEmpty()) {
+            return Mono.empty();
+        }
+        CachedAnswer exact = getExact(key);
+        if (exact != null) {
+            hits.increment();
+            return Mono.just(exact);
+        }
+        return semanticCache.find(key)
+                .doOnNext(answer -> semanticHits.increment())
+                .switchIfEmpty(Mono.fromRunnable(misses::increment));
+    }
+
+    private CachedAnswer getExact(Key key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAtNanos() - System.nanoTime() > 0) {
+                return entry.answer();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 缓存一个完整的文本回答
+     */
+    public void put(Key key, String reply) {
+        put(key, new CachedAnswer(reply, List.of()));
+    }
+
+    /**
+     * 缓存一次流式回答的完整事件序列，重放时前端看到的事件与原始流一致
+     */
+    public void putStream(Key key, List<StreamEvent> events) {
+        put(key, toAnswer(events));
+    }
+
+    /**
+     * 将流式事件序列还原为回答，回复文本由所有 content 事件拼接而成
+     */
+    public CachedAnswer toAnswer(List<StreamEvent> events) {
+        StringBuilder reply = new StringBuilder();
+        for (StreamEvent event : events) {
+            if ("content".equals(event.event())) {
+                try {
+                    reply.append(objectMapper.readValue(event.data(), String.class));
+                } catch (Exception e) {
+                    reply.append(event.data());
+                }
+            }
+        }
+        return new CachedAnswer(reply.toString(), List.copyOf(events));
+    }
+
+    private void put(Key key, CachedAnswer answer) {
+        if (!config.isEnabled() || key.query().isEmpty()
+                || answer.reply() == null || answer.reply().isBlank()) {
+            return;
+        }
+        long expiresAt = System.nanoTime() + config.getTtl().toNanos();
+        synchronized (entries) {
+            entries.put(key, new Entry(answer, expiresAt));
+        }
+        semanticCache.put(key, answer);
+        log.debug("回答已缓存: query={}, kb={}, monitor={}", key.query(), key.kbVersion(), key.monitorBucket());
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll(String reason) {
+        semanticCache.invalidateAll();
+        synchronized (entries) {
+            if (entries.isEmpty()) {
+                return;
+            }
+            entries.clear();
+        }
+        log.info("回答缓存已清空: {}", reason);
+    }
+
+    @EventListener
+    public void onKnowledgeBaseReloaded(KnowledgeBaseReloadedEvent event) {
+        invalidateAll("知识库已更新, version=" + event.version());
+    }
+
+    @EventListener
+    public void onKnowledgeIndexUpdated(KnowledgeIndexUpdatedEvent event) {
+        invalidateAll("知识库索引已更新, version=" + event.version());
+    }
+
+    @EventListener
+    public void onMonitorHealthChanged(MonitorHealthChangedEvent event) {
+        invalidateAll("监控状态变化, status=" + event.status());
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 缓存 key
+     *
+     * @param history 会话历史指纹，新会话为空字符串
+     */
+    public record Key(String query, String kbVersion, String monitorBucket, String history) {
+    }
+
+    /**
+     * 缓存的回答：完整回复文本，以及流式接口记录的 SSE 事件序列（批量接口为空）
+     */
+    public record CachedAnswer(String reply, List<StreamEvent> events) {
+    }
+
+    /**
+     * 一条 SSE 事件
+     */
+    public record StreamEvent(String event, String data) {
+    }
+
+    private record Entry(CachedAnswer answer, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,200 @@
+package com.oneagent.monitor.cache;
+
+import com.oneagent.monitor.model.config.MonitorProperties;
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.message.TextBlock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 语义回答缓存
+ * <p>
+ * 使用已配置的 {@link EmbeddingModel} 对问题做向量化，在一个小型内存向量索引中按余弦相似度查找
+ * 已有回答，用于命中"价格怎么算"与"计费方式"这类同义改写。条目按 LRU 淘汰，有效期与精确匹配的缓存相同，
+ * 只在知识库版本、监控状态分桶和会话历史都相同的条目之间匹配。
+ */
+@Slf4j
+@Component
+public class SemanticResponseCache {
+
+    private static final int RECENT_VECTOR_CAPACITY = 256;
+
+    private final MonitorProperties.SemanticCacheConfig config;
+    private final Duration ttl;
+    private final EmbeddingModel embeddingModel;
+    private final Map<ResponseCache.Key, Entry> entries;
+    private final Map<String, float[]> recentVectors;
+
+    public SemanticResponseCache(MonitorProperties monitorProperties,
+                                 ObjectProvider<EmbeddingModel> embeddingModelProvider) {
+        this.config = monitorProperties.getResponseCache().getSemantic();
+        this.ttl = monitorProperties.getResponseCache().getTtl();
+        this.embeddingModel = embeddingModelProvider.getIfAvailable();
+        int maxSize = config.getMaxSize();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ResponseCache.Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        // 查询时算出的向量暂存一份，写入缓存时不必再调用一次 Embedding 接口
+        this.recentVectors = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > RECENT_VECTOR_CAPACITY;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled() && embeddingModel != null;
+    }
+
+    /**
+     * 查找语义相近的已缓存回答，未命中时返回空
+     */
+    public Mono<ResponseCache.CachedAnswer> find(ResponseCache.Key key) {
+        if (!isEnabled()) {
+            return Mono.empty();
+        }
+        return embed(key.query())
+                .flatMap(vector -> Mono.justOrEmpty(nearest(key, vector)))
+                .onErrorResume(e -> {
+                    log.warn("语义缓存查询失败，跳过: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 写入回答，问题向量优先复用查询时的结果
+     */
+    public void put(ResponseCache.Key key, ResponseCache.CachedAnswer answer) {
+        if (!isEnabled()) {
+            return;
+        }
+        float[] vector;
+        synchronized (recentVectors) {
+            vector = recentVectors.get(key.query());
+        }
+        if (vector != null) {
+            store(key, vector, answer);
+            return;
+        }
+        embed(key.query()).subscribe(
+                v -> store(key, v, answer),
+                e -> log.warn("语义缓存写入失败: {}", e.getMessage()));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private Mono<float[]> embed(String query) {
+        synchronized (recentVectors) {
+            float[] cached = recentVectors.get(query);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+        }
+        return embeddingModel.embed(TextBlock.builder().text(query).build())
+                .map(SemanticResponseCache::toUnitVector)
+                .doOnNext(vector -> {
+                    synchronized (recentVectors) {
+                        recentVectors.put(query, vector);
+                    }
+                });
+    }
+
+    private void store(ResponseCache.Key key, float[] vector, ResponseCache.CachedAnswer answer) {
+        long expiresAt = System.nanoTime() + ttl.toNanos();
+        synchronized (entries) {
+            entries.put(key, new Entry(vector, answer, expiresAt));
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private ResponseCache.CachedAnswer nearest(ResponseCache.Key key, float[] vector) {
+        ResponseCache.Key bestKey = null;
+        Entry best = null;
+        double bestScore = config.getThreshold();
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Iterator<Map.Entry<ResponseCache.Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<ResponseCache.Key, Entry> candidate = iterator.next();
+                if (candidate.getValue().expiresAtNanos() - now <= 0) {
+                    iterator.remove();
+                    continue;
+                }
+                ResponseCache.Key candidateKey = candidate.getKey();
+                if (!candidateKey.kbVersion().equals(key.kbVersion())
+                        || !candidateKey.monitorBucket().equals(key.monitorBucket())
+                        || !candidateKey.history().equals(key.history())) {
+                    continue;
+                }
+                double score = dot(vector, candidate.getValue().vector());
+                if (score >= bestScore) {
+                    bestScore = score;
+                    bestKey = candidateKey;
+                    best = candidate.getValue();
+                }
+            }
+            if (bestKey != null) {
+                // 触发 LRU 访问顺序更新
+                entries.get(bestKey);
+            }
+        }
+        if (best != null) {
+            log.info("语义缓存命中: '{}' ~ '{}' (score={})", key.query(), bestKey.query(), String.format("%.3f", bestScore));
+            return best.answer();
+        }
+        return null;
+    }
+
+    private static float[] toUnitVector(double[] embedding) {
+        double norm = 0;
+        for (double v : embedding) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] vector = new float[embedding.length];
+        if (norm == 0) {
+            return vector;
+        }
+        for (int i = 0; i < embedding.length; i++) {
+            vector[i] = (float) (embedding[i] / norm);
+        }
+        return vector;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private record Entry(float[] vector, ResponseCache.CachedAnswer answer, long expiresAtNanos) {
+    }
+}
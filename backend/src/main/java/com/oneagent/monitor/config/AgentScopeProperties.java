@@ -1,8 +1,18 @@
 package com.oneagent.monitor.config;
 
+import com.oneagent.monitor.llm.SchedulingPolicy;
+import com.oneagent.monitor.llm.WorkloadClass;
+import com.oneagent.monitor.rag.store.VectorIndexType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * AgentScope 配置属性
  */
@@ -20,6 +30,26 @@ public class AgentScopeProperties {
      */
     private EmbeddingConfig embedding = new EmbeddingConfig();
 
+    /**
+     * 会话记忆配置
+     */
+    private MemoryConfig memory = new MemoryConfig();
+
+    /**
+     * RAG 检索配置
+     */
+    private RagConfig rag = new RagConfig();
+
+    /**
+     * 工具执行配置
+     */
+    private ToolsConfig tools = new ToolsConfig();
+
+    /**
+     * 提示词布局配置
+     */
+    private PromptConfig prompt = new PromptConfig();
+
     @Data
     public static class LlmConfig {
         private String apiKey;
@@ -28,6 +58,117 @@ public class AgentScopeProperties {
         private Double temperature = 0.7;
         private Integer maxTokens = 2000;
         private Boolean stream = true;
+
+        /**
+         * LLM 调用调度配置
+         */
+        private SchedulerConfig scheduler = new SchedulerConfig();
+
+        /**
+         * 对冲请求配置
+         */
+        private HedgeConfig hedge = new HedgeConfig();
+
+        /**
+         * 分级模型，按从便宜到昂贵的顺序配置；为空时所有请求使用上面的单一模型
+         */
+        private List<TierConfig> tiers = new ArrayList<>();
+    }
+
+    @Data
+    public static class TierConfig {
+        private String name;
+        /**
+         * 地址和密钥不配置时与 agentscope.llm 相同
+         */
+        private String baseUrl;
+        private String apiKey;
+        private String modelName;
+        /**
+         * 能处理的最高问题复杂度：0 简单，1 一般，2 复杂
+         */
+        private Integer maxComplexity = 2;
+        /**
+         * 每千 token 价格，用于成本统计
+         */
+        private Double inputCostPer1k = 0.0;
+        private Double outputCostPer1k = 0.0;
+        /**
+         * 滚动窗口内首 token 延迟 p90 超过该值时暂停路由
+         */
+        private Duration maxFirstTokenLatency = Duration.ofSeconds(8);
+        /**
+         * 滚动窗口内错误率超过该值时暂停路由
+         */
+        private Double maxErrorRate = 0.2;
+        /**
+         * 暂停路由的冷却时间
+         */
+        private Duration cooldown = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class HedgeConfig {
+        private Boolean enabled = true;
+        /**
+         * 对冲延迟取最近首 token 延迟的该分位数
+         */
+        private Double percentile = 0.95;
+        /**
+         * 样本不足时使用的对冲延迟
+         */
+        private Duration initialDelay = Duration.ofSeconds(3);
+        private Duration minDelay = Duration.ofMillis(500);
+        private Duration maxDelay = Duration.ofSeconds(10);
+        /**
+         * 对冲带来的额外请求占总请求数的上限（百分比）
+         */
+        private Double budgetPercent = 5.0;
+        /**
+         * 预算最多累积的对冲次数，允许短时突发
+         */
+        private Double budgetBurst = 3.0;
+        /**
+         * 对冲请求使用的备用地址、密钥和模型，不配置时与主模型相同
+         */
+        private String baseUrl;
+        private String apiKey;
+        private String modelName;
+    }
+
+    @Data
+    public static class SchedulerConfig {
+        private Boolean enabled = true;
+        /**
+         * 所有负载类别共享的全局并发上限（通常对应服务商的并发配额）
+         */
+        private Integer maxConcurrency = 8;
+        private SchedulingPolicy policy = SchedulingPolicy.STRICT_PRIORITY;
+        /**
+         * 各负载类别的并发上限与权重
+         */
+        private Map<WorkloadClass, WorkloadConfig> classes = defaultClasses();
+
+        private static Map<WorkloadClass, WorkloadConfig> defaultClasses() {
+            Map<WorkloadClass, WorkloadConfig> classes = new EnumMap<>(WorkloadClass.class);
+            classes.put(WorkloadClass.INTERACTIVE, new WorkloadConfig(8, 4));
+            classes.put(WorkloadClass.BATCH, new WorkloadConfig(4, 1));
+            return classes;
+        }
+    }
+
+    @Data
+    public static class WorkloadConfig {
+        private Integer maxConcurrency = 4;
+        private Integer weight = 1;
+
+        public WorkloadConfig() {
+        }
+
+        public WorkloadConfig(Integer maxConcurrency, Integer weight) {
+            this.maxConcurrency = maxConcurrency;
+            this.weight = weight;
+        }
     }
 
     @Data
@@ -36,5 +177,275 @@ public class AgentScopeProperties {
         private String baseUrl = "https://api.openai.com/v1";
         private String modelName = "text-embedding-3-small";
         private Boolean enabled = true;
+        /**
+         * 知识库分块向量的磁盘缓存
+         */
+        private EmbeddingCacheConfig cache = new EmbeddingCacheConfig();
+        /**
+         * 知识库构建时的批量 Embedding
+         */
+        private EmbeddingBatchConfig batch = new EmbeddingBatchConfig();
+        /**
+         * 检索时的查询向量内存缓存
+         */
+        private QueryEmbeddingCacheConfig queryCache = new QueryEmbeddingCacheConfig();
+    }
+
+    @Data
+    public static class QueryEmbeddingCacheConfig {
+        private Boolean enabled = true;
+        private Integer maxSize = 1024;
+        private Duration ttl = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class EmbeddingCacheConfig {
+        private Boolean enabled = true;
+        /**
+         * 缓存文件路径，key 为 (模型名, 分块文本) 的哈希
+         */
+        private String path = System.getProperty("user.home") + "/.monitor-agent/embedding-cache.bin";
+    }
+
+    @Data
+    public static class EmbeddingBatchConfig {
+        /**
+         * 每次请求的文本段数，不超过服务商的批量上限
+         */
+        private Integer size = 64;
+        /**
+         * 同时进行的批量请求数
+         */
+        private Integer concurrency = 4;
+        /**
+         * 429 / 5xx / 网络错误的重试次数
+         */
+        private Integer maxRetries = 3;
+        private Duration timeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class MemoryConfig {
+        /**
+         * 是否启用 token 预算记忆，关闭时使用不限长度的 InMemoryMemory
+         */
+        private Boolean enabled = true;
+        /**
+         * 每次调用发送的历史消息 token 上限（本地估算）
+         */
+        private Integer tokenBudget = 3000;
+        /**
+         * 历史轮次中单个工具结果的 token 上限
+         */
+        private Integer maxToolResultTokens = 400;
+        /**
+         * 滚动摘要的 token 上限
+         */
+        private Integer summaryMaxTokens = 600;
+    }
+
+    @Data
+    public static class RagConfig {
+        /**
+         * 知识库预取配置
+         */
+        private PrefetchConfig prefetch = new PrefetchConfig();
+        /**
+         * 向量索引配置
+         */
+        private IndexConfig index = new IndexConfig();
+        /**
+         * 关键词与向量混合检索配置
+         */
+        private HybridConfig hybrid = new HybridConfig();
+        /**
+         * 文档分块配置
+         */
+        private ChunkConfig chunk = new ChunkConfig();
+        /**
+         * 构建阶段生成的索引文件
+         */
+        private ArtifactConfig artifact = new ArtifactConfig();
+        /**
+         * 分块近似去重配置
+         */
+        private DedupeConfig dedupe = new DedupeConfig();
+        /**
+         * 检索结果压缩配置
+         */
+        private CompressionConfig compression = new CompressionConfig();
+    }
+
+    @Data
+    public static class DedupeConfig {
+        private Boolean enabled = true;
+        /**
+         * MinHash 估计的 Jaccard 相似度达到该值的分块视为重复
+         */
+        private Double similarity = 0.85;
+    }
+
+    @Data
+    public static class CompressionConfig {
+        private Boolean enabled = true;
+        /**
+         * 每次检索结果注入上下文的 token 预算（按 TokenEstimator 估算）
+         */
+        private Integer maxTokens = 400;
+        /**
+         * 句子得分中向量相似度的权重，其余为词项覆盖；0 表示只按词项打分。
+         * 大于 0 时每次压缩多一次批量 Embedding 请求，查询向量复用向量检索的结果
+         */
+        private Double embeddingWeight = 0.0;
+        /**
+         * 句子向量化的等待上限，超时后只按词项打分
+         */
+        private Duration embeddingTimeout = Duration.ofMillis(300);
+    }
+
+    @Data
+    public static class ArtifactConfig {
+        private Boolean enabled = true;
+        /**
+         * 索引文件位置（Spring Resource 路径），由 KnowledgeIndexBuilder 生成
+         * <p>
+         * 文件内嵌 HNSW 图，只有 index.type=HNSW 时能直接恢复为索引；IN_MEMORY 和 MMAP 仍在启动时逐个插入文件中的向量
+         * （MMAP 插入后释放堆上的向量）。
+         */
+        private String location = "classpath:knowledge-index.bin";
+    }
+
+    @Data
+    public static class ChunkConfig {
+        /**
+         * 按 Markdown 标题层级分块，关闭时按段落分块（TextReader）
+         */
+        private Boolean markdown = true;
+        /**
+         * 每个分块的最大 token 数（估算值）
+         */
+        private Integer maxTokens = 512;
+    }
+
+    @Data
+    public static class HybridConfig {
+        private Boolean enabled = true;
+        /**
+         * 关键词检索第一名的词项覆盖率达到该值时不再做向量检索
+         */
+        private Double keywordConfidence = 0.8;
+        /**
+         * 倒数排名融合的平滑常数 k
+         */
+        private Integer rrfK = 60;
+    }
+
+    @Data
+    public static class IndexConfig {
+        /**
+         * 向量索引类型
+         */
+        private VectorIndexType type = VectorIndexType.IN_MEMORY;
+        private Integer dimensions = 1536;
+        /**
+         * 索引文件路径，知识库未变化时重启直接加载
+         */
+        private String path = System.getProperty("user.home") + "/.monitor-agent/knowledge-index.bin";
+        private Boolean persist = true;
+        private HnswConfig hnsw = new HnswConfig();
+        private MmapConfig mmap = new MmapConfig();
+    }
+
+    @Data
+    public static class HnswConfig {
+        /**
+         * 每个节点在各层的最大连接数（第 0 层为 2M）
+         */
+        private Integer m = 16;
+        /**
+         * 构建时的候选集大小，越大图质量越好、构建越慢
+         */
+        private Integer efConstruction = 200;
+        /**
+         * 检索时的候选集大小，越大召回率越高、检索越慢
+         */
+        private Integer efSearch = 64;
+    }
+
+    @Data
+    public static class MmapConfig {
+        /**
+         * 映射文件所在目录，文件随索引替换删除
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/monitor-agent-vectors";
+        /**
+         * 是否额外保存 int8 量化副本用于初筛
+         */
+        private Boolean quantize = true;
+        /**
+         * 量化初筛保留 limit 的多少倍候选，再用全精度向量重新打分
+         */
+        private Integer rescoreFactor = 4;
+        /**
+         * 每个映射段容纳的向量数
+         */
+        private Integer segmentVectors = 16384;
+    }
+
+    @Data
+    public static class PrefetchConfig {
+        private Boolean enabled = true;
+        /**
+         * 模型检索词与用户问题的字符二元组 Jaccard 相似度达到该值时复用预取结果
+         */
+        private Double reuseSimilarity = 0.3;
+        /**
+         * 第一次推理开始时预取已完成、且最高得分达到该值时，直接注入上下文（不等待未完成的预取）
+         */
+        private Double injectScoreThreshold = 0.75;
+    }
+
+    @Data
+    public static class ToolsConfig {
+        /**
+         * 同一步推理中的多个工具调用是否并行执行
+         */
+        private Boolean parallel = true;
+        /**
+         * 工具执行线程池大小
+         */
+        private Integer maxConcurrency = 4;
+        /**
+         * 工具执行线程池的等待队列容量，满时由调用线程执行
+         */
+        private Integer queueCapacity = 64;
+        /**
+         * 默认的单次工具调用超时
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+        /**
+         * 按工具名覆盖的超时，只支持自己执行超时的工具（send_feishu_alert、create_apifox_document），
+         * 配置其他工具名时启动失败
+         */
+        private Map<String, Duration> timeouts = new HashMap<>();
+
+        public Duration timeoutOf(String toolName) {
+            return timeouts.getOrDefault(toolName, timeout);
+        }
+
+        /**
+         * 默认超时和各覆盖值中最长的一个
+         */
+        public Duration maxTimeout() {
+            return timeouts.values().stream().reduce(timeout, (a, b) -> a.compareTo(b) >= 0 ? a : b);
+        }
+    }
+
+    @Data
+    public static class PromptConfig {
+        /**
+         * 固定放入系统提示词的知识库开头 token 数，为 0 时不固定
+         */
+        private Integer pinnedKnowledgeTokens = 0;
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,16 @@
 package com.oneagent.monitor.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oneagent.monitor.cache.InflightRequestCoalescer;
+import com.oneagent.monitor.cache.ResponseCache;
 import com.oneagent.monitor.model.dto.ActionTriggered;
 import com.oneagent.monitor.model.dto.InputCase;
 import com.oneagent.monitor.model.entity.MonitorStatus;
+import com.oneagent.monitor.rag.KnowledgePrefetcher;
 import com.oneagent.monitor.service.ChatService;
 import com.oneagent.monitor.service.MonitorService;
 import com.oneagent.monitor.util.MsgUtils;
 import io.agentscope.core.ReActAgent;
-import io.agentscope.core.agent.Event;
 import io.agentscope.core.agent.EventType;
 import io.agentscope.core.agent.StreamOptions;
 import io.agentscope.core.message.Msg;
@@ -28,6 +30,7 @@ import reactor.core.scheduler.Schedulers;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -42,10 +45,15 @@ import java.util.stream.Collectors;
 @RequestMapping("/api")
 public class WebFluxStreamingController {
 
+    private static final int REPLAY_CHUNK_SIZE = 16;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final ChatService chatService;
     private final MonitorService monitorService;
     private final ObjectProvider<ReActAgent> customerServiceAgentProvider;
+    private final ResponseCache responseCache;
+    private final InflightRequestCoalescer requestCoalescer;
+    private final KnowledgePrefetcher knowledgePrefetcher;
 
     // 会话管理：每个 caseId 对应一个 Agent 实例
     private final ConcurrentHashMap<String, ReActAgent> agentSessions = new ConcurrentHashMap<>();
@@ -53,10 +61,16 @@ public class WebFluxStreamingController {
     public WebFluxStreamingController(
             ChatService chatService,
             MonitorService monitorService,
-            ObjectProvider<ReActAgent> customerServiceAgentProvider) {
+            ObjectProvider<ReActAgent> customerServiceAgentProvider,
+            ResponseCache responseCache,
+            InflightRequestCoalescer requestCoalescer,
+            KnowledgePrefetcher knowledgePrefetcher) {
         this.chatService = chatService;
         this.monitorService = monitorService;
         this.customerServiceAgentProvider = customerServiceAgentProvider;
+        this.responseCache = responseCache;
+        this.requestCoalescer = requestCoalescer;
+        this.knowledgePrefetcher = knowledgePrefetcher;
     }
 
     /**
@@ -79,6 +93,9 @@ public class WebFluxStreamingController {
         Session session = new JsonSession(Path.of(System.getProperty("user.home"), ".agentscope", "sessions", "monitor"));
         customerServiceAgent.loadIfExists(session, inputCase.getCaseId());
 
+        // 接受问题后立即预取知识库，与告警处理和第一次模型调用并行
+        knowledgePrefetcher.prefetch(customerServiceAgent, inputCase.getUserQuery());
+
         // 更新监控服务
         monitorService.updateStatus(
                 inputCase.getApiStatus(),
@@ -102,6 +119,18 @@ public class WebFluxStreamingController {
                 .textContent(contextualQuery)
                 .build();
 
+        // 命中回答缓存时以流的形式重放，前端无需区分；key 包含会话历史，追问不会命中其他会话的回答
+        ResponseCache.Key cacheKey = responseCache.currentKey(inputCase.getUserQuery(),
+                customerServiceAgent.getMemory().getMessages());
+        Flux<ServerSentEvent<String>> cachedReplay = responseCache.find(cacheKey)
+                .flatMapMany(cached -> {
+                    log.info("会话 {} 命中回答缓存", inputCase.getCaseId());
+                    recordCachedTurn(customerServiceAgent, message, cached.reply());
+                    customerServiceAgent.saveTo(session, inputCase.getCaseId());
+                    return replay(cached);
+                });
+        List<ResponseCache.StreamEvent> recorded = Collections.synchronizedList(new ArrayList<>());
+
         // Configure streaming options - INCREMENTAL mode for SSE
         StreamOptions streamOptions =
                 StreamOptions.builder()
@@ -110,10 +139,8 @@ public class WebFluxStreamingController {
                         .includeReasoningResult(false)
                         .build();
 
-        // 使用 AgentScope 的 stream API
-        Flux<Event> eventFlux = customerServiceAgent.stream(message, streamOptions);
-
-        return eventFlux
+        // 使用 AgentScope 的 stream API，仅在缓存未命中时订阅
+        Flux<ServerSentEvent<String>> agentStream = Flux.defer(() -> customerServiceAgent.stream(message, streamOptions))
                 .subscribeOn(Schedulers.boundedElastic())
                 .doFinally(
                         signalType -> {
@@ -177,7 +204,81 @@ public class WebFluxStreamingController {
                                             .build()
                             );
                         }
-                    })            .filter(sseEvent -> sseEvent.data() != null && !sseEvent.data().isEmpty());
+                    })            .filter(sseEvent -> sseEvent.data() != null && !sseEvent.data().isEmpty())
+                .doOnNext(sseEvent -> recorded.add(new ResponseCache.StreamEvent(sseEvent.event(), sseEvent.data())))
+                .doOnComplete(() -> responseCache.putStream(cacheKey, recorded));
+
+        // 相同问题、相同监控快照的并发请求共享同一次 Agent 执行
+        String coalesceKey = coalesceKey(cacheKey);
+        Flux<ServerSentEvent<String>> sharedStream = Flux.defer(() -> {
+            InflightRequestCoalescer.Execution<ServerSentEvent<String>> execution =
+                    requestCoalescer.join(coalesceKey, () -> agentStream);
+            if (execution.leader()) {
+                return execution.flux();
+            }
+            log.info("会话 {} 复用进行中的相同请求", inputCase.getCaseId());
+            List<ResponseCache.StreamEvent> received = Collections.synchronizedList(new ArrayList<>());
+            return execution.flux()
+                    .doOnNext(sseEvent -> received.add(new ResponseCache.StreamEvent(sseEvent.event(), sseEvent.data())))
+                    .doOnComplete(() -> {
+                        recordCachedTurn(customerServiceAgent, message, responseCache.toAnswer(received).reply());
+                        customerServiceAgent.saveTo(session, inputCase.getCaseId());
+                    });
+        });
+
+        return cachedReplay.switchIfEmpty(sharedStream);
+    }
+
+    /**
+     * 请求合并 key：归一化问题 + 知识库版本 + 会话历史指纹 + 当前监控快照
+     * 只有历史相同的会话才会合并，追问不会拿到其他会话上下文下的回答
+     */
+    private String coalesceKey(ResponseCache.Key cacheKey) {
+        MonitorStatus status = monitorService.getCurrentStatus();
+        return String.join("|",
+                cacheKey.query(),
+                cacheKey.kbVersion(),
+                cacheKey.monitorBucket(),
+                cacheKey.history(),
+                status.getStatus(),
+                status.getResponseTime());
+    }
+
+    /**
+     * 将缓存的回答重放为 SSE 流
+     * 批量接口缓存的回答没有事件序列，按固定长度切分为 content 事件
+     */
+    private Flux<ServerSentEvent<String>> replay(ResponseCache.CachedAnswer answer) {
+        if (!answer.events().isEmpty()) {
+            return Flux.fromIterable(answer.events())
+                    .map(event -> ServerSentEvent.<String>builder()
+                            .event(event.event())
+                            .data(event.data())
+                            .build());
+        }
+
+        String reply = answer.reply();
+        List<ServerSentEvent<String>> events = new ArrayList<>();
+        for (int start = 0; start < reply.length(); start += REPLAY_CHUNK_SIZE) {
+            String chunk = reply.substring(start, Math.min(reply.length(), start + REPLAY_CHUNK_SIZE));
+            events.add(ServerSentEvent.<String>builder()
+                    .event("content")
+                    .data(toJson(chunk))
+                    .build());
+        }
+        return Flux.fromIterable(events);
+    }
+
+    /**
+     * 将缓存命中或合并复用的一轮问答写入 Agent 记忆，保持会话上下文连续
+     */
+    private void recordCachedTurn(ReActAgent agent, Msg question, String reply) {
+        agent.getMemory().addMessage(question);
+        agent.getMemory().addMessage(Msg.builder()
+                .name(agent.getName())
+                .role(MsgRole.ASSISTANT)
+                .textContent(reply)
+                .build());
     }
 
     /**
@@ -0,0 +1,95 @@
+package com.oneagent.monitor.hook;
+
+import com.oneagent.monitor.llm.PromptCacheMetrics;
+import com.oneagent.monitor.util.TokenEstimator;
+import io.agentscope.core.hook.Hook;
+import io.agentscope.core.hook.HookEvent;
+import io.agentscope.core.hook.PreReasoningEvent;
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.message.ToolResultBlock;
+import io.agentscope.core.message.ToolUseBlock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 统计相邻两次模型调用之间可复用的提示词前缀
+ * <p>
+ * 服务商的前缀缓存只对与上一次请求完全相同的开头部分生效。每个 Agent 一个实例，
+ * 比较本次与上次调用的消息序列，相同的前导消息的 token 数占比即为估算的前缀缓存命中率。
+ * 这只是本地估算：服务商返回实际缓存 token 数时以 {@link PromptCacheMetrics} 中的实际值为准。
+ */
+public class PrefixReuseHook implements Hook {
+
+    private final DistributionSummary reuseRatio;
+    private final Counter totalTokens;
+    private final Counter reusedTokens;
+    private final PromptCacheMetrics promptCacheMetrics;
+    private List<String> previous = List.of();
+
+    public PrefixReuseHook(DistributionSummary reuseRatio, Counter totalTokens, Counter reusedTokens,
+                           PromptCacheMetrics promptCacheMetrics) {
+        this.reuseRatio = reuseRatio;
+        this.totalTokens = totalTokens;
+        this.reusedTokens = reusedTokens;
+        this.promptCacheMetrics = promptCacheMetrics;
+    }
+
+    @Override
+    public <T extends HookEvent> Mono<T> onEvent(T event) {
+        if (event instanceof PreReasoningEvent e && e.getInputMessages() != null) {
+            record(e.getInputMessages());
+        }
+        return Mono.just(event);
+    }
+
+    private synchronized void record(List<Msg> messages) {
+        List<String> current = new ArrayList<>(messages.size());
+        for (Msg msg : messages) {
+            current.add(fingerprint(msg));
+        }
+
+        int total = 0;
+        int reused = 0;
+        boolean matching = true;
+        for (int i = 0; i < current.size(); i++) {
+            int tokens = TokenEstimator.estimate(current.get(i));
+            total += tokens;
+            matching = matching && i < previous.size() && previous.get(i).equals(current.get(i));
+            if (matching) {
+                reused += tokens;
+            }
+        }
+        previous = current;
+
+        totalTokens.increment(total);
+        reusedTokens.increment(reused);
+        double ratio = total == 0 ? 0.0 : (double) reused / total;
+        reuseRatio.record(ratio);
+        promptCacheMetrics.recordEstimate(ratio);
+    }
+
+    private static String fingerprint(Msg msg) {
+        StringBuilder text = new StringBuilder()
+                .append(msg.getRole()).append('|').append(msg.getName()).append('|');
+        for (ContentBlock block : msg.getContent()) {
+            if (block instanceof TextBlock textBlock) {
+                text.append(textBlock.getText());
+            } else if (block instanceof ToolUseBlock toolUse) {
+                text.append(toolUse.getName()).append(toolUse.getInput());
+            } else if (block instanceof ToolResultBlock toolResult) {
+                for (ContentBlock output : toolResult.getOutput()) {
+                    if (output instanceof TextBlock outputText) {
+                        text.append(outputText.getText());
+                    }
+                }
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.oneagent.monitor.hook;
+
+import io.agentscope.core.hook.Hook;
+import io.agentscope.core.hook.HookEvent;
+import io.agentscope.core.hook.PreReasoningEvent;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.MsgRole;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 在每次推理前把输入中的系统提示词换成最新内容
+ * <p>
+ * Agent 的系统提示词在创建时固定，其中依赖知识库等会变化的部分通过该 Hook 保持最新；
+ * 内容未变化时不替换，前缀保持逐字节一致。
+ */
+public class SystemPromptHook implements Hook {
+
+    private final Supplier<String> systemPrompt;
+
+    public SystemPromptHook(Supplier<String> systemPrompt) {
+        this.systemPrompt = systemPrompt;
+    }
+
+    @Override
+    public <T extends HookEvent> Mono<T> onEvent(T event) {
+        if (event instanceof PreReasoningEvent e && e.getInputMessages() != null
+                && !e.getInputMessages().isEmpty()) {
+            Msg first = e.getInputMessages().get(0);
+            String prompt = systemPrompt.get();
+            if (first.getRole() == MsgRole.SYSTEM && !prompt.equals(first.getTextContent())) {
+                List<Msg> messages = new ArrayList<>(e.getInputMessages());
+                messages.set(0, Msg.builder()
+                        .name(first.getName())
+                        .role(MsgRole.SYSTEM)
+                        .textContent(prompt)
+                        .build());
+                e.setInputMessages(messages);
+            }
+        }
+        return Mono.just(event);
+    }
+}
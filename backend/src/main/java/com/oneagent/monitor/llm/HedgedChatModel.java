@@ -0,0 +1,111 @@
+package com.oneagent.monitor.llm;
+
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.model.ChatResponse;
+import io.agentscope.core.model.GenerateOptions;
+import io.agentscope.core.model.Model;
+import io.agentscope.core.model.ToolSchema;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 带对冲的模型包装
+ * <p>
+ * 主请求在对冲延迟内没有返回首个响应块时，再发出一个相同的请求（可发往备用地址或模型），
+ * 先开始流式返回的一方胜出，另一方被取消。是否对冲受 {@link LlmHedger} 的预算限制。
+ * <p>
+ * 主请求在产生数据前失败时立即把错误返回给调用方，不会等到对冲延迟到期；
+ * 对冲请求失败只记录日志，结果以主请求为准。
+ * <p>
+ * 外层由 {@link ScheduledChatModel} 调度时，主请求占用外层的槽位，对冲请求另外向 {@link LlmCallScheduler}
+ * 申请同类别的槽位；没有空闲槽位时不发出对冲（不消耗预算），对冲不会让实际并发超过调度器上限。
+ */
+@Slf4j
+public class HedgedChatModel implements Model {
+
+    private final Model primary;
+    private final Model secondary;
+    private final LlmHedger.Window hedger;
+    private final LlmCallScheduler scheduler;
+
+    HedgedChatModel(Model primary, Model secondary, LlmHedger.Window hedger, LlmCallScheduler scheduler) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.hedger = hedger;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(List<Msg> messages, List<ToolSchema> tools, GenerateOptions options) {
+        return Flux.deferContextual(context -> {
+            WorkloadClass workloadClass = context.getOrDefault(WorkloadClass.class, null);
+            hedger.onRequest();
+            Duration delay = hedger.currentDelay();
+
+            Flux<ChatResponse> first = timed(primary.stream(messages, tools, options));
+            Flux<ChatResponse> hedge = Mono.delay(delay)
+                    .flatMapMany(tick -> {
+                        if (workloadClass != null && !scheduler.hasIdleSlot(workloadClass)) {
+                            log.debug("调度器无空闲槽位，跳过对冲: model={}", secondary.getModelName());
+                            return Flux.never();
+                        }
+                        if (!hedger.tryHedge()) {
+                            return Flux.never();
+                        }
+                        log.info("首 token 超过 {}ms 未返回，发出对冲请求: model={}",
+                                delay.toMillis(), secondary.getModelName());
+                        AtomicBoolean counted = new AtomicBoolean();
+                        Flux<ChatResponse> attempt = workloadClass == null
+                                ? secondary.stream(messages, tools, options)
+                                : scheduler.schedule(workloadClass, () -> secondary.stream(messages, tools, options));
+                        return attempt
+                                .doOnNext(response -> {
+                                    if (counted.compareAndSet(false, true)) {
+                                        hedger.recordHedgeWon();
+                                    }
+                                })
+                                .onErrorResume(e -> {
+                                    log.warn("对冲请求失败，继续等待主请求: model={}, error={}",
+                                            secondary.getModelName(), e.getMessage());
+                                    return Flux.never();
+                                });
+                    });
+
+            // 先发出信号（数据、完成或错误）的一方胜出，另一方被取消；
+            // 未对冲或对冲失败时 hedge 不会发出信号，等价于直接返回主请求
+            return Flux.firstWithSignal(first, hedge);
+        });
+    }
+
+    @Override
+    public String getModelName() {
+        return primary.getModelName();
+    }
+
+    /**
+     * 记录主请求的首 token 延迟；被取消时尚未返回首 token，则把已等待的时间作为样本（真实延迟只会更长）。
+     * 对冲请求晚于主请求发出，其延迟不代表主请求的分布，不计入窗口
+     */
+    private Flux<ChatResponse> timed(Flux<ChatResponse> flux) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean();
+            return flux
+                    .doOnNext(response -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            hedger.recordFirstToken(System.nanoTime() - start);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            hedger.recordFirstToken(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+}
@@ -0,0 +1,262 @@
+package com.oneagent.monitor.llm;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import io.agentscope.core.model.Model;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * LLM 调用调度器
+ * <p>
+ * 所有 Agent 共享同一个全局并发上限，每个 {@link WorkloadClass} 另有各自的并发上限和等待队列。
+ * 槽位空出时按 {@link SchedulingPolicy} 选择下一个请求，保证批量任务跑满时交互式请求的首 token 延迟不受影响。
+ * 一个槽位从请求发出一直占用到流式响应结束。
+ */
+@Slf4j
+@Component
+public class LlmCallScheduler {
+
+    private final boolean enabled;
+    private final int maxConcurrency;
+    private final SchedulingPolicy policy;
+    private final Map<WorkloadClass, ClassState> states = new EnumMap<>(WorkloadClass.class);
+
+    /**
+     * 以下字段由 this 保护
+     */
+    private int active;
+    private double virtualTime;
+
+    public LlmCallScheduler(AgentScopeProperties agentScopeProperties, MeterRegistry meterRegistry) {
+        AgentScopeProperties.SchedulerConfig config = agentScopeProperties.getLlm().getScheduler();
+        this.enabled = config.getEnabled();
+        this.maxConcurrency = config.getMaxConcurrency();
+        this.policy = config.getPolicy();
+
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            AgentScopeProperties.WorkloadConfig classConfig = config.getClasses()
+                    .getOrDefault(workloadClass, new AgentScopeProperties.WorkloadConfig());
+            ClassState state = new ClassState(
+                    workloadClass,
+                    Math.min(classConfig.getMaxConcurrency(), maxConcurrency),
+                    Math.max(classConfig.getWeight(), 1),
+                    Timer.builder("llm.scheduler.queue.time")
+                            .tag("workload", workloadClass.name().toLowerCase())
+                            .publishPercentiles(0.5, 0.95, 0.99)
+                            .register(meterRegistry));
+            states.put(workloadClass, state);
+
+            String tag = workloadClass.name().toLowerCase();
+            Gauge.builder("llm.scheduler.active", state, s -> activeOf(s))
+                    .tag("workload", tag).register(meterRegistry);
+            Gauge.builder("llm.scheduler.waiting", state, s -> waitingOf(s))
+                    .tag("workload", tag).register(meterRegistry);
+        }
+
+        log.info("LLM scheduler: enabled={}, maxConcurrency={}, policy={}, classes={}",
+                enabled, maxConcurrency, policy, states.values());
+    }
+
+    /**
+     * 将模型包装为按指定负载类别调度的模型
+     */
+    public Model wrap(Model model, WorkloadClass workloadClass) {
+        return new ScheduledChatModel(model, this, workloadClass);
+    }
+
+    /**
+     * 获取槽位后执行调用，调用结束（完成、出错或取消）时释放槽位
+     */
+    public <T> Flux<T> schedule(WorkloadClass workloadClass, Supplier<Flux<T>> call) {
+        if (!enabled) {
+            return Flux.defer(call);
+        }
+        return acquire(states.get(workloadClass))
+                .flatMapMany(permit -> Flux.defer(call).doFinally(signal -> permit.release()));
+    }
+
+    /**
+     * 指定类别此刻能否不排队直接拿到槽位：调度关闭、全局和类别都有空闲槽位且没有其他请求在排队。
+     * 对冲请求据此决定是否发出，避免在满载时排在正常请求前后占用队列
+     */
+    public synchronized boolean hasIdleSlot(WorkloadClass workloadClass) {
+        if (!enabled) {
+            return true;
+        }
+        ClassState state = states.get(workloadClass);
+        if (active >= maxConcurrency || state.active >= state.maxConcurrency) {
+            return false;
+        }
+        for (ClassState other : states.values()) {
+            if (!other.queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Mono<Permit> acquire(ClassState state) {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(sink, state, System.nanoTime());
+            List<Waiter> granted;
+            synchronized (this) {
+                state.queue.add(waiter);
+                granted = dispatch();
+            }
+            sink.onCancel(() -> cancel(waiter));
+            deliver(granted);
+        });
+    }
+
+    private void cancel(Waiter waiter) {
+        Permit permit;
+        synchronized (this) {
+            if (waiter.state.queue.remove(waiter)) {
+                return;
+            }
+            permit = waiter.permit;
+        }
+        // 已分配槽位但下游已取消，归还槽位
+        if (permit != null) {
+            permit.release();
+        }
+    }
+
+    private void release(ClassState state) {
+        List<Waiter> granted;
+        synchronized (this) {
+            state.active--;
+            active--;
+            granted = dispatch();
+        }
+        deliver(granted);
+    }
+
+    /**
+     * 在持有锁的情况下分配空闲槽位，返回需要在锁外通知的等待者
+     */
+    private List<Waiter> dispatch() {
+        List<Waiter> granted = new ArrayList<>();
+        while (active < maxConcurrency) {
+            ClassState next = selectNext();
+            if (next == null) {
+                break;
+            }
+            Waiter waiter = next.queue.poll();
+            next.active++;
+            active++;
+            // 加权公平（起始时间公平排队）：全局虚拟时间取本次调度的起始时间而不是结束时间，
+            // 否则等待中的类别起始时间总被拉平到当前类别，权重低的类别会被饿死
+            double start = Math.max(next.virtualTime, virtualTime);
+            next.virtualTime = start + 1.0 / next.weight;
+            virtualTime = start;
+            waiter.permit = new Permit(next);
+            granted.add(waiter);
+        }
+        return granted;
+    }
+
+    private ClassState selectNext() {
+        ClassState selected = null;
+        for (ClassState state : states.values()) {
+            if (state.queue.isEmpty() || state.active >= state.maxConcurrency) {
+                continue;
+            }
+            if (policy == SchedulingPolicy.STRICT_PRIORITY) {
+                return state;
+            }
+            double start = Math.max(state.virtualTime, virtualTime);
+            if (selected == null || start < Math.max(selected.virtualTime, virtualTime)) {
+                selected = state;
+            }
+        }
+        return selected;
+    }
+
+    private void deliver(List<Waiter> granted) {
+        for (Waiter waiter : granted) {
+            waiter.state.queueTimer.record(System.nanoTime() - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    private synchronized int activeOf(ClassState state) {
+        return state.active;
+    }
+
+    private synchronized int waitingOf(ClassState state) {
+        return state.queue.size();
+    }
+
+    /**
+     * 单个负载类别的调度状态
+     */
+    private static final class ClassState {
+        private final WorkloadClass workloadClass;
+        private final int maxConcurrency;
+        private final int weight;
+        private final Timer queueTimer;
+        private final Queue<Waiter> queue = new ArrayDeque<>();
+        private int active;
+        private double virtualTime;
+
+        ClassState(WorkloadClass workloadClass, int maxConcurrency, int weight, Timer queueTimer) {
+            this.workloadClass = workloadClass;
+            this.maxConcurrency = maxConcurrency;
+            this.weight = weight;
+            this.queueTimer = queueTimer;
+        }
+
+        @Override
+        public String toString() {
+            return workloadClass + "(max=" + maxConcurrency + ", weight=" + weight + ")";
+        }
+    }
+
+    private static final class Waiter {
+        private final MonoSink<Permit> sink;
+        private final ClassState state;
+        private final long enqueuedAt;
+        private Permit permit;
+
+        Waiter(MonoSink<Permit> sink, ClassState state, long enqueuedAt) {
+            this.sink = sink;
+            this.state = state;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    /**
+     * 已分配的并发槽位，释放操作幂等
+     */
+    private final class Permit {
+        private final ClassState state;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(ClassState state) {
+            this.state = state;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                LlmCallScheduler.this.release(state);
+            }
+        }
+    }
+}
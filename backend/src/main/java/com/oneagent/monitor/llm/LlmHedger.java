@@ -0,0 +1,149 @@
+package com.oneagent.monitor.llm;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import io.agentscope.core.model.Model;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * LLM 对冲请求策略
+ * <p>
+ * 每个被包装的模型（各级分级模型各自一份）维护最近一段时间的首 token 延迟样本，对冲延迟取其中的指定分位数；
+ * 对冲预算按请求数累积，每个请求存入 budget-percent% 个额度，每次对冲消耗 1 个，
+ * 保证对冲带来的额外负载不超过该比例。不同模型的延迟分布不同，窗口和预算互不影响。
+ */
+@Slf4j
+@Component
+public class LlmHedger {
+
+    private static final int WINDOW_SIZE = 256;
+    private static final int MIN_SAMPLES = 20;
+
+    private final AgentScopeProperties.HedgeConfig config;
+    private final MeterRegistry meterRegistry;
+    private final LlmCallScheduler llmCallScheduler;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public LlmHedger(AgentScopeProperties agentScopeProperties, MeterRegistry meterRegistry,
+                     LlmCallScheduler llmCallScheduler) {
+        this.config = agentScopeProperties.getLlm().getHedge();
+        this.meterRegistry = meterRegistry;
+        this.llmCallScheduler = llmCallScheduler;
+        log.info("LLM hedging: enabled={}, percentile={}, budgetPercent={}, secondary={}",
+                config.getEnabled(), config.getPercentile(), config.getBudgetPercent(),
+                config.getModelName() != null ? config.getModelName() : "<primary>");
+    }
+
+    public boolean isEnabled() {
+        return config.getEnabled();
+    }
+
+    /**
+     * 将主模型包装为带对冲的模型，对冲请求发往 secondary（可以与主模型相同）
+     * 同名主模型共享一个延迟窗口和预算；对冲请求向调度器单独申请槽位
+     */
+    public Model wrap(Model primary, Model secondary) {
+        return new HedgedChatModel(primary, secondary, window(primary.getModelName()), llmCallScheduler);
+    }
+
+    /**
+     * 指定模型的延迟窗口和对冲预算
+     */
+    Window window(String modelName) {
+        return windows.computeIfAbsent(modelName, Window::new);
+    }
+
+    /**
+     * 单个模型的首 token 延迟窗口和对冲预算
+     */
+    final class Window {
+
+        private final String modelName;
+        private final Counter fired;
+        private final Counter won;
+        private final Counter skipped;
+
+        /**
+         * 以下字段由 this 保护
+         */
+        private final long[] samples = new long[WINDOW_SIZE];
+        private int sampleCount;
+        private int nextSample;
+        private double budget;
+
+        private Window(String modelName) {
+            this.modelName = modelName;
+            this.fired = meterRegistry.counter("llm.hedge", "model", modelName, "result", "fired");
+            this.won = meterRegistry.counter("llm.hedge", "model", modelName, "result", "won");
+            this.skipped = meterRegistry.counter("llm.hedge", "model", modelName, "result", "skipped_budget");
+            this.budget = config.getBudgetBurst();
+            Gauge.builder("llm.hedge.delay", this, w -> w.currentDelay().toMillis())
+                    .tag("model", modelName)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+
+        String modelName() {
+            return modelName;
+        }
+
+        /**
+         * 当前的对冲延迟：样本不足时使用初始延迟，否则取分位数并限制在上下界内
+         */
+        synchronized Duration currentDelay() {
+            if (sampleCount < MIN_SAMPLES) {
+                return config.getInitialDelay();
+            }
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(config.getPercentile() * sorted.length) - 1);
+            long delayNanos = sorted[Math.max(index, 0)];
+            long min = config.getMinDelay().toNanos();
+            long max = config.getMaxDelay().toNanos();
+            return Duration.ofNanos(Math.max(min, Math.min(max, delayNanos)));
+        }
+
+        /**
+         * 记录一次首 token 延迟
+         */
+        synchronized void recordFirstToken(long nanos) {
+            samples[nextSample] = nanos;
+            nextSample = (nextSample + 1) % WINDOW_SIZE;
+            sampleCount = Math.min(sampleCount + 1, WINDOW_SIZE);
+        }
+
+        /**
+         * 每个请求存入预算
+         */
+        synchronized void onRequest() {
+            budget = Math.min(config.getBudgetBurst(), budget + config.getBudgetPercent() / 100.0);
+        }
+
+        /**
+         * 尝试消耗一次对冲预算
+         */
+        boolean tryHedge() {
+            synchronized (this) {
+                if (budget >= 1.0) {
+                    budget -= 1.0;
+                    fired.increment();
+                    return true;
+                }
+            }
+            skipped.increment();
+            return false;
+        }
+
+        void recordHedgeWon() {
+            won.increment();
+        }
+    }
+}
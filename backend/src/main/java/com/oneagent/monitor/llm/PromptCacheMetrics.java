@@ -0,0 +1,71 @@
+package com.oneagent.monitor.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * 服务商前缀缓存命中率
+ * <p>
+ * 每次模型请求按服务商返回的 usage.prompt_tokens_details.cached_tokens 记录实际命中率（cached / prompt_tokens）。
+ * 服务商不返回该字段时，才改用 {@link com.oneagent.monitor.hook.PrefixReuseHook} 比较相邻调用得到的估算值，
+ * 两者分别以 source=provider / source=estimate 标记。
+ */
+@Component
+public class PromptCacheMetrics {
+
+    private final DistributionSummary providerRatio;
+    private final DistributionSummary estimatedRatio;
+    private final Counter promptTokens;
+    private final Counter cachedTokens;
+
+    /**
+     * 最近一次响应是否带有缓存 token 数
+     */
+    private volatile boolean providerReportsCachedTokens;
+
+    public PromptCacheMetrics(MeterRegistry meterRegistry) {
+        this.providerRatio = ratio(meterRegistry, "provider");
+        this.estimatedRatio = ratio(meterRegistry, "estimate");
+        this.promptTokens = meterRegistry.counter("llm.prompt.cache.tokens", "part", "prompt");
+        this.cachedTokens = meterRegistry.counter("llm.prompt.cache.tokens", "part", "cached");
+    }
+
+    private static DistributionSummary ratio(MeterRegistry meterRegistry, String source) {
+        return DistributionSummary.builder("llm.prompt.cache_hit")
+                .description("每次模型请求的前缀缓存命中率")
+                .tag("source", source)
+                .publishPercentiles(0.5, 0.9)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次响应的 usage
+     *
+     * @param cachedTokens 服务商返回的缓存 token 数，没有该字段时为 null
+     */
+    public void recordUsage(int promptTokens, Integer cachedTokens) {
+        providerReportsCachedTokens = cachedTokens != null;
+        if (cachedTokens == null || promptTokens <= 0) {
+            return;
+        }
+        int cached = Math.min(cachedTokens, promptTokens);
+        this.promptTokens.increment(promptTokens);
+        this.cachedTokens.increment(cached);
+        providerRatio.record((double) cached / promptTokens);
+    }
+
+    /**
+     * 记录本地估算的命中率，服务商返回实际缓存 token 数时忽略
+     */
+    public void recordEstimate(double ratio) {
+        if (!providerReportsCachedTokens) {
+            estimatedRatio.record(ratio);
+        }
+    }
+
+    public boolean isProviderReportingCachedTokens() {
+        return providerReportsCachedTokens;
+    }
+}
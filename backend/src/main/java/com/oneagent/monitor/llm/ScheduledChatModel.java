@@ -0,0 +1,40 @@
+package com.oneagent.monitor.llm;
+
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.model.ChatResponse;
+import io.agentscope.core.model.GenerateOptions;
+import io.agentscope.core.model.Model;
+import io.agentscope.core.model.ToolSchema;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * 经过 {@link LlmCallScheduler} 调度的模型包装，每次调用先排队获取并发槽位
+ * <p>
+ * 负载类别写入 Reactor Context（键为 {@code WorkloadClass.class}），
+ * 内层的 {@link HedgedChatModel} 据此为对冲请求单独获取同类别的槽位。
+ */
+public class ScheduledChatModel implements Model {
+
+    private final Model delegate;
+    private final LlmCallScheduler scheduler;
+    private final WorkloadClass workloadClass;
+
+    public ScheduledChatModel(Model delegate, LlmCallScheduler scheduler, WorkloadClass workloadClass) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.workloadClass = workloadClass;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(List<Msg> messages, List<ToolSchema> tools, GenerateOptions options) {
+        return scheduler.schedule(workloadClass, () -> delegate.stream(messages, tools, options))
+                .contextWrite(context -> context.put(WorkloadClass.class, workloadClass));
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+}
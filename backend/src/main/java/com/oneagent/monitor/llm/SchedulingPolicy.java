@@ -0,0 +1,17 @@
+package com.oneagent.monitor.llm;
+
+/**
+ * 并发槽位空出时选择下一个等待请求的策略
+ */
+public enum SchedulingPolicy {
+
+    /**
+     * 严格优先级：只要有高优先级请求在等待，就不调度低优先级请求
+     */
+    STRICT_PRIORITY,
+
+    /**
+     * 加权公平：按各类别权重分配槽位，低优先级请求不会被饿死
+     */
+    WEIGHTED_FAIR
+}
@@ -0,0 +1,80 @@
+package com.oneagent.monitor.llm;
+
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.model.ChatResponse;
+import io.agentscope.core.model.ChatUsage;
+import io.agentscope.core.model.GenerateOptions;
+import io.agentscope.core.model.Model;
+import io.agentscope.core.model.ToolSchema;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 经过 {@link TieredModelRouter} 路由的模型
+ * <p>
+ * 每次调用按本轮用户问题的复杂度选择一级模型；所选模型在返回任何内容前失败时，改用另一级重试一次。
+ */
+@Slf4j
+public class TieredChatModel implements Model {
+
+    private final List<TieredModelRouter.Tier> tiers;
+    private final TieredModelRouter router;
+
+    public TieredChatModel(List<TieredModelRouter.Tier> tiers, TieredModelRouter router) {
+        this.tiers = List.copyOf(tiers);
+        this.router = router;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(List<Msg> messages, List<ToolSchema> tools, GenerateOptions options) {
+        return Flux.defer(() -> {
+            int complexity = router.estimateComplexity(messages);
+            TieredModelRouter.Tier tier = router.select(tiers, complexity);
+            log.debug("模型路由: complexity={}, tier={}", complexity, tier.getName());
+            return call(tier, messages, tools, options, true);
+        });
+    }
+
+    /**
+     * 实际模型按每次调用路由，这里返回能力最强的一级（未配置分级时使用的标准模型），而不是最便宜的一级
+     */
+    @Override
+    public String getModelName() {
+        return tiers.get(tiers.size() - 1).model().getModelName();
+    }
+
+    private Flux<ChatResponse> call(TieredModelRouter.Tier tier, List<Msg> messages,
+                                    List<ToolSchema> tools, GenerateOptions options, boolean allowFailover) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean emitted = new AtomicBoolean();
+            AtomicReference<ChatUsage> usage = new AtomicReference<>();
+            return tier.model().stream(messages, tools, options)
+                    .doOnNext(response -> {
+                        if (emitted.compareAndSet(false, true)) {
+                            tier.recordFirstToken(System.nanoTime() - start);
+                        }
+                        if (response.getUsage() != null) {
+                            usage.set(response.getUsage());
+                        }
+                    })
+                    .doOnComplete(() -> tier.recordSuccess(System.nanoTime() - start, usage.get()))
+                    .onErrorResume(e -> {
+                        tier.recordError();
+                        if (emitted.get() || !allowFailover || tiers.size() < 2) {
+                            return Flux.error(e);
+                        }
+                        List<TieredModelRouter.Tier> others = new ArrayList<>(tiers);
+                        others.remove(tier);
+                        TieredModelRouter.Tier fallback = router.select(others, router.estimateComplexity(messages));
+                        log.warn("模型分级 {} 调用失败，切换到 {}: {}", tier.getName(), fallback.getName(), e.getMessage());
+                        return call(fallback, messages, tools, options, false);
+                    });
+        });
+    }
+}
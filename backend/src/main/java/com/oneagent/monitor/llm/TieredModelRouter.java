@@ -0,0 +1,247 @@
+package com.oneagent.monitor.llm;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.QueryNormalizer;
+import com.oneagent.monitor.util.TokenEstimator;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.MsgRole;
+import io.agentscope.core.model.ChatUsage;
+import io.agentscope.core.model.Model;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分级模型路由
+ * <p>
+ * agentscope.llm.tiers 按从便宜到昂贵的顺序配置多个模型，每级声明能处理的最高复杂度。
+ * 请求按用户问题的估算复杂度选择能处理它的最便宜一级；某一级最近的首 token 延迟或错误率超过阈值时，
+ * 在冷却期内跳过该级，流量转移到下一级（没有更高级时转向更低级）。
+ */
+@Slf4j
+@Component
+public class TieredModelRouter {
+
+    /**
+     * 需要多步推理或引用监控数据的问题特征
+     */
+    private static final List<String> COMPLEX_KEYWORDS = List.of(
+            "为什么", "原因", "分析", "对比", "比较", "排查", "故障", "异常", "稳定", "报错", "延迟", "方案", "如何配置");
+    private static final String MONITOR_ALERT_MARKER = "[系统状态提醒";
+    private static final int SIMPLE_MAX_TOKENS = 30;
+    private static final int COMPLEX_MIN_TOKENS = 120;
+
+    private final MeterRegistry meterRegistry;
+
+    public TieredModelRouter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 将配置好的各级模型组合为一个按复杂度路由的模型
+     */
+    public Model route(List<Tier> tiers) {
+        log.info("Model tiers: {}", tiers);
+        return new TieredChatModel(tiers, this);
+    }
+
+    /**
+     * 创建一级模型，包含其健康统计与指标
+     */
+    public Tier tier(AgentScopeProperties.TierConfig config, Model model) {
+        return new Tier(config, model, meterRegistry);
+    }
+
+    /**
+     * 估算本轮对话的复杂度：0 简单（问候、短 FAQ），1 一般，2 复杂（长问题、排障分析、系统异常时）
+     */
+    int estimateComplexity(List<Msg> messages) {
+        Msg lastUser = null;
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i).getRole() == MsgRole.USER) {
+                lastUser = messages.get(i);
+                break;
+            }
+        }
+        if (lastUser == null) {
+            return 1;
+        }
+
+        String text = lastUser.getTextContent();
+        String question = QueryNormalizer.extractQuestion(text);
+        int tokens = TokenEstimator.estimate(question);
+        boolean complexTopic = COMPLEX_KEYWORDS.stream().anyMatch(question::contains);
+        boolean monitorAlert = text != null && text.contains(MONITOR_ALERT_MARKER);
+
+        if (tokens >= COMPLEX_MIN_TOKENS || (complexTopic && monitorAlert)) {
+            return 2;
+        }
+        if (complexTopic || monitorAlert || tokens > SIMPLE_MAX_TOKENS) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * 选择处理该复杂度的模型：能处理它的最便宜且健康的一级，否则向更高级、再向更低级寻找健康的一级
+     */
+    Tier select(List<Tier> tiers, int complexity) {
+        int preferred = tiers.size() - 1;
+        for (int i = 0; i < tiers.size(); i++) {
+            if (tiers.get(i).config.getMaxComplexity() >= complexity) {
+                preferred = i;
+                break;
+            }
+        }
+        for (int i = preferred; i < tiers.size(); i++) {
+            if (tiers.get(i).isAvailable()) {
+                return tiers.get(i);
+            }
+        }
+        for (int i = preferred - 1; i >= 0; i--) {
+            if (tiers.get(i).isAvailable()) {
+                return tiers.get(i);
+            }
+        }
+        return tiers.get(preferred);
+    }
+
+    /**
+     * 一级模型：滚动窗口内的首 token 延迟与错误率，以及延迟、吞吐和成本指标
+     */
+    public static final class Tier {
+
+        private static final int WINDOW_SIZE = 50;
+        private static final int MIN_SAMPLES = 10;
+
+        private final AgentScopeProperties.TierConfig config;
+        private final Model model;
+        private final Timer latency;
+        private final Timer firstToken;
+        private final Counter successes;
+        private final Counter errors;
+        private final Counter inputTokens;
+        private final Counter outputTokens;
+        private final Counter cost;
+
+        /**
+         * 以下字段由 this 保护
+         */
+        private final long[] firstTokenNanos = new long[WINDOW_SIZE];
+        private final boolean[] failed = new boolean[WINDOW_SIZE];
+        private int sampleCount;
+        private int nextSample;
+        private long unavailableUntilNanos;
+        private boolean tripped;
+
+        Tier(AgentScopeProperties.TierConfig config, Model model, MeterRegistry meterRegistry) {
+            this.config = config;
+            this.model = model;
+            String name = config.getName();
+            this.latency = Timer.builder("llm.tier.latency").tag("tier", name)
+                    .publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+            this.firstToken = Timer.builder("llm.tier.first_token").tag("tier", name)
+                    .publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+            this.successes = meterRegistry.counter("llm.tier.requests", "tier", name, "result", "success");
+            this.errors = meterRegistry.counter("llm.tier.requests", "tier", name, "result", "error");
+            this.inputTokens = meterRegistry.counter("llm.tier.tokens", "tier", name, "type", "input");
+            this.outputTokens = meterRegistry.counter("llm.tier.tokens", "tier", name, "type", "output");
+            this.cost = meterRegistry.counter("llm.tier.cost", "tier", name);
+        }
+
+        public String getName() {
+            return config.getName();
+        }
+
+        Model model() {
+            return model;
+        }
+
+        synchronized boolean isAvailable() {
+            if (!tripped) {
+                return true;
+            }
+            if (System.nanoTime() - unavailableUntilNanos >= 0) {
+                // 冷却结束，清空窗口重新观察
+                tripped = false;
+                sampleCount = 0;
+                nextSample = 0;
+                log.info("模型分级 {} 冷却结束，恢复路由", config.getName());
+                return true;
+            }
+            return false;
+        }
+
+        void recordFirstToken(long nanos) {
+            firstToken.record(nanos, TimeUnit.NANOSECONDS);
+            record(nanos, false);
+        }
+
+        void recordError() {
+            errors.increment();
+            record(0, true);
+        }
+
+        void recordSuccess(long totalNanos, ChatUsage usage) {
+            successes.increment();
+            latency.record(totalNanos, TimeUnit.NANOSECONDS);
+            if (usage != null) {
+                inputTokens.increment(usage.getInputTokens());
+                outputTokens.increment(usage.getOutputTokens());
+                cost.increment(usage.getInputTokens() / 1000.0 * config.getInputCostPer1k()
+                        + usage.getOutputTokens() / 1000.0 * config.getOutputCostPer1k());
+            }
+        }
+
+        private synchronized void record(long nanos, boolean error) {
+            firstTokenNanos[nextSample] = nanos;
+            failed[nextSample] = error;
+            nextSample = (nextSample + 1) % WINDOW_SIZE;
+            sampleCount = Math.min(sampleCount + 1, WINDOW_SIZE);
+            if (sampleCount < MIN_SAMPLES || tripped) {
+                return;
+            }
+
+            int errorCount = 0;
+            List<Long> latencies = new ArrayList<>(sampleCount);
+            for (int i = 0; i < sampleCount; i++) {
+                if (failed[i]) {
+                    errorCount++;
+                } else {
+                    latencies.add(firstTokenNanos[i]);
+                }
+            }
+            double errorRate = (double) errorCount / sampleCount;
+            long p90 = percentile(latencies, 0.9);
+            if (errorRate > config.getMaxErrorRate() || p90 > config.getMaxFirstTokenLatency().toNanos()) {
+                tripped = true;
+                unavailableUntilNanos = System.nanoTime() + config.getCooldown().toNanos();
+                log.warn("模型分级 {} 暂停路由 {}: errorRate={}, p90FirstToken={}ms",
+                        config.getName(), config.getCooldown(), String.format("%.2f", errorRate),
+                        TimeUnit.NANOSECONDS.toMillis(p90));
+            }
+        }
+
+        private static long percentile(List<Long> values, double quantile) {
+            if (values.isEmpty()) {
+                return 0;
+            }
+            long[] sorted = values.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            return config.getName() + "(" + config.getModelName() + ", maxComplexity=" + config.getMaxComplexity() + ")";
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.oneagent.monitor.llm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.agentscope.core.model.transport.HttpRequest;
+import io.agentscope.core.model.transport.HttpResponse;
+import io.agentscope.core.model.transport.HttpTransport;
+import io.agentscope.core.model.transport.HttpTransportException;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+/**
+ * 聊天模型的 HTTP 传输层包装，从响应（流式时为带 usage 的最后一个分片）中读取 prompt_tokens 和
+ * prompt_tokens_details.cached_tokens 交给 {@link PromptCacheMetrics}，其余行为与被包装的传输层相同。
+ * 模型转换出的 ChatUsage 不包含缓存 token 数，只能在这里读取原始响应。
+ */
+@Slf4j
+public class UsageRecordingTransport implements HttpTransport {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String DATA_PREFIX = "data:";
+
+    private final HttpTransport delegate;
+    private final PromptCacheMetrics metrics;
+
+    public UsageRecordingTransport(HttpTransport delegate, PromptCacheMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws HttpTransportException {
+        HttpResponse response = delegate.execute(request);
+        if (response.isSuccessful()) {
+            record(response.getBody());
+        }
+        return response;
+    }
+
+    @Override
+    public Flux<String> stream(HttpRequest request) {
+        return delegate.stream(request).doOnNext(this::record);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private void record(String data) {
+        // 大部分流式分片不带 usage，先做字符串检查，避免逐个解析
+        if (data == null || !data.contains("\"usage\"")) {
+            return;
+        }
+        String json = data.strip();
+        if (json.startsWith(DATA_PREFIX)) {
+            json = json.substring(DATA_PREFIX.length()).strip();
+        }
+        try {
+            JsonNode usage = MAPPER.readTree(json).path("usage");
+            if (!usage.isObject()) {
+                return;
+            }
+            JsonNode cached = usage.path("prompt_tokens_details").path("cached_tokens");
+            metrics.recordUsage(usage.path("prompt_tokens").asInt(0), cached.isNumber() ? cached.asInt() : null);
+        } catch (JsonProcessingException e) {
+            log.debug("Skip unparsable model response chunk: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.oneagent.monitor.llm;
+
+/**
+ * LLM 调用的负载类别，声明顺序即严格优先级顺序（越靠前优先级越高）
+ */
+public enum WorkloadClass {
+
+    /**
+     * 交互式请求（/api/process SSE 聊天）
+     */
+    INTERACTIVE,
+
+    /**
+     * 批量任务（ResultService 批处理）
+     */
+    BATCH
+}
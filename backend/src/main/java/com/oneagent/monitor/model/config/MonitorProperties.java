@@ -1,9 +1,14 @@
 package com.oneagent.monitor.model.config;
 
+import com.oneagent.monitor.ratelimit.OverflowPolicy;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Monitor Agent 的配置属性
  */
@@ -27,6 +32,21 @@ public class MonitorProperties {
      */
     private StudioConfig studio = new StudioConfig();
 
+    /**
+     * 外部调用限流配置
+     */
+    private RateLimitConfig rateLimit = new RateLimitConfig();
+
+    /**
+     * Agent 回答缓存配置
+     */
+    private ResponseCacheConfig responseCache = new ResponseCacheConfig();
+
+    /**
+     * 知识库目录配置
+     */
+    private KnowledgeConfig knowledge = new KnowledgeConfig();
+
     /**
      * 飞书配置
      */
@@ -74,4 +94,129 @@ public class MonitorProperties {
          */
         private String runName = "demo_";
     }
+
+    /**
+     * 限流配置
+     */
+    @Data
+    public static class RateLimitConfig {
+        /**
+         * 是否启用限流
+         */
+        private boolean enabled = true;
+
+        /**
+         * 按目标配置的令牌桶（key 为目标名称，如 feishu、apifox）
+         */
+        private Map<String, BucketConfig> destinations = new LinkedHashMap<>();
+    }
+
+    /**
+     * 单个目标的令牌桶配置
+     */
+    @Data
+    public static class BucketConfig {
+        /**
+         * 桶容量（允许的最大突发请求数）
+         */
+        private int capacity = 5;
+
+        /**
+         * 每个周期补充的令牌数
+         */
+        private int refillTokens = 5;
+
+        /**
+         * 补充周期
+         */
+        private Duration refillPeriod = Duration.ofSeconds(1);
+
+        /**
+         * 令牌不足时的处理策略
+         */
+        private OverflowPolicy policy = OverflowPolicy.WAIT;
+
+        /**
+         * WAIT 策略下的最长等待时间
+         */
+        private Duration maxWait = Duration.ofSeconds(2);
+
+        /**
+         * QUEUE 策略下的队列容量
+         */
+        private int queueCapacity = 100;
+    }
+
+    /**
+     * 回答缓存配置
+     */
+    @Data
+    public static class ResponseCacheConfig {
+        /**
+         * 是否启用回答缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大缓存条目数
+         */
+        private int maxSize = 500;
+
+        /**
+         * 缓存有效期
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /**
+         * 语义缓存配置
+         */
+        private SemanticCacheConfig semantic = new SemanticCacheConfig();
+    }
+
+    /**
+     * 语义缓存配置
+     */
+    @Data
+    public static class SemanticCacheConfig {
+        /**
+         * 是否启用语义缓存（需要 Embedding 模型可用）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 命中所需的最低余弦相似度
+         */
+        private double threshold = 0.92;
+
+        /**
+         * 最大条目数（LRU 淘汰）
+         */
+        private int maxSize = 1000;
+    }
+
+    /**
+     * 知识库目录配置
+     */
+    @Data
+    public static class KnowledgeConfig {
+        /**
+         * 文件系统中的知识库目录（*.md），为空时只加载 classpath 中的知识库
+         */
+        private String path;
+
+        /**
+         * 是否监听目录变化并增量重新加载
+         */
+        private boolean watch = true;
+
+        /**
+         * 文件变化后等待多久没有新变化才重新加载
+         */
+        private Duration debounce = Duration.ofMillis(500);
+
+        /**
+         * 持续有文件变化时，从第一个事件起最多等待多久就重新加载一次
+         */
+        private Duration maxDebounce = Duration.ofSeconds(10);
+    }
 }
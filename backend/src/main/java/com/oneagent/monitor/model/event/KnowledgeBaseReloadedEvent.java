@@ -0,0 +1,10 @@
+package com.oneagent.monitor.model.event;
+
+/**
+ * 知识库重新加载事件
+ *
+ * @param version       新的知识库版本（内容哈希）
+ * @param documentCount 文档数量
+ */
+public record KnowledgeBaseReloadedEvent(String version, int documentCount) {
+}
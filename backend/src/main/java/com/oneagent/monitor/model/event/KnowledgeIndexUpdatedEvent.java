@@ -0,0 +1,10 @@
+package com.oneagent.monitor.model.event;
+
+/**
+ * 知识库检索索引已替换为新版本
+ *
+ * @param version    索引对应的知识库版本
+ * @param chunkCount 索引中的分块数量
+ */
+public record KnowledgeIndexUpdatedEvent(String version, int chunkCount) {
+}
@@ -0,0 +1,10 @@
+package com.oneagent.monitor.model.event;
+
+/**
+ * 监控健康状态变化事件
+ *
+ * @param healthy 变化后是否健康
+ * @param status  变化后的 API 状态
+ */
+public record MonitorHealthChangedEvent(boolean healthy, String status) {
+}
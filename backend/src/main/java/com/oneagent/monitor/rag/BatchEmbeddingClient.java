@@ -0,0 +1,108 @@
+package com.oneagent.monitor.rag;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.oneagent.monitor.config.AgentScopeProperties;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 批量 Embedding 客户端
+ * <p>
+ * 直接调用 OpenAI 兼容的 /embeddings 接口，一次请求提交多段文本（input 为数组），
+ * 知识库构建时用它代替逐段调用 {@code EmbeddingModel.embed}。
+ */
+@Slf4j
+@Component
+public class BatchEmbeddingClient {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final AgentScopeProperties.EmbeddingConfig config;
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public BatchEmbeddingClient(AgentScopeProperties agentScopeProperties) {
+        this.config = agentScopeProperties.getEmbedding();
+        this.httpClient = new OkHttpClient.Builder()
+                .callTimeout(config.getBatch().getTimeout())
+                .build();
+    }
+
+    public String getModelName() {
+        return config.getModelName();
+    }
+
+    /**
+     * 批量计算向量，返回顺序与输入一致
+     */
+    public Mono<List<float[]>> embed(List<String> texts) {
+        return Mono.fromCallable(() -> call(texts))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private List<float[]> call(List<String> texts) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("model", config.getModelName());
+        ArrayNode input = body.putArray("input");
+        texts.forEach(input::add);
+
+        Request.Builder request = new Request.Builder()
+                .url(StringUtils.removeEnd(config.getBaseUrl(), "/") + "/embeddings")
+                .post(RequestBody.create(body.toString(), JSON));
+        if (StringUtils.isNotBlank(config.getApiKey())) {
+            request.header("Authorization", "Bearer " + config.getApiKey());
+        }
+
+        try (Response response = httpClient.newCall(request.build()).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new EmbeddingBatchException(response.code(), "Embedding batch failed: HTTP " + response.code());
+            }
+            JsonNode data = objectMapper.readTree(response.body().string()).path("data");
+            if (!data.isArray() || data.size() != texts.size()) {
+                throw new EmbeddingBatchException(response.code(),
+                        "Embedding batch returned " + data.size() + " vectors for " + texts.size() + " inputs");
+            }
+            float[][] vectors = new float[texts.size()][];
+            for (JsonNode item : data) {
+                JsonNode embedding = item.path("embedding");
+                float[] vector = new float[embedding.size()];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = (float) embedding.get(i).asDouble();
+                }
+                vectors[item.path("index").asInt()] = vector;
+            }
+            return List.of(vectors);
+        }
+    }
+
+    /**
+     * 批量请求失败，5xx 和 429 可以重试
+     */
+    public static class EmbeddingBatchException extends IOException {
+
+        private final int status;
+
+        EmbeddingBatchException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public boolean isRetryable() {
+            return status == 429 || status >= 500;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.util.DocumentUtils;
+import com.oneagent.monitor.util.TermTokenizer;
+import io.agentscope.core.rag.model.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 知识库分块的 BM25 倒排索引
+ * <p>
+ * 分词见 {@link TermTokenizer}（中文字符二元组 + 英文数字整词），"企业版"、"SLA"、价格数字等精确词项可以直接命中。
+ * 构建后只读，可被多个线程同时检索。每个结果除 BM25 得分外还给出覆盖率：
+ * 该分块包含的问题词项按 IDF 加权占全部问题词项的比例，取值 0~1，用作关键词检索的置信度。
+ */
+public class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final List<Document> chunks;
+    /**
+     * 词项 -> [分块序号, 词频, 分块序号, 词频, ...]
+     */
+    private final Map<String, int[]> postings;
+    private final int[] lengths;
+    private final double averageLength;
+
+    public Bm25Index(List<Document> chunks) {
+        this.chunks = List.copyOf(chunks);
+        this.lengths = new int[this.chunks.size()];
+        Map<String, List<int[]>> building = new HashMap<>();
+        long totalLength = 0;
+        for (int doc = 0; doc < this.chunks.size(); doc++) {
+            List<String> terms = TermTokenizer.tokenize(DocumentUtils.textOf(this.chunks.get(doc)));
+            lengths[doc] = terms.size();
+            totalLength += terms.size();
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String term : terms) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                building.computeIfAbsent(entry.getKey(), k -> new ArrayList<>())
+                        .add(new int[]{doc, entry.getValue()});
+            }
+        }
+        this.postings = new HashMap<>(building.size() * 2);
+        for (Map.Entry<String, List<int[]>> entry : building.entrySet()) {
+            List<int[]> list = entry.getValue();
+            int[] packed = new int[list.size() * 2];
+            for (int i = 0; i < list.size(); i++) {
+                packed[i * 2] = list.get(i)[0];
+                packed[i * 2 + 1] = list.get(i)[1];
+            }
+            postings.put(entry.getKey(), packed);
+        }
+        this.averageLength = this.chunks.isEmpty() ? 0 : (double) totalLength / this.chunks.size();
+    }
+
+    public int size() {
+        return chunks.size();
+    }
+
+    /**
+     * 建入索引的分块（不可修改）
+     */
+    public List<Document> chunks() {
+        return chunks;
+    }
+
+    /**
+     * 按 BM25 得分降序返回最多 limit 个至少命中一个词项的分块
+     */
+    public List<Hit> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(TermTokenizer.tokenize(query));
+        int n = chunks.size();
+        if (terms.isEmpty() || n == 0 || limit <= 0) {
+            return List.of();
+        }
+        double[] scores = new double[n];
+        double[] matchedIdf = new double[n];
+        double totalIdf = 0;
+        for (String term : terms) {
+            int[] posting = postings.get(term);
+            int df = posting == null ? 0 : posting.length / 2;
+            // 语料中不存在的词项也计入总量，降低覆盖率
+            double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            totalIdf += idf;
+            if (posting == null) {
+                continue;
+            }
+            for (int i = 0; i < posting.length; i += 2) {
+                int doc = posting[i];
+                int tf = posting[i + 1];
+                double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                matchedIdf[doc] += idf;
+            }
+        }
+
+        PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+        for (int doc = 0; doc < n; doc++) {
+            if (scores[doc] <= 0) {
+                continue;
+            }
+            if (top.size() < limit) {
+                top.add(new Hit(chunks.get(doc), scores[doc], matchedIdf[doc] / totalIdf));
+            } else if (scores[doc] > top.peek().score()) {
+                top.poll();
+                top.add(new Hit(chunks.get(doc), scores[doc], matchedIdf[doc] / totalIdf));
+            }
+        }
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(Comparator.comparingDouble(Hit::score).reversed());
+        return hits;
+    }
+
+    /**
+     * 检索结果
+     *
+     * @param chunk    命中的分块
+     * @param score    BM25 得分
+     * @param coverage 分块包含的问题词项按 IDF 加权的占比
+     */
+    public record Hit(Document chunk, double score, double coverage) {
+    }
+}
@@ -0,0 +1,184 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.DocumentUtils;
+import com.oneagent.monitor.util.TermTokenizer;
+import io.agentscope.core.rag.model.Document;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * 分块近似去重（MinHash + LSH）
+ * <p>
+ * 知识库中反复出现的价格表、免责声明、联系方式等内容会产生大量重复分块，浪费 Embedding 调用和索引内存，
+ * 还会占满 limit(3) 的检索结果。每个分块取相邻词项对作为 shingle 计算 MinHash 签名，
+ * 签名分为 {@value #BANDS} 段，每段哈希到一个桶，只和同桶的已保留分块比较签名，整体一遍扫描 O(n)。
+ * 估计的 Jaccard 相似度达到阈值时视为重复：保留先出现的分块，重复分块不再向量化。
+ * 被合并分块的来源文档记录在保留分块名下（{@link Result#sources()}），检索命中时仍能知道内容出现在哪些文档中。
+ */
+@Component
+public class ChunkDeduplicator {
+
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int HASHES = BANDS * ROWS;
+    private static final long[] SEEDS = new SplittableRandom(0x5EEDL).longs(HASHES).toArray();
+
+    private final AgentScopeProperties.DedupeConfig config;
+
+    public ChunkDeduplicator(AgentScopeProperties agentScopeProperties) {
+        this.config = agentScopeProperties.getRag().getDedupe();
+    }
+
+    /**
+     * 按顺序去重，未启用时原样返回
+     */
+    public Result deduplicate(List<Document> chunks) {
+        long start = System.nanoTime();
+        if (!config.getEnabled()) {
+            return new Result(chunks, Map.of(), new Stats(chunks.size(), chunks.size(), 0, 0, Duration.ZERO));
+        }
+        double threshold = config.getSimilarity();
+        List<Document> kept = new ArrayList<>();
+        List<long[]> keptSignatures = new ArrayList<>();
+        Map<String, Integer> keptByText = new HashMap<>();
+        List<Map<Long, List<Integer>>> buckets = new ArrayList<>(BANDS);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.add(new HashMap<>());
+        }
+        Map<String, Set<String>> sources = new LinkedHashMap<>();
+        int exact = 0;
+        int near = 0;
+
+        for (Document chunk : chunks) {
+            String text = DocumentUtils.textOf(chunk);
+            Integer same = keptByText.get(text);
+            if (same != null) {
+                exact++;
+                addSource(sources, kept.get(same), chunk);
+                continue;
+            }
+            long[] signature = signature(text);
+            int duplicateOf = signature == null ? -1 : findSimilar(signature, keptSignatures, buckets, threshold);
+            if (duplicateOf >= 0) {
+                near++;
+                addSource(sources, kept.get(duplicateOf), chunk);
+                continue;
+            }
+            int index = kept.size();
+            kept.add(chunk);
+            keptSignatures.add(signature);
+            keptByText.put(text, index);
+            if (signature != null) {
+                for (int band = 0; band < BANDS; band++) {
+                    buckets.get(band).computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1)).add(index);
+                }
+            }
+        }
+        Stats stats = new Stats(chunks.size(), kept.size(), exact, near, Duration.ofNanos(System.nanoTime() - start));
+        return new Result(kept, sources, stats);
+    }
+
+    /**
+     * 分块在去重结果中的标识：来源文档 + 分块序号
+     */
+    public static String chunkKey(Document chunk) {
+        return chunk.getMetadata().getDocId() + "#" + chunk.getMetadata().getChunkId();
+    }
+
+    private static void addSource(Map<String, Set<String>> sources, Document canonical, Document duplicate) {
+        sources.computeIfAbsent(chunkKey(canonical), key -> new LinkedHashSet<>(List.of(canonical.getMetadata().getDocId())))
+                .add(duplicate.getMetadata().getDocId());
+    }
+
+    private static int findSimilar(long[] signature, List<long[]> keptSignatures,
+                                   List<Map<Long, List<Integer>>> buckets, double threshold) {
+        Set<Integer> checked = new LinkedHashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            List<Integer> candidates = buckets.get(band).get(bandKey(signature, band));
+            if (candidates == null) {
+                continue;
+            }
+            for (int candidate : candidates) {
+                if (checked.add(candidate) && similarity(signature, keptSignatures.get(candidate)) >= threshold) {
+                    return candidate;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * MinHash 签名，文本太短（没有 shingle）时返回 null，只参与完全相同的去重
+     */
+    private static long[] signature(String text) {
+        List<String> terms = TermTokenizer.tokenize(text);
+        if (terms.size() < 2) {
+            return null;
+        }
+        long[] signature = new long[HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (int i = 0; i + 1 < terms.size(); i++) {
+            long shingle = mix(terms.get(i).hashCode() * 31L + terms.get(i + 1).hashCode());
+            for (int h = 0; h < HASHES; h++) {
+                long value = mix(shingle ^ SEEDS[h]);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static double similarity(long[] a, long[] b) {
+        if (b == null) {
+            return 0.0;
+        }
+        int equal = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / HASHES;
+    }
+
+    private static long bandKey(long[] signature, int band) {
+        long key = band;
+        for (int row = 0; row < ROWS; row++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[band * ROWS + row];
+        }
+        return key;
+    }
+
+    /**
+     * SplitMix64 混合函数
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 去重结果
+     *
+     * @param chunks  保留的分块，保持原顺序
+     * @param sources 合并了重复分块的保留分块（{@link #chunkKey}）-> 内容出现过的全部来源文档，保留分块自身的来源在前
+     */
+    public record Result(List<Document> chunks, Map<String, Set<String>> sources, Stats stats) {
+    }
+
+    public record Stats(int input, int kept, int exactDuplicates, int nearDuplicates, Duration elapsed) {
+    }
+}
@@ -0,0 +1,384 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.DocumentUtils;
+import com.oneagent.monitor.util.TermTokenizer;
+import com.oneagent.monitor.util.TokenEstimator;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.model.RetrieveConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 检索结果压缩
+ * <p>
+ * 分块最长 512 token，问题往往只与其中一两句相关（如某个版本的价格）。检索结果注入上下文前，
+ * 把每个分块拆成句子和表格行，按与问题的词项覆盖（按 IDF 加权）打分，
+ * 在每次检索的 token 预算内从高到低保留，再按原文顺序拼回。表格行整行保留并带上表头，
+ * 分块第一行的标题路径始终保留。结果本来就在预算内时原样返回。
+ * <p>
+ * 可选叠加向量相似度（embedding-weight &gt; 0）：查询向量只取向量检索已经算好、留在
+ * {@link QueryEmbeddingCache} 中的那一份，没有（如混合检索走了关键词路径）时只按词项打分；
+ * 句子通过 {@link BatchEmbeddingClient} 一次批量请求向量化，不写入查询向量缓存。
+ * 这一步会增加一次 Embedding 往返，默认关闭。
+ */
+@Slf4j
+@Component
+public class ContextCompressor {
+
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[。！？；!?;])|(?<=\\.)\\s+");
+    private static final Pattern TABLE_SEPARATOR = Pattern.compile("^\\|?\\s*:?-{2,}.*");
+    private static final String ELLIPSIS = "\n…\n";
+
+    private final AgentScopeProperties.CompressionConfig config;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final BatchEmbeddingClient batchEmbeddingClient;
+    private final Counter inputTokens;
+    private final Counter outputTokens;
+
+    public ContextCompressor(AgentScopeProperties agentScopeProperties,
+                             MeterRegistry meterRegistry,
+                             QueryEmbeddingCache queryEmbeddingCache,
+                             BatchEmbeddingClient batchEmbeddingClient) {
+        this.config = agentScopeProperties.getRag().getCompression();
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.batchEmbeddingClient = batchEmbeddingClient;
+        this.inputTokens = meterRegistry.counter("rag.compression.tokens", "stage", "input");
+        this.outputTokens = meterRegistry.counter("rag.compression.tokens", "stage", "output");
+    }
+
+    /**
+     * 包装知识库，检索结果经压缩后返回
+     */
+    public Knowledge wrap(Knowledge knowledge) {
+        return config.getEnabled() ? new CompressingKnowledge(knowledge) : knowledge;
+    }
+
+    /**
+     * 按问题压缩检索结果，保持文档顺序和得分
+     */
+    Mono<List<Document>> compress(String query, List<Document> documents) {
+        if (documents == null || documents.isEmpty()) {
+            return Mono.justOrEmpty(documents);
+        }
+        int budget = config.getMaxTokens();
+        int total = documents.stream().mapToInt(doc -> TokenEstimator.estimate(DocumentUtils.textOf(doc))).sum();
+        Set<String> queryTerms = new LinkedHashSet<>(TermTokenizer.tokenize(query));
+        if (total <= budget || queryTerms.isEmpty()) {
+            return Mono.just(documents);
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        List<Unit> units = new ArrayList<>();
+        for (Document document : documents) {
+            Chunk chunk = parse(chunks.size(), units.size(), document);
+            chunks.add(chunk);
+            units.addAll(chunk.units());
+        }
+        double[] lexical = lexicalScores(queryTerms, units);
+        return embeddingScores(query, units)
+                .map(semantic -> {
+                    double weight = semantic.length == 0 ? 0.0 : config.getEmbeddingWeight();
+                    double[] scores = new double[units.size()];
+                    for (int i = 0; i < scores.length; i++) {
+                        scores[i] = (1 - weight) * lexical[i] + weight * (semantic.length == 0 ? 0.0 : semantic[i]);
+                    }
+                    List<Document> compressed = select(chunks, units, scores, budget);
+                    int kept = compressed.stream()
+                            .mapToInt(doc -> TokenEstimator.estimate(DocumentUtils.textOf(doc))).sum();
+                    inputTokens.increment(total);
+                    outputTokens.increment(kept);
+                    log.debug("检索结果压缩: {} -> {} tokens, query={}", total, kept, query);
+                    return compressed;
+                });
+    }
+
+    // ========== 打分 ==========
+
+    /**
+     * 问题词项在句子中的覆盖率，词项按在本次全部句子中的稀有程度加权
+     */
+    private static double[] lexicalScores(Set<String> queryTerms, List<Unit> units) {
+        List<Set<String>> unitTerms = units.stream()
+                .map(unit -> (Set<String>) new HashSet<>(TermTokenizer.tokenize(unit.text())))
+                .toList();
+        Map<String, Double> weights = new HashMap<>();
+        for (String term : queryTerms) {
+            long df = unitTerms.stream().filter(terms -> terms.contains(term)).count();
+            if (df > 0) {
+                weights.put(term, Math.log(1.0 + (double) units.size() / df));
+            }
+        }
+        double totalWeight = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+        double[] scores = new double[units.size()];
+        if (totalWeight == 0) {
+            return scores;
+        }
+        for (int i = 0; i < units.size(); i++) {
+            double matched = 0;
+            for (Map.Entry<String, Double> weight : weights.entrySet()) {
+                if (unitTerms.get(i).contains(weight.getKey())) {
+                    matched += weight.getValue();
+                }
+            }
+            scores[i] = matched / totalWeight;
+        }
+        return scores;
+    }
+
+    /**
+     * 问题与各句子的余弦相似度；未启用、没有现成的查询向量、超时或失败时返回空数组
+     */
+    private Mono<double[]> embeddingScores(String query, List<Unit> units) {
+        if (config.getEmbeddingWeight() <= 0) {
+            return Mono.just(new double[0]);
+        }
+        float[] queryVector = queryEmbeddingCache.peek(batchEmbeddingClient.getModelName(), query);
+        if (queryVector == null) {
+            return Mono.just(new double[0]);
+        }
+        return batchEmbeddingClient.embed(units.stream().map(Unit::text).toList())
+                .map(vectors -> {
+                    double[] scores = new double[units.size()];
+                    for (int i = 0; i < scores.length; i++) {
+                        scores[i] = Math.max(0.0, cosine(queryVector, vectors.get(i)));
+                    }
+                    return scores;
+                })
+                .timeout(config.getEmbeddingTimeout())
+                .onErrorResume(e -> {
+                    log.debug("句子向量化未完成，只按词项压缩: {}", e.toString());
+                    return Mono.just(new double[0]);
+                });
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        if (a == null || b == null || a.length != b.length) {
+            return 0.0;
+        }
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0.0 : dot / Math.sqrt(normA * normB);
+    }
+
+    // ========== 选取 ==========
+
+    /**
+     * 按得分从高到低装入预算，分块的标题路径随它的第一个句子计入；一个句子都没选中的分块不再注入
+     */
+    private static List<Document> select(List<Chunk> chunks, List<Unit> units, double[] scores, int budget) {
+        int used = 0;
+        Set<Integer> kept = new HashSet<>();
+        Set<Integer> keptChunks = new HashSet<>();
+        Set<String> keptTables = new HashSet<>();
+        List<Unit> ranked = units.stream()
+                .filter(unit -> scores[unit.id()] > 0)
+                .sorted(Comparator.comparingDouble((Unit unit) -> scores[unit.id()]).reversed())
+                .toList();
+        for (Unit unit : ranked) {
+            boolean needsHeader = unit.tableHeader() != null && !keptTables.contains(unit.tableKey());
+            int cost = unit.tokens() + (needsHeader ? TokenEstimator.estimate(unit.tableHeader()) : 0);
+            if (!keptChunks.contains(unit.chunk())) {
+                cost += TokenEstimator.estimate(chunks.get(unit.chunk()).breadcrumb());
+            }
+            if (used + cost > budget) {
+                continue;
+            }
+            used += cost;
+            kept.add(unit.id());
+            keptChunks.add(unit.chunk());
+            if (needsHeader) {
+                keptTables.add(unit.tableKey());
+            }
+        }
+        if (kept.isEmpty()) {
+            // 没有任何句子与问题相关时不做压缩，交给模型判断
+            return chunks.stream().map(Chunk::document).toList();
+        }
+
+        List<Document> result = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            List<Unit> selected = chunk.units().stream().filter(unit -> kept.contains(unit.id())).toList();
+            if (selected.isEmpty()) {
+                continue;
+            }
+            result.add(selected.size() == chunk.units().size() ? chunk.document() : rebuild(chunk, selected));
+        }
+        return result;
+    }
+
+    /**
+     * 按原文顺序拼接保留的句子，不相邻处插入省略号；同一表格的行之间直接换行，保证表格结构完整
+     */
+    private static Document rebuild(Chunk chunk, List<Unit> selected) {
+        StringBuilder text = new StringBuilder(chunk.breadcrumb());
+        Unit previous = null;
+        for (Unit unit : selected) {
+            boolean sameTable = previous != null && unit.tableKey() != null
+                    && unit.tableKey().equals(previous.tableKey());
+            boolean withHeader = unit.tableHeader() != null && !sameTable;
+            if (previous == null) {
+                text.append(text.length() > 0 ? "\n" : "");
+            } else if (sameTable) {
+                text.append('\n');
+            } else if (unit.index() == previous.index() + 1 && !withHeader) {
+                text.append(chunk.source(), previous.end(), unit.start());
+            } else if (unit.index() == previous.index() + 1) {
+                text.append('\n');
+            } else {
+                text.append(ELLIPSIS);
+            }
+            if (withHeader) {
+                text.append(unit.tableHeader()).append('\n');
+            }
+            text.append(unit.text());
+            previous = unit;
+        }
+        Document original = chunk.document();
+        TextBlock content = TextBlock.builder().text(text.toString()).build();
+        Document compressed = new Document(new DocumentMetadata(content,
+                original.getMetadata().getDocId(), original.getMetadata().getChunkId()));
+        compressed.setScore(original.getScore());
+        return compressed;
+    }
+
+    // ========== 切分 ==========
+
+    /**
+     * 检索结果拆出的一个句子或表格行
+     *
+     * @param id          在本次全部句子中的序号
+     * @param chunk       所属分块在检索结果中的序号
+     * @param index       在所属分块中的序号
+     * @param start       在分块原文中的起止位置
+     * @param tableKey    所属表格，非表格行为 null
+     * @param tableHeader 所属表格的表头和分隔行，没有表头时为 null
+     */
+    private record Unit(int id, int chunk, int index, int start, int end, String text, int tokens,
+                        String tableKey, String tableHeader) {
+
+        Unit(int id, int chunk, int index, int start, String text, String tableKey, String tableHeader) {
+            this(id, chunk, index, start, start + text.length(), text, TokenEstimator.estimate(text),
+                    tableKey, tableHeader);
+        }
+    }
+
+    private record Chunk(Document document, String source, String breadcrumb, List<Unit> units) {
+    }
+
+    /**
+     * 拆分分块：第一行的标题路径单独保留，表格按行，其余按句子
+     */
+    private static Chunk parse(int chunkIndex, int firstId, Document document) {
+        String source = DocumentUtils.textOf(document);
+        List<Unit> units = new ArrayList<>();
+        String breadcrumb = "";
+        String[] lines = source.split("\n", -1);
+        int offset = 0;
+        int tableStart = -1;
+        String tableHeader = null;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            String trimmed = line.trim();
+            int lineStart = offset;
+            offset += line.length() + 1;
+            if (i == 0 && trimmed.startsWith("[") && trimmed.endsWith("]")) {
+                breadcrumb = line;
+                continue;
+            }
+            if (!trimmed.startsWith("|")) {
+                tableStart = -1;
+                tableHeader = null;
+                if (!trimmed.isEmpty()) {
+                    splitSentences(line, lineStart, chunkIndex, firstId, units);
+                }
+                continue;
+            }
+            if (tableStart < 0) {
+                tableStart = i;
+                tableHeader = null;
+            }
+            if (tableHeader == null && i + 1 < lines.length
+                    && TABLE_SEPARATOR.matcher(lines[i + 1].trim()).matches()) {
+                // 表头与分隔行作为一个整体，随第一个被选中的行一起输出
+                tableHeader = line + "\n" + lines[i + 1];
+                offset += lines[i + 1].length() + 1;
+                i++;
+                continue;
+            }
+            units.add(new Unit(firstId + units.size(), chunkIndex, units.size(), lineStart, line,
+                    chunkIndex + ":" + tableStart, tableHeader));
+        }
+        return new Chunk(document, source, breadcrumb, units);
+    }
+
+    private static void splitSentences(String line, int lineStart, int chunkIndex, int firstId, List<Unit> units) {
+        Matcher matcher = SENTENCE_END.matcher(line);
+        int from = 0;
+        while (from < line.length()) {
+            int end = line.length();
+            int next = line.length();
+            while (matcher.find()) {
+                if (matcher.end() > from && matcher.start() >= from) {
+                    end = matcher.start();
+                    next = matcher.end();
+                    break;
+                }
+            }
+            String sentence = line.substring(from, end);
+            if (!sentence.isBlank()) {
+                int leading = sentence.length() - sentence.stripLeading().length();
+                String text = sentence.strip();
+                int start = lineStart + from + leading;
+                units.add(new Unit(firstId + units.size(), chunkIndex, units.size(), start, text, null, null));
+            }
+            if (next <= from) {
+                break;
+            }
+            from = next;
+        }
+    }
+
+    private final class CompressingKnowledge implements Knowledge {
+
+        private final Knowledge delegate;
+
+        CompressingKnowledge(Knowledge delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Mono<Void> addDocuments(List<Document> documents) {
+            return delegate.addDocuments(documents);
+        }
+
+        @Override
+        public Mono<List<Document>> retrieve(String query, RetrieveConfig retrieveConfig) {
+            return delegate.retrieve(query, retrieveConfig)
+                    .flatMap(documents -> compress(query, documents));
+        }
+    }
+}
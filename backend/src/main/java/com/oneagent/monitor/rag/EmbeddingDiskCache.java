@@ -0,0 +1,325 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 以内容寻址的磁盘 Embedding 缓存
+ * <p>
+ * key 为 SHA-256(模型名 + 文本)，文件格式为紧凑的二进制：
+ * 头部 [magic, version, dimensions]，之后每条记录为 [32 字节 key, dimensions 个 float]，只追加写入。
+ * 启动时只扫描 key，堆上保存 key 到文件偏移的索引，向量在命中时按偏移从文件读取；
+ * 知识库未变化时重启不需要任何 Embedding 接口调用。
+ */
+@Slf4j
+@Component
+public class EmbeddingDiskCache {
+
+    private static final int MAGIC = 0x454D4243; // "EMBC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int KEY_BYTES = 32;
+
+    private final AgentScopeProperties.EmbeddingCacheConfig config;
+    private final Map<ByteBuffer, Long> offsets = new ConcurrentHashMap<>();
+    private final Set<ByteBuffer> touched = ConcurrentHashMap.newKeySet();
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * 以下字段由 this 保护
+     */
+    private int dimensions;
+    private long fileSize;
+    private DataOutputStream appender;
+    private FileChannel reader;
+    private boolean loaded;
+
+    public EmbeddingDiskCache(AgentScopeProperties agentScopeProperties, MeterRegistry meterRegistry) {
+        this.config = agentScopeProperties.getEmbedding().getCache();
+        this.hits = meterRegistry.counter("rag.embedding.cache", "result", "hit");
+        this.misses = meterRegistry.counter("rag.embedding.cache", "result", "miss");
+    }
+
+    public boolean isEnabled() {
+        return config.getEnabled();
+    }
+
+    /**
+     * 计算缓存 key
+     */
+    static ByteBuffer keyOf(String modelName, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(modelName).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    synchronized float[] get(ByteBuffer key) {
+        Long offset = offsets.get(key);
+        float[] vector = offset == null ? null : read(offset);
+        if (vector != null) {
+            hits.increment();
+            touched.add(key);
+        } else {
+            misses.increment();
+        }
+        return vector;
+    }
+
+    /**
+     * 开始一次知识库构建：清空上次构建用到的条目记录，compact 只按本次构建判断
+     */
+    synchronized void beginBuild() {
+        touched.clear();
+    }
+
+    /**
+     * 标记本次构建用到了该条目但不需要读取（分块已带有向量，如沿用上次的向量或来自预构建索引）
+     */
+    synchronized void touch(ByteBuffer key) {
+        if (offsets.containsKey(key)) {
+            touched.add(key);
+        }
+    }
+
+    /**
+     * 写入新向量并追加到文件
+     */
+    synchronized void put(ByteBuffer key, float[] vector) {
+        if (offsets.containsKey(key)) {
+            touched.add(key);
+            return;
+        }
+        if (dimensions != 0 && vector.length != dimensions) {
+            log.warn("Embedding 维度 {} 与缓存文件 {} 不一致，不写入缓存", vector.length, dimensions);
+            return;
+        }
+        try {
+            DataOutputStream out = appender(vector.length);
+            out.write(key.array());
+            for (float value : vector) {
+                out.writeFloat(value);
+            }
+            out.flush();
+            offsets.put(key, fileSize + KEY_BYTES);
+            touched.add(key);
+            fileSize += KEY_BYTES + (long) vector.length * Float.BYTES;
+        } catch (IOException e) {
+            log.warn("写入 Embedding 缓存文件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 知识库构建完成后调用：缓存中未被本次构建用到（读取、写入或 touch）的条目过多时重写文件，只保留用到的条目
+     */
+    public synchronized void compact() {
+        if (offsets.isEmpty() || touched.size() * 2 > offsets.size()) {
+            return;
+        }
+        Path path = Path.of(config.getPath());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            closeAppender();
+            Map<ByteBuffer, Long> kept = new HashMap<>();
+            long size = HEADER_BYTES;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                writeHeader(out, dimensions);
+                for (ByteBuffer key : touched) {
+                    Long offset = offsets.get(key);
+                    float[] vector = offset == null ? null : read(offset);
+                    if (vector == null) {
+                        continue;
+                    }
+                    out.write(key.array());
+                    for (float value : vector) {
+                        out.writeFloat(value);
+                    }
+                    kept.put(key, size + KEY_BYTES);
+                    size += KEY_BYTES + (long) vector.length * Float.BYTES;
+                }
+            }
+            closeReader();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            int removed = offsets.size() - kept.size();
+            offsets.clear();
+            offsets.putAll(kept);
+            fileSize = size;
+            log.info("Embedding 缓存已压缩: 保留 {} 条, 移除 {} 条", kept.size(), removed);
+        } catch (IOException e) {
+            log.warn("压缩 Embedding 缓存失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        closeAppender();
+        closeReader();
+    }
+
+    /**
+     * 扫描缓存文件中的 key（只读一次），末尾不完整的记录被截断
+     */
+    synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        Path path = Path.of(config.getPath());
+        if (!Files.exists(path)) {
+            return;
+        }
+        long validBytes = HEADER_BYTES;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (channel.read(header, 0) < HEADER_BYTES) {
+                log.warn("Embedding 缓存文件头部不完整，将重新生成: {}", path);
+                channel.close();
+                deleteQuietly(path);
+                return;
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                log.warn("Embedding 缓存文件格式不识别，将重新生成: {}", path);
+                channel.close();
+                Files.delete(path);
+                return;
+            }
+            dimensions = header.getInt();
+            long recordBytes = KEY_BYTES + (long) dimensions * Float.BYTES;
+            long size = channel.size();
+            while (validBytes + recordBytes <= size) {
+                ByteBuffer key = ByteBuffer.allocate(KEY_BYTES);
+                channel.read(key, validBytes);
+                key.flip();
+                offsets.put(key, validBytes + KEY_BYTES);
+                validBytes += recordBytes;
+            }
+        } catch (IOException e) {
+            log.warn("读取 Embedding 缓存失败: {}", e.getMessage());
+            return;
+        }
+        truncate(path, validBytes);
+        fileSize = validBytes;
+        log.info("Embedding 缓存已加载: {} 条, 维度 {}, 文件 {}", offsets.size(), dimensions, path);
+    }
+
+    /**
+     * 按偏移读取一个向量，读取失败按未命中处理
+     */
+    private float[] read(long offset) {
+        try {
+            if (reader == null) {
+                reader = FileChannel.open(Path.of(config.getPath()), StandardOpenOption.READ);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(dimensions * Float.BYTES);
+            while (buffer.hasRemaining()) {
+                if (reader.read(buffer, offset + buffer.position()) < 0) {
+                    return null;
+                }
+            }
+            buffer.flip();
+            float[] vector = new float[dimensions];
+            buffer.asFloatBuffer().get(vector);
+            return vector;
+        } catch (IOException e) {
+            log.warn("读取 Embedding 缓存条目失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private DataOutputStream appender(int vectorDimensions) throws IOException {
+        if (appender != null) {
+            return appender;
+        }
+        Path path = Path.of(config.getPath());
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        boolean fresh = !Files.exists(path) || Files.size(path) == 0;
+        OutputStream file = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        appender = new DataOutputStream(new BufferedOutputStream(file));
+        if (fresh) {
+            dimensions = vectorDimensions;
+            writeHeader(appender, dimensions);
+            appender.flush();
+            fileSize = HEADER_BYTES;
+        }
+        return appender;
+    }
+
+    private static void writeHeader(DataOutputStream out, int dimensions) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(dimensions);
+    }
+
+    private void closeReader() {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.warn("关闭 Embedding 缓存文件失败: {}", e.getMessage());
+        }
+        reader = null;
+    }
+
+    private void closeAppender() {
+        if (appender == null) {
+            return;
+        }
+        try {
+            appender.close();
+        } catch (IOException e) {
+            log.warn("关闭 Embedding 缓存文件失败: {}", e.getMessage());
+        }
+        appender = null;
+    }
+
+    private static void truncate(Path path, long validBytes) {
+        try (var channel = Files.newByteChannel(path, StandardOpenOption.WRITE)) {
+            if (channel.size() > validBytes) {
+                channel.truncate(validBytes);
+            }
+        } catch (IOException e) {
+            log.warn("截断 Embedding 缓存文件失败: {}", e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // 下次写入时重建
+        }
+    }
+}
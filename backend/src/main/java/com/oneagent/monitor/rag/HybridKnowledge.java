@@ -0,0 +1,128 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.DocumentUtils;
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.RetrieveConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 关键词（BM25）与向量的混合检索
+ * <p>
+ * 先查本地倒排索引：排名第一的分块覆盖率达到 keywordConfidence 时直接返回关键词结果，不调用 Embedding 接口；
+ * 否则再做向量检索，两路结果按倒数排名融合（RRF，score = Σ 1 / (k + rank)）排序。
+ * 融合结果的得分取该分块在两路中的较高得分，与相似度阈值的含义保持一致。
+ */
+public class HybridKnowledge implements Knowledge {
+
+    private static final int DEFAULT_LIMIT = 5;
+
+    /**
+     * 每一路取 limit 的多少倍候选参与融合
+     */
+    private static final int CANDIDATE_FACTOR = 3;
+
+    private final KeywordKnowledge keyword;
+    private final Knowledge vector;
+    private final AgentScopeProperties.HybridConfig config;
+    private final Counter keywordOnly;
+    private final Counter fused;
+
+    public HybridKnowledge(KeywordKnowledge keyword, Knowledge vector,
+                           AgentScopeProperties.HybridConfig config, MeterRegistry meterRegistry) {
+        this.keyword = keyword;
+        this.vector = vector;
+        this.config = config;
+        this.keywordOnly = meterRegistry.counter("rag.retrieve", "path", "keyword");
+        this.fused = meterRegistry.counter("rag.retrieve", "path", "hybrid");
+    }
+
+    /**
+     * 两路都写入：先写向量一路（需要 Embedding，可能失败），成功后再写关键词一路，失败时两路都不变
+     */
+    @Override
+    public Mono<Void> addDocuments(List<Document> documents) {
+        return vector.addDocuments(documents).then(keyword.addDocuments(documents));
+    }
+
+    @Override
+    public Mono<List<Document>> retrieve(String query, RetrieveConfig retrieveConfig) {
+        return Mono.defer(() -> {
+            int limit = retrieveConfig == null ? DEFAULT_LIMIT : retrieveConfig.getLimit();
+            double threshold = retrieveConfig == null ? 0.0 : retrieveConfig.getScoreThreshold();
+            int candidates = limit * CANDIDATE_FACTOR;
+            List<Bm25Index.Hit> keywordHits = keyword.search(query, candidates);
+
+            if (!keywordHits.isEmpty() && keywordHits.get(0).coverage() >= config.getKeywordConfidence()) {
+                keywordOnly.increment();
+                return Mono.just(KeywordKnowledge.toDocuments(keywordHits, limit, threshold));
+            }
+
+            RetrieveConfig vectorConfig = RetrieveConfig.builder()
+                    .limit(candidates)
+                    .scoreThreshold(threshold)
+                    .build();
+            return vector.retrieve(query, vectorConfig)
+                    .map(vectorHits -> {
+                        fused.increment();
+                        return fuse(keywordHits, vectorHits, limit, threshold);
+                    });
+        });
+    }
+
+    private List<Document> fuse(List<Bm25Index.Hit> keywordHits, List<Document> vectorHits, int limit, double threshold) {
+        int k = config.getRrfK();
+        // 两路返回的是不同的 Document 实例，按分块文本对齐
+        Map<String, Fused> byText = new LinkedHashMap<>();
+        for (int rank = 0; rank < keywordHits.size(); rank++) {
+            Bm25Index.Hit hit = keywordHits.get(rank);
+            byText.computeIfAbsent(DocumentUtils.textOf(hit.chunk()), text -> new Fused(hit.chunk()))
+                    .add(k, rank, hit.coverage());
+        }
+        for (int rank = 0; rank < vectorHits.size(); rank++) {
+            Document hit = vectorHits.get(rank);
+            byText.computeIfAbsent(DocumentUtils.textOf(hit), text -> new Fused(hit))
+                    .add(k, rank, DocumentUtils.scoreOf(hit));
+        }
+
+        List<Fused> ranked = new ArrayList<>(byText.values());
+        ranked.sort(Comparator.comparingDouble((Fused f) -> f.rrf).reversed());
+        List<Document> results = new ArrayList<>(limit);
+        for (Fused candidate : ranked) {
+            if (results.size() >= limit) {
+                break;
+            }
+            if (candidate.score < threshold) {
+                continue;
+            }
+            Document document = new Document(candidate.chunk.getMetadata());
+            document.setScore(candidate.score);
+            results.add(document);
+        }
+        return results;
+    }
+
+    private static final class Fused {
+        final Document chunk;
+        double rrf;
+        double score;
+
+        Fused(Document chunk) {
+            this.chunk = chunk;
+        }
+
+        void add(int k, int rank, double channelScore) {
+            rrf += 1.0 / (k + rank + 1);
+            score = Math.max(score, channelScore);
+        }
+    }
+}
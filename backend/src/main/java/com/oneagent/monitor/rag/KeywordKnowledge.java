@@ -0,0 +1,74 @@
+package com.oneagent.monitor.rag;
+
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.RetrieveConfig;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 仅基于关键词的知识库
+ * <p>
+ * 在 {@link Bm25Index} 上按 BM25 排序，不需要 Embedding 调用。
+ * 向量索引构建完成前作为降级检索，之后作为 {@link HybridKnowledge} 的关键词一路。
+ * 返回的得分为词项覆盖率（0~1），与向量相似度阈值含义相近。
+ * 写入文档时用全部分块重建倒排索引后整体替换，检索不加锁。
+ */
+public class KeywordKnowledge implements Knowledge {
+
+    private volatile Bm25Index index;
+
+    public KeywordKnowledge(Bm25Index index) {
+        this.index = index;
+    }
+
+    public KeywordKnowledge(List<Document> chunks) {
+        this(new Bm25Index(chunks));
+    }
+
+    @Override
+    public Mono<Void> addDocuments(List<Document> documents) {
+        return Mono.fromRunnable(() -> {
+            synchronized (this) {
+                List<Document> chunks = new ArrayList<>(index.chunks());
+                chunks.addAll(documents);
+                index = new Bm25Index(chunks);
+            }
+        });
+    }
+
+    @Override
+    public Mono<List<Document>> retrieve(String query, RetrieveConfig config) {
+        return Mono.fromSupplier(() -> {
+            Bm25Index index = this.index;
+            int limit = config == null ? index.size() : config.getLimit();
+            double threshold = config == null ? 0.0 : config.getScoreThreshold();
+            return toDocuments(index.search(query, limit), limit, threshold);
+        });
+    }
+
+    List<Bm25Index.Hit> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    /**
+     * 按 BM25 顺序转换为检索结果，得分为覆盖率，低于阈值的丢弃
+     */
+    static List<Document> toDocuments(List<Bm25Index.Hit> hits, int limit, double threshold) {
+        List<Document> documents = new ArrayList<>(Math.min(limit, hits.size()));
+        for (Bm25Index.Hit hit : hits) {
+            if (documents.size() >= limit) {
+                break;
+            }
+            if (hit.coverage() < threshold) {
+                continue;
+            }
+            Document document = new Document(hit.chunk().getMetadata());
+            document.setScore(hit.coverage());
+            documents.add(document);
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,48 @@
+package com.oneagent.monitor.rag;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * 知识库加载状态，对应健康检查中的 knowledgeBase
+ * <p>
+ * 向量索引构建期间报告 WARMING（服务照常响应，检索降级为关键词匹配），构建失败或部分分块向量化失败报告 DEGRADED。
+ * 去重合并的分块在 duplicateSources 中列出保留分块及内容出现过的全部来源文档。
+ */
+@Component
+@RequiredArgsConstructor
+public class KnowledgeBaseHealthIndicator implements HealthIndicator {
+
+    public static final Status WARMING = new Status("WARMING", "KB warming");
+    public static final Status DEGRADED = new Status("DEGRADED", "KB vector index unavailable or incomplete");
+
+    private final KnowledgeLoader knowledgeLoader;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = switch (knowledgeLoader.getState()) {
+            case WARMING -> Health.status(WARMING);
+            case DEGRADED -> Health.status(DEGRADED);
+            case READY, DISABLED -> Health.up();
+        };
+        builder.withDetail("state", knowledgeLoader.getState().name())
+                .withDetail("chunks", knowledgeLoader.getChunkCount());
+        if (knowledgeLoader.getLastStats() != null) {
+            builder.withDetail("ingest", knowledgeLoader.getLastStats());
+        }
+        if (knowledgeLoader.getLastDedupe() != null) {
+            builder.withDetail("dedupe", knowledgeLoader.getLastDedupe());
+        }
+        if (!knowledgeLoader.getDuplicateSources().isEmpty()) {
+            // 被合并的重复分块仍可追溯到其来源文档
+            builder.withDetail("duplicateSources", knowledgeLoader.getDuplicateSources());
+        }
+        if (knowledgeLoader.getWarmupTime() != null) {
+            builder.withDetail("warmupMillis", knowledgeLoader.getWarmupTime().toMillis());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,249 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.rag.store.MappedVectorStore;
+import com.oneagent.monitor.util.DocumentUtils;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.reader.Reader;
+import io.agentscope.core.rag.reader.ReaderInput;
+import io.agentscope.core.rag.store.VDBStoreBase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 知识库批量导入
+ * <p>
+ * 文档分块后按服务商的批量上限分组：命中磁盘缓存的分块直接复用向量，其余分块每组一次批量 Embedding 请求，
+ * 同时进行的批次数有上限（flatMap 并发度即背压），每批完成后整批写入向量存储。
+ * 构建耗时随批次数增长，而不是随分块数 × 网络往返增长。
+ */
+@Slf4j
+@Component
+public class KnowledgeIngestor {
+
+    private final AgentScopeProperties.EmbeddingBatchConfig config;
+    private final BatchEmbeddingClient embeddingClient;
+    private final EmbeddingDiskCache diskCache;
+
+    public KnowledgeIngestor(AgentScopeProperties agentScopeProperties,
+                             BatchEmbeddingClient embeddingClient,
+                             EmbeddingDiskCache diskCache) {
+        this.config = agentScopeProperties.getEmbedding().getBatch();
+        this.embeddingClient = embeddingClient;
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * 文档分块（本地计算，不涉及网络），分块失败的文档跳过
+     */
+    public Mono<List<Document>> chunk(List<String> documents, Reader reader) {
+        return Flux.fromIterable(documents)
+                .concatMap(doc -> reader.read(ReaderInput.fromString(doc))
+                        .onErrorResume(e -> {
+                            log.error("Error chunking knowledge document: {}", e.getMessage());
+                            return Mono.just(List.of());
+                        }))
+                .flatMapIterable(Function.identity())
+                .collectList();
+    }
+
+    /**
+     * 向量化分块并写入存储
+     */
+    public Mono<IngestStats> ingest(List<Document> chunks, VDBStoreBase store) {
+        return ingest(chunks, store, null);
+    }
+
+    /**
+     * 向量化分块并写入存储；两个存储都是映射存储时，文本未变化的分块直接从 previous 复制向量
+     */
+    public Mono<IngestStats> ingest(List<Document> chunks, VDBStoreBase store, VDBStoreBase previous) {
+        return ingest(chunks, store, previous, true);
+    }
+
+    /**
+     * 增量更新：只向量化变化的分块并写入已有存储。这些分块只是知识库的一部分，不据此压缩磁盘缓存
+     */
+    public Mono<IngestStats> ingestChanges(List<Document> chunks, VDBStoreBase store) {
+        return ingest(chunks, store, null, false);
+    }
+
+    private Mono<IngestStats> ingest(List<Document> chunks, VDBStoreBase store, VDBStoreBase previous,
+                                     boolean fullBuild) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            boolean useCache = diskCache.isEnabled();
+            if (useCache) {
+                diskCache.load();
+                if (fullBuild) {
+                    diskCache.beginBuild();
+                }
+            }
+            Counters counters = new Counters();
+            return Flux.fromIterable(chunks)
+                    .buffer(Math.max(1, config.getSize()))
+                    .flatMap(batch -> embedBatch(carryOver(batch, store, previous, useCache, counters),
+                                    useCache, counters)
+                                    .flatMap(docs -> docs.isEmpty()
+                                            ? Mono.empty()
+                                            : store.add(docs).doOnSuccess(done -> releaseEmbeddings(docs, store))),
+                            Math.max(1, config.getConcurrency()))
+                    .then(Mono.fromSupplier(() -> {
+                        IngestStats stats = counters.toStats(Duration.ofNanos(System.nanoTime() - start));
+                        if (useCache && fullBuild && stats.complete()) {
+                            diskCache.compact();
+                        }
+                        return stats;
+                    }));
+        });
+    }
+
+    /**
+     * 映射存储之间直接复制未变化分块的向量，返回仍需向量化的分块
+     */
+    private List<Document> carryOver(List<Document> batch, VDBStoreBase store, VDBStoreBase previous,
+                                     boolean useCache, Counters counters) {
+        if (!(store instanceof MappedVectorStore target) || !(previous instanceof MappedVectorStore source)) {
+            return batch;
+        }
+        List<Document> missing = target.addFrom(source, batch);
+        if (missing.size() == batch.size()) {
+            return batch;
+        }
+        Set<Document> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.addAll(missing);
+        String modelName = embeddingClient.getModelName();
+        for (Document chunk : batch) {
+            if (!pending.contains(chunk)) {
+                counters.chunks.incrementAndGet();
+                counters.cached.incrementAndGet();
+                // 缓存条目仍在使用，压缩时保留
+                if (useCache) {
+                    diskCache.touch(EmbeddingDiskCache.keyOf(modelName, DocumentUtils.textOf(chunk)));
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * 映射存储已把向量写入文件，分块不再持有堆上的副本，构建期间堆上只有进行中批次的向量
+     */
+    private static void releaseEmbeddings(List<Document> docs, VDBStoreBase store) {
+        if (store instanceof MappedVectorStore) {
+            docs.forEach(doc -> doc.setEmbedding(null));
+        }
+    }
+
+    /**
+     * 一批分块：缓存命中的直接填入向量，未命中的合并为一次批量请求；失败的分块不写入存储
+     */
+    private Mono<List<Document>> embedBatch(List<Document> batch, boolean useCache, Counters counters) {
+        String modelName = embeddingClient.getModelName();
+        List<Document> ready = new ArrayList<>(batch.size());
+        List<Document> misses = new ArrayList<>();
+        List<ByteBuffer> missKeys = new ArrayList<>();
+        for (Document chunk : batch) {
+            counters.chunks.incrementAndGet();
+            ByteBuffer key = EmbeddingDiskCache.keyOf(modelName, DocumentUtils.textOf(chunk));
+            if (chunk.getEmbedding() != null) {
+                // 增量更新时未变化文档的分块沿用已有向量；缓存条目仍在使用，压缩时保留
+                if (useCache) {
+                    diskCache.touch(key);
+                }
+                ready.add(chunk);
+                counters.cached.incrementAndGet();
+                continue;
+            }
+            float[] cached = useCache ? diskCache.get(key) : null;
+            if (cached != null) {
+                chunk.setEmbedding(toDoubles(cached));
+                ready.add(chunk);
+                counters.cached.incrementAndGet();
+            } else {
+                misses.add(chunk);
+                missKeys.add(key);
+            }
+        }
+        if (misses.isEmpty()) {
+            return Mono.just(ready);
+        }
+
+        counters.batches.incrementAndGet();
+        List<String> texts = misses.stream().map(DocumentUtils::textOf).toList();
+        return embeddingClient.embed(texts)
+                .retryWhen(Retry.backoff(config.getMaxRetries(), Duration.ofMillis(500))
+                        .filter(KnowledgeIngestor::isRetryable))
+                .map(vectors -> {
+                    for (int i = 0; i < misses.size(); i++) {
+                        Document chunk = misses.get(i);
+                        chunk.setEmbedding(toDoubles(vectors.get(i)));
+                        if (useCache) {
+                            diskCache.put(missKeys.get(i), vectors.get(i));
+                        }
+                        ready.add(chunk);
+                    }
+                    counters.embedded.addAndGet(misses.size());
+                    return ready;
+                })
+                .onErrorResume(e -> {
+                    log.error("Embedding batch of {} chunks failed: {}", misses.size(), e.getMessage());
+                    counters.failed.addAndGet(misses.size());
+                    return Mono.just(ready);
+                });
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof BatchEmbeddingClient.EmbeddingBatchException batchException) {
+            return batchException.isRetryable();
+        }
+        return e instanceof IOException;
+    }
+
+    private static double[] toDoubles(float[] vector) {
+        double[] result = new double[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = vector[i];
+        }
+        return result;
+    }
+
+    /**
+     * 一次导入的统计
+     */
+    public record IngestStats(int chunks, int cached, int embedded, int failed, int batches, Duration elapsed) {
+
+        /**
+         * 所有分块都已写入存储
+         */
+        public boolean complete() {
+            return failed == 0;
+        }
+    }
+
+    private static final class Counters {
+        final AtomicInteger chunks = new AtomicInteger();
+        final AtomicInteger cached = new AtomicInteger();
+        final AtomicInteger embedded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger batches = new AtomicInteger();
+
+        IngestStats toStats(Duration elapsed) {
+            return new IngestStats(chunks.get(), cached.get(), embedded.get(), failed.get(), batches.get(), elapsed);
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.model.event.KnowledgeBaseReloadedEvent;
+import com.oneagent.monitor.model.event.KnowledgeIndexUpdatedEvent;
+import com.oneagent.monitor.rag.artifact.KnowledgeIndexArtifact;
+import com.oneagent.monitor.rag.artifact.PrebuiltKnowledgeIndex;
+import com.oneagent.monitor.rag.store.CopyableVectorStore;
+import com.oneagent.monitor.rag.store.VectorIndexFactory;
+import com.oneagent.monitor.service.KnowledgeBaseService;
+import com.oneagent.monitor.util.DocumentUtils;
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.knowledge.SimpleKnowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.reader.SplitStrategy;
+import io.agentscope.core.rag.reader.TextReader;
+import io.agentscope.core.rag.store.VDBStoreBase;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 知识库后台加载
+ * <p>
+ * 启动时立即返回一个 {@link SwappableKnowledge}，不阻塞 Spring 上下文刷新：
+ * 先在后台分块并切换到关键词检索（BM25，无网络调用，很快），向量索引构建完成后再原子切换到混合检索。
+ * 知识库重新加载时按文档内容哈希比较，只对新增或变化的文档重新分块和向量化，其余分块沿用已有向量；
+ * 索引支持复制（{@link CopyableVectorStore}）时，在当前索引的副本上删除旧分块、插入新分块后整体替换，
+ * 未变化的分块不重新建索引；否则构建新索引后整体替换。替换期间检索不暂停。
+ * 部分分块向量化失败时，已有向量的分块照常提供检索，状态报告为 DEGRADED，并在一段时间后重新构建补齐缺失的向量。
+ * 通过 {@link Knowledge#addDocuments} 写入的文档按 docId 记为额外的来源，与知识库文件一起参与构建，两路索引同时更新。
+ * 所有构建在同一个后台线程中依次执行。加载状态通过 {@link KnowledgeBaseHealthIndicator} 暴露。
+ */
+@Slf4j
+@Component
+public class KnowledgeLoader {
+
+    /**
+     * 向量索引不完整或构建失败后，重新构建的间隔
+     */
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    /**
+     * 增量更新后已删除的向量数超过有效向量数的这个比例时，改为整体重建，回收空间
+     */
+    private static final double MAX_DELETED_RATIO = 0.5;
+
+    /**
+     * 运行时写入的文档作为来源时的前缀，与知识库文件区分
+     */
+    private static final String ADDED_SOURCE_PREFIX = "added:";
+
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final KnowledgeIngestor knowledgeIngestor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final VectorIndexFactory vectorIndexFactory;
+    private final AgentScopeProperties.HybridConfig hybridConfig;
+    private final MeterRegistry meterRegistry;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final MarkdownChunker markdownChunker;
+    private final PrebuiltKnowledgeIndex prebuiltIndex;
+    private final ChunkDeduplicator chunkDeduplicator;
+    private final ContextCompressor contextCompressor;
+    private final SwappableKnowledge live = new SwappableKnowledge(new KeywordKnowledge(List.of()), this::addDocuments);
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "knowledge-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public enum State {
+        /**
+         * 未启用 Embedding，没有知识库
+         */
+        DISABLED,
+        /**
+         * 向量索引构建中，检索降级为关键词匹配
+         */
+        WARMING,
+        /**
+         * 向量索引已就绪
+         */
+        READY,
+        /**
+         * 向量索引构建失败（只能使用关键词检索）或部分分块缺少向量，等待重试
+         */
+        DEGRADED
+    }
+
+    @Getter
+    private volatile State state = State.DISABLED;
+    @Getter
+    private volatile int chunkCount;
+    @Getter
+    private volatile KnowledgeIngestor.IngestStats lastStats;
+    @Getter
+    private volatile Duration warmupTime;
+    @Getter
+    private volatile ChunkDeduplicator.Stats lastDedupe;
+    /**
+     * 合并了重复分块的保留分块 -> 内容出现过的全部来源文档
+     */
+    @Getter
+    private volatile Map<String, Set<String>> duplicateSources = Map.of();
+
+    private volatile EmbeddingModel embeddingModel;
+
+    /**
+     * 已建入索引的文档：来源 -> (内容哈希, 分块)，只在加载线程中访问
+     */
+    private Map<String, IndexedSource> indexed = Map.of();
+
+    /**
+     * 当前使用的向量存储，只在加载线程中访问
+     */
+    private VDBStoreBase activeStore;
+
+    /**
+     * 当前向量存储中的分块：id -> 分块，只在加载线程中访问
+     */
+    private Map<String, Document> activeChunks = Map.of();
+
+    /**
+     * 运行时写入的文档：来源 -> 分块，只在加载线程中访问
+     */
+    private final Map<String, List<Document>> addedSources = new LinkedHashMap<>();
+
+    /**
+     * 等待执行的重新构建，只在加载线程中访问
+     */
+    private ScheduledFuture<?> pendingRetry;
+
+    public KnowledgeLoader(KnowledgeBaseService knowledgeBaseService,
+                           KnowledgeIngestor knowledgeIngestor,
+                           ApplicationEventPublisher eventPublisher,
+                           VectorIndexFactory vectorIndexFactory,
+                           AgentScopeProperties agentScopeProperties,
+                           MeterRegistry meterRegistry,
+                           QueryEmbeddingCache queryEmbeddingCache,
+                           MarkdownChunker markdownChunker,
+                           PrebuiltKnowledgeIndex prebuiltIndex,
+                           ChunkDeduplicator chunkDeduplicator,
+                           ContextCompressor contextCompressor) {
+        this.knowledgeBaseService = knowledgeBaseService;
+        this.knowledgeIngestor = knowledgeIngestor;
+        this.eventPublisher = eventPublisher;
+        this.vectorIndexFactory = vectorIndexFactory;
+        this.hybridConfig = agentScopeProperties.getRag().getHybrid();
+        this.meterRegistry = meterRegistry;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.markdownChunker = markdownChunker;
+        this.prebuiltIndex = prebuiltIndex;
+        this.chunkDeduplicator = chunkDeduplicator;
+        this.contextCompressor = contextCompressor;
+    }
+
+    /**
+     * 开始后台加载，立即返回
+     */
+    public SwappableKnowledge start(EmbeddingModel embeddingModel) {
+        // 分块向量由 KnowledgeIngestor 批量计算，这里的模型只用于检索时的查询向量
+        this.embeddingModel = queryEmbeddingCache.wrap(embeddingModel);
+        state = State.WARMING;
+        long start = System.nanoTime();
+        executor.execute(() -> {
+            build();
+            if (state == State.READY) {
+                warmupTime = Duration.ofNanos(System.nanoTime() - start);
+                log.info("RAG knowledge base initialized in {} ms", warmupTime.toMillis());
+            }
+        });
+        return live;
+    }
+
+    /**
+     * 知识库文档变化后增量更新索引
+     */
+    @EventListener
+    public void onKnowledgeBaseReloaded(KnowledgeBaseReloadedEvent event) {
+        if (embeddingModel == null) {
+            return;
+        }
+        executor.execute(this::build);
+    }
+
+    /**
+     * 写入文档：按 docId 分组，同一 docId 再次写入时替换该文档之前的分块。
+     * 在加载线程中增量更新索引并替换后完成；向量化失败的分块与知识库文件一样稍后重试，不会丢失
+     */
+    public Mono<Void> addDocuments(List<Document> documents) {
+        if (embeddingModel == null) {
+            return Mono.error(new IllegalStateException("Knowledge base is not enabled"));
+        }
+        Map<String, List<Document>> bySource = new LinkedHashMap<>();
+        for (Document document : documents) {
+            bySource.computeIfAbsent(ADDED_SOURCE_PREFIX + document.getMetadata().getDocId(), k -> new ArrayList<>())
+                    .add(document);
+        }
+        return Mono.create(sink -> {
+            try {
+                executor.execute(() -> {
+                    addedSources.putAll(bySource);
+                    build();
+                    sink.success();
+                });
+            } catch (RejectedExecutionException e) {
+                sink.error(new IllegalStateException("Knowledge loader is shut down", e));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        closeQuietly(activeStore);
+    }
+
+    /**
+     * 与已建索引比较，重新分块变化的文档，构建新索引并替换
+     */
+    private void build() {
+        if (pendingRetry != null) {
+            pendingRetry.cancel(false);
+            pendingRetry = null;
+        }
+        Map<String, String> sources = knowledgeBaseService.getSources();
+        String version = knowledgeBaseService.getVersion();
+        // 构建中、尚未替换上线的向量存储，失败时关闭
+        VDBStoreBase vectorStore = null;
+        try {
+            TextReader reader = createReader();
+            Map<String, IndexedSource> next = new LinkedHashMap<>();
+            // 首次构建时，内容与预构建索引文件中相同的文档直接复用其分块和向量
+            Optional<KnowledgeIndexArtifact.Contents> artifact = indexed.isEmpty()
+                    ? prebuiltIndex.load()
+                    : Optional.empty();
+            Map<String, List<Document>> prebuilt = artifact.map(KnowledgeIndexArtifact.Contents::chunksByHash)
+                    .orElse(Map.of());
+            int changed = 0;
+            int reused = 0;
+            for (Map.Entry<String, String> source : sources.entrySet()) {
+                String hash = KnowledgeIndexArtifact.contentHash(source.getValue());
+                IndexedSource previous = indexed.get(source.getKey());
+                if (previous != null && previous.hash().equals(hash)) {
+                    next.put(source.getKey(), previous);
+                    continue;
+                }
+                List<Document> chunks = prebuilt.get(hash);
+                if (chunks != null) {
+                    chunks = withDocId(chunks, source.getKey());
+                    reused++;
+                } else {
+                    chunks = chunk(source.getKey(), source.getValue(), reader);
+                }
+                next.put(source.getKey(), new IndexedSource(hash, chunks));
+                changed++;
+            }
+            for (Map.Entry<String, List<Document>> source : addedSources.entrySet()) {
+                String hash = KnowledgeIndexArtifact.contentHash(source.getValue().stream()
+                        .map(DocumentUtils::textOf)
+                        .collect(Collectors.joining("\n")));
+                IndexedSource previous = indexed.get(source.getKey());
+                if (previous != null && previous.hash().equals(hash)) {
+                    next.put(source.getKey(), previous);
+                    continue;
+                }
+                next.put(source.getKey(), new IndexedSource(hash, source.getValue()));
+                changed++;
+            }
+            if (!prebuilt.isEmpty()) {
+                log.info("Prebuilt knowledge index covers {}/{} documents", reused, sources.size());
+            }
+            int removed = (int) indexed.keySet().stream().filter(key -> !next.containsKey(key)).count();
+            if (changed == 0 && removed == 0 && state == State.READY) {
+                return;
+            }
+
+            // 重复分块不进入索引，也不再向量化
+            ChunkDeduplicator.Result deduplicated = chunkDeduplicator.deduplicate(next.values().stream()
+                    .flatMap(source -> source.chunks().stream())
+                    .toList());
+            List<Document> chunks = deduplicated.chunks();
+            ChunkDeduplicator.Stats dedupe = deduplicated.stats();
+            if (dedupe.kept() < dedupe.input()) {
+                log.info("Knowledge chunks deduplicated: {} -> {} (exact {}, near {}) in {} ms",
+                        dedupe.input(), dedupe.kept(), dedupe.exactDuplicates(), dedupe.nearDuplicates(),
+                        dedupe.elapsed().toMillis());
+            }
+            chunkCount = chunks.size();
+            KeywordKnowledge keyword = new KeywordKnowledge(new Bm25Index(chunks));
+            if (activeStore == null) {
+                // 还没有向量索引时先提供关键词检索
+                live.swap(contextCompressor.wrap(keyword));
+                log.info("知识库关键词检索已就绪: {} 个分块，向量索引构建中", chunks.size());
+            }
+
+            // 启动时优先加载磁盘上与当前分块完全对应的索引，其次是预构建索引文件内嵌的图结构
+            Optional<VDBStoreBase> restored = activeStore != null
+                    ? Optional.empty()
+                    : vectorIndexFactory.restore(chunks,
+                            artifact.map(KnowledgeIndexArtifact.Contents::hnswGraph).orElse(null));
+            KnowledgeIngestor.IngestStats stats = null;
+            if (restored.isPresent()) {
+                vectorStore = restored.get();
+                log.info("Knowledge index restored without re-indexing: {} chunks", chunks.size());
+            } else {
+                Optional<IndexDiff> diff = diff(chunks);
+                if (diff.isPresent()) {
+                    // 在当前索引的副本上只删除、插入变化的分块
+                    CopyableVectorStore copy = ((CopyableVectorStore) activeStore).copy();
+                    vectorStore = copy;
+                    for (String id : diff.get().removed()) {
+                        copy.delete(id).block();
+                    }
+                    stats = knowledgeIngestor.ingestChanges(diff.get().added(), copy).block();
+                    log.info("Knowledge index patched: {} chunks removed, {} added, {} deleted slots",
+                            diff.get().removed().size(), diff.get().added().size(), copy.deletedCount());
+                } else {
+                    vectorStore = vectorIndexFactory.create();
+                    // 未变化文档的分块已带有向量（映射存储则从当前存储直接复制），不会重新计算
+                    stats = knowledgeIngestor.ingest(chunks, vectorStore, activeStore).block();
+                }
+                if (stats != null && stats.complete()) {
+                    vectorIndexFactory.persist(vectorStore);
+                }
+            }
+            SimpleKnowledge knowledge = SimpleKnowledge.builder()
+                    .embeddingModel(embeddingModel)
+                    .embeddingStore(vectorStore)
+                    .build();
+
+            Knowledge served = hybridConfig.getEnabled()
+                    ? new HybridKnowledge(keyword, knowledge, hybridConfig, meterRegistry)
+                    : knowledge;
+            // 检索结果注入上下文前裁剪到与问题相关的句子
+            live.swap(contextCompressor.wrap(served));
+            closeQuietly(activeStore);
+            activeStore = vectorStore;
+            activeChunks = byId(chunks);
+            vectorStore = null;
+            // 缺少向量的分块保持 embedding 为空，重试时只会重新向量化这些分块
+            indexed = next;
+            lastStats = stats;
+            lastDedupe = dedupe;
+            duplicateSources = Map.copyOf(deduplicated.sources());
+            if (stats != null && !stats.complete()) {
+                state = State.DEGRADED;
+                log.warn("RAG knowledge index incomplete: version={}, {} of {} chunks have no embedding, retry in {}s",
+                        version, stats.failed(), stats.chunks(), RETRY_DELAY.toSeconds());
+                scheduleRetry();
+            } else {
+                state = State.READY;
+                log.info("RAG knowledge index updated: version={}, changed={}, removed={}, {}",
+                        version, changed, removed, stats);
+            }
+            // 清空旧索引（或预热期间关键词检索）下缓存的回答
+            eventPublisher.publishEvent(new KnowledgeIndexUpdatedEvent(version, chunks.size()));
+        } catch (Exception e) {
+            if (state != State.READY) {
+                state = State.DEGRADED;
+            }
+            // 失败时保留当前索引，丢弃构建到一半的新索引，稍后重新比较全部文档
+            closeQuietly(vectorStore);
+            log.error("Failed to build RAG vector index: {}", e.getMessage(), e);
+            scheduleRetry();
+        }
+    }
+
+    /**
+     * 当前索引可以增量更新时，返回它与新分块之间的差异；需要整体重建时返回空：
+     * 还没有索引、索引不支持复制、上次构建不完整，或增量更新后已删除的向量过多
+     */
+    private Optional<IndexDiff> diff(List<Document> chunks) {
+        if (!(activeStore instanceof CopyableVectorStore current) || state != State.READY) {
+            return Optional.empty();
+        }
+        Map<String, Document> next = byId(chunks);
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Document> entry : activeChunks.entrySet()) {
+            if (!sameText(entry.getValue(), next.get(entry.getKey()))) {
+                removed.add(entry.getKey());
+            }
+        }
+        List<Document> added = new ArrayList<>();
+        for (Document chunk : chunks) {
+            if (!sameText(chunk, activeChunks.get(chunk.getId()))) {
+                added.add(chunk);
+            }
+        }
+        if (current.deletedCount() + removed.size() > MAX_DELETED_RATIO * Math.max(1, chunks.size())) {
+            return Optional.empty();
+        }
+        return Optional.of(new IndexDiff(removed, added));
+    }
+
+    private static boolean sameText(Document a, Document b) {
+        return b != null && DocumentUtils.textOf(a).equals(DocumentUtils.textOf(b));
+    }
+
+    private static Map<String, Document> byId(List<Document> chunks) {
+        Map<String, Document> result = new HashMap<>(chunks.size() * 2);
+        for (Document chunk : chunks) {
+            result.put(chunk.getId(), chunk);
+        }
+        return result;
+    }
+
+    /**
+     * 稍后在加载线程中重新构建；非 READY 状态下即使文档没有变化也会完整构建一次
+     */
+    private void scheduleRetry() {
+        try {
+            pendingRetry = executor.schedule(this::build, RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Knowledge loader is shut down, skip retry");
+        }
+    }
+
+    private static void closeQuietly(VDBStoreBase store) {
+        if (store instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close previous vector store: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 预构建分块的 docId 是构建时的相对路径，改为运行时的来源，与现场分块一致；
+     * 内容相同的多个文档各自得到一份分块
+     */
+    private static List<Document> withDocId(List<Document> chunks, String docId) {
+        List<Document> result = new ArrayList<>(chunks.size());
+        for (Document chunk : chunks) {
+            DocumentMetadata metadata = chunk.getMetadata();
+            Document copy = new Document(new DocumentMetadata(metadata.getContent(), docId, metadata.getChunkId()));
+            copy.setEmbedding(chunk.getEmbedding());
+            result.add(copy);
+        }
+        return result;
+    }
+
+    private List<Document> chunk(String source, String content, TextReader reader) {
+        if (markdownChunker.isEnabled()) {
+            return markdownChunker.split(source, content);
+        }
+        List<Document> chunks = knowledgeIngestor.chunk(List.of(content), reader).block();
+        return chunks == null ? List.of() : chunks;
+    }
+
+    /**
+     * 未启用 Markdown 分块时的段落分块方式
+     */
+    private TextReader createReader() {
+        return new TextReader(512, SplitStrategy.PARAGRAPH, 50);
+    }
+
+    private record IndexedSource(String hash, List<Document> chunks) {
+    }
+
+    /**
+     * 增量更新：要删除的分块 id 和要插入的分块
+     */
+    private record IndexDiff(List<String> removed, List<Document> added) {
+    }
+}
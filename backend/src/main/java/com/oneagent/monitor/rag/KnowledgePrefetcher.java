@@ -0,0 +1,160 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.DocumentUtils;
+import com.oneagent.monitor.util.QueryNormalizer;
+import io.agentscope.core.ReActAgent;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.MsgRole;
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.RetrieveConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * 知识库预取
+ * <p>
+ * 在 Agentic RAG 模式下，模型要先花一次完整的 LLM 往返决定调用 retrieve_knowledge，
+ * 再等待向量化和检索。预取在问题到达时就发起检索，与第一次模型调用并行，把检索延迟藏在 LLM 延迟之后。
+ */
+@Slf4j
+@Component
+public class KnowledgePrefetcher {
+
+    private final AgentScopeProperties.PrefetchConfig config;
+    private final Counter started;
+    private final Counter served;
+    private final Counter missed;
+    private final Counter injected;
+    /**
+     * Agent 实例 -> 其预取知识库，Agent 回收后自动移除
+     */
+    private final Map<ReActAgent, PrefetchingKnowledge> agents = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public KnowledgePrefetcher(AgentScopeProperties agentScopeProperties, MeterRegistry meterRegistry) {
+        this.config = agentScopeProperties.getRag().getPrefetch();
+        this.started = meterRegistry.counter("rag.prefetch", "result", "started");
+        this.served = meterRegistry.counter("rag.prefetch", "result", "served");
+        this.missed = meterRegistry.counter("rag.prefetch", "result", "missed");
+        this.injected = meterRegistry.counter("rag.prefetch", "result", "injected");
+        log.info("Knowledge prefetch: enabled={}, reuseSimilarity={}, injectScoreThreshold={}",
+                config.getEnabled(), config.getReuseSimilarity(), config.getInjectScoreThreshold());
+    }
+
+    public boolean isEnabled() {
+        return config.getEnabled();
+    }
+
+    /**
+     * 将知识库包装为支持预取的知识库，预取使用与 Agent 相同的检索配置
+     */
+    public PrefetchingKnowledge wrap(Knowledge knowledge, RetrieveConfig retrieveConfig) {
+        return new PrefetchingKnowledge(knowledge, retrieveConfig, this);
+    }
+
+    /**
+     * 登记 Agent 使用的预取知识库，请求入口据此为该 Agent 发起预取
+     */
+    public void register(ReActAgent agent, PrefetchingKnowledge knowledge) {
+        agents.put(agent, knowledge);
+    }
+
+    /**
+     * 请求入口接受问题时调用：立即为该 Agent 发起检索，不等待结果。
+     * Agent 没有启用预取时不做任何事
+     */
+    public void prefetch(ReActAgent agent, String question) {
+        PrefetchingKnowledge knowledge = agents.get(agent);
+        if (knowledge != null && question != null && !question.isBlank()) {
+            knowledge.prefetch(question);
+        }
+    }
+
+    /**
+     * 模型生成的检索词与预取时的用户问题是否足够相近，可以直接复用预取结果
+     */
+    boolean isReusable(String prefetchedQuery, String toolQuery) {
+        String a = QueryNormalizer.normalize(prefetchedQuery);
+        String b = QueryNormalizer.normalize(toolQuery);
+        if (a.isEmpty() || b.isEmpty()) {
+            return false;
+        }
+        if (a.contains(b) || b.contains(a)) {
+            return true;
+        }
+        return bigramJaccard(a, b) >= config.getReuseSimilarity();
+    }
+
+    /**
+     * 已完成的预取结果最高得分是否达到注入阈值
+     */
+    boolean isConfident(List<Document> docs) {
+        return docs.stream()
+                .mapToDouble(DocumentUtils::scoreOf)
+                .max()
+                .orElse(0.0) >= config.getInjectScoreThreshold();
+    }
+
+    /**
+     * 将预取的文档块组织为一条上下文消息
+     */
+    Msg toContextMessage(List<Document> docs) {
+        StringBuilder text = new StringBuilder(
+                "以下是根据用户问题预先从知识库检索到的内容，可直接用于回答；如不足以回答，仍可调用 retrieve_knowledge 检索：\n");
+        for (int i = 0; i < docs.size(); i++) {
+            text.append("\n[").append(i + 1).append("] ").append(DocumentUtils.textOf(docs.get(i)));
+        }
+        return Msg.builder()
+                .name("knowledge_prefetch")
+                .role(MsgRole.SYSTEM)
+                .textContent(text.toString())
+                .build();
+    }
+
+    void recordStarted() {
+        started.increment();
+    }
+
+    void recordServed() {
+        served.increment();
+    }
+
+    void recordMissed() {
+        missed.increment();
+    }
+
+    void recordInjected() {
+        injected.increment();
+    }
+
+    private static double bigramJaccard(String a, String b) {
+        Set<String> left = bigrams(a);
+        Set<String> right = bigrams(b);
+        Set<String> union = new HashSet<>(left);
+        union.addAll(right);
+        left.retainAll(right);
+        return union.isEmpty() ? 0.0 : (double) left.size() / union.size();
+    }
+
+    private static Set<String> bigrams(String text) {
+        Set<String> grams = new HashSet<>();
+        String compact = text.replace(" ", "");
+        if (compact.length() == 1) {
+            grams.add(compact);
+        }
+        for (int i = 0; i + 2 <= compact.length(); i++) {
+            grams.add(compact.substring(i, i + 2));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,323 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.TokenEstimator;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按 Markdown 结构分块
+ * <p>
+ * 按标题层级把文档分成小节，同一个二级标题下的小节在 token 预算内合并为一个分块；
+ * 表格、列表、代码块整体放入同一分块，超出预算时表格按行拆分并重复表头，列表按条目拆分。
+ * 每个分块第一行是标题路径（如 "[胜算云平台知识库 > 计费模式]"），检索结果脱离原文也能看出所属章节。
+ * 分块大小按 {@link TokenEstimator} 估算的 token 数控制，而不是字符数。
+ */
+@Component
+public class MarkdownChunker {
+
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.+?)\\s*#*\\s*$");
+    private static final Pattern LIST_ITEM = Pattern.compile("^(\\s*)([-*+]|\\d+[.)])\\s+.*");
+    private static final Pattern TABLE_SEPARATOR = Pattern.compile("^\\|?\\s*:?-{2,}.*");
+    private static final Pattern RULE = Pattern.compile("^\\s*([-*_])(\\s*\\1){2,}\\s*$");
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[。！？；!?;])|(?<=\\.)\\s+");
+
+    /**
+     * 合并小节的标题层级：该层级及以上的标题构成分组
+     */
+    private static final int GROUP_LEVEL = 2;
+
+    private final AgentScopeProperties.ChunkConfig config;
+
+    public MarkdownChunker(AgentScopeProperties agentScopeProperties) {
+        this.config = agentScopeProperties.getRag().getChunk();
+    }
+
+    public boolean isEnabled() {
+        return config.getMarkdown();
+    }
+
+    /**
+     * 分块方式标识，分块规则或参数变化时不同；预构建索引据此判断能否复用
+     */
+    public String signature() {
+        return "markdown/v1/max-tokens=" + config.getMaxTokens();
+    }
+
+    /**
+     * 将一篇 Markdown 文档切分为分块
+     *
+     * @param docId 文档来源，作为分块的 docId
+     */
+    public List<Document> split(String docId, String markdown) {
+        List<Document> chunks = new ArrayList<>();
+        List<String> path = new ArrayList<>();
+        List<Integer> levels = new ArrayList<>();
+        List<String> units = new ArrayList<>();
+        String group = "";
+        String pendingHeading = null;
+
+        for (Block block : parse(markdown)) {
+            if (block.type() == BlockType.HEADING) {
+                int level = block.level();
+                while (!levels.isEmpty() && levels.get(levels.size() - 1) >= level) {
+                    levels.remove(levels.size() - 1);
+                    path.remove(path.size() - 1);
+                }
+                levels.add(level);
+                path.add(block.text());
+                String nextGroup = groupOf(path, levels);
+                if (!nextGroup.equals(group)) {
+                    flush(docId, group, units, chunks);
+                    group = nextGroup;
+                }
+                // 分组以下的标题保留在正文中，与其后的第一个块放在一起
+                pendingHeading = level > GROUP_LEVEL ? block.lines().get(0) : null;
+                continue;
+            }
+            String unit = String.join("\n", block.lines());
+            if (pendingHeading != null) {
+                unit = pendingHeading + "\n" + unit;
+                pendingHeading = null;
+            }
+            units.addAll(fit(unit, block, budget(group)));
+        }
+        flush(docId, group, units, chunks);
+        return chunks;
+    }
+
+    // ========== 分块 ==========
+
+    private void flush(String docId, String group, List<String> units, List<Document> chunks) {
+        if (units.isEmpty()) {
+            return;
+        }
+        String header = group.isEmpty() ? "" : "[" + group + "]\n";
+        int budget = budget(group);
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+        for (String unit : units) {
+            int tokens = TokenEstimator.estimate(unit);
+            if (current.length() > 0 && currentTokens + tokens > budget) {
+                chunks.add(document(docId, chunks.size(), header + current));
+                current.setLength(0);
+                currentTokens = 0;
+            }
+            if (current.length() > 0) {
+                current.append("\n\n");
+            }
+            current.append(unit);
+            currentTokens += tokens;
+        }
+        if (current.length() > 0) {
+            chunks.add(document(docId, chunks.size(), header + current));
+        }
+        units.clear();
+    }
+
+    private int budget(String group) {
+        int headerTokens = group.isEmpty() ? 0 : TokenEstimator.estimate(group) + 2;
+        return Math.max(32, config.getMaxTokens() - headerTokens);
+    }
+
+    private static String groupOf(List<String> path, List<Integer> levels) {
+        List<String> group = new ArrayList<>();
+        for (int i = 0; i < path.size(); i++) {
+            if (levels.get(i) <= GROUP_LEVEL) {
+                group.add(path.get(i));
+            }
+        }
+        return String.join(" > ", group);
+    }
+
+    /**
+     * 超出预算的块按结构拆分：表格按行（重复表头），列表按条目，其余按句子或行
+     */
+    private static List<String> fit(String unit, Block block, int budget) {
+        if (TokenEstimator.estimate(unit) <= budget) {
+            return List.of(unit);
+        }
+        List<String> lines = List.of(unit.split("\n"));
+        return switch (block.type()) {
+            case TABLE -> splitTable(lines, budget);
+            case LIST -> pack(groupListItems(lines), "", budget, "\n");
+            case PARAGRAPH -> pack(List.of(SENTENCE_END.split(unit)), "", budget, "");
+            default -> pack(lines, "", budget, "\n");
+        };
+    }
+
+    private static List<String> splitTable(List<String> lines, int budget) {
+        // 表格前可能带有合并进来的小节标题
+        int headerEnd = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            if (TABLE_SEPARATOR.matcher(lines.get(i).trim()).matches()) {
+                headerEnd = i + 1;
+                break;
+            }
+        }
+        String header = String.join("\n", lines.subList(0, headerEnd));
+        return pack(lines.subList(headerEnd, lines.size()), header, budget, "\n");
+    }
+
+    private static List<String> groupListItems(List<String> lines) {
+        List<String> items = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        for (String line : lines) {
+            Matcher matcher = LIST_ITEM.matcher(line);
+            boolean topLevelItem = matcher.matches() && matcher.group(1).isEmpty();
+            if (topLevelItem && item.length() > 0) {
+                items.add(item.toString());
+                item.setLength(0);
+            }
+            if (item.length() > 0) {
+                item.append('\n');
+            }
+            item.append(line);
+        }
+        if (item.length() > 0) {
+            items.add(item.toString());
+        }
+        return items;
+    }
+
+    /**
+     * 依次装入片段，每段不超过预算；header 非空时每段都以它开头
+     */
+    private static List<String> pack(List<String> pieces, String header, int budget, String joiner) {
+        List<String> result = new ArrayList<>();
+        int headerTokens = TokenEstimator.estimate(header);
+        StringBuilder current = new StringBuilder(header);
+        int tokens = headerTokens;
+        boolean empty = true;
+        List<String> bounded = new ArrayList<>();
+        for (String piece : pieces) {
+            bounded.addAll(hardSplit(piece, Math.max(1, budget - headerTokens)));
+        }
+        for (String text : bounded) {
+            int pieceTokens = TokenEstimator.estimate(text);
+            if (!empty && tokens + pieceTokens > budget) {
+                result.add(current.toString());
+                current.setLength(0);
+                current.append(header);
+                tokens = headerTokens;
+                empty = true;
+            }
+            if (current.length() > 0 && (!empty || !header.isEmpty())) {
+                current.append(empty ? "\n" : joiner);
+            }
+            current.append(text);
+            tokens += pieceTokens;
+            empty = false;
+        }
+        if (!empty) {
+            result.add(current.toString());
+        }
+        return result;
+    }
+
+    /**
+     * 单个片段（超长句子、超长表格行）本身超出预算时按字符切开，不丢弃内容
+     */
+    private static List<String> hardSplit(String piece, int maxTokens) {
+        List<String> parts = new ArrayList<>();
+        String rest = piece;
+        while (TokenEstimator.estimate(rest) > maxTokens) {
+            String head = TokenEstimator.truncate(rest, maxTokens);
+            if (head.isEmpty()) {
+                head = rest.substring(0, rest.offsetByCodePoints(0, 1));
+            }
+            parts.add(head);
+            rest = rest.substring(head.length());
+        }
+        if (!rest.isEmpty()) {
+            parts.add(rest);
+        }
+        return parts;
+    }
+
+    private static Document document(String docId, int index, String text) {
+        TextBlock content = TextBlock.builder().text(text).build();
+        return new Document(new DocumentMetadata(content, docId, String.valueOf(index)));
+    }
+
+    // ========== 解析 ==========
+
+    private enum BlockType {
+        HEADING, PARAGRAPH, LIST, TABLE, CODE
+    }
+
+    private record Block(BlockType type, List<String> lines, int level, String text) {
+
+        Block(BlockType type, List<String> lines) {
+            this(type, lines, 0, null);
+        }
+    }
+
+    /**
+     * 把文档解析为标题、段落、列表、表格和代码块，空行和分隔线只作为块边界
+     */
+    private static List<Block> parse(String markdown) {
+        List<Block> blocks = new ArrayList<>();
+        String[] lines = markdown == null ? new String[0] : markdown.split("\r?\n");
+        int i = 0;
+        while (i < lines.length) {
+            String line = lines[i];
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || RULE.matcher(line).matches()) {
+                i++;
+                continue;
+            }
+            if (trimmed.startsWith("```")) {
+                List<String> code = new ArrayList<>();
+                code.add(line);
+                i++;
+                while (i < lines.length) {
+                    code.add(lines[i]);
+                    if (lines[i++].trim().startsWith("```")) {
+                        break;
+                    }
+                }
+                blocks.add(new Block(BlockType.CODE, code));
+                continue;
+            }
+            Matcher heading = HEADING.matcher(line);
+            if (heading.matches()) {
+                blocks.add(new Block(BlockType.HEADING, List.of(line), heading.group(1).length(), heading.group(2)));
+                i++;
+                continue;
+            }
+            BlockType type = trimmed.startsWith("|") ? BlockType.TABLE
+                    : LIST_ITEM.matcher(line).matches() ? BlockType.LIST
+                    : BlockType.PARAGRAPH;
+            List<String> content = new ArrayList<>();
+            content.add(line);
+            i++;
+            while (i < lines.length && continues(type, lines[i])) {
+                content.add(lines[i++]);
+            }
+            blocks.add(new Block(type, content));
+        }
+        return blocks;
+    }
+
+    private static boolean continues(BlockType type, String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("```") || HEADING.matcher(line).matches()
+                || RULE.matcher(line).matches()) {
+            return false;
+        }
+        return switch (type) {
+            case TABLE -> trimmed.startsWith("|");
+            // 条目下缩进的续行属于同一列表
+            case LIST -> LIST_ITEM.matcher(line).matches() || Character.isWhitespace(line.charAt(0));
+            default -> !trimmed.startsWith("|") && !LIST_ITEM.matcher(line).matches();
+        };
+    }
+}
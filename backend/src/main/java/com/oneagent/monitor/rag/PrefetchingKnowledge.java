@@ -0,0 +1,176 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.util.QueryNormalizer;
+import io.agentscope.core.hook.Hook;
+import io.agentscope.core.hook.HookEvent;
+import io.agentscope.core.hook.PreReasoningEvent;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.MsgRole;
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.RetrieveConfig;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 支持预取的知识库包装，每个 Agent 实例一份
+ * <p>
+ * 请求入口接受问题时（{@link KnowledgePrefetcher#prefetch}）就用用户原始问题发起检索，与会话加载、告警处理和模型调用并行执行；
+ * 入口没有预取时（如直接调用 Agent），在本轮第一次推理开始时（{@link #hook()}）发起。
+ * 模型随后调用 retrieve_knowledge 时，如果检索词与预取的问题足够相近，直接复用预取结果。
+ * 第一次推理开始时预取已经完成且得分足够高，还会直接注入上下文，省去一次工具调用往返；未完成时不等待，模型调用照常发出。
+ * 注入的内容不写入记忆，本轮之后的每次推理（工具调用后）都在用户消息之后重新注入，模型在整轮中都能看到。
+ */
+@Slf4j
+public class PrefetchingKnowledge implements Knowledge {
+
+    private final Knowledge delegate;
+    private final RetrieveConfig retrieveConfig;
+    private final KnowledgePrefetcher prefetcher;
+    private final AtomicReference<Prefetch> current = new AtomicReference<>();
+
+    PrefetchingKnowledge(Knowledge delegate, RetrieveConfig retrieveConfig, KnowledgePrefetcher prefetcher) {
+        this.delegate = delegate;
+        this.retrieveConfig = retrieveConfig;
+        this.prefetcher = prefetcher;
+    }
+
+    @Override
+    public Mono<Void> addDocuments(List<Document> documents) {
+        return delegate.addDocuments(documents);
+    }
+
+    @Override
+    public Mono<List<Document>> retrieve(String query, RetrieveConfig config) {
+        Prefetch prefetch = current.get();
+        if (prefetch == null) {
+            return delegate.retrieve(query, config);
+        }
+        if (covers(config) && prefetcher.isReusable(prefetch.query(), query)) {
+            prefetcher.recordServed();
+            log.debug("检索复用预取结果: prefetched={}, query={}", prefetch.query(), query);
+            // 预取失败时退回正常检索
+            return prefetch.result().onErrorResume(e -> delegate.retrieve(query, config));
+        }
+        prefetcher.recordMissed();
+        return delegate.retrieve(query, config);
+    }
+
+    /**
+     * 每轮对话开始时触发预取的 Hook
+     */
+    public Hook hook() {
+        return new PrefetchHook();
+    }
+
+    /**
+     * 立即发起检索，结果缓存供本轮后续使用；同一会话上一轮未使用的预取被替换
+     */
+    void prefetch(String query) {
+        start(query);
+    }
+
+    private Prefetch start(String query) {
+        Mono<List<Document>> result = delegate.retrieve(query, retrieveConfig).cache();
+        Prefetch prefetch = new Prefetch(query, result, new AtomicReference<>(), new AtomicReference<>(),
+                new AtomicBoolean());
+        current.set(prefetch);
+        prefetcher.recordStarted();
+        result.subscribe(prefetch.completed()::set, e -> log.warn("知识库预取失败: {}", e.getMessage()));
+        return prefetch;
+    }
+
+    private boolean covers(RetrieveConfig config) {
+        if (config == null) {
+            return true;
+        }
+        return config.getLimit() <= retrieveConfig.getLimit()
+                && config.getScoreThreshold() >= retrieveConfig.getScoreThreshold();
+    }
+
+    private final class PrefetchHook implements Hook {
+
+        @Override
+        public <T extends HookEvent> Mono<T> onEvent(T event) {
+            if (!(event instanceof PreReasoningEvent e)) {
+                return Mono.just(event);
+            }
+            List<Msg> inputMessages = e.getInputMessages();
+            if (inputMessages == null || inputMessages.isEmpty()) {
+                return Mono.just(event);
+            }
+            // 最后一条是用户消息说明是本轮第一次推理，之后的推理最后一条是工具结果
+            Msg last = inputMessages.get(inputMessages.size() - 1);
+            if (last.getRole() != MsgRole.USER) {
+                reinject(e, inputMessages);
+                return Mono.just(event);
+            }
+            String question = QueryNormalizer.extractQuestion(last.getTextContent());
+            if (question.isBlank()) {
+                // 新的一轮，不再重新注入上一轮的预取内容
+                current.set(null);
+                return Mono.just(event);
+            }
+            Prefetch prefetch = current.get();
+            if (prefetch == null || !prefetch.matches(question) || !prefetch.claimed().compareAndSet(false, true)) {
+                // 请求入口没有为本轮发起预取，现在发起，只供工具调用复用
+                start(question).claimed().set(true);
+                return Mono.just(event);
+            }
+
+            // 只注入已经完成的预取结果，不阻塞本次模型调用
+            List<Document> docs = prefetch.completed().get();
+            if (docs != null && prefetcher.isConfident(docs)) {
+                Msg context = prefetcher.toContextMessage(docs);
+                prefetch.context().set(context);
+                List<Msg> messages = new ArrayList<>(inputMessages);
+                messages.add(context);
+                e.setInputMessages(messages);
+                prefetcher.recordInjected();
+            }
+            return Mono.just(event);
+        }
+
+        /**
+         * 本轮已注入预取内容时，在本轮用户消息之后重新插入，位置与第一次推理时相同
+         */
+        private void reinject(PreReasoningEvent event, List<Msg> inputMessages) {
+            Prefetch prefetch = current.get();
+            Msg context = prefetch == null ? null : prefetch.context().get();
+            if (context == null) {
+                return;
+            }
+            int lastUser = -1;
+            for (int i = inputMessages.size() - 1; i >= 0; i--) {
+                if (inputMessages.get(i).getRole() == MsgRole.USER) {
+                    lastUser = i;
+                    break;
+                }
+            }
+            if (lastUser < 0 || inputMessages.contains(context)) {
+                return;
+            }
+            List<Msg> messages = new ArrayList<>(inputMessages);
+            messages.add(lastUser + 1, context);
+            event.setInputMessages(messages);
+        }
+    }
+
+    /**
+     * @param completed 已完成的检索结果，未完成或失败时为空
+     * @param context   本轮注入的上下文消息，没有注入时为空
+     * @param claimed   是否已被某一轮对话使用，同一次预取只对应一轮
+     */
+    private record Prefetch(String query, Mono<List<Document>> result, AtomicReference<List<Document>> completed,
+                            AtomicReference<Msg> context, AtomicBoolean claimed) {
+
+        boolean matches(String question) {
+            return QueryNormalizer.normalize(query).equals(QueryNormalizer.normalize(question));
+        }
+    }
+}
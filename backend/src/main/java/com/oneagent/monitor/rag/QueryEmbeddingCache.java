@@ -0,0 +1,154 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.QueryNormalizer;
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.TextBlock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 检索时的查询向量缓存
+ * <p>
+ * 同一问题或只差大小写、空白、结尾标点的问题反复出现，ReAct 循环中一个问题也常检索两次。
+ * key 为 (模型名, 归一化后的查询文本)，向量以 float[] 保存，按容量（LRU）和 TTL 淘汰。
+ * 只缓存查询向量，知识库分块向量由 {@link EmbeddingDiskCache} 负责。
+ */
+@Slf4j
+@Component
+public class QueryEmbeddingCache {
+
+    private final AgentScopeProperties.QueryEmbeddingCacheConfig config;
+    private final Map<String, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public QueryEmbeddingCache(AgentScopeProperties agentScopeProperties, MeterRegistry meterRegistry) {
+        this.config = agentScopeProperties.getEmbedding().getQueryCache();
+        int maxSize = config.getMaxSize();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.hits = meterRegistry.counter("rag.query.embedding.cache", "result", "hit");
+        this.misses = meterRegistry.counter("rag.query.embedding.cache", "result", "miss");
+        Gauge.builder("rag.query.embedding.cache.size", this, QueryEmbeddingCache::size).register(meterRegistry);
+        Gauge.builder("rag.query.embedding.cache.hit.ratio", this, QueryEmbeddingCache::hitRatio).register(meterRegistry);
+    }
+
+    /**
+     * 包装检索用的 Embedding 模型，未启用时原样返回
+     */
+    public EmbeddingModel wrap(EmbeddingModel delegate) {
+        if (!config.getEnabled()) {
+            return delegate;
+        }
+        log.info("Query embedding cache: maxSize={}, ttl={}", config.getMaxSize(), config.getTtl());
+        return new CachingModel(delegate);
+    }
+
+    /**
+     * 只读取已缓存的查询向量，不计入命中率，也不触发向量化；没有时返回 null
+     */
+    public float[] peek(String modelName, String query) {
+        if (!config.getEnabled() || query == null) {
+            return null;
+        }
+        return get(modelName + '\u0000' + QueryNormalizer.normalize(query));
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    private float[] get(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.createdAt() > config.getTtl().toNanos()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.vector();
+        }
+    }
+
+    private void put(String key, float[] vector) {
+        synchronized (entries) {
+            entries.put(key, new Entry(vector, System.nanoTime()));
+        }
+    }
+
+    private final class CachingModel implements EmbeddingModel {
+
+        private final EmbeddingModel delegate;
+
+        CachingModel(EmbeddingModel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Mono<double[]> embed(ContentBlock block) {
+            if (!(block instanceof TextBlock textBlock) || textBlock.getText() == null) {
+                return delegate.embed(block);
+            }
+            String key = delegate.getModelName() + '\u0000' + QueryNormalizer.normalize(textBlock.getText());
+            float[] cached = get(key);
+            if (cached != null) {
+                hits.increment();
+                return Mono.just(toDoubles(cached));
+            }
+            misses.increment();
+            return delegate.embed(block)
+                    .doOnNext(vector -> put(key, toFloats(vector)));
+        }
+
+        @Override
+        public String getModelName() {
+            return delegate.getModelName();
+        }
+
+        @Override
+        public int getDimensions() {
+            return delegate.getDimensions();
+        }
+    }
+
+    private static double[] toDoubles(float[] vector) {
+        double[] result = new double[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = vector[i];
+        }
+        return result;
+    }
+
+    private static float[] toFloats(double[] vector) {
+        float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = (float) vector[i];
+        }
+        return result;
+    }
+
+    private record Entry(float[] vector, long createdAt) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.oneagent.monitor.rag;
+
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.RetrieveConfig;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 可原子替换实现的知识库
+ * <p>
+ * Agent 持有的始终是这一个实例；索引在后台构建完成后通过 {@link #swap(Knowledge)} 整体替换，
+ * 已经开始的检索继续使用旧实现，之后的检索使用新实现。
+ * <p>
+ * 写入的文档不直接加入当前实现（会在下一次替换时丢失，也无法同时写入关键词索引），
+ * 而是交给 {@link KnowledgeLoader}，与知识库文件一起增量更新两路索引后替换。
+ */
+public class SwappableKnowledge implements Knowledge {
+
+    private final AtomicReference<Knowledge> current;
+    private final Function<List<Document>, Mono<Void>> writer;
+
+    /**
+     * @param writer 写入文档的方式，索引更新并替换后完成
+     */
+    public SwappableKnowledge(Knowledge initial, Function<List<Document>, Mono<Void>> writer) {
+        this.current = new AtomicReference<>(initial);
+        this.writer = writer;
+    }
+
+    @Override
+    public Mono<Void> addDocuments(List<Document> documents) {
+        return writer.apply(documents);
+    }
+
+    @Override
+    public Mono<List<Document>> retrieve(String query, RetrieveConfig config) {
+        return Mono.defer(() -> current.get().retrieve(query, config));
+    }
+
+    /**
+     * 替换为新的实现，返回旧实现
+     */
+    public Knowledge swap(Knowledge next) {
+        return current.getAndSet(next);
+    }
+
+    public Knowledge current() {
+        return current.get();
+    }
+}
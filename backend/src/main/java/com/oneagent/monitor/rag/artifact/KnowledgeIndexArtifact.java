@@ -0,0 +1,239 @@
+package com.oneagent.monitor.rag.artifact;
+
+import com.oneagent.monitor.util.DocumentUtils;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import org.springframework.util.DigestUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预构建知识库索引文件的格式
+ * <p>
+ * 构建时由 {@link KnowledgeIndexBuilder} 写入，启动时由 {@link PrebuiltKnowledgeIndex} 映射读取。
+ * 文件布局（大端）：
+ * <pre>
+ * [magic "KIDX", version, 模型名, 维度, 分块方式, 来源数]
+ * 每个来源：[内容哈希, 分块数, 每个分块的 (docId, chunkId, 文本)]
+ * [全部分块的 float32 向量，连续存放]
+ * [HNSW 图长度, 图结构（{@code HnswVectorStore} 的保存格式，覆盖去重后的分块），长度为 0 表示没有]
+ * [32 字节 SHA-256，覆盖之前的全部内容]
+ * </pre>
+ * 来源按内容哈希而不是路径匹配，classpath（jar 内）与挂载目录中的同一文档可以互相复用。
+ * 内嵌的图结构让 HNSW 索引在启动时直接恢复，不用重新插入全部向量。
+ */
+public final class KnowledgeIndexArtifact {
+
+    private static final int MAGIC = 0x4B494458; // "KIDX"
+    private static final int FORMAT_VERSION = 2;
+    private static final int CHECKSUM_BYTES = 32;
+
+    /**
+     * 一个来源文档的分块，分块已带向量
+     *
+     * @param contentHash 文档内容的 MD5，与 {@link #contentHash(String)} 一致
+     */
+    public record Source(String contentHash, List<Document> chunks) {
+    }
+
+    /**
+     * 读取结果
+     *
+     * @param hnswGraph 内嵌的 HNSW 图结构（只读视图），没有时为 null
+     */
+    public record Contents(String modelName, int dimensions, String chunking, Map<String, List<Document>> chunksByHash,
+                           ByteBuffer hnswGraph) {
+    }
+
+    /**
+     * 读取知识库文档，知识库加载（classpath 和目录）与构建索引文件使用同一方式，内容哈希才能对应
+     */
+    public static String readContent(InputStream in) throws IOException {
+        return normalizeContent(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 统一换行：\r\n 和 \r 转为 \n，非空内容末尾补一个换行
+     */
+    static String normalizeContent(String content) {
+        if (content.isEmpty()) {
+            return content;
+        }
+        String unified = content.replace("\r\n", "\n").replace('\r', '\n');
+        return unified.endsWith("\n") ? unified : unified + "\n";
+    }
+
+    /**
+     * 文档内容哈希，知识库加载和索引文件使用同一算法
+     */
+    public static String contentHash(String content) {
+        return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 写入不带图结构的索引文件
+     */
+    public static void write(Path path, String modelName, int dimensions, String chunking,
+                             List<Source> sources) throws IOException {
+        write(path, modelName, dimensions, chunking, sources, null);
+    }
+
+    /**
+     * 写入索引文件（先写临时文件再替换）
+     *
+     * @param hnswGraph HNSW 图结构，没有时传 null
+     */
+    public static void write(Path path, String modelName, int dimensions, String chunking,
+                             List<Source> sources, byte[] hnswGraph) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        MessageDigest digest = sha256();
+        try (OutputStream file = Files.newOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DigestOutputStream(file, digest)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, modelName);
+            out.writeInt(dimensions);
+            writeString(out, chunking);
+            out.writeInt(sources.size());
+            List<Document> ordered = new ArrayList<>();
+            for (Source source : sources) {
+                writeString(out, source.contentHash());
+                out.writeInt(source.chunks().size());
+                for (Document chunk : source.chunks()) {
+                    writeString(out, chunk.getMetadata().getDocId());
+                    writeString(out, chunk.getMetadata().getChunkId());
+                    writeString(out, DocumentUtils.textOf(chunk));
+                    ordered.add(chunk);
+                }
+            }
+            for (Document chunk : ordered) {
+                double[] embedding = chunk.getEmbedding();
+                if (embedding == null || embedding.length != dimensions) {
+                    throw new IOException("Chunk has no " + dimensions + "-dimension embedding: " + chunk.getId());
+                }
+                for (double value : embedding) {
+                    out.writeFloat((float) value);
+                }
+            }
+            out.writeInt(hnswGraph == null ? 0 : hnswGraph.length);
+            if (hnswGraph != null) {
+                out.write(hnswGraph);
+            }
+            out.flush();
+            // 校验和写在摘要流之外
+            file.write(digest.digest());
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 解析索引文件内容，校验和或格式不符时抛出 IOException
+     */
+    public static Contents read(ByteBuffer buffer) throws IOException {
+        int size = buffer.limit();
+        if (size < CHECKSUM_BYTES + 8) {
+            throw new IOException("Index artifact is truncated");
+        }
+        MessageDigest digest = sha256();
+        digest.update(buffer.duplicate().position(0).limit(size - CHECKSUM_BYTES));
+        byte[] expected = new byte[CHECKSUM_BYTES];
+        buffer.duplicate().position(size - CHECKSUM_BYTES).get(expected);
+        if (!Arrays.equals(digest.digest(), expected)) {
+            throw new IOException("Index artifact checksum mismatch");
+        }
+
+        ByteBuffer in = buffer.duplicate().position(0).limit(size - CHECKSUM_BYTES);
+        if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported index artifact format");
+        }
+        String modelName = readString(in);
+        int dimensions = in.getInt();
+        String chunking = readString(in);
+        int sourceCount = in.getInt();
+        Map<String, List<Document>> chunksByHash = new LinkedHashMap<>();
+        List<Document> ordered = new ArrayList<>();
+        for (int s = 0; s < sourceCount; s++) {
+            String hash = readString(in);
+            int chunkCount = in.getInt();
+            List<Document> chunks = new ArrayList<>(chunkCount);
+            for (int c = 0; c < chunkCount; c++) {
+                String docId = readString(in);
+                String chunkId = readString(in);
+                TextBlock content = TextBlock.builder().text(readString(in)).build();
+                Document chunk = new Document(new DocumentMetadata(content, docId, chunkId));
+                chunks.add(chunk);
+                ordered.add(chunk);
+            }
+            chunksByHash.put(hash, chunks);
+        }
+        long vectorBytes = (long) ordered.size() * dimensions * Float.BYTES;
+        if (in.remaining() < vectorBytes + Integer.BYTES) {
+            throw new IOException("Index artifact vector section has unexpected size");
+        }
+        FloatBuffer vectors = in.slice().limit((int) vectorBytes).asFloatBuffer();
+        in.position(in.position() + (int) vectorBytes);
+        int graphLength = in.getInt();
+        if (graphLength != in.remaining()) {
+            throw new IOException("Index artifact graph section has unexpected size");
+        }
+        ByteBuffer hnswGraph = graphLength == 0 ? null : in.slice().asReadOnlyBuffer();
+        for (Document chunk : ordered) {
+            double[] embedding = new double[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                embedding[i] = vectors.get();
+            }
+            chunk.setEmbedding(embedding);
+        }
+        return new Contents(modelName, dimensions, chunking, chunksByHash, hnswGraph);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Index artifact string length out of range");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private KnowledgeIndexArtifact() {
+        // Utility class
+    }
+}
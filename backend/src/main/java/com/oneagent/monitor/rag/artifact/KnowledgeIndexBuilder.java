@@ -0,0 +1,182 @@
+package com.oneagent.monitor.rag.artifact;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.rag.BatchEmbeddingClient;
+import com.oneagent.monitor.rag.ChunkDeduplicator;
+import com.oneagent.monitor.rag.EmbeddingDiskCache;
+import com.oneagent.monitor.rag.KnowledgeIngestor;
+import com.oneagent.monitor.rag.MarkdownChunker;
+import com.oneagent.monitor.rag.store.HnswVectorStore;
+import com.oneagent.monitor.util.DocumentUtils;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.store.InMemoryStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 构建阶段生成知识库索引文件的命令行入口
+ * <p>
+ * 与运行时使用同一套分块（{@link MarkdownChunker}）和批量向量化（{@link KnowledgeIngestor}，优先读取磁盘缓存），
+ * 结果写入 {@link KnowledgeIndexArtifact}；去重（{@link ChunkDeduplicator}）后的分块另外建成 HNSW 图一并写入，
+ * 运行时使用 HNSW 索引且参数一致时直接恢复，不再逐个插入。Embedding 接口配置沿用运行时的环境变量
+ * （EMBEDDING_API_KEY / EMBEDDING_BASE_URL / EMBEDDING_MODEL_NAME / EMBEDDING_CACHE_PATH）。
+ * <pre>
+ * 参数：
+ *   --knowledge &lt;dir&gt;    知识库目录（默认 src/main/resources/knowledge）
+ *   --output &lt;file&gt;      输出文件（默认 target/classes/knowledge-index.bin）
+ *   --max-tokens &lt;n&gt;     分块大小，需与运行时 agentscope.rag.chunk.max-tokens 一致
+ *   --dimensions &lt;n&gt;     向量维度，需与运行时 agentscope.rag.index.dimensions 一致
+ *   --hnsw-m &lt;n&gt;         HNSW 每个节点的邻居数，需与运行时 agentscope.rag.index.hnsw.m 一致
+ *   --stub               不调用接口，按文本哈希生成确定性向量（模型名记为 stub，只用于测试）
+ * </pre>
+ * 通过 {@code mvn -Pknowledge-index package} 在打包前执行。
+ */
+@Slf4j
+public final class KnowledgeIndexBuilder {
+
+    static final String STUB_MODEL = "stub";
+
+    public static void main(String[] args) throws Exception {
+        Path knowledgeDir = Path.of("src/main/resources/knowledge");
+        Path output = Path.of("target/classes/knowledge-index.bin");
+        boolean stub = false;
+        AgentScopeProperties properties = new AgentScopeProperties();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--knowledge" -> knowledgeDir = Path.of(args[++i]);
+                case "--output" -> output = Path.of(args[++i]);
+                case "--max-tokens" -> properties.getRag().getChunk().setMaxTokens(Integer.parseInt(args[++i]));
+                case "--dimensions" -> properties.getRag().getIndex().setDimensions(Integer.parseInt(args[++i]));
+                case "--hnsw-m" -> properties.getRag().getIndex().getHnsw().setM(Integer.parseInt(args[++i]));
+                case "--stub" -> stub = true;
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        applyEnvironment(properties.getEmbedding());
+        if (stub) {
+            properties.getEmbedding().setModelName(STUB_MODEL);
+        }
+
+        int dimensions = properties.getRag().getIndex().getDimensions();
+        MarkdownChunker chunker = new MarkdownChunker(properties);
+        List<KnowledgeIndexArtifact.Source> sources = new ArrayList<>();
+        List<Document> allChunks = new ArrayList<>();
+        for (Path file : markdownFiles(knowledgeDir)) {
+            String content;
+            try (InputStream in = Files.newInputStream(file)) {
+                content = KnowledgeIndexArtifact.readContent(in);
+            }
+            List<Document> chunks = chunker.split("file:" + knowledgeDir.relativize(file), content);
+            sources.add(new KnowledgeIndexArtifact.Source(KnowledgeIndexArtifact.contentHash(content), chunks));
+            allChunks.addAll(chunks);
+        }
+        log.info("Chunked {} knowledge files into {} chunks", sources.size(), allChunks.size());
+
+        if (stub) {
+            allChunks.forEach(chunk -> chunk.setEmbedding(stubEmbedding(DocumentUtils.textOf(chunk), dimensions)));
+        } else {
+            embed(properties, allChunks, dimensions);
+        }
+
+        KnowledgeIndexArtifact.write(output, properties.getEmbedding().getModelName(), dimensions,
+                chunker.signature(), sources, hnswGraph(properties, allChunks));
+        log.info("Knowledge index written to {} ({} bytes, model {})", output, Files.size(output),
+                properties.getEmbedding().getModelName());
+    }
+
+    private static void embed(AgentScopeProperties properties, List<Document> chunks, int dimensions) {
+        EmbeddingDiskCache cache = new EmbeddingDiskCache(properties, new SimpleMeterRegistry());
+        try {
+            KnowledgeIngestor ingestor = new KnowledgeIngestor(properties, new BatchEmbeddingClient(properties), cache);
+            // 向量写在分块上，存储只作为导入流程的接收端
+            KnowledgeIngestor.IngestStats stats = ingestor.ingest(chunks,
+                    InMemoryStore.builder().dimensions(dimensions).build()).block();
+            if (stats == null || !stats.complete()) {
+                throw new IllegalStateException("Embedding failed for some chunks: " + stats);
+            }
+            log.info("Embedded knowledge chunks: {}", stats);
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * 与运行时相同的方式去重后建 HNSW 图，返回其保存格式的字节
+     */
+    private static byte[] hnswGraph(AgentScopeProperties properties, List<Document> chunks) throws IOException {
+        List<Document> deduplicated = new ChunkDeduplicator(properties).deduplicate(chunks).chunks();
+        AgentScopeProperties.IndexConfig index = properties.getRag().getIndex();
+        AgentScopeProperties.HnswConfig hnsw = index.getHnsw();
+        HnswVectorStore store = new HnswVectorStore(index.getDimensions(), hnsw.getM(),
+                hnsw.getEfConstruction(), hnsw.getEfSearch());
+        store.add(deduplicated).block();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        store.writeTo(new DataOutputStream(bytes), properties.getEmbedding().getModelName());
+        log.info("Built HNSW graph for {} deduplicated chunks ({} bytes)", deduplicated.size(), bytes.size());
+        return bytes.toByteArray();
+    }
+
+    private static void applyEnvironment(AgentScopeProperties.EmbeddingConfig embedding) {
+        String apiKey = System.getenv("EMBEDDING_API_KEY");
+        String baseUrl = System.getenv("EMBEDDING_BASE_URL");
+        String modelName = System.getenv("EMBEDDING_MODEL_NAME");
+        String cachePath = System.getenv("EMBEDDING_CACHE_PATH");
+        if (StringUtils.isNotBlank(apiKey)) {
+            embedding.setApiKey(apiKey);
+        }
+        if (StringUtils.isNotBlank(baseUrl)) {
+            embedding.setBaseUrl(baseUrl);
+        }
+        if (StringUtils.isNotBlank(modelName)) {
+            embedding.setModelName(modelName);
+        }
+        if (StringUtils.isNotBlank(cachePath)) {
+            embedding.getCache().setPath(cachePath);
+        }
+    }
+
+    private static List<Path> markdownFiles(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Knowledge directory does not exist: " + root.toAbsolutePath());
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(f -> f.toString().endsWith(".md") && Files.isRegularFile(f))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * 按文本哈希生成的确定性单位向量
+     */
+    static double[] stubEmbedding(String seed, int dimensions) {
+        Random random = new Random(seed.hashCode());
+        double[] vector = new double[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+
+    private KnowledgeIndexBuilder() {
+        // Utility class
+    }
+}
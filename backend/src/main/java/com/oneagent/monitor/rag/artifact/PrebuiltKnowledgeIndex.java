@@ -0,0 +1,100 @@
+package com.oneagent.monitor.rag.artifact;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.rag.MarkdownChunker;
+import io.agentscope.core.rag.model.Document;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 启动时加载构建阶段生成的知识库索引文件
+ * <p>
+ * 文件在本地时整体内存映射，在 jar 内时读入内存。校验和、模型名、向量维度或分块方式任一不符时不使用，
+ * 知识库按原流程现场分块和向量化。内容与文件中某个来源相同的文档直接复用其分块和向量，
+ * 文件内嵌的 HNSW 图结构与去重后的分块完全对应时直接恢复为索引。
+ */
+@Slf4j
+@Component
+public class PrebuiltKnowledgeIndex {
+
+    private final AgentScopeProperties.ArtifactConfig config;
+    private final String modelName;
+    private final int dimensions;
+    private final MarkdownChunker markdownChunker;
+    private final ResourceLoader resourceLoader;
+
+    public PrebuiltKnowledgeIndex(AgentScopeProperties agentScopeProperties,
+                                  MarkdownChunker markdownChunker,
+                                  ResourceLoader resourceLoader) {
+        this.config = agentScopeProperties.getRag().getArtifact();
+        this.modelName = agentScopeProperties.getEmbedding().getModelName();
+        this.dimensions = agentScopeProperties.getRag().getIndex().getDimensions();
+        this.markdownChunker = markdownChunker;
+        this.resourceLoader = resourceLoader;
+    }
+
+    /**
+     * 读取索引文件（内容哈希 -> 带向量的分块，以及可选的 HNSW 图结构）；不可用时返回空
+     */
+    public Optional<KnowledgeIndexArtifact.Contents> load() {
+        if (!config.getEnabled() || !markdownChunker.isEnabled()) {
+            return Optional.empty();
+        }
+        Resource resource = resourceLoader.getResource(config.getLocation());
+        if (!resource.exists()) {
+            log.debug("No prebuilt knowledge index at {}", config.getLocation());
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        try {
+            KnowledgeIndexArtifact.Contents contents = KnowledgeIndexArtifact.read(bytesOf(resource));
+            String reason = mismatch(contents);
+            if (reason != null) {
+                log.warn("Prebuilt knowledge index {} not used: {}", config.getLocation(), reason);
+                return Optional.empty();
+            }
+            int chunks = contents.chunksByHash().values().stream().mapToInt(List::size).sum();
+            log.info("Prebuilt knowledge index loaded from {}: {} sources, {} chunks, graph {} in {} ms",
+                    config.getLocation(), contents.chunksByHash().size(), chunks,
+                    contents.hnswGraph() != null ? "included" : "absent",
+                    (System.nanoTime() - start) / 1_000_000);
+            return Optional.of(contents);
+        } catch (Exception e) {
+            log.warn("Prebuilt knowledge index {} not used: {}", config.getLocation(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private String mismatch(KnowledgeIndexArtifact.Contents contents) {
+        if (!contents.modelName().equals(modelName)) {
+            return "built with model " + contents.modelName() + ", configured " + modelName;
+        }
+        if (contents.dimensions() != dimensions) {
+            return "built with " + contents.dimensions() + " dimensions, configured " + dimensions;
+        }
+        if (!contents.chunking().equals(markdownChunker.signature())) {
+            return "built with chunking " + contents.chunking() + ", configured " + markdownChunker.signature();
+        }
+        return null;
+    }
+
+    private static ByteBuffer bytesOf(Resource resource) throws Exception {
+        if (resource.isFile()) {
+            try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.oneagent.monitor.rag.store;
+
+import io.agentscope.core.rag.store.VDBStoreBase;
+
+/**
+ * 可以复制后增量修改的向量索引
+ * <p>
+ * 知识库部分文档变化时，在当前索引的副本上删除旧分块（只打标记）、插入新分块，完成后整体替换，
+ * 未变化的分块不必重新建索引。已删除的向量仍占用空间，累积过多时应整体重建。
+ */
+public interface CopyableVectorStore extends VDBStoreBase {
+
+    /**
+     * 复制当前索引，副本上的插入和删除对本索引不可见；调用期间本索引不能有并发写入
+     */
+    CopyableVectorStore copy();
+
+    /**
+     * 有效（未删除）的向量数
+     */
+    int size();
+
+    /**
+     * 已删除但仍占用空间的向量数
+     */
+    int deletedCount();
+}
@@ -0,0 +1,534 @@
+package com.oneagent.monitor.rag.store;
+
+import com.oneagent.monitor.util.DocumentUtils;
+import io.agentscope.core.rag.model.Document;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 基于 HNSW（分层可导航小世界图）的近似最近邻向量存储
+ * <p>
+ * 检索从顶层入口点逐层贪心下降，在第 0 层以 efSearch 为候选集大小做束搜索，复杂度约为 O(log n)，
+ * 代替 {@code InMemoryStore} 对全部向量的逐个比较。向量归一化后以内积作为余弦相似度。
+ * 插入可以并发进行：每个节点的邻接表只在该节点上加锁后合并、整体替换，检索无锁读取。
+ * 图结构可以写入磁盘，按分块文本的哈希与新分块重新关联，知识库未变化时重启无需重建。
+ * 增量更新时 {@link #copy()} 只复制节点和邻接表的引用，在副本上删除、插入变化的分块。
+ */
+@Slf4j
+public class HnswVectorStore implements CopyableVectorStore {
+
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int FORMAT_VERSION = 1;
+    private static final int KEY_BYTES = 32;
+
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final Map<Integer, Node> nodes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> nodeIdsByDocId = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Object entryLock = new Object();
+    private volatile Node entryPoint;
+
+    public HnswVectorStore(int dimensions, int m, int efConstruction, int efSearch) {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW m must be at least 2");
+        }
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    @Override
+    public Mono<Void> add(List<Document> documents) {
+        return Mono.fromRunnable(() -> documents.forEach(this::insert));
+    }
+
+    @Override
+    public Mono<List<Document>> search(double[] queryEmbedding, int limit, Double scoreThreshold) {
+        return Mono.fromSupplier(() -> searchNow(queryEmbedding, limit,
+                scoreThreshold == null ? Double.NEGATIVE_INFINITY : scoreThreshold));
+    }
+
+    @Override
+    public Mono<Boolean> delete(String docId) {
+        return Mono.fromSupplier(() -> {
+            Integer id = nodeIdsByDocId.remove(docId);
+            Node node = id == null ? null : nodes.get(id);
+            if (node == null) {
+                return false;
+            }
+            // 删除只打标记，节点仍参与图的导航
+            node.deleted = true;
+            return true;
+        });
+    }
+
+    @Override
+    public int size() {
+        return nodeIdsByDocId.size();
+    }
+
+    @Override
+    public int deletedCount() {
+        return nodes.size() - nodeIdsByDocId.size();
+    }
+
+    /**
+     * 复制索引：向量和文档共享，每个节点复制一份邻接表引用（邻接表整体替换、不原地修改），
+     * 副本上的插入不会改动本索引的节点
+     */
+    @Override
+    public HnswVectorStore copy() {
+        HnswVectorStore copy = new HnswVectorStore(dimensions, m, efConstruction, efSearch);
+        for (Node node : nodes.values()) {
+            Node clone = new Node(node.id, node.vector, node.document, node.key, node.level);
+            clone.deleted = node.deleted;
+            for (int level = 0; level <= node.level; level++) {
+                clone.links.set(level, node.links.get(level));
+            }
+            copy.nodes.put(clone.id, clone);
+        }
+        copy.nodeIdsByDocId.putAll(nodeIdsByDocId);
+        copy.nextId.set(nextId.get());
+        Node entry = entryPoint;
+        copy.entryPoint = entry == null ? null : copy.nodes.get(entry.id);
+        return copy;
+    }
+
+    // ========== 插入 ==========
+
+    private void insert(Document document) {
+        if (document.getEmbedding() == null) {
+            throw new IllegalArgumentException("Document has no embedding: " + document.getId());
+        }
+        float[] vector = normalize(document.getEmbedding());
+        Node node = new Node(nextId.getAndIncrement(), vector, document, keyOf(DocumentUtils.textOf(document)), randomLevel());
+        nodes.put(node.id, node);
+        Integer replaced = nodeIdsByDocId.put(document.getId(), node.id);
+        if (replaced != null) {
+            nodes.get(replaced).deleted = true;
+        }
+
+        Node entry;
+        synchronized (entryLock) {
+            entry = entryPoint;
+            if (entry == null) {
+                entryPoint = node;
+                return;
+            }
+        }
+
+        Node current = entry;
+        for (int level = entry.level; level > node.level; level--) {
+            current = greedyClosest(vector, current, level);
+        }
+        for (int level = Math.min(entry.level, node.level); level >= 0; level--) {
+            List<Candidate> candidates = searchLayer(vector, current, efConstruction, level);
+            // 并发插入时可能经其他新节点的连接走回自身
+            candidates.removeIf(candidate -> candidate.id() == node.id);
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            int[] selected = selectNeighbors(candidates, m);
+            // 新节点在 nodes 中已可见，其他插入线程可能已经给它加上了反向连接，这里合并而不是覆盖
+            connect(node, selected, level);
+            for (int neighborId : selected) {
+                connect(nodes.get(neighborId), new int[]{node.id}, level);
+            }
+            current = nodes.get(candidates.get(0).id());
+        }
+
+        if (node.level > entry.level) {
+            synchronized (entryLock) {
+                if (node.level > entryPoint.level) {
+                    entryPoint = node;
+                }
+            }
+        }
+    }
+
+    /**
+     * 在节点上加锁，把新连接合并进该层已有的邻接表，超出上限时只保留与其最相近的若干个
+     */
+    private void connect(Node node, int[] newIds, int level) {
+        int max = level == 0 ? maxM0 : m;
+        synchronized (node) {
+            int[] existing = node.links.get(level);
+            int[] extended = Arrays.copyOf(existing, existing.length + newIds.length);
+            int size = existing.length;
+            for (int newId : newIds) {
+                if (newId != node.id && !contains(existing, newId)) {
+                    extended[size++] = newId;
+                }
+            }
+            extended = Arrays.copyOf(extended, size);
+            if (extended.length <= max) {
+                node.links.set(level, extended);
+                return;
+            }
+            List<Candidate> candidates = new ArrayList<>(extended.length);
+            for (int id : extended) {
+                candidates.add(new Candidate(id, dot(node.vector, nodes.get(id).vector)));
+            }
+            candidates.sort(Comparator.comparingDouble(Candidate::score).reversed());
+            node.links.set(level, selectNeighbors(candidates, max));
+        }
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int existing : ids) {
+            if (existing == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 启发式选择邻居：优先保留彼此不太相近的候选，让连接覆盖更多方向，不足时再按相似度补齐
+     */
+    private int[] selectNeighbors(List<Candidate> sortedCandidates, int max) {
+        List<Candidate> selected = new ArrayList<>(max);
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate candidate : sortedCandidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            float[] vector = nodes.get(candidate.id()).vector;
+            boolean diverse = true;
+            for (Candidate kept : selected) {
+                if (dot(vector, nodes.get(kept.id()).vector) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                skipped.add(candidate);
+            }
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < max; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected.stream().mapToInt(Candidate::id).toArray();
+    }
+
+    private int randomLevel() {
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) Math.floor(-Math.log(random) * levelMultiplier);
+    }
+
+    // ========== 检索 ==========
+
+    private List<Document> searchNow(double[] queryEmbedding, int limit, double scoreThreshold) {
+        Node entry = entryPoint;
+        if (entry == null || limit <= 0) {
+            return List.of();
+        }
+        float[] query = normalize(queryEmbedding);
+        Node current = entry;
+        for (int level = entry.level; level > 0; level--) {
+            current = greedyClosest(query, current, level);
+        }
+        List<Candidate> candidates = searchLayer(query, current, Math.max(efSearch, limit), 0);
+
+        List<Document> results = new ArrayList<>(limit);
+        for (Candidate candidate : candidates) {
+            if (results.size() >= limit || candidate.score() < scoreThreshold) {
+                break;
+            }
+            Node node = nodes.get(candidate.id());
+            if (node.deleted || node.document == null) {
+                continue;
+            }
+            Document hit = new Document(node.document.getMetadata());
+            hit.setScore(candidate.score());
+            results.add(hit);
+        }
+        return results;
+    }
+
+    private Node greedyClosest(float[] query, Node start, int level) {
+        Node best = start;
+        double bestScore = dot(query, start.vector);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int id : best.linksAt(level)) {
+                Node neighbor = nodes.get(id);
+                double score = dot(query, neighbor.vector);
+                if (score > bestScore) {
+                    best = neighbor;
+                    bestScore = score;
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 单层束搜索，返回按相似度降序排列的最多 ef 个候选
+     */
+    private List<Candidate> searchLayer(float[] query, Node start, int ef, int level) {
+        Set<Integer> visited = new HashSet<>();
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score).reversed());
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+
+        Candidate first = new Candidate(start.id, dot(query, start.vector));
+        visited.add(start.id);
+        frontier.add(first);
+        results.add(first);
+
+        while (!frontier.isEmpty()) {
+            Candidate closest = frontier.poll();
+            if (results.size() >= ef && closest.score() < results.peek().score()) {
+                break;
+            }
+            for (int id : nodes.get(closest.id()).linksAt(level)) {
+                if (!visited.add(id)) {
+                    continue;
+                }
+                double score = dot(query, nodes.get(id).vector);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Candidate candidate = new Candidate(id, score);
+                    frontier.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        return sorted;
+    }
+
+    // ========== 持久化 ==========
+
+    /**
+     * 写入磁盘（先写临时文件再替换）
+     */
+    public void save(Path path, String modelName) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            writeTo(out, modelName);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 按与 {@link #save} 相同的格式写入流，预构建索引文件用它内嵌图结构
+     */
+    public void writeTo(DataOutputStream out, String modelName) throws IOException {
+        int count = nextId.get();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(String.valueOf(modelName));
+        out.writeInt(dimensions);
+        out.writeInt(m);
+        out.writeInt(count);
+        Node entry = entryPoint;
+        out.writeInt(entry == null ? -1 : entry.id);
+        for (int id = 0; id < count; id++) {
+            Node node = nodes.get(id);
+            out.writeInt(node.level);
+            out.writeBoolean(node.deleted);
+            out.write(node.key);
+            for (float value : node.vector) {
+                out.writeFloat(value);
+            }
+            for (int level = 0; level <= node.level; level++) {
+                int[] links = node.linksAt(level);
+                out.writeInt(links.length);
+                for (int link : links) {
+                    out.writeInt(link);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * 从磁盘恢复：只有模型、维度、参数一致，且文件中的分块与给定分块一一对应时才可用
+     */
+    public static Optional<HnswVectorStore> load(Path path, String modelName, List<Document> chunks,
+                                                 int dimensions, int m, int efConstruction, int efSearch) {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return readFrom(in, path.toString(), modelName, chunks, dimensions, m, efConstruction, efSearch);
+        } catch (IOException e) {
+            log.warn("Failed to load HNSW index from {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 从 {@link #writeTo} 写入的流恢复，条件与 {@link #load} 相同
+     *
+     * @param source 日志中显示的来源
+     */
+    public static Optional<HnswVectorStore> readFrom(DataInputStream in, String source, String modelName,
+                                                     List<Document> chunks, int dimensions, int m,
+                                                     int efConstruction, int efSearch) throws IOException {
+        Map<ByteBuffer, Document> chunksByKey = new HashMap<>();
+        for (Document chunk : chunks) {
+            chunksByKey.put(ByteBuffer.wrap(keyOf(DocumentUtils.textOf(chunk))), chunk);
+        }
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                || !in.readUTF().equals(String.valueOf(modelName))
+                || in.readInt() != dimensions || in.readInt() != m) {
+            log.info("HNSW index at {} was built with different settings, rebuilding", source);
+            return Optional.empty();
+        }
+        HnswVectorStore store = new HnswVectorStore(dimensions, m, efConstruction, efSearch);
+        int count = in.readInt();
+        int entryId = in.readInt();
+        int live = 0;
+        for (int id = 0; id < count; id++) {
+            int level = in.readInt();
+            boolean deleted = in.readBoolean();
+            byte[] key = new byte[KEY_BYTES];
+            in.readFully(key);
+            float[] vector = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = in.readFloat();
+            }
+            Document document = deleted ? null : chunksByKey.get(ByteBuffer.wrap(key));
+            if (!deleted && document == null) {
+                log.info("HNSW index at {} does not match the current knowledge base, rebuilding", source);
+                return Optional.empty();
+            }
+            Node node = new Node(id, vector, document, key, level);
+            node.deleted = deleted;
+            for (int l = 0; l <= level; l++) {
+                int[] links = new int[in.readInt()];
+                for (int i = 0; i < links.length; i++) {
+                    links[i] = in.readInt();
+                }
+                node.links.set(l, links);
+            }
+            store.nodes.put(id, node);
+            if (document != null) {
+                store.nodeIdsByDocId.put(document.getId(), id);
+                live++;
+            }
+        }
+        if (live != chunks.size()) {
+            log.info("HNSW index at {} does not match the current knowledge base, rebuilding", source);
+            return Optional.empty();
+        }
+        store.nextId.set(count);
+        store.entryPoint = entryId < 0 ? null : store.nodes.get(entryId);
+        return Optional.of(store);
+    }
+
+    // ========== 向量计算 ==========
+
+    private float[] normalize(double[] embedding) {
+        if (embedding.length != dimensions) {
+            throw new IllegalArgumentException(
+                    "Embedding dimension " + embedding.length + " does not match store dimension " + dimensions);
+        }
+        double norm = 0;
+        for (double v : embedding) {
+            norm += v * v;
+        }
+        norm = norm == 0 ? 1 : Math.sqrt(norm);
+        float[] vector = new float[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            vector[i] = (float) (embedding[i] / norm);
+        }
+        return vector;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    static byte[] keyOf(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Candidate(int id, double score) {
+    }
+
+    private static final class Node {
+        final int id;
+        final float[] vector;
+        final Document document;
+        final byte[] key;
+        final int level;
+        /**
+         * 每层的邻居 id，整体替换，不原地修改
+         */
+        final AtomicReferenceArray<int[]> links;
+        volatile boolean deleted;
+
+        Node(int id, float[] vector, Document document, byte[] key, int level) {
+            this.id = id;
+            this.vector = vector;
+            this.document = document;
+            this.key = key;
+            this.level = level;
+            this.links = new AtomicReferenceArray<>(level + 1);
+            for (int l = 0; l <= level; l++) {
+                links.set(l, new int[0]);
+            }
+        }
+
+        int[] linksAt(int level) {
+            return level <= this.level ? links.get(level) : new int[0];
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.oneagent.monitor.rag.store;
+
+import com.oneagent.monitor.util.DocumentUtils;
+import io.agentscope.core.rag.model.Document;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 向量保存在内存映射文件中（堆外）的向量存储
+ * <p>
+ * 向量归一化后以 float32 写入映射文件；开启量化时另写一份 int8 副本（每个向量一个缩放系数），
+ * 检索先在 int8 副本上逐个打分，取前 limit × rescoreFactor 个候选，再用全精度向量重新打分排序。
+ * 打分直接读取映射的 ByteBuffer，不为每个向量创建 float[]，堆上只保留文档元数据；
+ * 全精度文件只有候选所在的页会被读入，int8 副本的扫描数据量是 float32 的四分之一。
+ * 文件按段映射（每段 segmentVectors 个向量），写满后映射新段，已映射的段不会移动。
+ * 重建时新存储通过 {@link #addFrom} 从旧存储复制未变化分块的向量，分块本身不保留堆上的向量；
+ * 增量更新时 {@link #copy()} 与原存储共享已写满的段（映射文件由最后一个引用它的存储删除），只复制未写满的段。
+ */
+@Slf4j
+public class MappedVectorStore implements CopyableVectorStore, Closeable {
+
+    static final String FILE_SUFFIX = ".vec";
+
+    private final int dimensions;
+    private final boolean quantized;
+    private final int rescoreFactor;
+    private final int segmentVectors;
+    private final int quantizedRecordBytes;
+    private final Path directory;
+    private final String prefix = "vectors-" + UUID.randomUUID();
+    private final List<ByteBuffer> fullSegments = new CopyOnWriteArrayList<>();
+    private final List<ByteBuffer> quantizedSegments = new CopyOnWriteArrayList<>();
+    private final List<Document[]> documentSegments = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> indexByDocId = new ConcurrentHashMap<>();
+    private final Set<Integer> deleted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已写入的向量数，写入完成后才增加，检索只读取 [0, count)
+     */
+    private volatile int count;
+
+    /**
+     * 以下字段由 this 保护
+     */
+    private final List<SegmentFiles> segmentFiles = new ArrayList<>();
+    private boolean closed;
+
+    public MappedVectorStore(int dimensions, Path directory, boolean quantized, int rescoreFactor,
+                             int segmentVectors) throws IOException {
+        this.dimensions = dimensions;
+        this.quantized = quantized;
+        this.rescoreFactor = Math.max(1, rescoreFactor);
+        this.quantizedRecordBytes = Float.BYTES + dimensions;
+        // 单个映射不能超过 2GB
+        int maxSegmentVectors = Integer.MAX_VALUE / (dimensions * Float.BYTES);
+        this.segmentVectors = Math.max(1, Math.min(segmentVectors, maxSegmentVectors));
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public Mono<Void> add(List<Document> documents) {
+        return Mono.fromRunnable(() -> {
+            synchronized (this) {
+                for (Document document : documents) {
+                    append(document);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Mono<List<Document>> search(double[] queryEmbedding, int limit, Double scoreThreshold) {
+        return Mono.fromSupplier(() -> searchNow(queryEmbedding, limit,
+                scoreThreshold == null ? Double.NEGATIVE_INFINITY : scoreThreshold));
+    }
+
+    @Override
+    public Mono<Boolean> delete(String docId) {
+        return Mono.fromSupplier(() -> {
+            Integer index = indexByDocId.remove(docId);
+            return index != null && deleted.add(index);
+        });
+    }
+
+    @Override
+    public int size() {
+        return indexByDocId.size();
+    }
+
+    @Override
+    public int deletedCount() {
+        return deleted.size();
+    }
+
+    /**
+     * 复制存储：已写满的段不再修改，映射和文件直接共享；未写满的段副本还要继续写入，复制到新文件
+     */
+    @Override
+    public synchronized MappedVectorStore copy() {
+        if (closed) {
+            throw new IllegalStateException("Vector store is closed");
+        }
+        MappedVectorStore copy;
+        try {
+            copy = new MappedVectorStore(dimensions, directory, quantized, rescoreFactor, segmentVectors);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create vector store copy in " + directory + ": " + e.getMessage(), e);
+        }
+        int total = count;
+        int sharedSegments = total / segmentVectors;
+        for (int segment = 0; segment < sharedSegments; segment++) {
+            copy.fullSegments.add(fullSegments.get(segment));
+            if (quantized) {
+                copy.quantizedSegments.add(quantizedSegments.get(segment));
+            }
+            copy.documentSegments.add(documentSegments.get(segment));
+            SegmentFiles files = segmentFiles.get(segment);
+            files.references.incrementAndGet();
+            copy.segmentFiles.add(files);
+        }
+        int partial = total % segmentVectors;
+        if (partial > 0) {
+            copy.allocateSegment(sharedSegments);
+            copy.fullSegments.get(sharedSegments)
+                    .put(0, fullSegments.get(sharedSegments), 0, partial * dimensions * Float.BYTES);
+            if (quantized) {
+                copy.quantizedSegments.get(sharedSegments)
+                        .put(0, quantizedSegments.get(sharedSegments), 0, partial * quantizedRecordBytes);
+            }
+            System.arraycopy(documentSegments.get(sharedSegments), 0,
+                    copy.documentSegments.get(sharedSegments), 0, partial);
+        }
+        copy.indexByDocId.putAll(indexByDocId);
+        copy.deleted.addAll(deleted);
+        copy.count = total;
+        return copy;
+    }
+
+    /**
+     * 从上一个存储复制文本未变化的分块：向量在映射文件之间直接复制，不为每个分块在堆上创建向量。
+     * 返回上一个存储中没有（或文本已变化）、仍需向量化后写入的分块
+     */
+    public List<Document> addFrom(MappedVectorStore source, List<Document> documents) {
+        if (source == null || source == this || source.dimensions != dimensions) {
+            return documents;
+        }
+        List<Document> missing = new ArrayList<>();
+        float[] vector = new float[dimensions];
+        synchronized (this) {
+            for (Document document : documents) {
+                if (source.readVector(document, vector)) {
+                    append(document, vector);
+                } else {
+                    missing.add(document);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * 读取 id 和文本都与给定分块相同的已写入向量（已归一化），没有时返回 false
+     */
+    private boolean readVector(Document document, float[] target) {
+        Integer index = indexByDocId.get(document.getId());
+        if (index == null || index >= count) {
+            return false;
+        }
+        Document stored = documentSegments.get(index / segmentVectors)[index % segmentVectors];
+        if (!DocumentUtils.textOf(stored).equals(DocumentUtils.textOf(document))) {
+            return false;
+        }
+        ByteBuffer buffer = fullSegments.get(index / segmentVectors);
+        int base = (index % segmentVectors) * dimensions * Float.BYTES;
+        for (int i = 0; i < dimensions; i++) {
+            target[i] = buffer.getFloat(base + i * Float.BYTES);
+        }
+        return true;
+    }
+
+    /**
+     * 删除不再被其他副本使用的映射文件。已映射的段在进行中的检索结束、被 GC 回收后才真正释放
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segmentFiles.forEach(SegmentFiles::release);
+        segmentFiles.clear();
+    }
+
+    // ========== 写入 ==========
+
+    private void append(Document document) {
+        if (document.getEmbedding() == null) {
+            throw new IllegalArgumentException("Document has no embedding: " + document.getId());
+        }
+        if (document.getEmbedding().length != dimensions) {
+            throw new IllegalArgumentException("Embedding dimensions " + document.getEmbedding().length
+                    + " do not match store dimensions " + dimensions);
+        }
+        append(document, normalize(document.getEmbedding()));
+    }
+
+    /**
+     * 写入已归一化的向量
+     */
+    private void append(Document document, float[] vector) {
+        if (closed) {
+            throw new IllegalStateException("Vector store is closed");
+        }
+        int index = count;
+        int segment = index / segmentVectors;
+        int slot = index % segmentVectors;
+        if (segment == fullSegments.size()) {
+            allocateSegment(segment);
+        }
+
+        ByteBuffer full = fullSegments.get(segment);
+        int base = slot * dimensions * Float.BYTES;
+        for (int i = 0; i < dimensions; i++) {
+            full.putFloat(base + i * Float.BYTES, vector[i]);
+        }
+        if (quantized) {
+            writeQuantized(quantizedSegments.get(segment), slot * quantizedRecordBytes, vector);
+        }
+        documentSegments.get(segment)[slot] = document;
+        Integer previous = indexByDocId.put(document.getId(), index);
+        if (previous != null) {
+            deleted.add(previous);
+        }
+        // volatile 写，之前的写入对读到新 count 的检索线程可见
+        count = index + 1;
+    }
+
+    /**
+     * 对称标量量化：scale = max|v| / 127，v[i] ≈ q[i] × scale
+     */
+    private static void writeQuantized(ByteBuffer buffer, int base, float[] vector) {
+        float maxAbs = 0f;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        float scale = maxAbs == 0f ? 0f : maxAbs / 127f;
+        buffer.putFloat(base, scale);
+        for (int i = 0; i < vector.length; i++) {
+            int q = scale == 0f ? 0 : Math.round(vector[i] / scale);
+            buffer.put(base + Float.BYTES + i, (byte) Math.max(-127, Math.min(127, q)));
+        }
+    }
+
+    private void allocateSegment(int segment) {
+        SegmentFiles files = new SegmentFiles();
+        segmentFiles.add(files);
+        try {
+            fullSegments.add(map(files, "f32", segment, (long) segmentVectors * dimensions * Float.BYTES));
+            if (quantized) {
+                quantizedSegments.add(map(files, "i8", segment, (long) segmentVectors * quantizedRecordBytes));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to map vector segment " + segment + ": " + e.getMessage(), e);
+        }
+        documentSegments.add(new Document[segmentVectors]);
+        log.debug("Mapped vector segment {} ({} vectors) in {}", segment, segmentVectors, directory);
+    }
+
+    private ByteBuffer map(SegmentFiles files, String kind, int segment, long size) throws IOException {
+        Path file = directory.resolve(prefix + "-" + kind + "-" + segment + FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            files.paths.add(file);
+            // 映射在通道关闭后仍然有效
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    // ========== 检索 ==========
+
+    private List<Document> searchNow(double[] queryEmbedding, int limit, double scoreThreshold) {
+        int total = count;
+        if (total == 0 || limit <= 0) {
+            return List.of();
+        }
+        float[] query = normalize(queryEmbedding);
+        int candidates = quantized ? limit * rescoreFactor : limit;
+        PriorityQueue<Candidate> top = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        boolean hasDeleted = !deleted.isEmpty();
+
+        for (int segment = 0; segment * segmentVectors < total; segment++) {
+            ByteBuffer buffer = quantized ? quantizedSegments.get(segment) : fullSegments.get(segment);
+            int first = segment * segmentVectors;
+            int n = Math.min(segmentVectors, total - first);
+            for (int slot = 0; slot < n; slot++) {
+                if (hasDeleted && deleted.contains(first + slot)) {
+                    continue;
+                }
+                double score = quantized
+                        ? quantizedDot(query, buffer, slot * quantizedRecordBytes)
+                        : fullDot(query, buffer, slot * dimensions * Float.BYTES);
+                if (top.size() < candidates) {
+                    top.add(new Candidate(first + slot, score));
+                } else if (score > top.peek().score()) {
+                    top.poll();
+                    top.add(new Candidate(first + slot, score));
+                }
+            }
+        }
+
+        List<Candidate> ranked = new ArrayList<>(top.size());
+        for (Candidate candidate : top) {
+            ranked.add(quantized ? new Candidate(candidate.index(), fullScore(query, candidate.index())) : candidate);
+        }
+        ranked.sort(Comparator.comparingDouble(Candidate::score).reversed());
+
+        List<Document> results = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Candidate candidate : ranked) {
+            if (results.size() >= limit || candidate.score() < scoreThreshold) {
+                break;
+            }
+            Document document = documentSegments.get(candidate.index() / segmentVectors)[candidate.index() % segmentVectors];
+            Document hit = new Document(document.getMetadata());
+            hit.setScore(candidate.score());
+            results.add(hit);
+        }
+        return results;
+    }
+
+    private double fullScore(float[] query, int index) {
+        ByteBuffer buffer = fullSegments.get(index / segmentVectors);
+        return fullDot(query, buffer, (index % segmentVectors) * dimensions * Float.BYTES);
+    }
+
+    private double fullDot(float[] query, ByteBuffer buffer, int base) {
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += query[i] * buffer.getFloat(base + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    private double quantizedDot(float[] query, ByteBuffer buffer, int base) {
+        float scale = buffer.getFloat(base);
+        int offset = base + Float.BYTES;
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += query[i] * buffer.get(offset + i);
+        }
+        return sum * scale;
+    }
+
+    private static float[] normalize(double[] embedding) {
+        double norm = 0;
+        for (double value : embedding) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] vector = new float[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            vector[i] = norm == 0 ? 0f : (float) (embedding[i] / norm);
+        }
+        return vector;
+    }
+
+    private record Candidate(int index, double score) {
+    }
+
+    /**
+     * 一个段的映射文件，可以被多个副本共享，最后一个引用释放时删除
+     */
+    private static final class SegmentFiles {
+        final List<Path> paths = new ArrayList<>(2);
+        final AtomicInteger references = new AtomicInteger(1);
+
+        void release() {
+            if (references.decrementAndGet() > 0) {
+                return;
+            }
+            for (Path file : paths) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.oneagent.monitor.rag.store;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.store.InMemoryStore;
+import io.agentscope.core.rag.store.VDBStoreBase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 按配置创建、恢复和保存知识库向量索引
+ */
+@Slf4j
+@Component
+public class VectorIndexFactory {
+
+    private final AgentScopeProperties.IndexConfig config;
+    private final String modelName;
+
+    public VectorIndexFactory(AgentScopeProperties agentScopeProperties) {
+        this.config = agentScopeProperties.getRag().getIndex();
+        this.modelName = agentScopeProperties.getEmbedding().getModelName();
+        if (config.getType() == VectorIndexType.MMAP) {
+            deleteStaleMappedFiles();
+        }
+    }
+
+    /**
+     * 创建空索引
+     */
+    public VDBStoreBase create() {
+        AgentScopeProperties.HnswConfig hnsw = config.getHnsw();
+        return switch (config.getType()) {
+            case HNSW -> new HnswVectorStore(config.getDimensions(), hnsw.getM(),
+                    hnsw.getEfConstruction(), hnsw.getEfSearch());
+            case MMAP -> createMapped();
+            case IN_MEMORY -> InMemoryStore.builder()
+                    .dimensions(config.getDimensions())
+                    .build();
+        };
+    }
+
+    private VDBStoreBase createMapped() {
+        AgentScopeProperties.MmapConfig mmap = config.getMmap();
+        try {
+            return new MappedVectorStore(config.getDimensions(), Path.of(mmap.getDirectory()),
+                    mmap.getQuantize(), mmap.getRescoreFactor(), mmap.getSegmentVectors());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create mapped vector store in " + mmap.getDirectory(), e);
+        }
+    }
+
+    /**
+     * 从磁盘恢复与给定分块完全对应的索引，不可用时返回空
+     */
+    public Optional<VDBStoreBase> restore(List<Document> chunks) {
+        return restore(chunks, null);
+    }
+
+    /**
+     * 先从磁盘恢复，不可用时再从预构建索引文件内嵌的图结构恢复（只支持 HNSW）
+     *
+     * @param prebuiltGraph 预构建索引文件中的 HNSW 图结构，没有时为 null
+     */
+    public Optional<VDBStoreBase> restore(List<Document> chunks, ByteBuffer prebuiltGraph) {
+        if (chunks.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<VDBStoreBase> persisted = restorePersisted(chunks);
+        if (persisted.isPresent() || prebuiltGraph == null || config.getType() != VectorIndexType.HNSW) {
+            return persisted;
+        }
+        AgentScopeProperties.HnswConfig hnsw = config.getHnsw();
+        try (DataInputStream in = new DataInputStream(new ByteBufferInputStream(prebuiltGraph.duplicate()))) {
+            return HnswVectorStore.readFrom(in, "prebuilt artifact", modelName, chunks, config.getDimensions(),
+                            hnsw.getM(), hnsw.getEfConstruction(), hnsw.getEfSearch())
+                    .map(VDBStoreBase.class::cast);
+        } catch (IOException e) {
+            log.warn("Failed to restore HNSW index from prebuilt artifact: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Optional<VDBStoreBase> restorePersisted(List<Document> chunks) {
+        if (!config.getPersist()) {
+            return Optional.empty();
+        }
+        AgentScopeProperties.HnswConfig hnsw = config.getHnsw();
+        return switch (config.getType()) {
+            case HNSW -> HnswVectorStore.load(path(), modelName, chunks, config.getDimensions(),
+                            hnsw.getM(), hnsw.getEfConstruction(), hnsw.getEfSearch())
+                    .map(VDBStoreBase.class::cast);
+            case IN_MEMORY, MMAP -> Optional.empty();
+        };
+    }
+
+    /**
+     * 保存索引，失败只记录日志（下次启动重新构建）
+     */
+    public void persist(VDBStoreBase store) {
+        if (!config.getPersist()) {
+            return;
+        }
+        try {
+            if (store instanceof HnswVectorStore hnswStore) {
+                hnswStore.save(path(), modelName);
+                log.info("Knowledge index saved to {}", path());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to save knowledge index to {}: {}", path(), e.getMessage());
+        }
+    }
+
+    /**
+     * 删除上次进程异常退出时遗留的映射文件
+     */
+    private void deleteStaleMappedFiles() {
+        Path directory = Path.of(config.getMmap().getDirectory());
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(MappedVectorStore.FILE_SUFFIX)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean mapped vector files in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private Path path() {
+        return Path.of(config.getPath());
+    }
+
+    /**
+     * 按顺序读取 ByteBuffer（可以是只读的内存映射视图）的输入流
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.oneagent.monitor.rag.store;
+
+/**
+ * 知识库向量索引类型
+ */
+public enum VectorIndexType {
+
+    /**
+     * 逐个比较全部向量（AgentScope InMemoryStore），适合小知识库
+     */
+    IN_MEMORY,
+
+    /**
+     * HNSW 近似最近邻图，检索复杂度随规模次线性增长
+     */
+    HNSW,
+
+    /**
+     * 向量保存在堆外内存映射文件中，可选 int8 量化后逐个比较，再用全精度向量重排候选
+     */
+    MMAP
+}
@@ -0,0 +1,22 @@
+package com.oneagent.monitor.ratelimit;
+
+/**
+ * 令牌不足时的处理策略
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 阻塞等待令牌，超过截止时间则放弃
+     */
+    WAIT,
+
+    /**
+     * 放入延迟队列，由后台线程在令牌可用时投递
+     */
+    QUEUE,
+
+    /**
+     * 直接丢弃并计数
+     */
+    DROP
+}
@@ -0,0 +1,24 @@
+package com.oneagent.monitor.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 限流器状态端点：GET /actuator/ratelimiters
+ */
+@Component
+@Endpoint(id = "ratelimiters")
+@RequiredArgsConstructor
+public class RateLimiterEndpoint {
+
+    private final RateLimiterRegistry rateLimiterRegistry;
+
+    @ReadOperation
+    public Map<String, TokenBucketRateLimiter.Snapshot> rateLimiters() {
+        return rateLimiterRegistry.snapshots();
+    }
+}
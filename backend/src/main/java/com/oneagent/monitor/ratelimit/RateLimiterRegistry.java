@@ -0,0 +1,184 @@
+package com.oneagent.monitor.ratelimit;
+
+import com.oneagent.monitor.model.config.MonitorProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按目标（飞书、Apifox 等）管理令牌桶限流器
+ * <p>
+ * 调用方通过 {@link #admit(String, Runnable)} 申请放行，根据目标配置的 {@link OverflowPolicy}
+ * 决定是等待、进入延迟队列还是丢弃。
+ */
+@Slf4j
+@Component
+public class RateLimiterRegistry {
+
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+    /**
+     * Retry-After 的上限，避免服务方返回异常值时长时间暂停该目标
+     */
+    private static final Duration MAX_RETRY_AFTER = Duration.ofMinutes(5);
+
+    private final Map<String, TokenBucketRateLimiter> limiters = new LinkedHashMap<>();
+    private final Map<String, MonitorProperties.BucketConfig> configs = new LinkedHashMap<>();
+    private final Map<String, DeferredDispatcher> dispatchers = new ConcurrentHashMap<>();
+    private final boolean enabled;
+
+    public RateLimiterRegistry(MonitorProperties monitorProperties) {
+        MonitorProperties.RateLimitConfig rateLimit = monitorProperties.getRateLimit();
+        this.enabled = rateLimit.isEnabled();
+        rateLimit.getDestinations().forEach((destination, config) -> {
+            limiters.put(destination, new TokenBucketRateLimiter(
+                    destination, config.getCapacity(), config.getRefillTokens(), config.getRefillPeriod()));
+            configs.put(destination, config);
+            log.info("Rate limiter registered: destination={}, capacity={}, refill={}/{}, policy={}",
+                    destination, config.getCapacity(), config.getRefillTokens(),
+                    config.getRefillPeriod(), config.getPolicy());
+        });
+    }
+
+    /**
+     * 申请调用目标服务
+     *
+     * @param destination 目标名称
+     * @param deferred    QUEUE 策略下令牌不足时延迟执行的调用
+     * @return 放行结果
+     */
+    public RateLimitDecision admit(String destination, Runnable deferred) {
+        TokenBucketRateLimiter limiter = enabled ? limiters.get(destination) : null;
+        if (limiter == null) {
+            return RateLimitDecision.PROCEED;
+        }
+
+        MonitorProperties.BucketConfig config = configs.get(destination);
+        switch (config.getPolicy()) {
+            case WAIT -> {
+                if (limiter.acquire(config.getMaxWait())) {
+                    return RateLimitDecision.PROCEED;
+                }
+            }
+            case QUEUE -> {
+                if (limiter.tryAcquire()) {
+                    return RateLimitDecision.PROCEED;
+                }
+                DeferredDispatcher dispatcher = dispatchers.computeIfAbsent(destination,
+                        d -> new DeferredDispatcher(limiter, config.getQueueCapacity()));
+                if (dispatcher.offer(deferred)) {
+                    limiter.recordQueued();
+                    log.info("Rate limited, call to {} deferred ({} queued)", destination, dispatcher.size());
+                    return RateLimitDecision.QUEUED;
+                }
+            }
+            case DROP -> {
+                if (limiter.tryAcquire()) {
+                    return RateLimitDecision.PROCEED;
+                }
+            }
+        }
+
+        limiter.recordDropped();
+        log.warn("Rate limited, call to {} dropped", destination);
+        return RateLimitDecision.DROPPED;
+    }
+
+    /**
+     * 服务方返回 429 时回调，按 Retry-After 暂停该目标
+     */
+    public void onThrottled(String destination, Duration retryAfter) {
+        TokenBucketRateLimiter limiter = limiters.get(destination);
+        if (limiter != null) {
+            limiter.onThrottled(retryAfter);
+        }
+    }
+
+    /**
+     * 解析 Retry-After 响应头（秒），缺失或无法解析时返回默认值，结果限制在 [1s, 5min] 内
+     */
+    public static Duration parseRetryAfter(String header) {
+        if (header != null) {
+            try {
+                long seconds = Long.parseLong(header.trim());
+                return Duration.ofSeconds(Math.max(1L, Math.min(MAX_RETRY_AFTER.toSeconds(), seconds)));
+            } catch (NumberFormatException ignored) {
+                // HTTP-date 格式不做解析，使用默认值
+            }
+        }
+        return DEFAULT_RETRY_AFTER;
+    }
+
+    /**
+     * 所有限流器的状态快照
+     */
+    public Map<String, TokenBucketRateLimiter.Snapshot> snapshots() {
+        Map<String, TokenBucketRateLimiter.Snapshot> result = new LinkedHashMap<>();
+        limiters.forEach((destination, limiter) -> result.put(destination, limiter.snapshot()));
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatchers.values().forEach(DeferredDispatcher::shutdown);
+    }
+
+    /**
+     * 放行结果
+     */
+    public enum RateLimitDecision {
+        PROCEED,
+        QUEUED,
+        DROPPED
+    }
+
+    /**
+     * 延迟队列：单个守护线程按令牌节奏依次投递
+     */
+    private static final class DeferredDispatcher {
+
+        private final TokenBucketRateLimiter limiter;
+        private final BlockingQueue<Runnable> queue;
+        private final Thread worker;
+
+        DeferredDispatcher(TokenBucketRateLimiter limiter, int capacity) {
+            this.limiter = limiter;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+            this.worker = new Thread(this::drain, "rate-limit-" + limiter.getName());
+            this.worker.setDaemon(true);
+            this.worker.start();
+        }
+
+        boolean offer(Runnable task) {
+            return queue.offer(task);
+        }
+
+        int size() {
+            return queue.size();
+        }
+
+        void shutdown() {
+            worker.interrupt();
+        }
+
+        private void drain() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Runnable task = queue.take();
+                    limiter.acquire();
+                    task.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("Deferred call to {} failed", limiter.getName(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.oneagent.monitor.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无锁令牌桶限流器
+ * <p>
+ * 采用 GCRA 形式实现：只维护一个"理论到达时间"(TAT)，基于 {@link System#nanoTime()} 计算，
+ * 通过 CAS 更新，不需要加锁，也不需要后台补充令牌的线程。
+ */
+public class TokenBucketRateLimiter {
+
+    private final String name;
+    private final int capacity;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+
+    /**
+     * 理论到达时间（纳秒）
+     */
+    private final AtomicLong tat;
+
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder throttledByProvider = new LongAdder();
+
+    /**
+     * @param name         目标名称（如 feishu、apifox）
+     * @param capacity     桶容量，即允许的最大突发请求数
+     * @param refillTokens 每个补充周期补充的令牌数
+     * @param refillPeriod 补充周期
+     */
+    public TokenBucketRateLimiter(String name, int capacity, int refillTokens, Duration refillPeriod) {
+        if (capacity <= 0 || refillTokens <= 0 || refillPeriod.isZero() || refillPeriod.isNegative()) {
+            throw new IllegalArgumentException("Invalid rate limit for " + name
+                    + ": capacity=" + capacity + ", refillTokens=" + refillTokens + ", refillPeriod=" + refillPeriod);
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.emissionIntervalNanos = Math.max(1L, refillPeriod.toNanos() / refillTokens);
+        this.burstToleranceNanos = emissionIntervalNanos * capacity;
+        this.tat = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 尝试立即获取一个令牌
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long next = Math.max(current, now) + emissionIntervalNanos;
+            if (next - now > burstToleranceNanos) {
+                return false;
+            }
+            if (tat.compareAndSet(current, next)) {
+                granted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 在截止时间内等待令牌
+     *
+     * @return 是否在截止时间前获取到令牌
+     */
+    public boolean acquire(Duration maxWait) {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        boolean parked = false;
+        while (true) {
+            if (tryAcquire()) {
+                if (parked) {
+                    waited.increment();
+                }
+                return true;
+            }
+            long waitNanos = nanosUntilAvailable();
+            if (System.nanoTime() + waitNanos > deadline) {
+                return false;
+            }
+            parked = true;
+            LockSupport.parkNanos(this, Math.max(waitNanos, 1_000L));
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 不限时等待令牌，按 {@link #nanosUntilAvailable()} 休眠，不会空转
+     *
+     * @throws InterruptedException 等待期间线程被中断
+     */
+    public void acquire() throws InterruptedException {
+        boolean parked = false;
+        while (!tryAcquire()) {
+            parked = true;
+            LockSupport.parkNanos(this, Math.max(nanosUntilAvailable(), 1_000L));
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Interrupted while waiting for " + name);
+            }
+        }
+        if (parked) {
+            waited.increment();
+        }
+    }
+
+    /**
+     * 距离下一个令牌可用还需要的纳秒数，0 表示当前可用
+     */
+    public long nanosUntilAvailable() {
+        long now = System.nanoTime();
+        long next = Math.max(tat.get(), now) + emissionIntervalNanos;
+        return Math.max(0L, next - now - burstToleranceNanos);
+    }
+
+    /**
+     * 当前桶内剩余的令牌数（近似值，仅用于观测）
+     */
+    public double availableTokens() {
+        long now = System.nanoTime();
+        long used = Math.max(tat.get(), now) - now;
+        return Math.max(0d, (double) (burstToleranceNanos - used) / emissionIntervalNanos);
+    }
+
+    /**
+     * 服务方返回 429 时调用：清空令牌桶，在 retryAfter 之后才放行下一个请求
+     */
+    public void onThrottled(Duration retryAfter) {
+        throttledByProvider.increment();
+        long target = System.nanoTime() + retryAfter.toNanos() + burstToleranceNanos - emissionIntervalNanos;
+        tat.accumulateAndGet(target, Math::max);
+    }
+
+    void recordQueued() {
+        queued.increment();
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 生成当前状态快照
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(
+                capacity,
+                1_000_000_000d / emissionIntervalNanos,
+                availableTokens(),
+                granted.sum(),
+                waited.sum(),
+                queued.sum(),
+                dropped.sum(),
+                throttledByProvider.sum()
+        );
+    }
+
+    /**
+     * 限流器状态快照
+     */
+    public record Snapshot(
+            int capacity,
+            double permitsPerSecond,
+            double availableTokens,
+            long granted,
+            long waited,
+            long queued,
+            long dropped,
+            long throttledByProvider
+    ) {
+    }
+}
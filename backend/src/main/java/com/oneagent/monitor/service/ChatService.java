@@ -1,5 +1,6 @@
 package com.oneagent.monitor.service;
 
+import com.oneagent.monitor.cache.ResponseCache;
 import io.agentscope.core.ReActAgent;
 import io.agentscope.core.message.Msg;
 import io.agentscope.core.message.MsgRole;
@@ -7,13 +8,18 @@ import com.oneagent.monitor.model.dto.ActionTriggered;
 import com.oneagent.monitor.model.dto.InputCase;
 import com.oneagent.monitor.model.dto.MonitorLog;
 import com.oneagent.monitor.model.dto.ResultCase;
+import com.oneagent.monitor.rag.KnowledgePrefetcher;
 import com.oneagent.monitor.tool.ApifoxApiTool;
 import com.oneagent.monitor.tool.FeishuWebhookTool;
+import com.oneagent.monitor.util.QueryNormalizer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * 处理聊天交互的服务类
  */
@@ -23,9 +29,15 @@ import reactor.core.publisher.Mono;
 public class ChatService {
 
     private final MonitorService monitorService;
+    /**
+     * 批量处理专用 Agent，LLM 调用优先级低于交互式请求
+     */
+    @Qualifier("batchCustomerServiceAgent")
     private final ReActAgent customerServiceAgent;
     private final FeishuWebhookTool feishuWebhookTool;
     private final ApifoxApiTool apifoxApiTool;
+    private final ResponseCache responseCache;
+    private final KnowledgePrefetcher knowledgePrefetcher;
 
     /**
      * 处理单个查询用例
@@ -41,6 +53,9 @@ public class ChatService {
                 inputCase.getMonitorLog()
         );
 
+        // 接受问题后立即预取知识库，与告警处理和第一次模型调用并行；命中回答缓存时预取结果不会被使用
+        knowledgePrefetcher.prefetch(customerServiceAgent, inputCase.getUserQuery());
+
         // 检查是否需要告警
         ActionTriggered actions = null;
         if (monitorService.needsAlert(inputCase.getApiStatus())) {
@@ -50,8 +65,13 @@ public class ChatService {
         // 构建带有上下文的 Agent 消息
         String contextualQuery = buildContextualQuery(inputCase);
 
-        // 调用 Agent 获取回复
-        String reply = callAgent(contextualQuery);
+        // 批量用例彼此独立：每个用例从空记忆开始，缓存 key 也不带会话历史，相同问题可以复用回答
+        customerServiceAgent.getMemory().clear();
+        ResponseCache.Key cacheKey = responseCache.currentKey(inputCase.getUserQuery(), List.of());
+        String reply = responseCache.find(cacheKey)
+                .blockOptional()
+                .map(ResponseCache.CachedAnswer::reply)
+                .orElseGet(() -> callAgent(contextualQuery, cacheKey));
 
         log.info("用例 {} 处理完成. 告警触发: {}", inputCase.getCaseId(), actions != null);
 
@@ -62,30 +82,32 @@ public class ChatService {
 
     /**
      * 构建带有上下文的查询供 Agent 使用
+     * 用户问题在前、监控上下文在后，QueryNormalizer 据此截取问题；
+     * 整条消息每轮都不同，顺序不影响服务商的前缀缓存
      */
     public String buildContextualQuery(InputCase inputCase) {
         StringBuilder context = new StringBuilder();
 
+        context.append(QueryNormalizer.QUESTION_PREFIX).append(inputCase.getUserQuery());
+
         // 添加监控上下文
         if (!"200 OK".equalsIgnoreCase(inputCase.getApiStatus())) {
             context.append(String.format(
-                    "[系统状态提醒: 当前API状态异常 - %s, 响应时间: %s]\n\n",
+                    "\n\n[系统状态提醒: 当前API状态异常 - %s, 响应时间: %s]",
                     inputCase.getApiStatus(),
                     inputCase.getApiResponseTime()
             ));
         }else{
             if (monitorService.getRecentLogs() != null && !monitorService.getRecentLogs().isEmpty()) {
-                context.append("[最近的监控日志:\n");
+                context.append("\n\n[最近的监控日志:\n");
                 for (MonitorLog log : monitorService.getRecentLogs()) {
                     context.append(String.format("  - %s: %s (%s)\n",
                             log.getTimestamp(), log.getStatus(), log.getMsg()));
                 }
-                context.append("]\n\n");
+                context.append("]");
             }
         }
 
-        context.append("用户问题: ").append(inputCase.getUserQuery());
-
         return context.toString();
     }
 
@@ -130,9 +152,9 @@ public class ChatService {
     }
 
     /**
-     * 调用 Agent 获取回复
+     * 调用 Agent 获取回复，成功的回复写入缓存
      */
-    private String callAgent(String query) {
+    private String callAgent(String query, ResponseCache.Key cacheKey) {
         try {
             Msg message = Msg.builder()
                     .name("user")
@@ -146,6 +168,7 @@ public class ChatService {
             if (response != null) {
                 String reply = response.getTextContent();
                 log.debug("Agent 回复: {}", reply);
+                responseCache.put(cacheKey, reply);
                 return reply;
             }
 
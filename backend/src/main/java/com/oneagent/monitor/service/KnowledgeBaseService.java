@@ -1,25 +1,37 @@
 package com.oneagent.monitor.service;
 
+import com.oneagent.monitor.model.config.MonitorProperties;
+import com.oneagent.monitor.model.event.KnowledgeBaseReloadedEvent;
+import com.oneagent.monitor.rag.artifact.KnowledgeIndexArtifact;
 import io.agentscope.core.rag.knowledge.SimpleKnowledge;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
 import jakarta.annotation.PostConstruct;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * 知识库管理服务类
  * 使用 SimpleKnowledge 实现本地 RAG
+ * 文档来自知识库目录（monitor.knowledge.path，未配置时为 classpath），目录变化时由 {@link KnowledgeDirectoryWatcher} 触发重新加载
  */
 @Slf4j
 @Service
@@ -31,9 +43,15 @@ public class KnowledgeBaseService {
     private static final String KNOWLEDGE_PATH_PATTERN = "classpath*:knowledge/**/*.md";
 
     private final ResourceLoader resourceLoader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MonitorProperties.KnowledgeConfig knowledgeConfig;
 
-    public KnowledgeBaseService(ResourceLoader resourceLoader) {
+    public KnowledgeBaseService(ResourceLoader resourceLoader,
+                                ApplicationEventPublisher eventPublisher,
+                                MonitorProperties monitorProperties) {
         this.resourceLoader = resourceLoader;
+        this.eventPublisher = eventPublisher;
+        this.knowledgeConfig = monitorProperties.getKnowledge();
     }
 
     /**
@@ -51,7 +69,21 @@ public class KnowledgeBaseService {
      *  获取文档列表
      */
     @Getter
-    private List<String> documents = new ArrayList<>();
+    private volatile List<String> documents = new ArrayList<>();
+
+    /**
+     * -- GETTER --
+     *  获取知识库版本（所有文档内容的哈希），文档变化后版本随之变化
+     */
+    @Getter
+    private volatile String version = "empty";
+
+    /**
+     * -- GETTER --
+     *  获取各来源的文档内容（key 为 classpath URL 或目录中的相对路径）
+     */
+    @Getter
+    private volatile Map<String, String> sources = Map.of();
 
     @PostConstruct
     public void init() {
@@ -59,9 +91,50 @@ public class KnowledgeBaseService {
     }
 
     /**
-     * 从 classpath 动态加载知识库
+     * 从知识库目录或 classpath 动态加载知识库
      */
     public void loadKnowledgeBase() {
+        refresh();
+    }
+
+    /**
+     * 重新扫描知识库，按内容哈希比较，有变化时发布新版本
+     *
+     * @return 知识库是否有变化
+     */
+    public synchronized boolean refresh() {
+        // 配置了知识库目录时以目录为准（docker-compose 把同一份知识库挂载到该目录），否则读取 classpath
+        Map<String, String> loaded = new LinkedHashMap<>();
+        if (!loadDirectory(loaded)) {
+            loadClasspath(loaded);
+        }
+
+        String newVersion = computeVersion(new ArrayList<>(loaded.values()));
+        if (newVersion.equals(version) && loaded.keySet().equals(sources.keySet())) {
+            log.debug("Knowledge base unchanged, version={}", version);
+            return false;
+        }
+
+        int changed = (int) loaded.entrySet().stream()
+                .filter(e -> !e.getValue().equals(sources.get(e.getKey())))
+                .count();
+        int removed = (int) sources.keySet().stream().filter(key -> !loaded.containsKey(key)).count();
+
+        sources = Collections.unmodifiableMap(loaded);
+        documents = List.copyOf(loaded.values());
+        version = newVersion;
+
+        if (documents.isEmpty()) {
+            log.warn("No documents found in knowledge base path: {} {}", KNOWLEDGE_PATH_PATTERN,
+                    StringUtils.defaultString(knowledgeConfig.getPath()));
+        }
+        log.info("Successfully loaded {} documents from knowledge base, version={}, changed={}, removed={}",
+                documents.size(), version, changed, removed);
+        eventPublisher.publishEvent(new KnowledgeBaseReloadedEvent(version, documents.size()));
+        return true;
+    }
+
+    private void loadClasspath(Map<String, String> loaded) {
         log.info("Loading knowledge base from classpath: {}", KNOWLEDGE_PATH_PATTERN);
 
         try {
@@ -72,39 +145,57 @@ public class KnowledgeBaseService {
 
             for (Resource resource : resources) {
                 try {
-                    String content = readResourceContent(resource);
-                    documents.add(content);
+                    try (InputStream in = resource.getInputStream()) {
+                        loaded.put(resource.getURL().toString(), KnowledgeIndexArtifact.readContent(in));
+                    }
                     log.info("Loaded knowledge file: {}", resource.getFilename());
                 } catch (IOException e) {
                     log.error("Failed to read resource: {}", resource.getFilename(), e);
                 }
             }
-
-            if (documents.isEmpty()) {
-                log.warn("No documents found in knowledge base path: {}", KNOWLEDGE_PATH_PATTERN);
-                return;
-            }
-
-            log.info("Successfully loaded {} documents from knowledge base", documents.size());
-
         } catch (IOException e) {
             log.error("Failed to load knowledge base from classpath", e);
         }
     }
 
     /**
-     * 读取 Resource 内容为字符串
+     * 读取知识库目录，目录未配置或不存在时返回 false
      */
-    private String readResourceContent(Resource resource) throws IOException {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
-            StringBuilder content = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append("\n");
+    private boolean loadDirectory(Map<String, String> loaded) {
+        if (StringUtils.isBlank(knowledgeConfig.getPath())) {
+            return false;
+        }
+        Path root = Path.of(knowledgeConfig.getPath());
+        if (!Files.isDirectory(root)) {
+            log.warn("Knowledge directory does not exist, using classpath: {}", root);
+            return false;
+        }
+        log.info("Loading knowledge base from directory: {}", root);
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".md") && Files.isRegularFile(f))
+                    .sorted()
+                    .toList()) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    loaded.put("file:" + root.relativize(file), KnowledgeIndexArtifact.readContent(in));
+                } catch (IOException e) {
+                    log.error("Failed to read knowledge file: {}", file, e);
+                }
             }
-            return content.toString();
+        } catch (IOException e) {
+            log.error("Failed to scan knowledge directory: {}", root, e);
+        }
+        return true;
+    }
+
+    /**
+     * 根据文档内容计算知识库版本
+     */
+    private String computeVersion(List<String> docs) {
+        if (docs.isEmpty()) {
+            return "empty";
         }
+        String joined = String.join("\u0000", docs);
+        return DigestUtils.md5DigestAsHex(joined.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.oneagent.monitor.service;
+
+import com.oneagent.monitor.model.config.MonitorProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 监听知识库目录，文件变化后重新加载知识库
+ * <p>
+ * 一次编辑往往产生多个文件事件（保存、重命名、复制整个目录），
+ * 收到事件后持续收集，直到 debounce 时长内没有新事件才触发一次 {@link KnowledgeBaseService#refresh()}；
+ * 文件一直在被写入时，从第一个事件起最多等待 maxDebounce 就重新加载，之后的事件进入下一轮。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KnowledgeDirectoryWatcher {
+
+    private final MonitorProperties monitorProperties;
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    @PostConstruct
+    public void start() {
+        MonitorProperties.KnowledgeConfig config = monitorProperties.getKnowledge();
+        if (!config.isWatch() || StringUtils.isBlank(config.getPath())) {
+            return;
+        }
+        Path root = Path.of(config.getPath());
+        if (!Files.isDirectory(root)) {
+            log.warn("Knowledge directory does not exist, not watching: {}", root);
+            return;
+        }
+        try {
+            watchService = root.getFileSystem().newWatchService();
+            registerAll(root);
+        } catch (IOException e) {
+            log.error("Failed to watch knowledge directory: {}", root, e);
+            return;
+        }
+        watcherThread = new Thread(this::watch, "knowledge-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        log.info("Watching knowledge directory: {}, debounce={}", root, config.getDebounce());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Error closing knowledge directory watcher: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void watch() {
+        MonitorProperties.KnowledgeConfig config = monitorProperties.getKnowledge();
+        long debounceNanos = config.getDebounce().toNanos();
+        long maxDebounceNanos = Math.max(debounceNanos, config.getMaxDebounce().toNanos());
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                handle(watchService.take());
+                // 防抖：安静 debounce 时长后再重新加载，但总等待不超过 maxDebounce
+                long deadline = System.nanoTime() + maxDebounceNanos;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    WatchKey next = watchService.poll(Math.min(debounceNanos, remaining), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    handle(next);
+                }
+                knowledgeBaseService.refresh();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Error reloading knowledge base after file change", e);
+            }
+        }
+    }
+
+    /**
+     * 处理一批文件事件：新建的子目录加入监听
+     */
+    private void handle(WatchKey key) throws IOException {
+        Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            log.debug("Knowledge file {}: {}", event.kind().name(), child);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                registerAll(child);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+    }
+
+    private void registerAll(Path root) throws IOException {
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                WatchKey key = dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirs.put(key, dir);
+            }
+        }
+    }
+}
@@ -2,28 +2,37 @@ package com.oneagent.monitor.service;
 
 import com.oneagent.monitor.model.dto.MonitorLog;
 import com.oneagent.monitor.model.entity.MonitorStatus;
+import com.oneagent.monitor.model.event.MonitorHealthChangedEvent;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 监控系统状态的服务类
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class MonitorService {
 
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    private final ApplicationEventPublisher eventPublisher;
+
     // Thread-safe in-memory storage for current status
     private volatile MonitorStatus currentStatus;
     // Thread-safe in-memory storage for logs
     private final List<MonitorLog> monitorLogs = new ArrayList<>();
+    // 状态或日志每次变化时递增，只读工具按它判断缓存的结果是否仍然有效
+    private final AtomicLong stateVersion = new AtomicLong();
 
     /**
      * 检查 API 状态并判断是否需要告警
@@ -36,6 +45,7 @@ public class MonitorService {
      * 更新当前监控状态
      */
     public void updateStatus(String apiStatus, String responseTime, List<MonitorLog> logs) {
+        boolean wasHealthy = getCurrentStatus().isHealthy();
         this.currentStatus = MonitorStatus.builder()
                 .status(apiStatus)
                 .responseTime("Unknown".equalsIgnoreCase(responseTime)?"100ms":responseTime)
@@ -55,8 +65,35 @@ public class MonitorService {
             }
         }
 
-
+        stateVersion.incrementAndGet();
         log.debug("监控状态已更新: {}", this.currentStatus);
+
+        if (wasHealthy != this.currentStatus.isHealthy()) {
+            log.info("监控健康状态变化: {} -> {}", wasHealthy ? "健康" : "异常", apiStatus);
+            eventPublisher.publishEvent(new MonitorHealthChangedEvent(this.currentStatus.isHealthy(), apiStatus));
+        }
+    }
+
+    /**
+     * 获取粗粒度的监控状态分桶，用于缓存 key
+     * <p>
+     * 健康且无错误日志为 UP，健康但有历史错误日志为 RECOVERED（附日志摘要），异常时带上状态码
+     */
+    public String getStateBucket() {
+        MonitorStatus status = getCurrentStatus();
+        if (!status.isHealthy()) {
+            return "DOWN:" + StringUtils.substringBefore(status.getStatus(), " ");
+        }
+        synchronized (monitorLogs) {
+            return monitorLogs.isEmpty() ? "UP" : "RECOVERED:" + Integer.toHexString(monitorLogs.hashCode());
+        }
+    }
+
+    /**
+     * 获取监控状态版本号，状态或日志任何变化都会使其递增
+     */
+    public long getStateVersion() {
+        return stateVersion.get();
     }
 
     /**
@@ -91,6 +128,7 @@ public class MonitorService {
         synchronized (monitorLogs) {
             monitorLogs.add(monitorLog);
         }
+        stateVersion.incrementAndGet();
         log.debug("已添加监控日志: {}", log);
     }
 
@@ -101,6 +139,7 @@ public class MonitorService {
         synchronized (monitorLogs) {
             monitorLogs.clear();
         }
+        stateVersion.incrementAndGet();
         log.info("监控日志已清除");
     }
 }
@@ -0,0 +1,46 @@
+package com.oneagent.monitor.studio;
+
+import io.agentscope.core.hook.Hook;
+import io.agentscope.core.hook.HookEvent;
+import io.agentscope.core.studio.StudioManager;
+import io.agentscope.core.studio.StudioMessageHook;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Studio Hook 的延迟代理，每个 Agent 实例一份
+ * <p>
+ * Studio 在后台连接（见 {@link StudioInitializer}），Agent 创建时客户端可能还不可用；
+ * 每次事件时检查连接状态，连接完成后创建 {@link StudioMessageHook} 并转发之后的事件，连接前的事件直接放行。
+ */
+@Slf4j
+public class LazyStudioHook implements Hook {
+
+    private volatile StudioMessageHook delegate;
+
+    @Override
+    public <T extends HookEvent> Mono<T> onEvent(T event) {
+        StudioMessageHook hook = delegate();
+        return hook != null ? hook.onEvent(event) : Mono.just(event);
+    }
+
+    private StudioMessageHook delegate() {
+        StudioMessageHook hook = delegate;
+        if (hook != null) {
+            return hook;
+        }
+        synchronized (this) {
+            if (delegate == null) {
+                try {
+                    if (StudioManager.getClient() != null) {
+                        delegate = new StudioMessageHook(StudioManager.getClient());
+                        log.debug("Studio connected, StudioMessageHook attached");
+                    }
+                } catch (Exception e) {
+                    log.debug("Studio not ready yet: {}", e.getMessage());
+                }
+            }
+            return delegate;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import io.agentscope.core.studio.StudioManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -21,7 +22,7 @@ public class StudioInitializer {
     private final MonitorProperties monitorProperties;
 
     /**
-     * 应用启动后初始化 Studio
+     * 应用启动后初始化 Studio，在后台连接，不阻塞启动
      */
     @PostConstruct
     public void initialize() {
@@ -43,10 +44,17 @@ public class StudioInitializer {
                     .project(monitorProperties.getStudio().getProjectName())
                     .runName(monitorProperties.getStudio().getRunName() + System.currentTimeMillis())
                     .initialize()
-                    .block();
-
-            log.info("Studio initialized successfully!");
-            log.info("You can view traces at: {}", monitorProperties.getStudio().getStudioUrl());
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe(
+                            ignored -> { },
+                            e -> {
+                                log.error("Failed to initialize Studio", e);
+                                log.warn("Application will continue without Studio integration");
+                            },
+                            () -> {
+                                log.info("Studio initialized successfully!");
+                                log.info("You can view traces at: {}", monitorProperties.getStudio().getStudioUrl());
+                            });
 
         } catch (Exception e) {
             log.error("Failed to initialize Studio", e);
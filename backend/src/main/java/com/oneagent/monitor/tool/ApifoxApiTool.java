@@ -5,7 +5,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.agentscope.core.tool.Tool;
 import io.agentscope.core.tool.ToolExecutionContext;
 import io.agentscope.core.tool.ToolParam;
+import com.oneagent.monitor.config.AgentScopeProperties;
 import com.oneagent.monitor.model.config.MonitorProperties;
+import com.oneagent.monitor.ratelimit.RateLimiterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
@@ -26,15 +28,19 @@ public class ApifoxApiTool {
 
     private static final MediaType FORM = MediaType.get("application/x-www-form-urlencoded;charset=UTF-8");
     private static final DateTimeFormatter DOC_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    public static final String TOOL_NAME = "create_apifox_document";
+    private static final String RATE_LIMIT_DESTINATION = "apifox";
 
     private final MonitorProperties monitorProperties;
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final AgentScopeProperties agentScopeProperties;
     private final OkHttpClient httpClient = new OkHttpClient();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
      * 创建 Apifox 故障记录文档
      */
-    @Tool(name = "create_apifox_document", description = "创建 Apifox 故障记录文档。当系统发生异常时调用此工具记录故障。文档标题格式：[故障记录] YYYY-MM-DD HH:mm:ss。")
+    @Tool(name = TOOL_NAME, description = "创建 Apifox 故障记录文档。当系统发生异常时调用此工具记录故障。文档标题格式：[故障记录] YYYY-MM-DD HH:mm:ss。")
     public String createApifoxDocument(
             ToolExecutionContext context,
             @ToolParam(name = "timestamp", description = "故障发生的时间戳") String timestamp,
@@ -90,31 +96,13 @@ public class ApifoxApiTool {
                     .post(body)
                     .build();
 
-            try (Response response = httpClient.newCall(request).execute()) {
-                log.info("Apifox Response - Code: {}, Success: {}, Message: {}",
-                        response.code(), response.isSuccessful(), response.message());
-
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    log.info("Apifox Response Body: {}", responseBody);
-
-                    // 解析响应获取文档 ID
-                    JsonNode jsonNode = objectMapper.readTree(responseBody);
-                    if (jsonNode.has("success") && jsonNode.get("success").asBoolean() &&
-                        jsonNode.has("data") && jsonNode.get("data").has("id")) {
-                        String actualDocId = jsonNode.get("data").get("id").asText();
-                        log.info("Apifox document created successfully: {}", actualDocId);
-                        result = actualDocId;
-                    } else {
-                        result = docId;
-                    }
-                } else {
-                    log.error("Failed to create Apifox document: code={}, message={}", response.code(), response.message());
-                    String responseBody = response.body().string();
-                    log.error("Apifox Response Body: {}", responseBody);
-                    result = docId;
-                }
+            RateLimiterRegistry.RateLimitDecision decision = rateLimiterRegistry.admit(
+                    RATE_LIMIT_DESTINATION, () -> deliverDeferred(request, docId));
+            if (decision != RateLimiterRegistry.RateLimitDecision.PROCEED) {
+                log.warn("Apifox document creation {} by rate limiter, using local docId {}", decision, docId);
+                return wrapResult(docId);
             }
+            result = deliver(request, docId);
         } catch (IOException e) {
             log.error("Error creating Apifox document", e);
             result = generateDocId(errorCode);
@@ -123,6 +111,51 @@ public class ApifoxApiTool {
         return wrapResult(result);
     }
     
+    /**
+     * 发送创建文档请求，返回 Apifox 文档 ID；失败时返回本地生成的 ID
+     */
+    private String deliver(Request request, String fallbackDocId) throws IOException {
+        try (Response response = httpClient().newCall(request).execute()) {
+            log.info("Apifox Response - Code: {}, Success: {}, Message: {}",
+                    response.code(), response.isSuccessful(), response.message());
+
+            if (response.isSuccessful() && response.body() != null) {
+                String responseBody = response.body().string();
+                log.info("Apifox Response Body: {}", responseBody);
+
+                // 解析响应获取文档 ID
+                JsonNode jsonNode = objectMapper.readTree(responseBody);
+                if (jsonNode.has("success") && jsonNode.get("success").asBoolean() &&
+                    jsonNode.has("data") && jsonNode.get("data").has("id")) {
+                    String actualDocId = jsonNode.get("data").get("id").asText();
+                    log.info("Apifox document created successfully: {}", actualDocId);
+                    return actualDocId;
+                }
+                return fallbackDocId;
+            }
+
+            if (response.code() == 429) {
+                rateLimiterRegistry.onThrottled(RATE_LIMIT_DESTINATION,
+                        RateLimiterRegistry.parseRetryAfter(response.header("Retry-After")));
+            }
+            log.error("Failed to create Apifox document: code={}, message={}", response.code(), response.message());
+            String responseBody = response.body().string();
+            log.error("Apifox Response Body: {}", responseBody);
+            return fallbackDocId;
+        }
+    }
+
+    /**
+     * 延迟队列中的文档创建
+     */
+    private void deliverDeferred(Request request, String fallbackDocId) {
+        try {
+            log.info("Deferred Apifox document created: {}", deliver(request, fallbackDocId));
+        } catch (IOException e) {
+            log.error("Error creating deferred Apifox document", e);
+        }
+    }
+
     private String wrapResult(String result) {
         try {
             return objectMapper.writeValueAsString(result);
@@ -216,4 +249,13 @@ public class ApifoxApiTool {
                 此文档由智能客服监控 Agent 自动生成。
                 """, timestamp, errorCode, latency, errorMsg != null ? errorMsg : "N/A");
     }
+
+    /**
+     * 按工具超时配置限制整个请求的耗时
+     */
+    private OkHttpClient httpClient() {
+        return httpClient.newBuilder()
+                .callTimeout(agentScopeProperties.getTools().timeoutOf(TOOL_NAME))
+                .build();
+    }
 }
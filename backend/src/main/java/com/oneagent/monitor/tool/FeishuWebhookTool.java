@@ -5,7 +5,9 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.agentscope.core.tool.Tool;
 import io.agentscope.core.tool.ToolExecutionContext;
 import io.agentscope.core.tool.ToolParam;
+import com.oneagent.monitor.config.AgentScopeProperties;
 import com.oneagent.monitor.model.config.MonitorProperties;
+import com.oneagent.monitor.ratelimit.RateLimiterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
@@ -25,15 +27,19 @@ public class FeishuWebhookTool {
 
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    public static final String TOOL_NAME = "send_feishu_alert";
+    private static final String RATE_LIMIT_DESTINATION = "feishu";
 
     private final MonitorProperties monitorProperties;
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final AgentScopeProperties agentScopeProperties;
     private final OkHttpClient httpClient = new OkHttpClient();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
      * 检测到 API 错误时发送飞书告警
      */
-    @Tool(name = "send_feishu_alert", description = "发送飞书告警通知。当系统检测到 API 异常时调用此工具。消息包含报错时间、错误代码和当前延迟。")
+    @Tool(name = TOOL_NAME, description = "发送飞书告警通知。当系统检测到 API 异常时调用此工具。消息包含报错时间、错误代码和当前延迟。")
     public String sendFeishuAlert(
             ToolExecutionContext context,
             @ToolParam(name = "timestamp", description = "告警发生的时间戳") String timestamp,
@@ -78,23 +84,51 @@ public class FeishuWebhookTool {
                     .post(body)
                     .build();
 
-            try (Response response = httpClient.newCall(request).execute()) {
-                String result;
-                if (response.isSuccessful()) {
-                    log.info("Feishu alert sent successfully");
-                    result = "Sent success";
-                } else {
-                    log.error("Failed to send Feishu alert: {}", response.code());
-                    result = "Failed: " + response.code();
-                }
-                return objectMapper.writeValueAsString(result);
-            }
+            RateLimiterRegistry.RateLimitDecision decision = rateLimiterRegistry.admit(
+                    RATE_LIMIT_DESTINATION, () -> deliverDeferred(request));
+            String result = switch (decision) {
+                case PROCEED -> deliver(request);
+                case QUEUED -> "Queued: rate limited, alert will be sent shortly";
+                case DROPPED -> "Dropped: rate limited";
+            };
+            return objectMapper.writeValueAsString(result);
         } catch (IOException e) {
             log.error("Error sending Feishu alert", e);
             return "Error: " + e.getMessage();
         }
     }
 
+    /**
+     * 发送告警请求，429 时通知限流器按 Retry-After 暂停
+     */
+    private String deliver(Request request) throws IOException {
+        try (Response response = httpClient().newCall(request).execute()) {
+            if (response.isSuccessful()) {
+                log.info("Feishu alert sent successfully");
+                return "Sent success";
+            }
+            if (response.code() == 429) {
+                rateLimiterRegistry.onThrottled(RATE_LIMIT_DESTINATION,
+                        RateLimiterRegistry.parseRetryAfter(response.header("Retry-After")));
+                log.warn("Feishu alert throttled by provider: 429");
+            } else {
+                log.error("Failed to send Feishu alert: {}", response.code());
+            }
+            return "Failed: " + response.code();
+        }
+    }
+
+    /**
+     * 延迟队列中的告警投递
+     */
+    private void deliverDeferred(Request request) {
+        try {
+            log.info("Deferred Feishu alert result: {}", deliver(request));
+        } catch (IOException e) {
+            log.error("Error sending deferred Feishu alert", e);
+        }
+    }
+
     /**
      * 使用指定时间戳发送告警
      */
@@ -108,4 +142,13 @@ public class FeishuWebhookTool {
     public String sendFeishuAlert(String errorCode, String latency) {
         return sendFeishuAlert(null, LocalDateTime.now().format(TIME_FORMATTER), errorCode, latency);
     }
+
+    /**
+     * 按工具超时配置限制整个请求的耗时
+     */
+    private OkHttpClient httpClient() {
+        return httpClient.newBuilder()
+                .callTimeout(agentScopeProperties.getTools().timeoutOf(TOOL_NAME))
+                .build();
+    }
 }
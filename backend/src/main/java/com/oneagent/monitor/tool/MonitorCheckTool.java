@@ -8,26 +8,32 @@ import com.oneagent.monitor.model.entity.MonitorStatus;
 import com.oneagent.monitor.service.MonitorService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 
 import java.util.List;
 
 /**
  * 检查系统监控状态的工具类
+ * 所有工具均为只读，结果通过所属 Agent 的 {@link ReadOnlyToolCache} 在一次调用内复用，
+ * 因此每个 Agent 各自创建一个实例
  */
 @Slf4j
-@Component
 @RequiredArgsConstructor
 public class MonitorCheckTool {
 
     private final MonitorService monitorService;
+    private final ReadOnlyToolCache readOnlyToolCache;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
      * 检查当前系统监控状态
      */
+    @ReadOnlyTool
     @Tool(name = "check_monitor_status", description = "检查系统监控状态。用于获取当前的 API 状态和监控日志。返回包含状态码、响应时间和可用性信息的监控状态对象。")
     public String checkMonitorStatus() {
+        return readOnlyToolCache.memoize("check_monitor_status", List.of(), this::doCheckMonitorStatus);
+    }
+
+    private String doCheckMonitorStatus() {
         log.info("Checking monitor status");
 
         MonitorStatus status = monitorService.getCurrentStatus();
@@ -43,8 +49,13 @@ public class MonitorCheckTool {
     /**
      * 获取最近的监控日志记录
      */
+    @ReadOnlyTool
     @Tool(name = "get_monitor_logs", description = "获取最近的监控日志记录。用于回答用户关于系统稳定性的问题。返回包含时间戳、状态和错误消息的日志列表。")
     public String getMonitorLogs() {
+        return readOnlyToolCache.memoize("get_monitor_logs", List.of(), this::doGetMonitorLogs);
+    }
+
+    private String doGetMonitorLogs() {
         log.info("Getting monitor logs");
         List<MonitorLog> logs = monitorService.getRecentLogs();
         log.debug("Monitor logs count: {}", logs.size());
@@ -59,8 +70,13 @@ public class MonitorCheckTool {
     /**
      * 检查 API 是否健康（状态码为 200 OK）
      */
+    @ReadOnlyTool
     @Tool(name = "is_api_healthy", description = "检查 API 是否健康。如果状态码是 200 OK 则返回 true，否则返回 false。")
     public String isApiHealthy() {
+        return readOnlyToolCache.memoize("is_api_healthy", List.of(), this::doIsApiHealthy);
+    }
+
+    private String doIsApiHealthy() {
         MonitorStatus status = monitorService.getCurrentStatus();
         boolean isHealthy = "200 OK".equalsIgnoreCase(status.getStatus());
         try {
@@ -0,0 +1,19 @@
+package com.oneagent.monitor.tool;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记无副作用的只读工具方法
+ * <p>
+ * 与 {@code @Tool} 一起使用，只有带此标记的工具结果才会被 {@link ReadOnlyToolCache} 复用；
+ * 告警、建文档这类有副作用的工具不加此标记，即使被误包装也会每次真正执行。
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnlyTool {
+}
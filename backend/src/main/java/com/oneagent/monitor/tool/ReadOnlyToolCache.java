@@ -0,0 +1,117 @@
+package com.oneagent.monitor.tool;
+
+import com.oneagent.monitor.service.MonitorService;
+import io.agentscope.core.hook.Hook;
+import io.agentscope.core.hook.HookEvent;
+import io.agentscope.core.hook.PreCallEvent;
+import io.agentscope.core.tool.Tool;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 只读工具的结果缓存，作用域为单个 Agent 的一次调用
+ * <p>
+ * 一次 ReAct 循环里模型经常重复调用监控查询类工具，结果只取决于工具参数和监控状态。
+ * 每个 Agent 持有自己的实例，{@link #hook()} 在每次调用开始时清空，不同 Agent、不同调用之间互不可见；
+ * 调用过程中监控状态版本变化时，旧版本的结果也不再复用。
+ * 只有通过 {@link #register(Object)} 登记、且方法上带 {@link ReadOnlyTool} 标记的工具才会被缓存。
+ */
+@Slf4j
+public class ReadOnlyToolCache {
+
+    private final MonitorService monitorService;
+    private final MeterRegistry meterRegistry;
+    private final Set<String> readOnlyTools = ConcurrentHashMap.newKeySet();
+    private final Map<String, Entry> results = new ConcurrentHashMap<>();
+
+    public ReadOnlyToolCache(MonitorService monitorService, MeterRegistry meterRegistry) {
+        this.monitorService = monitorService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 登记工具对象中带 {@link ReadOnlyTool} 标记的工具，返回工具对象本身
+     */
+    public <T> T register(T tools) {
+        for (Method method : tools.getClass().getMethods()) {
+            Tool tool = method.getAnnotation(Tool.class);
+            if (tool != null && method.isAnnotationPresent(ReadOnlyTool.class)) {
+                readOnlyTools.add(tool.name());
+            }
+        }
+        return tools;
+    }
+
+    /**
+     * 工具是否被登记为只读
+     */
+    public boolean isReadOnly(String toolName) {
+        return readOnlyTools.contains(toolName);
+    }
+
+    /**
+     * 返回本次调用中缓存的工具结果，未命中时执行工具并缓存；非只读工具直接执行
+     *
+     * @param toolName 工具名
+     * @param args     工具参数，无参数时传空列表
+     * @param call     真正的工具执行
+     */
+    public String memoize(String toolName, List<?> args, Supplier<String> call) {
+        if (!isReadOnly(toolName)) {
+            return call.get();
+        }
+
+        long version = monitorService.getStateVersion();
+        String key = toolName + args;
+        Entry cached = results.get(key);
+        if (cached != null && cached.version() == version) {
+            meterRegistry.counter("agent.tool.memo", "tool", toolName, "result", "hit").increment();
+            log.debug("工具结果命中缓存: {}", key);
+            return cached.result();
+        }
+
+        meterRegistry.counter("agent.tool.memo", "tool", toolName, "result", "miss").increment();
+        String result = call.get();
+        // 执行期间状态已变化的结果不缓存
+        if (result != null && monitorService.getStateVersion() == version) {
+            results.put(key, new Entry(version, result));
+        }
+        return result;
+    }
+
+    /**
+     * 开始新的一次 Agent 调用，丢弃上一次调用的结果
+     */
+    public void beginCall() {
+        results.clear();
+    }
+
+    /**
+     * 在每次 Agent 调用开始时清空缓存的 Hook
+     */
+    public Hook hook() {
+        return new CallScopeHook();
+    }
+
+    private record Entry(long version, String result) {
+    }
+
+    private final class CallScopeHook implements Hook {
+
+        @Override
+        public <T extends HookEvent> Mono<T> onEvent(T event) {
+            if (event instanceof PreCallEvent) {
+                beginCall();
+            }
+            return Mono.just(event);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.oneagent.monitor.util;
+
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+
+/**
+ * 知识库文档（{@link Document}）相关的工具方法
+ */
+public final class DocumentUtils {
+
+    /**
+     * 取出文档块的文本内容，非文本内容返回空字符串
+     */
+    public static String textOf(Document document) {
+        if (document == null || document.getMetadata() == null) {
+            return "";
+        }
+        ContentBlock content = document.getMetadata().getContent();
+        return content instanceof TextBlock text && text.getText() != null ? text.getText() : "";
+    }
+
+    /**
+     * 文档检索得分，没有得分时返回 0
+     */
+    public static double scoreOf(Document document) {
+        return document.getScore() == null ? 0.0 : document.getScore();
+    }
+
+    private DocumentUtils() {
+        // Utility class
+    }
+}
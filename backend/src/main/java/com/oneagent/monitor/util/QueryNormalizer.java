@@ -0,0 +1,57 @@
+package com.oneagent.monitor.util;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * 用户问题归一化工具，用于生成缓存 / 合并请求的 key
+ */
+public final class QueryNormalizer {
+
+    /**
+     * 发给 Agent 的消息中，用户原始问题前的标记
+     */
+    public static final String QUESTION_PREFIX = "用户问题: ";
+
+    /**
+     * 用户问题之后附加的上下文块（如 "[系统状态提醒: ...]"）前的分隔
+     */
+    public static final String CONTEXT_SEPARATOR = "\n\n[";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{Punct}？！。，、；：~～…\\s]+$");
+
+    /**
+     * 全角转半角、统一大小写、折叠空白并去掉结尾标点
+     * <p>
+     * 例如 "计费模式是怎样的？" 与 "计费模式是怎样的" 归一化后相同
+     */
+    public static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase();
+        normalized = WHITESPACE.matcher(normalized.trim()).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(normalized).replaceAll("");
+    }
+
+    /**
+     * 从带监控上下文的 Agent 消息中取出用户原始问题，没有标记时原样返回
+     */
+    public static String extractQuestion(String contextualQuery) {
+        if (contextualQuery == null) {
+            return "";
+        }
+        int start = contextualQuery.indexOf(QUESTION_PREFIX);
+        if (start < 0) {
+            return contextualQuery;
+        }
+        String question = contextualQuery.substring(start + QUESTION_PREFIX.length());
+        int end = question.indexOf(CONTEXT_SEPARATOR);
+        return end < 0 ? question : question.substring(0, end);
+    }
+
+    private QueryNormalizer() {
+        // Utility class
+    }
+}
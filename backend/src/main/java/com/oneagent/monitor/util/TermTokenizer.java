@@ -0,0 +1,74 @@
+package com.oneagent.monitor.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 检索用的本地分词
+ * <p>
+ * 不依赖词典：连续的中日韩字符切成字符二元组（只有一个字时保留单字），
+ * 连续的字母数字作为一个词（小写，数字中间的小数点保留，如 "99.9"），其余字符作为分隔符。
+ * "企业版SLA 99.9%" 切分为 [企业, 业版, sla, 99.9]。
+ */
+public final class TermTokenizer {
+
+    /**
+     * 按出现顺序返回词项（可能重复）
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int length = lower.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = lower.codePointAt(i);
+            if (isCjk(codePoint)) {
+                int start = i;
+                List<Integer> boundaries = new ArrayList<>();
+                while (i < length && isCjk(lower.codePointAt(i))) {
+                    boundaries.add(i);
+                    i += Character.charCount(lower.codePointAt(i));
+                }
+                boundaries.add(i);
+                if (boundaries.size() == 2) {
+                    terms.add(lower.substring(start, i));
+                }
+                for (int k = 0; k + 2 < boundaries.size(); k++) {
+                    terms.add(lower.substring(boundaries.get(k), boundaries.get(k + 2)));
+                }
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                while (i < length) {
+                    int current = lower.codePointAt(i);
+                    boolean decimalPoint = current == '.' && i > start
+                            && Character.isDigit(lower.charAt(i - 1))
+                            && i + 1 < length && Character.isDigit(lower.charAt(i + 1));
+                    if (!decimalPoint && (!Character.isLetterOrDigit(current) || isCjk(current))) {
+                        break;
+                    }
+                    i += Character.charCount(current);
+                }
+                terms.add(lower.substring(start, i));
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+        return terms;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private TermTokenizer() {
+        // Utility class
+    }
+}
@@ -0,0 +1,115 @@
+package com.oneagent.monitor.agent;
+
+import com.oneagent.monitor.MonitorAgentApplication;
+import com.oneagent.monitor.model.dto.InputCase;
+import com.oneagent.monitor.model.dto.ResultCase;
+import com.oneagent.monitor.service.ChatService;
+import com.oneagent.monitor.service.MonitorService;
+import com.oneagent.monitor.stub.StubLlmServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * 同一步推理中多个工具调用的并行执行测试
+ * 模型由 StubLlmServer 一次返回两个工具调用，工具执行时间不同，验证两者并行执行且结果按调用顺序写回
+ */
+@SpringBootTest(classes = MonitorAgentApplication.class)
+@ActiveProfiles({"test", "stub"})
+class ParallelToolCallStubTest {
+
+    private static final String ANSWER = "当前系统运行正常。";
+    private static final long SLOW_MILLIS = 600;
+    private static final long FAST_MILLIS = 100;
+
+    private static final StubLlmServer STUB = startStub();
+
+    @Autowired
+    private ChatService chatService;
+
+    @MockitoSpyBean
+    private MonitorService monitorService;
+
+    private final Map<String, long[]> toolIntervals = new ConcurrentHashMap<>();
+
+    @DynamicPropertySource
+    static void stubProperties(DynamicPropertyRegistry registry) {
+        registry.add("agentscope.llm.base-url", STUB::baseUrl);
+        registry.add("agentscope.embedding.base-url", STUB::baseUrl);
+        registry.add("agentscope.tools.parallel", () -> "true");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Test
+    void testProcessQuery_TwoToolCallsInOneStep_ShouldRunInParallelAndKeepOrder() {
+        // check_monitor_status 先调用但执行更慢，get_monitor_logs 后调用先完成
+        doAnswer(invocation -> timed("status", SLOW_MILLIS, invocation)).when(monitorService).getCurrentStatus();
+        doAnswer(invocation -> timed("logs", FAST_MILLIS, invocation)).when(monitorService).getRecentLogs();
+
+        InputCase inputCase = new InputCase();
+        inputCase.setCaseId("P001");
+        inputCase.setUserQuery("系统现在稳定吗？最近有没有报错？");
+        inputCase.setApiStatus("200 OK");
+        inputCase.setApiResponseTime("120ms");
+        inputCase.setMonitorLog(new ArrayList<>());
+
+        ResultCase result = chatService.processQuery(inputCase);
+
+        assertEquals(ANSWER, result.getReply());
+        long[] status = toolIntervals.get("status");
+        long[] logs = toolIntervals.get("logs");
+        assertNotNull(status, "check_monitor_status 应在工具线程中执行");
+        assertNotNull(logs, "get_monitor_logs 应在工具线程中执行");
+        assertTrue(logs[0] < status[1] && status[0] < logs[1], "两个工具调用的执行时间应重叠（并行执行）");
+        assertEquals(2, STUB.emittedToolCallIds().size());
+        assertEquals(STUB.emittedToolCallIds(), STUB.receivedToolResultIds(),
+                "工具结果应按调用顺序写回，而不是按完成顺序");
+    }
+
+    /**
+     * 只记录工具线程中的调用（请求线程中更新状态时也会读取当前状态）
+     */
+    private Object timed(String name, long millis, InvocationOnMock invocation) throws Throwable {
+        if (!Thread.currentThread().getName().startsWith("agent-tool-")) {
+            return invocation.callRealMethod();
+        }
+        long start = System.nanoTime();
+        Thread.sleep(millis);
+        Object result = invocation.callRealMethod();
+        toolIntervals.put(name, new long[]{start, System.nanoTime()});
+        return result;
+    }
+
+    private static StubLlmServer startStub() {
+        try {
+            return StubLlmServer.builder()
+                    .script(List.of(StubLlmServer.Step.toolCalls(
+                            StubLlmServer.Step.toolCall("check_monitor_status", "{}"),
+                            StubLlmServer.Step.toolCall("get_monitor_logs", "{}"))))
+                    .answer(ANSWER)
+                    .start(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.oneagent.monitor.agent;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.TokenEstimator;
+import io.agentscope.core.hook.PreReasoningEvent;
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.MsgRole;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.message.ToolResultBlock;
+import io.agentscope.core.message.ToolUseBlock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TokenBudgetMemory 单元测试
+ */
+class TokenBudgetMemoryTest {
+
+    private static final String ANSWER = "专业版每月二百九十九元，包含全部监控功能和邮件告警，按年订阅可享受八折优惠。";
+
+    private AgentScopeProperties.MemoryConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new AgentScopeProperties.MemoryConfig();
+        config.setTokenBudget(200);
+        config.setMaxToolResultTokens(20);
+        config.setSummaryMaxTokens(100);
+    }
+
+    @Test
+    void testGetPromptMessages_WithinBudget_ShouldReturnFullHistory() {
+        TokenBudgetMemory memory = new TokenBudgetMemory(config);
+        addTurn(memory, 1);
+        addTurn(memory, 2);
+
+        assertEquals(memory.getMessages(), memory.getPromptMessages());
+    }
+
+    @Test
+    void testGetPromptMessages_OverBudget_ShouldFoldOlderTurnsIntoSummary() {
+        TokenBudgetMemory memory = new TokenBudgetMemory(config);
+        for (int i = 1; i <= 8; i++) {
+            addTurn(memory, i);
+        }
+
+        List<Msg> prompt = memory.getPromptMessages();
+
+        assertEquals(16, memory.getMessages().size(), "getMessages 应始终返回完整历史");
+        Msg summary = prompt.get(0);
+        assertEquals(MsgRole.SYSTEM, summary.getRole());
+        assertEquals("memory_summary", summary.getName());
+        assertTrue(summary.getTextContent().contains("第7个问题"), "被折叠的轮次应进入摘要");
+        assertFalse(summary.getTextContent().contains("第1个问题"), "摘要超出上限时应丢弃最早的轮次");
+        assertTrue(prompt.size() < 16);
+        List<Msg> recent = prompt.subList(1, prompt.size());
+        assertEquals(MsgRole.USER, recent.get(0).getRole(), "保留部分应从一轮的开头开始");
+        assertEquals(memory.getMessages().subList(16 - recent.size(), 16), recent, "最近的轮次应原样保留");
+        assertTrue(estimate(recent) <= config.getTokenBudget() / 2, "折叠后保留的轮次不应超过预算的一半");
+    }
+
+    @Test
+    void testGetPromptMessages_NewestTurnOverBudget_ShouldStillKeepIt() {
+        TokenBudgetMemory memory = new TokenBudgetMemory(config);
+        addTurn(memory, 1);
+        Msg question = user("第2个问题：" + "请详细说明".repeat(60));
+        memory.addMessage(question);
+
+        List<Msg> prompt = memory.getPromptMessages();
+
+        assertSame(question, prompt.get(prompt.size() - 1), "最新一轮即使超出预算也应完整保留");
+        assertEquals(MsgRole.SYSTEM, prompt.get(0).getRole());
+        assertEquals(2, prompt.size());
+    }
+
+    @Test
+    void testGetPromptMessages_AfterFold_ShouldKeepSummaryStable() {
+        TokenBudgetMemory memory = new TokenBudgetMemory(config);
+        for (int i = 1; i <= 8; i++) {
+            addTurn(memory, i);
+        }
+        Msg summary = memory.getPromptMessages().get(0);
+
+        memory.addMessage(user("好的"));
+
+        assertSame(summary, memory.getPromptMessages().get(0), "未再次超出预算时摘要不应变化，以便复用前缀缓存");
+    }
+
+    @Test
+    void testGetPromptMessages_ShouldTruncateToolResultsOnlyBeforeCurrentTurn() {
+        config.setTokenBudget(10_000);
+        TokenBudgetMemory memory = new TokenBudgetMemory(config);
+        String longOutput = "监控数据".repeat(50);
+        memory.addMessage(user("第1个问题：查询监控"));
+        memory.addMessage(toolCall(longOutput));
+        memory.addMessage(assistant(ANSWER));
+        memory.addMessage(user("第2个问题：再查一次"));
+        Msg currentToolCall = toolCall(longOutput);
+        memory.addMessage(currentToolCall);
+
+        List<Msg> prompt = memory.getPromptMessages();
+
+        String oldOutput = toolOutput(prompt.get(1));
+        assertTrue(oldOutput.endsWith("…[结果过长已截断]"), "历史轮次的过长工具结果应被截断");
+        assertTrue(oldOutput.length() < longOutput.length());
+        assertSame(currentToolCall, prompt.get(4), "当前轮次的工具结果应保持原样");
+        assertEquals(longOutput, toolOutput(memory.getMessages().get(1)), "完整历史中的工具结果不应被修改");
+    }
+
+    @Test
+    void testPromptHook_ShouldReplaceHistoryInsideInputMessages() {
+        TokenBudgetMemory memory = new TokenBudgetMemory(config);
+        for (int i = 1; i <= 8; i++) {
+            addTurn(memory, i);
+        }
+        Msg systemPrompt = Msg.builder().name("system").role(MsgRole.SYSTEM).textContent("你是客服助手").build();
+        Msg hint = Msg.builder().name("hint").role(MsgRole.USER).textContent("请简要回答").build();
+        List<Msg> input = new ArrayList<>();
+        input.add(systemPrompt);
+        input.addAll(memory.getMessages());
+        input.add(hint);
+        PreReasoningEvent event = new PreReasoningEvent(input);
+
+        memory.promptHook().onEvent(event).block();
+
+        List<Msg> expected = new ArrayList<>();
+        expected.add(systemPrompt);
+        expected.addAll(memory.getPromptMessages());
+        expected.add(hint);
+        assertEquals(expected, event.getInputMessages());
+    }
+
+    @Test
+    void testToPrompt_HistoryNotInInput_ShouldReturnInputUnchanged() {
+        TokenBudgetMemory memory = new TokenBudgetMemory(config);
+        for (int i = 1; i <= 8; i++) {
+            addTurn(memory, i);
+        }
+        List<Msg> input = List.of(user("无关的消息"));
+
+        assertSame(input, memory.toPrompt(input));
+    }
+
+    @Test
+    void testClear_ShouldResetSummary() {
+        TokenBudgetMemory memory = new TokenBudgetMemory(config);
+        for (int i = 1; i <= 8; i++) {
+            addTurn(memory, i);
+        }
+        memory.getPromptMessages();
+
+        memory.clear();
+        addTurn(memory, 9);
+
+        assertEquals(memory.getMessages(), memory.getPromptMessages(), "清空后不应保留旧的摘要");
+    }
+
+    private static void addTurn(TokenBudgetMemory memory, int index) {
+        memory.addMessage(user("第" + index + "个问题：专业版的价格是多少？"));
+        memory.addMessage(assistant(ANSWER));
+    }
+
+    private static Msg user(String text) {
+        return Msg.builder().name("user").role(MsgRole.USER).textContent(text).build();
+    }
+
+    private static Msg assistant(String text) {
+        return Msg.builder().name("assistant").role(MsgRole.ASSISTANT).textContent(text).build();
+    }
+
+    private static Msg toolCall(String output) {
+        return Msg.builder()
+                .name("assistant")
+                .role(MsgRole.TOOL)
+                .content(List.of(
+                        ToolUseBlock.builder().id("call-1").name("query_monitor").input(Map.of()).build(),
+                        ToolResultBlock.builder()
+                                .id("call-1")
+                                .name("query_monitor")
+                                .output(List.of(TextBlock.builder().text(output).build()))
+                                .build()))
+                .build();
+    }
+
+    private static String toolOutput(Msg msg) {
+        for (ContentBlock block : msg.getContent()) {
+            if (block instanceof ToolResultBlock result) {
+                return ((TextBlock) result.getOutput().get(0)).getText();
+            }
+        }
+        return null;
+    }
+
+    private static int estimate(List<Msg> messages) {
+        return messages.stream().mapToInt(msg -> TokenEstimator.estimate(msg.getTextContent())).sum();
+    }
+}
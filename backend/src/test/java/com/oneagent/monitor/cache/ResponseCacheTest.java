@@ -0,0 +1,115 @@
+package com.oneagent.monitor.cache;
+
+import com.oneagent.monitor.model.config.MonitorProperties;
+import com.oneagent.monitor.model.event.KnowledgeBaseReloadedEvent;
+import com.oneagent.monitor.model.event.MonitorHealthChangedEvent;
+import com.oneagent.monitor.service.KnowledgeBaseService;
+import com.oneagent.monitor.service.MonitorService;
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.MsgRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ResponseCache 单元测试
+ */
+class ResponseCacheTest {
+
+    @TempDir
+    Path knowledgeDir;
+
+    private final List<Object> events = new ArrayList<>();
+    private MonitorProperties properties;
+    private KnowledgeBaseService knowledgeBaseService;
+    private MonitorService monitorService;
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(knowledgeDir.resolve("pricing.md"), "## 计费模式\n专业版299元/月\n");
+        properties = new MonitorProperties();
+        properties.getKnowledge().setPath(knowledgeDir.toString());
+        knowledgeBaseService = new KnowledgeBaseService(new DefaultResourceLoader(), events::add, properties);
+        knowledgeBaseService.refresh();
+        monitorService = new MonitorService(events::add);
+        monitorService.updateStatus("200 OK", "100ms", List.of());
+        // 没有 Embedding 模型时语义缓存不启用，只测试精确匹配
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        SemanticResponseCache semanticCache = new SemanticResponseCache(properties,
+                beanFactory.getBeanProvider(EmbeddingModel.class));
+        cache = new ResponseCache(properties, knowledgeBaseService, monitorService, semanticCache,
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testFind_RepeatedQuestion_ShouldHit() {
+        cache.put(cache.currentKey("专业版多少钱？", List.of()), "专业版299元/月");
+
+        ResponseCache.CachedAnswer hit = cache.find(cache.currentKey("  专业版多少钱 ", List.of())).block();
+
+        assertNotNull(hit, "归一化后相同的问题应命中缓存");
+        assertEquals("专业版299元/月", hit.reply());
+    }
+
+    @Test
+    void testFind_DifferentHistory_ShouldMiss() {
+        cache.put(cache.currentKey("那企业版呢", List.of()), "企业版999元/月");
+        List<Msg> history = List.of(Msg.builder().name("user").role(MsgRole.USER).textContent("退款政策").build());
+
+        assertNull(cache.find(cache.currentKey("那企业版呢", history)).block(), "有会话历史的追问不应复用新会话的回答");
+    }
+
+    @Test
+    void testFind_AfterKnowledgeReload_ShouldMiss() throws IOException {
+        cache.put(cache.currentKey("专业版多少钱", List.of()), "专业版299元/月");
+
+        Files.writeString(knowledgeDir.resolve("pricing.md"), "## 计费模式\n专业版399元/月\n");
+        assertTrue(knowledgeBaseService.refresh());
+        KnowledgeBaseReloadedEvent reloaded = events.stream()
+                .filter(KnowledgeBaseReloadedEvent.class::isInstance)
+                .map(KnowledgeBaseReloadedEvent.class::cast)
+                .reduce((first, second) -> second)
+                .orElseThrow();
+        cache.onKnowledgeBaseReloaded(reloaded);
+
+        assertNull(cache.find(cache.currentKey("专业版多少钱", List.of())).block(), "知识库更新后旧回答不应再返回");
+    }
+
+    @Test
+    void testFind_AfterMonitorHealthChange_ShouldMiss() {
+        ResponseCache.Key healthyKey = cache.currentKey("API 现在正常吗", List.of());
+        cache.put(healthyKey, "API 运行正常");
+
+        monitorService.updateStatus("503 Service Unavailable", "5000ms", List.of());
+        MonitorHealthChangedEvent changed = events.stream()
+                .filter(MonitorHealthChangedEvent.class::isInstance)
+                .map(MonitorHealthChangedEvent.class::cast)
+                .findFirst()
+                .orElseThrow();
+        cache.onMonitorHealthChanged(changed);
+
+        assertNull(cache.find(cache.currentKey("API 现在正常吗", List.of())).block(), "监控状态变化后不应返回旧回答");
+        assertNull(cache.find(healthyKey).block(), "状态变化时旧条目应被清空");
+    }
+
+    @Test
+    void testFind_Disabled_ShouldMiss() {
+        properties.getResponseCache().setEnabled(false);
+        cache.put(cache.currentKey("专业版多少钱", List.of()), "专业版299元/月");
+
+        assertNull(cache.find(cache.currentKey("专业版多少钱", List.of())).block());
+    }
+}
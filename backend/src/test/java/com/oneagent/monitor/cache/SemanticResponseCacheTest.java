@@ -0,0 +1,116 @@
+package com.oneagent.monitor.cache;
+
+import com.oneagent.monitor.model.config.MonitorProperties;
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.TextBlock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SemanticResponseCache 单元测试
+ */
+class SemanticResponseCacheTest {
+
+    /**
+     * 问题到向量的固定映射，"价格怎么算" 与 "计费方式" 相近，"退款政策" 与二者正交
+     */
+    private static final Map<String, double[]> VECTORS = Map.of(
+            "价格怎么算", new double[]{1.0, 0.1, 0.0},
+            "计费方式", new double[]{1.0, 0.12, 0.0},
+            "退款政策", new double[]{0.0, 0.0, 1.0});
+
+    private MonitorProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MonitorProperties();
+        properties.getResponseCache().setTtl(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void testFind_SimilarQuestion_ShouldReturnCachedAnswer() {
+        SemanticResponseCache cache = cache();
+        cache.put(key("价格怎么算"), answer("按 token 计费"));
+
+        ResponseCache.CachedAnswer hit = cache.find(key("计费方式")).block();
+
+        assertNotNull(hit);
+        assertEquals("按 token 计费", hit.reply());
+        assertNull(cache.find(key("退款政策")).block(), "语义不相近的问题不应命中");
+    }
+
+    @Test
+    void testFind_DifferentKnowledgeVersion_ShouldMiss() {
+        SemanticResponseCache cache = cache();
+        cache.put(key("价格怎么算"), answer("按 token 计费"));
+
+        ResponseCache.Key otherVersion = new ResponseCache.Key("计费方式", "v2", "healthy", "");
+
+        assertNull(cache.find(otherVersion).block());
+    }
+
+    @Test
+    void testFind_DifferentHistory_ShouldMiss() {
+        SemanticResponseCache cache = cache();
+        cache.put(new ResponseCache.Key("价格怎么算", "v1", "healthy", "h1"), answer("企业版 999 元/月"));
+
+        assertNull(cache.find(key("计费方式")).block(), "追问的回答不应复用到没有历史的会话");
+        assertNull(cache.find(new ResponseCache.Key("计费方式", "v1", "healthy", "h2")).block(),
+                "历史不同的会话之间不应复用回答");
+        assertNotNull(cache.find(new ResponseCache.Key("计费方式", "v1", "healthy", "h1")).block());
+    }
+
+    @Test
+    void testFind_ExpiredEntry_ShouldMissAndBeRemoved() throws InterruptedException {
+        properties.getResponseCache().setTtl(Duration.ofMillis(20));
+        SemanticResponseCache cache = cache();
+        cache.put(key("价格怎么算"), answer("按 token 计费"));
+        assertEquals(1, cache.size());
+
+        Thread.sleep(50);
+
+        assertNull(cache.find(key("计费方式")).block(), "过期的回答不应再被语义匹配返回");
+        assertEquals(0, cache.size(), "过期条目应在查找时移除");
+    }
+
+    private SemanticResponseCache cache() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("embeddingModel", new FixedModel());
+        return new SemanticResponseCache(properties, beanFactory.getBeanProvider(EmbeddingModel.class));
+    }
+
+    private static ResponseCache.Key key(String query) {
+        return new ResponseCache.Key(query, "v1", "healthy", "");
+    }
+
+    private static ResponseCache.CachedAnswer answer(String reply) {
+        return new ResponseCache.CachedAnswer(reply, List.of());
+    }
+
+    private static final class FixedModel implements EmbeddingModel {
+
+        @Override
+        public Mono<double[]> embed(ContentBlock block) {
+            return Mono.just(VECTORS.get(((TextBlock) block).getText()));
+        }
+
+        @Override
+        public String getModelName() {
+            return "fixed";
+        }
+
+        @Override
+        public int getDimensions() {
+            return 3;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.oneagent.monitor.llm;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LlmCallScheduler 单元测试
+ */
+class LlmCallSchedulerTest {
+
+    private AgentScopeProperties properties;
+    private AgentScopeProperties.SchedulerConfig config;
+    private final List<WorkloadClass> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new AgentScopeProperties();
+        config = properties.getLlm().getScheduler();
+        config.setMaxConcurrency(1);
+    }
+
+    @Test
+    void testSchedule_OverGlobalLimit_ShouldQueueUntilSlotReleased() {
+        config.setMaxConcurrency(2);
+        LlmCallScheduler scheduler = scheduler();
+
+        Call first = call(scheduler, WorkloadClass.INTERACTIVE);
+        call(scheduler, WorkloadClass.INTERACTIVE);
+        call(scheduler, WorkloadClass.INTERACTIVE);
+
+        assertEquals(2, started.size(), "超过全局并发上限的调用应排队");
+        first.complete();
+        assertEquals(3, started.size(), "调用结束后应释放槽位给排队的请求");
+    }
+
+    @Test
+    void testSchedule_StrictPriority_ShouldServeInteractiveFirst() {
+        config.setPolicy(SchedulingPolicy.STRICT_PRIORITY);
+        LlmCallScheduler scheduler = scheduler();
+        Call blocker = call(scheduler, WorkloadClass.BATCH);
+        List<Call> queued = new ArrayList<>();
+        queued.add(call(scheduler, WorkloadClass.BATCH));
+        queued.add(call(scheduler, WorkloadClass.BATCH));
+        queued.add(call(scheduler, WorkloadClass.INTERACTIVE));
+
+        blocker.complete();
+
+        assertEquals(WorkloadClass.INTERACTIVE, started.get(1), "交互式请求应先于更早排队的批量请求");
+        queued.get(2).complete();
+        assertEquals(WorkloadClass.BATCH, started.get(2));
+    }
+
+    @Test
+    void testSchedule_WeightedFair_ShouldNotStarveBatch() {
+        config.setPolicy(SchedulingPolicy.WEIGHTED_FAIR);
+        LlmCallScheduler scheduler = scheduler();
+        List<Call> calls = new ArrayList<>();
+        calls.add(call(scheduler, WorkloadClass.INTERACTIVE));
+        for (int i = 0; i < 8; i++) {
+            calls.add(call(scheduler, WorkloadClass.INTERACTIVE));
+            calls.add(call(scheduler, WorkloadClass.BATCH));
+        }
+
+        // 依次完成已开始的调用，记录槽位的分配顺序
+        for (int i = 0; i < 6; i++) {
+            runningCall(calls).complete();
+        }
+
+        List<WorkloadClass> order = started.subList(1, 7);
+        long batch = order.stream().filter(WorkloadClass.BATCH::equals).count();
+        assertTrue(batch >= 1, "加权公平调度下批量请求不应被饿死: " + order);
+        assertTrue(batch < order.size() - batch, "权重更高的交互式请求应分到更多槽位: " + order);
+    }
+
+    @Test
+    void testSchedule_ClassLimit_ShouldNotBlockOtherClass() {
+        config.setMaxConcurrency(4);
+        config.getClasses().put(WorkloadClass.BATCH, new AgentScopeProperties.WorkloadConfig(1, 1));
+        LlmCallScheduler scheduler = scheduler();
+
+        call(scheduler, WorkloadClass.BATCH);
+        call(scheduler, WorkloadClass.BATCH);
+        call(scheduler, WorkloadClass.INTERACTIVE);
+
+        assertEquals(List.of(WorkloadClass.BATCH, WorkloadClass.INTERACTIVE), started,
+                "批量类别达到上限时不应占用交互式请求的槽位");
+    }
+
+    @Test
+    void testSchedule_CancelWhileQueued_ShouldLeaveQueue() {
+        LlmCallScheduler scheduler = scheduler();
+        Call running = call(scheduler, WorkloadClass.INTERACTIVE);
+        Call cancelled = call(scheduler, WorkloadClass.INTERACTIVE);
+        call(scheduler, WorkloadClass.BATCH);
+
+        cancelled.subscription.dispose();
+        running.complete();
+
+        assertEquals(List.of(WorkloadClass.INTERACTIVE, WorkloadClass.BATCH), started, "已取消的请求不应再被调度");
+    }
+
+    @Test
+    void testSchedule_CancelWhileRunning_ShouldReleaseSlot() {
+        LlmCallScheduler scheduler = scheduler();
+        Call running = call(scheduler, WorkloadClass.INTERACTIVE);
+        call(scheduler, WorkloadClass.INTERACTIVE);
+
+        running.subscription.dispose();
+
+        assertEquals(2, started.size(), "下游取消正在进行的调用时应归还槽位");
+    }
+
+    @Test
+    void testHasIdleSlot_WhenFullOrQueued_ShouldBeFalse() {
+        config.setMaxConcurrency(2);
+        LlmCallScheduler scheduler = scheduler();
+        assertTrue(scheduler.hasIdleSlot(WorkloadClass.INTERACTIVE), "空闲时对冲可以直接获得槽位");
+
+        Call first = call(scheduler, WorkloadClass.INTERACTIVE);
+        call(scheduler, WorkloadClass.INTERACTIVE);
+        assertFalse(scheduler.hasIdleSlot(WorkloadClass.INTERACTIVE), "全局槽位占满时不应发出对冲");
+
+        call(scheduler, WorkloadClass.BATCH);
+        first.complete();
+        assertFalse(scheduler.hasIdleSlot(WorkloadClass.INTERACTIVE), "槽位已被排队的请求拿走时不应发出对冲");
+    }
+
+    @Test
+    void testSchedule_Disabled_ShouldNotLimitConcurrency() {
+        config.setEnabled(false);
+        LlmCallScheduler scheduler = scheduler();
+
+        for (int i = 0; i < 3; i++) {
+            call(scheduler, WorkloadClass.BATCH);
+        }
+
+        assertEquals(3, started.size());
+    }
+
+    private LlmCallScheduler scheduler() {
+        return new LlmCallScheduler(properties, new SimpleMeterRegistry());
+    }
+
+    /**
+     * 发起一次调用，获得槽位时记录类别，直到 complete() 前一直占用槽位
+     */
+    private Call call(LlmCallScheduler scheduler, WorkloadClass workloadClass) {
+        Sinks.One<String> response = Sinks.one();
+        Call call = new Call(response);
+        call.subscription = scheduler.schedule(workloadClass, () -> {
+                    started.add(workloadClass);
+                    call.started = true;
+                    return response.asMono().flux();
+                })
+                .subscribe(value -> call.completed = true);
+        return call;
+    }
+
+    private static Call runningCall(List<Call> calls) {
+        return calls.stream().filter(c -> c.started && !c.completed).findFirst().orElseThrow();
+    }
+
+    private static final class Call {
+        private final Sinks.One<String> response;
+        private Disposable subscription;
+        private boolean started;
+        private boolean completed;
+
+        Call(Sinks.One<String> response) {
+            this.response = response;
+        }
+
+        void complete() {
+            response.tryEmitValue("done");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.oneagent.monitor.llm;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LlmHedger 单元测试
+ */
+class LlmHedgerTest {
+
+    private AgentScopeProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AgentScopeProperties();
+        AgentScopeProperties.HedgeConfig hedge = properties.getLlm().getHedge();
+        hedge.setInitialDelay(Duration.ofSeconds(3));
+        hedge.setMinDelay(Duration.ofMillis(100));
+        hedge.setMaxDelay(Duration.ofSeconds(10));
+        hedge.setPercentile(0.9);
+        hedge.setBudgetPercent(25.0);
+        hedge.setBudgetBurst(2.0);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testCurrentDelay_WithFewSamples_ShouldUseInitialDelay() {
+        LlmHedger.Window window = new LlmHedger(properties, meterRegistry, new LlmCallScheduler(properties, meterRegistry)).window("qwen-plus");
+        for (int i = 0; i < 10; i++) {
+            window.recordFirstToken(Duration.ofMillis(200).toNanos());
+        }
+
+        assertEquals(Duration.ofSeconds(3), window.currentDelay(), "样本不足时应使用初始延迟");
+    }
+
+    @Test
+    void testCurrentDelay_ShouldUsePercentileWithinBounds() {
+        LlmHedger.Window window = new LlmHedger(properties, meterRegistry, new LlmCallScheduler(properties, meterRegistry)).window("qwen-plus");
+        for (int i = 1; i <= 100; i++) {
+            window.recordFirstToken(Duration.ofMillis(i * 10L).toNanos());
+        }
+        assertEquals(Duration.ofMillis(900), window.currentDelay(), "应取 p90 的首 token 延迟");
+
+        for (int i = 0; i < 256; i++) {
+            window.recordFirstToken(Duration.ofMillis(1).toNanos());
+        }
+        assertEquals(Duration.ofMillis(100), window.currentDelay(), "对冲延迟不应低于下界");
+    }
+
+    @Test
+    void testTryHedge_ShouldBeLimitedByBudget() {
+        LlmHedger.Window window = new LlmHedger(properties, meterRegistry, new LlmCallScheduler(properties, meterRegistry)).window("qwen-plus");
+
+        assertTrue(window.tryHedge());
+        assertTrue(window.tryHedge());
+        assertFalse(window.tryHedge(), "突发额度用完后不应继续对冲");
+
+        for (int i = 0; i < 4; i++) {
+            window.onRequest();
+        }
+        assertTrue(window.tryHedge(), "每 4 个请求应存入 1 次对冲额度");
+        assertFalse(window.tryHedge());
+        assertEquals(2.0, meterRegistry.counter("llm.hedge", "model", "qwen-plus", "result", "skipped_budget").count());
+    }
+
+    @Test
+    void testWindow_DifferentModels_ShouldKeepSeparateSamplesAndBudget() {
+        LlmHedger hedger = new LlmHedger(properties, meterRegistry, new LlmCallScheduler(properties, meterRegistry));
+        LlmHedger.Window lite = hedger.window("qwen-turbo");
+        LlmHedger.Window max = hedger.window("qwen-max");
+        for (int i = 0; i < 50; i++) {
+            lite.recordFirstToken(Duration.ofMillis(200).toNanos());
+            max.recordFirstToken(Duration.ofSeconds(5).toNanos());
+        }
+        lite.tryHedge();
+        lite.tryHedge();
+
+        assertEquals(Duration.ofMillis(200), lite.currentDelay());
+        assertEquals(Duration.ofSeconds(5), max.currentDelay(), "慢模型的延迟不应影响快模型的对冲延迟");
+        assertFalse(lite.tryHedge());
+        assertTrue(max.tryHedge(), "一个模型用完预算不应影响其他模型");
+        assertSame(lite, hedger.window("qwen-turbo"), "同名模型应共享窗口");
+    }
+}
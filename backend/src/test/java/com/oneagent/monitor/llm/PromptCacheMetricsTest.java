@@ -0,0 +1,59 @@
+package com.oneagent.monitor.llm;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PromptCacheMetrics 单元测试
+ */
+class PromptCacheMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PromptCacheMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new PromptCacheMetrics(meterRegistry);
+    }
+
+    @Test
+    void testRecordUsage_WithCachedTokens_ShouldRecordProviderRatio() {
+        metrics.recordUsage(1000, 750);
+        metrics.recordUsage(1000, 250);
+
+        DistributionSummary provider = summary("provider");
+        assertEquals(2, provider.count());
+        assertEquals(0.5, provider.mean(), 1e-9, "应按每次请求的 cached / prompt_tokens 记录");
+        assertEquals(1000, meterRegistry.find("llm.prompt.cache.tokens").tag("part", "cached").counter().count(), 1e-9);
+    }
+
+    @Test
+    void testRecordEstimate_WhenProviderReportsCachedTokens_ShouldBeIgnored() {
+        metrics.recordUsage(800, 0);
+        metrics.recordEstimate(0.9);
+
+        assertTrue(metrics.isProviderReportingCachedTokens());
+        assertEquals(0, summary("estimate").count(), "服务商返回实际值时不应记录估算值");
+        assertEquals(0.0, summary("provider").mean(), 1e-9, "命中 0 个 token 也是实际值");
+    }
+
+    @Test
+    void testRecordEstimate_WhenProviderOmitsCachedTokens_ShouldFallBack() {
+        metrics.recordUsage(800, null);
+        metrics.recordEstimate(0.6);
+
+        assertFalse(metrics.isProviderReportingCachedTokens());
+        assertEquals(0, summary("provider").count());
+        assertEquals(1, summary("estimate").count(), "服务商不返回缓存 token 数时应使用估算值");
+        assertEquals(0.6, summary("estimate").mean(), 1e-9);
+    }
+
+    private DistributionSummary summary(String source) {
+        return meterRegistry.find("llm.prompt.cache_hit").tag("source", source).summary();
+    }
+}
@@ -0,0 +1,146 @@
+package com.oneagent.monitor.llm;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.QueryNormalizer;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.MsgRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TieredModelRouter 单元测试
+ */
+class TieredModelRouterTest {
+
+    private static final Duration COOLDOWN = Duration.ofMillis(100);
+
+    private TieredModelRouter router;
+    private TieredModelRouter.Tier small;
+    private TieredModelRouter.Tier medium;
+    private TieredModelRouter.Tier large;
+    private List<TieredModelRouter.Tier> tiers;
+
+    @BeforeEach
+    void setUp() {
+        router = new TieredModelRouter(new SimpleMeterRegistry());
+        small = router.tier(tierConfig("small", 0), null);
+        medium = router.tier(tierConfig("medium", 1), null);
+        large = router.tier(tierConfig("large", 2), null);
+        tiers = List.of(small, medium, large);
+    }
+
+    @Test
+    void testEstimateComplexity_ShouldBucketByLengthTopicAndAlert() {
+        assertEquals(0, router.estimateComplexity(userTurn("你好")), "问候应为简单问题");
+        assertEquals(1, router.estimateComplexity(userTurn("为什么收不到告警通知")), "排障类问题至少为一般");
+        assertEquals(1, router.estimateComplexity(userTurn("你好" + alert())), "系统异常时问题至少为一般");
+        assertEquals(2, router.estimateComplexity(userTurn("接口为什么超时" + alert())), "系统异常时的排障问题应为复杂");
+        assertEquals(2, router.estimateComplexity(userTurn("请介绍企业版的功能。".repeat(20))), "长问题应为复杂");
+        assertEquals(1, router.estimateComplexity(List.of()), "没有用户消息时按一般处理");
+    }
+
+    @Test
+    void testEstimateComplexity_ShouldUseLatestUserMessage() {
+        List<Msg> messages = List.of(
+                msg(MsgRole.USER, "为什么接口响应很慢，帮我分析原因"),
+                msg(MsgRole.ASSISTANT, "可能是网络延迟导致的"),
+                msg(MsgRole.USER, "谢谢"));
+
+        assertEquals(0, router.estimateComplexity(messages), "应只按最近一条用户消息估算");
+    }
+
+    @Test
+    void testSelect_ShouldPickCheapestTierThatHandlesComplexity() {
+        assertSame(small, router.select(tiers, 0));
+        assertSame(medium, router.select(tiers, 1));
+        assertSame(large, router.select(tiers, 2));
+        assertSame(large, router.select(tiers, 3), "没有一级能处理时使用最高一级");
+    }
+
+    @Test
+    void testSelect_WhenPreferredTierTripped_ShouldMoveUpThenRecoverAfterCooldown() throws InterruptedException {
+        trip(small);
+
+        assertFalse(small.isAvailable(), "错误率超过阈值后应暂停路由");
+        assertSame(medium, router.select(tiers, 0), "首选一级不可用时应转向更高一级");
+
+        Thread.sleep(COOLDOWN.toMillis() + 50);
+
+        assertTrue(small.isAvailable(), "冷却结束后应恢复路由");
+        assertSame(small, router.select(tiers, 0));
+    }
+
+    @Test
+    void testSelect_WhenAllHigherTiersTripped_ShouldFallBackToLowerTier() {
+        trip(medium);
+        trip(large);
+
+        assertSame(small, router.select(tiers, 2), "更高级都不可用时应转向更低一级");
+        assertSame(small, router.select(tiers, 1));
+    }
+
+    @Test
+    void testSelect_WhenAllTiersTripped_ShouldUsePreferredTier() {
+        trip(small);
+        trip(medium);
+        trip(large);
+
+        assertSame(medium, router.select(tiers, 1), "全部不可用时仍使用首选一级");
+    }
+
+    @Test
+    void testRecord_SlowFirstToken_ShouldTripTier() {
+        for (int i = 0; i < 10; i++) {
+            medium.recordFirstToken(Duration.ofSeconds(9).toNanos());
+        }
+
+        assertFalse(medium.isAvailable(), "首 token 延迟 p90 超过阈值后应暂停路由");
+        assertSame(large, router.select(tiers, 1));
+    }
+
+    @Test
+    void testRecord_FewErrors_ShouldKeepTierAvailable() {
+        for (int i = 0; i < 20; i++) {
+            if (i % 10 == 0) {
+                small.recordError();
+            } else {
+                small.recordFirstToken(Duration.ofMillis(300).toNanos());
+            }
+        }
+
+        assertTrue(small.isAvailable(), "错误率未超过阈值时不应暂停路由");
+    }
+
+    private static void trip(TieredModelRouter.Tier tier) {
+        for (int i = 0; i < 10; i++) {
+            tier.recordError();
+        }
+    }
+
+    private static AgentScopeProperties.TierConfig tierConfig(String name, int maxComplexity) {
+        AgentScopeProperties.TierConfig config = new AgentScopeProperties.TierConfig();
+        config.setName(name);
+        config.setModelName(name + "-model");
+        config.setMaxComplexity(maxComplexity);
+        config.setCooldown(COOLDOWN);
+        return config;
+    }
+
+    private static String alert() {
+        return "\n\n[系统状态提醒: 当前API状态异常 - 500 Internal Server Error, 响应时间: 3000ms]";
+    }
+
+    private static List<Msg> userTurn(String question) {
+        return List.of(msg(MsgRole.USER, QueryNormalizer.QUESTION_PREFIX + question));
+    }
+
+    private static Msg msg(MsgRole role, String text) {
+        return Msg.builder().name(role.name().toLowerCase()).role(role).textContent(text).build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.oneagent.monitor.rag;
+
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bm25Index 单元测试
+ */
+class Bm25IndexTest {
+
+    private static final Document PRICING = doc("pricing", "企业版每月999元，SLA 99.9%，支持专属客服");
+    private static final Document ALERT = doc("alert", "监控告警支持邮件、飞书和钉钉通知");
+    private static final Document REFUND = doc("refund", "退款将在3-5个工作日内原路返回");
+
+    private final Bm25Index index = new Bm25Index(List.of(PRICING, ALERT, REFUND));
+
+    @Test
+    void testSearch_ExactTerms_ShouldRankMatchingChunkFirstWithFullCoverage() {
+        List<Bm25Index.Hit> hits = index.search("企业版 SLA", 3);
+
+        assertEquals(1, hits.size(), "未命中任何词项的分块不应返回");
+        assertSame(PRICING, hits.get(0).chunk());
+        assertEquals(1.0, hits.get(0).coverage(), 1e-9, "问题词项全部命中时覆盖率应为 1");
+    }
+
+    @Test
+    void testSearch_DecimalTerm_ShouldMatchWholeNumber() {
+        List<Bm25Index.Hit> hits = index.search("99.9", 3);
+
+        assertEquals(1, hits.size());
+        assertSame(PRICING, hits.get(0).chunk());
+    }
+
+    @Test
+    void testSearch_PartialMatch_ShouldReturnCoverageBetweenZeroAndOne() {
+        List<Bm25Index.Hit> hits = index.search("企业版退款", 3);
+
+        assertEquals(2, hits.size());
+        for (Bm25Index.Hit hit : hits) {
+            assertTrue(hit.coverage() > 0 && hit.coverage() < 1, "只命中部分词项时覆盖率应在 0 和 1 之间");
+        }
+        assertTrue(hits.get(0).score() >= hits.get(1).score(), "结果应按 BM25 得分降序排列");
+    }
+
+    @Test
+    void testSearch_UnknownTerms_ShouldLowerCoverage() {
+        double full = index.search("退款", 1).get(0).coverage();
+        double diluted = index.search("退款 xyz", 1).get(0).coverage();
+
+        assertEquals(1.0, full, 1e-9);
+        assertTrue(diluted < full, "语料中不存在的词项也应计入覆盖率的分母");
+    }
+
+    @Test
+    void testSearch_ShouldRespectLimit() {
+        List<Bm25Index.Hit> hits = index.search("企业版 告警 退款", 2);
+
+        assertEquals(2, hits.size());
+        assertTrue(index.search("企业版", 0).isEmpty());
+    }
+
+    @Test
+    void testSearch_NoMatchOrEmptyIndex_ShouldReturnEmpty() {
+        assertTrue(index.search("xyz", 3).isEmpty());
+        assertTrue(index.search("", 3).isEmpty());
+        assertTrue(new Bm25Index(List.of()).search("企业版", 3).isEmpty());
+    }
+
+    private static Document doc(String docId, String text) {
+        return new Document(new DocumentMetadata(TextBlock.builder().text(text).build(), docId, "0"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChunkDeduplicator 单元测试
+ */
+class ChunkDeduplicatorTest {
+
+    private static final String CONTACT = """
+            [胜算云平台知识库 > 联系我们]
+            如有任何问题，请通过以下方式联系我们：客服邮箱 support@shengsuanyun.com，
+            客服电话 400-123-4567，工作时间为周一至周五 9:00-18:00，节假日顺延处理，
+            紧急故障请在控制台提交工单，我们会在 30 分钟内响应并安排工程师跟进。""";
+
+    private static final String PRICING = """
+            [胜算云平台知识库 > 计费模式]
+            按量付费根据实际调用的 token 数量计费，输入和输出分别计价，账单每小时结算一次，
+            余额不足时调用会被拒绝，充值后立即恢复。包月订阅分为基础版、专业版和企业版。""";
+
+    private AgentScopeProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AgentScopeProperties();
+    }
+
+    @Test
+    void testDeduplicate_ExactDuplicate_ShouldKeepFirst() {
+        Document first = doc("file:a.md", CONTACT);
+        Document pricing = doc("file:a.md", PRICING);
+        Document copy = doc("file:b.md", CONTACT);
+
+        ChunkDeduplicator.Result result = deduplicator().deduplicate(List.of(first, pricing, copy));
+
+        assertEquals(List.of(first, pricing), result.chunks(), "应保留先出现的分块并保持原顺序");
+        assertEquals(1, result.stats().exactDuplicates());
+        assertEquals(0, result.stats().nearDuplicates());
+        assertEquals(3, result.stats().input());
+        assertEquals(2, result.stats().kept());
+    }
+
+    @Test
+    void testDeduplicate_NearDuplicate_ShouldBeMerged() {
+        // 只有电话号码不同
+        String variant = CONTACT.replace("400-123-4567", "400-765-4321");
+
+        ChunkDeduplicator.Result result = deduplicator().deduplicate(List.of(
+                doc("file:a.md", CONTACT), doc("file:b.md", variant)));
+
+        assertEquals(1, result.chunks().size(), "只有少量词不同的分块应视为重复");
+        assertEquals("file:a.md", result.chunks().get(0).getMetadata().getDocId(), "应保留先出现的分块");
+        assertEquals(1, result.stats().nearDuplicates());
+    }
+
+    @Test
+    void testDeduplicate_MergedChunks_ShouldKeepAllSources() {
+        String variant = CONTACT.replace("400-123-4567", "400-765-4321");
+        Document first = doc("file:a.md", CONTACT);
+
+        ChunkDeduplicator.Result result = deduplicator().deduplicate(List.of(
+                first, doc("file:a.md", PRICING), doc("file:b.md", variant), doc("file:c.md", CONTACT)));
+
+        assertEquals(Map.of(ChunkDeduplicator.chunkKey(first), Set.of("file:a.md", "file:b.md", "file:c.md")),
+                result.sources(), "被合并分块的来源文档应记录在保留分块名下");
+        assertEquals(List.of("file:a.md", "file:b.md", "file:c.md"),
+                List.copyOf(result.sources().get(ChunkDeduplicator.chunkKey(first))), "保留分块自身的来源应在前");
+    }
+
+    @Test
+    void testDeduplicate_BelowThreshold_ShouldKeepBoth() {
+        String related = CONTACT.substring(0, CONTACT.indexOf("工作时间"))
+                + "海外用户请通过 Discord 社区或者 Telegram 群组获取帮助，我们提供英文文档和示例代码。";
+
+        ChunkDeduplicator.Result result = deduplicator().deduplicate(List.of(
+                doc("file:a.md", CONTACT), doc("file:b.md", related), doc("file:c.md", PRICING)));
+
+        assertEquals(3, result.chunks().size(), "相似度低于阈值的分块不应合并");
+        assertEquals(0, result.stats().nearDuplicates());
+        assertTrue(result.sources().isEmpty(), "没有合并时不应记录来源");
+    }
+
+    @Test
+    void testDeduplicate_Disabled_ShouldReturnInput() {
+        properties.getRag().getDedupe().setEnabled(false);
+        List<Document> chunks = List.of(doc("file:a.md", CONTACT), doc("file:b.md", CONTACT));
+
+        ChunkDeduplicator.Result result = deduplicator().deduplicate(chunks);
+
+        assertSame(chunks, result.chunks());
+        assertEquals(2, result.stats().kept());
+    }
+
+    private ChunkDeduplicator deduplicator() {
+        return new ChunkDeduplicator(properties);
+    }
+
+    private static Document doc(String docId, String text) {
+        return new Document(new DocumentMetadata(TextBlock.builder().text(text).build(), docId, "0"));
+    }
+}
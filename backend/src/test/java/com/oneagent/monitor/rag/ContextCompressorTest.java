@@ -0,0 +1,202 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.DocumentUtils;
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ContextCompressor 单元测试
+ */
+class ContextCompressorTest {
+
+    private static final String PRICING = """
+            [胜算云平台知识库 > 计费模式]
+            ### 包月订阅
+            分为以下三个版本：
+
+            | 版本 | 价格 |
+            |------|------|
+            | 基础版 | 99元/月 |
+            | 专业版 | 299元/月 |
+            | 企业版 | 999元/月 |
+
+            ### 退款政策
+            - 按量付费支持随时退款
+            - 包月订阅购买后7天内支持无理由退款
+            - 退款将在3-5个工作日内原路返回""";
+
+    private static final String FEATURES = """
+            [胜算云平台知识库 > 平台功能]
+            ### 监控告警
+            - 实时监控 API 调用状态
+            - 自动检测异常和超时
+            - 支持多种告警方式（邮件、飞书、钉钉）""";
+
+    private AgentScopeProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private QueryEmbeddingCache queryEmbeddingCache;
+    private CountingBatchClient batchClient;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AgentScopeProperties();
+        properties.getRag().getCompression().setMaxTokens(60);
+        meterRegistry = new SimpleMeterRegistry();
+        queryEmbeddingCache = new QueryEmbeddingCache(properties, meterRegistry);
+        batchClient = new CountingBatchClient(properties);
+    }
+
+    @Test
+    void testCompress_ShouldKeepMatchingTableRowWithHeader() {
+        List<Document> result = compressor().compress("专业版多少钱", List.of(doc("a", PRICING), doc("b", FEATURES)))
+                .block();
+
+        assertNotNull(result);
+        assertEquals(1, result.size(), "没有相关句子的分块不应注入");
+        String text = DocumentUtils.textOf(result.get(0));
+        assertTrue(text.startsWith("[胜算云平台知识库 > 计费模式]\n"), "标题路径应保留在第一行");
+        assertTrue(text.contains("| 版本 | 价格 |\n|------|------|\n"), "表格行应带上表头");
+        assertTrue(text.contains("| 专业版 | 299元/月 |"), "相关表格行应整行保留");
+        assertFalse(text.contains("基础版"));
+        assertFalse(text.contains("退款"));
+    }
+
+    @Test
+    void testCompress_ShouldKeepOriginalOrderAndMarkGaps() {
+        List<Document> result = compressor().compress("包月订阅退款多久到账，工作日",
+                List.of(doc("a", PRICING), doc("b", FEATURES))).block();
+
+        assertNotNull(result);
+        String text = DocumentUtils.textOf(result.get(0));
+        int heading = text.indexOf("### 包月订阅");
+        int refund = text.indexOf("- 退款将在3-5个工作日内原路返回");
+        assertTrue(heading >= 0 && refund > heading, "保留的句子应按原文顺序排列: " + text);
+        assertTrue(text.contains("\n…\n"), "不相邻的句子之间应有省略号");
+    }
+
+    @Test
+    void testCompress_WithinBudget_ShouldReturnDocumentsUnchanged() {
+        properties.getRag().getCompression().setMaxTokens(10_000);
+        List<Document> documents = List.of(doc("a", PRICING), doc("b", FEATURES));
+
+        List<Document> result = compressor().compress("专业版多少钱", documents).block();
+
+        assertSame(documents, result);
+    }
+
+    @Test
+    void testCompress_WithoutRelevantSentence_ShouldReturnDocumentsUnchanged() {
+        List<Document> documents = List.of(doc("a", PRICING), doc("b", FEATURES));
+
+        List<Document> result = compressor().compress("xyz", documents).block();
+
+        assertEquals(documents, result);
+    }
+
+    @Test
+    void testCompress_ShouldKeepScoreAndIds() {
+        Document pricing = doc("a", PRICING);
+        pricing.setScore(0.72);
+
+        Document compressed = compressor().compress("专业版多少钱", List.of(pricing, doc("b", FEATURES)))
+                .block().get(0);
+
+        assertEquals(0.72, compressed.getScore(), 1e-9);
+        assertEquals("a", compressed.getMetadata().getDocId());
+        assertEquals("0", compressed.getMetadata().getChunkId());
+    }
+
+    @Test
+    void testCompress_ByDefault_ShouldNotCallEmbedding() {
+        compressor().compress("专业版多少钱", List.of(doc("a", PRICING), doc("b", FEATURES))).block();
+
+        assertEquals(0, batchClient.calls.get());
+    }
+
+    @Test
+    void testCompress_WithoutCachedQueryVector_ShouldFallBackToLexical() {
+        properties.getRag().getCompression().setEmbeddingWeight(0.5);
+
+        List<Document> result = compressor().compress("专业版多少钱", List.of(doc("a", PRICING), doc("b", FEATURES)))
+                .block();
+
+        assertEquals(0, batchClient.calls.get(), "查询向量不在缓存中时不应另外向量化");
+        assertTrue(DocumentUtils.textOf(result.get(0)).contains("| 专业版 | 299元/月 |"));
+    }
+
+    @Test
+    void testCompress_WithCachedQueryVector_ShouldEmbedSentencesInOneBatch() {
+        properties.getRag().getCompression().setEmbeddingWeight(0.5);
+        AtomicInteger modelCalls = new AtomicInteger();
+        EmbeddingModel model = queryEmbeddingCache.wrap(new FixedModel(batchClient.getModelName(), modelCalls));
+        // 向量检索已经算过查询向量
+        model.embed(TextBlock.builder().text("专业版多少钱").build()).block();
+
+        compressor().compress("专业版多少钱", List.of(doc("a", PRICING), doc("b", FEATURES))).block();
+
+        assertEquals(1, batchClient.calls.get(), "句子应一次批量向量化");
+        assertEquals(1, modelCalls.get(), "查询向量应复用缓存");
+        assertEquals(1, queryEmbeddingCache.size(), "句子向量不应写入查询向量缓存");
+    }
+
+    private ContextCompressor compressor() {
+        return new ContextCompressor(properties, meterRegistry, queryEmbeddingCache, batchClient);
+    }
+
+    private static Document doc(String docId, String text) {
+        return new Document(new DocumentMetadata(TextBlock.builder().text(text).build(), docId, "0"));
+    }
+
+    /**
+     * 不发起网络请求，记录批量调用次数
+     */
+    private static final class CountingBatchClient extends BatchEmbeddingClient {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingBatchClient(AgentScopeProperties properties) {
+            super(properties);
+        }
+
+        @Override
+        public Mono<List<float[]>> embed(List<String> texts) {
+            calls.incrementAndGet();
+            List<float[]> vectors = new ArrayList<>();
+            texts.forEach(text -> vectors.add(new float[]{1f, 0f}));
+            return Mono.just(vectors);
+        }
+    }
+
+    private record FixedModel(String modelName, AtomicInteger calls) implements EmbeddingModel {
+
+        @Override
+        public Mono<double[]> embed(ContentBlock block) {
+            calls.incrementAndGet();
+            return Mono.just(new double[]{1.0, 0.0});
+        }
+
+        @Override
+        public String getModelName() {
+            return modelName;
+        }
+
+        @Override
+        public int getDimensions() {
+            return 2;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EmbeddingDiskCache 单元测试
+ */
+class EmbeddingDiskCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private AgentScopeProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AgentScopeProperties();
+        properties.getEmbedding().getCache().setPath(tempDir.resolve("embedding-cache.bin").toString());
+    }
+
+    @Test
+    void testGet_AfterRestart_ShouldReadVectorFromFile() {
+        EmbeddingDiskCache cache = newCache();
+        cache.load();
+        cache.put(key("a"), new float[]{1f, 2f});
+        cache.close();
+
+        EmbeddingDiskCache restarted = newCache();
+        restarted.load();
+
+        assertArrayEquals(new float[]{1f, 2f}, restarted.get(key("a")));
+        assertNull(restarted.get(key("b")));
+    }
+
+    @Test
+    void testCompact_ShouldKeepTouchedEntries() {
+        EmbeddingDiskCache cache = newCache();
+        cache.load();
+        for (String text : new String[]{"a", "b", "c", "d", "e"}) {
+            cache.put(key(text), new float[]{1f, 0f});
+        }
+        cache.close();
+
+        EmbeddingDiskCache restarted = newCache();
+        restarted.load();
+        restarted.beginBuild();
+        // 分块已带有向量（预构建索引或上次构建），没有读取缓存
+        restarted.touch(key("a"));
+        restarted.compact();
+        restarted.close();
+
+        EmbeddingDiskCache reloaded = newCache();
+        reloaded.load();
+        assertNotNull(reloaded.get(key("a")), "touch 过的条目压缩后应保留");
+        assertNull(reloaded.get(key("b")), "本次构建没有用到的条目应被移除");
+    }
+
+    @Test
+    void testCompact_WhenAllEntriesTouched_ShouldKeepCache() {
+        EmbeddingDiskCache cache = newCache();
+        cache.load();
+        cache.put(key("a"), new float[]{1f, 0f});
+        cache.put(key("b"), new float[]{0f, 1f});
+        cache.close();
+
+        EmbeddingDiskCache restarted = newCache();
+        restarted.load();
+        restarted.beginBuild();
+        restarted.touch(key("a"));
+        restarted.touch(key("b"));
+        restarted.compact();
+        restarted.close();
+
+        EmbeddingDiskCache reloaded = newCache();
+        reloaded.load();
+        assertNotNull(reloaded.get(key("a")));
+        assertNotNull(reloaded.get(key("b")), "预构建分块对应的条目不应在压缩时被清空");
+    }
+
+    @Test
+    void testBeginBuild_ShouldForgetEntriesTouchedByPreviousBuild() {
+        EmbeddingDiskCache cache = newCache();
+        cache.load();
+        for (String text : new String[]{"a", "b", "c"}) {
+            cache.put(key(text), new float[]{1f, 0f});
+        }
+
+        cache.beginBuild();
+        cache.get(key("a"));
+        cache.compact();
+        cache.close();
+
+        EmbeddingDiskCache reloaded = newCache();
+        reloaded.load();
+        assertNotNull(reloaded.get(key("a")));
+        assertNull(reloaded.get(key("c")), "上一次构建写入的条目不应算作本次用到");
+    }
+
+    private EmbeddingDiskCache newCache() {
+        return new EmbeddingDiskCache(properties, new SimpleMeterRegistry());
+    }
+
+    private static ByteBuffer key(String text) {
+        return EmbeddingDiskCache.keyOf("test-model", text);
+    }
+}
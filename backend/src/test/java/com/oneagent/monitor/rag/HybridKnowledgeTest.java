@@ -0,0 +1,131 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.DocumentUtils;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.model.RetrieveConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HybridKnowledge 单元测试
+ */
+class HybridKnowledgeTest {
+
+    private static final String PRICING = "企业版每月999元，SLA 99.9%，支持专属客服";
+    private static final String ALERT = "监控告警支持邮件、飞书和钉钉通知";
+    private static final String REFUND = "退款将在3-5个工作日内原路返回";
+
+    private AgentScopeProperties.HybridConfig config;
+    private SimpleMeterRegistry meterRegistry;
+    private KeywordKnowledge keyword;
+
+    @BeforeEach
+    void setUp() {
+        config = new AgentScopeProperties.HybridConfig();
+        meterRegistry = new SimpleMeterRegistry();
+        keyword = new KeywordKnowledge(List.of(doc("pricing", PRICING), doc("alert", ALERT), doc("refund", REFUND)));
+    }
+
+    @Test
+    void testRetrieve_ConfidentKeywordHit_ShouldSkipVectorSearch() {
+        FixedVectorKnowledge vector = new FixedVectorKnowledge(List.of());
+
+        List<Document> result = hybrid(vector).retrieve("企业版 SLA", config(5, 0.0)).block();
+
+        assertEquals(0, vector.calls.get(), "关键词覆盖率达到阈值时不应调用向量检索");
+        assertEquals(1, result.size());
+        assertEquals(PRICING, DocumentUtils.textOf(result.get(0)));
+        assertEquals(1.0, result.get(0).getScore(), 1e-9, "关键词结果的得分为覆盖率");
+        assertEquals(1.0, meterRegistry.counter("rag.retrieve", "path", "keyword").count());
+    }
+
+    @Test
+    void testRetrieve_LowKeywordConfidence_ShouldFuseBothChannels() {
+        FixedVectorKnowledge vector = new FixedVectorKnowledge(List.of(
+                scored(doc("refund", REFUND), 0.9),
+                scored(doc("alert", ALERT), 0.7)));
+
+        List<Document> result = hybrid(vector).retrieve("企业版退款多久到账", config(5, 0.0)).block();
+
+        assertEquals(1, vector.calls.get());
+        assertEquals(3, result.size(), "两路结果应合并去重");
+        assertEquals(REFUND, DocumentUtils.textOf(result.get(0)), "两路都命中的分块 RRF 得分最高");
+        assertEquals(0.9, result.get(0).getScore(), 1e-9, "融合结果的得分取两路中的较高值");
+        assertEquals(1.0, meterRegistry.counter("rag.retrieve", "path", "hybrid").count());
+    }
+
+    @Test
+    void testRetrieve_Fused_ShouldApplyLimitAndThreshold() {
+        FixedVectorKnowledge vector = new FixedVectorKnowledge(List.of(
+                scored(doc("refund", REFUND), 0.9),
+                scored(doc("alert", ALERT), 0.3)));
+
+        List<Document> result = hybrid(vector).retrieve("企业版退款多久到账", config(5, 0.4)).block();
+
+        assertTrue(result.stream().noneMatch(d -> ALERT.equals(DocumentUtils.textOf(d))), "得分低于阈值的分块应丢弃");
+        assertEquals(1, hybrid(vector).retrieve("企业版退款多久到账", config(1, 0.0)).block().size());
+    }
+
+    @Test
+    void testAddDocuments_ShouldBeRejected() {
+        HybridKnowledge hybrid = hybrid(new FixedVectorKnowledge(List.of()));
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> hybrid.addDocuments(List.of(doc("new", "新文档"))).block());
+    }
+
+    private HybridKnowledge hybrid(Knowledge vector) {
+        return new HybridKnowledge(keyword, vector, config, meterRegistry);
+    }
+
+    private static RetrieveConfig config(int limit, double threshold) {
+        return RetrieveConfig.builder().limit(limit).scoreThreshold(threshold).build();
+    }
+
+    private static Document doc(String docId, String text) {
+        return new Document(new DocumentMetadata(TextBlock.builder().text(text).build(), docId, "0"));
+    }
+
+    private static Document scored(Document document, double score) {
+        document.setScore(score);
+        return document;
+    }
+
+    /**
+     * 返回固定结果的向量检索，记录调用次数
+     */
+    private static final class FixedVectorKnowledge implements Knowledge {
+
+        private final List<Document> hits;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        FixedVectorKnowledge(List<Document> hits) {
+            this.hits = hits;
+        }
+
+        @Override
+        public Mono<Void> addDocuments(List<Document> documents) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<List<Document>> retrieve(String query, RetrieveConfig config) {
+            calls.incrementAndGet();
+            return Mono.just(hits.stream()
+                    .filter(d -> d.getScore() >= config.getScoreThreshold())
+                    .limit(config.getLimit())
+                    .toList());
+        }
+    }
+}
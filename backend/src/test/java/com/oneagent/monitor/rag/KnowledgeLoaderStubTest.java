@@ -0,0 +1,136 @@
+package com.oneagent.monitor.rag;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oneagent.monitor.MonitorAgentApplication;
+import com.oneagent.monitor.stub.StubLlmServer;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.model.RetrieveConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KnowledgeLoader 离线集成测试
+ * Embedding 由 StubLlmServer 按固定延迟响应，验证 WARMING → READY → DEGRADED → READY 的状态变化、
+ * knowledge 健康检查分组，以及通过 Knowledge.addDocuments 写入的文档进入两路索引
+ */
+@SpringBootTest(classes = MonitorAgentApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "stub"})
+class KnowledgeLoaderStubTest {
+
+    private static final Duration EMBEDDING_LATENCY = Duration.ofSeconds(5);
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+    private static final String ADDED_TEXT = "青鸾星图编号 QX7731 的接入流程需要先申请白名单。";
+
+    private static final StubLlmServer STUB = startStub();
+
+    @Autowired
+    private KnowledgeLoader knowledgeLoader;
+
+    @Autowired
+    private SwappableKnowledge knowledge;
+
+    @Value("${local.server.port}")
+    private int port;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @DynamicPropertySource
+    static void stubProperties(DynamicPropertyRegistry registry) {
+        registry.add("agentscope.llm.base-url", STUB::baseUrl);
+        registry.add("agentscope.embedding.base-url", STUB::baseUrl);
+        // 不复用磁盘上的向量和索引，启动时一定要经过 Embedding 调用
+        registry.add("agentscope.embedding.cache.enabled", () -> "false");
+        registry.add("agentscope.rag.index.persist", () -> "false");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Test
+    void testLoader_ShouldMoveThroughWarmingReadyAndDegraded() throws Exception {
+        // 向量索引构建中：关键词检索可用，健康检查分组返回 503
+        assertEquals(KnowledgeLoader.State.WARMING, knowledgeLoader.getState(), "启动时向量索引应处于构建中");
+        assertHealth(503, "WARMING");
+
+        awaitState(KnowledgeLoader.State.READY);
+        assertNotNull(knowledgeLoader.getWarmupTime(), "就绪后应记录预热耗时");
+        assertTrue(knowledgeLoader.getChunkCount() > 0);
+        assertHealth(200, "UP");
+
+        // 新文档向量化失败：已有分块照常检索，状态报告为 DEGRADED
+        Document added = new Document(new DocumentMetadata(TextBlock.builder().text(ADDED_TEXT).build(), "qx7731", "0"));
+        STUB.injectErrors(1.0, 500);
+        try {
+            knowledge.addDocuments(List.of(added)).block(TIMEOUT);
+        } finally {
+            STUB.injectErrors(0, 500);
+        }
+        assertEquals(KnowledgeLoader.State.DEGRADED, knowledgeLoader.getState(), "部分分块缺少向量时应降级");
+        assertTrue(knowledgeLoader.getLastStats().failed() > 0);
+        assertHealth(200, "DEGRADED");
+
+        // 服务商恢复后再次写入，补齐缺失的向量
+        knowledge.addDocuments(List.of(added)).block(TIMEOUT);
+        assertEquals(KnowledgeLoader.State.READY, knowledgeLoader.getState(), "向量补齐后应恢复就绪");
+        assertTrue(knowledgeLoader.getLastStats().complete());
+        assertHealth(200, "UP");
+
+        List<Document> results = knowledge.retrieve(ADDED_TEXT, RetrieveConfig.builder()
+                .limit(3)
+                .scoreThreshold(0.3)
+                .build()).block(TIMEOUT);
+        assertNotNull(results);
+        assertTrue(results.stream().anyMatch(result -> "qx7731".equals(result.getMetadata().getDocId())),
+                "写入的文档应能被检索到");
+    }
+
+    private void awaitState(KnowledgeLoader.State expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (knowledgeLoader.getState() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(expected, knowledgeLoader.getState(), "应在 " + TIMEOUT.toSeconds() + "s 内进入 " + expected);
+    }
+
+    private void assertHealth(int expectedCode, String expectedStatus) throws Exception {
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/actuator/health/knowledge")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        JsonNode body = objectMapper.readTree(response.body());
+        assertEquals(expectedCode, response.statusCode(), "knowledge 健康检查分组的 HTTP 状态码: " + response.body());
+        assertEquals(expectedStatus, body.path("status").asText());
+    }
+
+    private static StubLlmServer startStub() {
+        try {
+            return StubLlmServer.builder()
+                    .embeddingLatency(EMBEDDING_LATENCY)
+                    .start(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.DocumentUtils;
+import com.oneagent.monitor.util.TokenEstimator;
+import io.agentscope.core.rag.model.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MarkdownChunker 单元测试
+ */
+class MarkdownChunkerTest {
+
+    private static final String GUIDE = """
+            # 胜算云平台知识库
+
+            ## 计费模式
+
+            ### 按量付费
+            按实际调用的 token 数计费。
+
+            ### 包月订阅
+            基础版99元/月，专业版299元/月。
+
+            ## 平台功能
+
+            ### 监控告警
+            实时监控 API 调用状态。
+            """;
+
+    private AgentScopeProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AgentScopeProperties();
+    }
+
+    @Test
+    void testSplit_ShouldGroupBySecondLevelHeadingWithBreadcrumb() {
+        List<Document> chunks = chunker().split("guide.md", GUIDE);
+
+        assertEquals(2, chunks.size(), "同一二级标题下的小节应合并为一个分块");
+        String pricing = DocumentUtils.textOf(chunks.get(0));
+        assertTrue(pricing.startsWith("[胜算云平台知识库 > 计费模式]\n"), "分块第一行应为标题路径: " + pricing);
+        assertTrue(pricing.contains("### 按量付费\n按实际调用的 token 数计费。"), "三级标题应与其后的内容放在一起");
+        assertTrue(pricing.contains("### 包月订阅"));
+        assertTrue(DocumentUtils.textOf(chunks.get(1)).startsWith("[胜算云平台知识库 > 平台功能]\n"));
+        assertEquals("guide.md", chunks.get(1).getMetadata().getDocId());
+        assertEquals("1", chunks.get(1).getMetadata().getChunkId());
+    }
+
+    @Test
+    void testSplit_LargeTable_ShouldSplitByRowAndRepeatHeader() {
+        properties.getRag().getChunk().setMaxTokens(60);
+        StringBuilder markdown = new StringBuilder("## 价格表\n\n| 版本 | 价格 |\n|------|------|\n");
+        for (int i = 1; i <= 20; i++) {
+            markdown.append("| 版本").append(i).append(" | ").append(i * 100).append("元/月 |\n");
+        }
+
+        List<Document> chunks = chunker().split("price.md", markdown.toString());
+
+        assertTrue(chunks.size() > 1, "超出预算的表格应拆分");
+        for (Document chunk : chunks) {
+            String text = DocumentUtils.textOf(chunk);
+            assertTrue(text.startsWith("[价格表]\n| 版本 | 价格 |\n|------|------|\n"), "每个分块都应带上表头: " + text);
+            assertTrue(TokenEstimator.estimate(text) <= 60, "分块不应超出 token 预算: " + text);
+        }
+        for (int i = 1; i <= 20; i++) {
+            String row = "| 版本" + i + " | " + i * 100 + "元/月 |";
+            long count = chunks.stream().filter(c -> DocumentUtils.textOf(c).contains(row + "\n")
+                    || DocumentUtils.textOf(c).endsWith(row)).count();
+            assertEquals(1, count, "每一行应完整出现在且只出现在一个分块中: " + row);
+        }
+    }
+
+    @Test
+    void testSplit_LargeList_ShouldSplitByItemWithContinuationLines() {
+        properties.getRag().getChunk().setMaxTokens(40);
+        StringBuilder markdown = new StringBuilder("## 常见问题\n\n");
+        for (int i = 1; i <= 10; i++) {
+            markdown.append("- 问题").append(i).append("：如何配置告警\n")
+                    .append("  答案").append(i).append("：在控制台设置\n");
+        }
+
+        List<Document> chunks = chunker().split("faq.md", markdown.toString());
+
+        assertTrue(chunks.size() > 1, "超出预算的列表应拆分");
+        for (int i = 1; i <= 10; i++) {
+            String item = "- 问题" + i + "：如何配置告警\n  答案" + i + "：在控制台设置";
+            assertEquals(1, chunks.stream().filter(c -> DocumentUtils.textOf(c).contains(item)).count(),
+                    "列表条目应与其缩进的续行留在同一分块: " + item);
+        }
+        chunks.forEach(c -> assertTrue(DocumentUtils.textOf(c).startsWith("[常见问题]\n")));
+    }
+
+    @Test
+    void testSplit_CodeBlock_ShouldNotTreatCommentAsHeading() {
+        String markdown = """
+                ## 接入示例
+
+                ```bash
+                # 设置 API Key
+                export API_KEY=xxx
+
+                curl https://api.example.com
+                ```
+                """;
+
+        List<Document> chunks = chunker().split("code.md", markdown);
+
+        assertEquals(1, chunks.size());
+        String text = DocumentUtils.textOf(chunks.get(0));
+        assertTrue(text.startsWith("[接入示例]\n```bash\n# 设置 API Key\nexport API_KEY=xxx\n\ncurl"),
+                "代码块应整体保留，其中的注释不应作为标题: " + text);
+    }
+
+    @Test
+    void testSplit_LongParagraph_ShouldSplitAtSentenceEndWithoutLosingText() {
+        properties.getRag().getChunk().setMaxTokens(40);
+        String paragraph = "退款将在三到五个工作日内原路返回。".repeat(8);
+
+        List<Document> chunks = chunker().split("refund.md", "## 退款政策\n\n" + paragraph);
+
+        assertTrue(chunks.size() > 1);
+        StringBuilder joined = new StringBuilder();
+        for (Document chunk : chunks) {
+            String body = DocumentUtils.textOf(chunk).substring("[退款政策]\n".length());
+            assertTrue(body.endsWith("。"), "超长段落应在句末拆分: " + body);
+            joined.append(body.replace("\n", ""));
+        }
+        assertEquals(paragraph, joined.toString(), "拆分不应丢失内容");
+    }
+
+    @Test
+    void testSplit_EmptyDocument_ShouldReturnNoChunks() {
+        assertTrue(chunker().split("empty.md", "").isEmpty());
+        assertTrue(chunker().split("empty.md", null).isEmpty());
+        assertTrue(chunker().split("empty.md", "## 只有标题\n").isEmpty());
+    }
+
+    private MarkdownChunker chunker() {
+        return new MarkdownChunker(properties);
+    }
+}
@@ -0,0 +1,155 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.util.QueryNormalizer;
+import io.agentscope.core.hook.PreReasoningEvent;
+import io.agentscope.core.message.Msg;
+import io.agentscope.core.message.MsgRole;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.Knowledge;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.model.RetrieveConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PrefetchingKnowledge 单元测试
+ */
+class PrefetchingKnowledgeTest {
+
+    private static final String QUESTION = "企业版的SLA是多少？";
+    private static final String PRICING = "企业版每月999元，SLA 99.9%，支持专属客服";
+
+    private SimpleMeterRegistry meterRegistry;
+    private KnowledgePrefetcher prefetcher;
+    private RetrieveConfig retrieveConfig;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        prefetcher = new KnowledgePrefetcher(new AgentScopeProperties(), meterRegistry);
+        retrieveConfig = RetrieveConfig.builder()
+                .limit(3)
+                .scoreThreshold(0.3)
+                .build();
+    }
+
+    @Test
+    void testHook_PrefetchCompletedBeforeReasoning_ShouldInjectContext() {
+        CountingKnowledge delegate = new CountingKnowledge(() -> Mono.just(List.of(scored(0.9))));
+        PrefetchingKnowledge knowledge = prefetcher.wrap(delegate, retrieveConfig);
+
+        knowledge.prefetch(QUESTION);
+        PreReasoningEvent event = firstReasoning();
+        knowledge.hook().onEvent(event).block();
+
+        assertEquals(3, event.getInputMessages().size(), "已完成且得分足够高的预取结果应注入上下文");
+        assertTrue(event.getInputMessages().get(2).getTextContent().contains(PRICING));
+        assertEquals(1.0, meterRegistry.counter("rag.prefetch", "result", "injected").count());
+
+        List<Document> reused = knowledge.retrieve("企业版 SLA", retrieveConfig).block();
+        assertEquals(1, reused.size());
+        assertEquals(1, delegate.calls.get(), "工具调用应复用预取结果，不再检索");
+    }
+
+    @Test
+    void testHook_PrefetchStillRunning_ShouldNotWaitForIt() {
+        Sinks.One<List<Document>> pending = Sinks.one();
+        CountingKnowledge delegate = new CountingKnowledge(pending::asMono);
+        PrefetchingKnowledge knowledge = prefetcher.wrap(delegate, retrieveConfig);
+
+        knowledge.prefetch(QUESTION);
+        PreReasoningEvent event = firstReasoning();
+        long start = System.nanoTime();
+        knowledge.hook().onEvent(event).block(Duration.ofSeconds(1));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertTrue(elapsedMillis < 100, "模型调用不应等待未完成的预取，实际等待 " + elapsedMillis + "ms");
+        assertEquals(2, event.getInputMessages().size(), "未完成的预取结果不应注入");
+
+        // 预取在模型调用期间完成，随后的工具调用直接复用
+        pending.tryEmitValue(List.of(scored(0.9)));
+        List<Document> reused = knowledge.retrieve(QUESTION, retrieveConfig).block(Duration.ofSeconds(1));
+        assertEquals(1, reused.size());
+        assertEquals(1, delegate.calls.get(), "工具调用应复用预取结果，不再检索");
+    }
+
+    @Test
+    void testHook_WithoutEntryPrefetch_ShouldStartPrefetchForToolReuse() {
+        CountingKnowledge delegate = new CountingKnowledge(() -> Mono.just(List.of(scored(0.9))));
+        PrefetchingKnowledge knowledge = prefetcher.wrap(delegate, retrieveConfig);
+
+        PreReasoningEvent event = firstReasoning();
+        knowledge.hook().onEvent(event).block();
+
+        assertEquals(1, delegate.calls.get(), "入口没有预取时应在第一次推理开始时发起");
+        assertEquals(2, event.getInputMessages().size(), "推理开始时才发起的预取不注入");
+        knowledge.retrieve(QUESTION, retrieveConfig).block();
+        assertEquals(1, delegate.calls.get(), "工具调用应复用预取结果");
+    }
+
+    @Test
+    void testHook_LowScorePrefetch_ShouldOnlyBeReused() {
+        CountingKnowledge delegate = new CountingKnowledge(() -> Mono.just(List.of(scored(0.5))));
+        PrefetchingKnowledge knowledge = prefetcher.wrap(delegate, retrieveConfig);
+
+        knowledge.prefetch(QUESTION);
+        PreReasoningEvent event = firstReasoning();
+        knowledge.hook().onEvent(event).block();
+
+        assertEquals(2, event.getInputMessages().size(), "得分低于注入阈值时不应注入");
+        knowledge.retrieve(QUESTION, retrieveConfig).block();
+        assertEquals(1, delegate.calls.get());
+    }
+
+    private static PreReasoningEvent firstReasoning() {
+        List<Msg> input = new ArrayList<>();
+        input.add(Msg.builder().name("system").role(MsgRole.SYSTEM).textContent("你是客服助手").build());
+        input.add(Msg.builder().name("user").role(MsgRole.USER)
+                .textContent(QueryNormalizer.QUESTION_PREFIX + QUESTION + "\n\n[系统状态提醒: 当前API状态异常 - 500]")
+                .build());
+        return new PreReasoningEvent(input);
+    }
+
+    private static Document scored(double score) {
+        Document document = new Document(new DocumentMetadata(TextBlock.builder().text(PRICING).build(), "pricing", "0"));
+        document.setScore(score);
+        return document;
+    }
+
+    /**
+     * 记录检索次数的知识库
+     */
+    private static final class CountingKnowledge implements Knowledge {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Supplier<Mono<List<Document>>> results;
+
+        CountingKnowledge(Supplier<Mono<List<Document>>> results) {
+            this.results = results;
+        }
+
+        @Override
+        public Mono<Void> addDocuments(List<Document> documents) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<List<Document>> retrieve(String query, RetrieveConfig config) {
+            calls.incrementAndGet();
+            return results.get();
+        }
+    }
+}
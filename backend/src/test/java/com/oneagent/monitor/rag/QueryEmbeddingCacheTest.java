@@ -0,0 +1,153 @@
+package com.oneagent.monitor.rag;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import io.agentscope.core.embedding.EmbeddingModel;
+import io.agentscope.core.message.ContentBlock;
+import io.agentscope.core.message.TextBlock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QueryEmbeddingCache 单元测试
+ */
+class QueryEmbeddingCacheTest {
+
+    private static final String MODEL = "stub-embedding";
+
+    private AgentScopeProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private CountingEmbeddingModel delegate;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AgentScopeProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        delegate = new CountingEmbeddingModel();
+    }
+
+    @Test
+    void testEmbed_NormalizedSameQuery_ShouldHitCache() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(properties, meterRegistry);
+        EmbeddingModel model = cache.wrap(delegate);
+
+        double[] first = embed(model, "企业版怎么收费？");
+        double[] second = embed(model, "  企业版怎么收费  ");
+        double[] third = embed(model, "ＳＬＡ是多少");
+        double[] fourth = embed(model, "sla是多少");
+
+        assertEquals(2, delegate.calls.get(), "只差空白、结尾标点、全角或大小写的问题应复用向量");
+        assertArrayEquals(first, second, 1e-6);
+        assertArrayEquals(third, fourth, 1e-6);
+        assertEquals(2.0, counter("hit"));
+        assertEquals(2.0, counter("miss"));
+        assertEquals(0.5, hitRatio(), 1e-9);
+    }
+
+    @Test
+    void testEmbed_OverMaxSize_ShouldEvictLeastRecentlyUsed() {
+        properties.getEmbedding().getQueryCache().setMaxSize(2);
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(properties, meterRegistry);
+        EmbeddingModel model = cache.wrap(delegate);
+
+        embed(model, "问题一");
+        embed(model, "问题二");
+        // 访问问题一，问题二成为最久未使用
+        embed(model, "问题一");
+        embed(model, "问题三");
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.peek(MODEL, "问题一"));
+        assertNull(cache.peek(MODEL, "问题二"), "超过容量时应淘汰最久未使用的查询");
+        assertNotNull(cache.peek(MODEL, "问题三"));
+
+        embed(model, "问题二");
+        assertEquals(4, delegate.calls.get(), "被淘汰的查询应重新向量化");
+    }
+
+    @Test
+    void testEmbed_AfterTtl_ShouldEmbedAgain() throws InterruptedException {
+        properties.getEmbedding().getQueryCache().setTtl(Duration.ofMillis(50));
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(properties, meterRegistry);
+        EmbeddingModel model = cache.wrap(delegate);
+
+        embed(model, "企业版怎么收费");
+        Thread.sleep(100);
+
+        assertNull(cache.peek(MODEL, "企业版怎么收费"), "超过 TTL 的向量不应再返回");
+        assertEquals(0, cache.size(), "过期条目应在读取时移除");
+        embed(model, "企业版怎么收费");
+        assertEquals(2, delegate.calls.get(), "过期后应重新向量化");
+        assertEquals(0.0, counter("hit"));
+    }
+
+    @Test
+    void testPeek_ShouldNotChangeHitRatio() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(properties, meterRegistry);
+        EmbeddingModel model = cache.wrap(delegate);
+        embed(model, "企业版怎么收费");
+        embed(model, "企业版怎么收费");
+        double ratio = hitRatio();
+
+        assertNotNull(cache.peek(MODEL, "企业版怎么收费？"), "peek 应按归一化后的问题查找");
+        assertNull(cache.peek(MODEL, "退款多久到账"));
+        assertNull(cache.peek("other-model", "企业版怎么收费"), "不同模型的向量不能复用");
+
+        assertEquals(ratio, hitRatio(), 1e-9, "peek 不应计入命中率");
+        assertEquals(1.0, counter("hit"));
+        assertEquals(1.0, counter("miss"));
+        assertEquals(1, delegate.calls.get(), "peek 不应触发向量化");
+    }
+
+    @Test
+    void testWrap_Disabled_ShouldReturnDelegate() {
+        properties.getEmbedding().getQueryCache().setEnabled(false);
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(properties, meterRegistry);
+
+        assertSame(delegate, cache.wrap(delegate));
+        assertNull(cache.peek(MODEL, "企业版怎么收费"));
+    }
+
+    private static double[] embed(EmbeddingModel model, String text) {
+        return model.embed(TextBlock.builder().text(text).build()).block();
+    }
+
+    private double counter(String result) {
+        return meterRegistry.find("rag.query.embedding.cache").tag("result", result).counter().count();
+    }
+
+    private double hitRatio() {
+        return meterRegistry.find("rag.query.embedding.cache.hit.ratio").gauge().value();
+    }
+
+    /**
+     * 按文本生成向量并记录调用次数的 Embedding 模型
+     */
+    private static final class CountingEmbeddingModel implements EmbeddingModel {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Mono<double[]> embed(ContentBlock block) {
+            calls.incrementAndGet();
+            String text = ((TextBlock) block).getText();
+            return Mono.just(new double[]{text.length(), text.hashCode() % 97, calls.get()});
+        }
+
+        @Override
+        public String getModelName() {
+            return MODEL;
+        }
+
+        @Override
+        public int getDimensions() {
+            return 3;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.oneagent.monitor.rag.artifact;
+
+import com.oneagent.monitor.config.AgentScopeProperties;
+import com.oneagent.monitor.rag.store.HnswVectorStore;
+import com.oneagent.monitor.rag.store.VectorIndexFactory;
+import com.oneagent.monitor.rag.store.VectorIndexType;
+import com.oneagent.monitor.util.DocumentUtils;
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import io.agentscope.core.rag.store.VDBStoreBase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KnowledgeIndexArtifact 单元测试
+ */
+class KnowledgeIndexArtifactTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWriteAndRead_ShouldRoundTripChunksAndVectors() throws IOException {
+        Path path = tempDir.resolve("knowledge-index.bin");
+        KnowledgeIndexArtifact.write(path, "text-embedding-v4", 3, "markdown-v1/512", List.of(
+                new KnowledgeIndexArtifact.Source("hash-a", List.of(
+                        chunk("file:a.md", "0", "[A > 计费]\n按量付费", 0.1, 0.2, 0.3),
+                        chunk("file:a.md", "1", "[A > 退款]\n7天内退款", 0.4, 0.5, 0.6))),
+                new KnowledgeIndexArtifact.Source("hash-b", List.of(
+                        chunk("file:b.md", "0", "监控告警", 1, 0, 0)))));
+
+        KnowledgeIndexArtifact.Contents contents = KnowledgeIndexArtifact.read(ByteBuffer.wrap(Files.readAllBytes(path)));
+
+        assertEquals("text-embedding-v4", contents.modelName());
+        assertEquals(3, contents.dimensions());
+        assertEquals("markdown-v1/512", contents.chunking());
+        assertEquals(List.of("hash-a", "hash-b"), List.copyOf(contents.chunksByHash().keySet()));
+        Document refund = contents.chunksByHash().get("hash-a").get(1);
+        assertEquals("file:a.md", refund.getMetadata().getDocId());
+        assertEquals("1", refund.getMetadata().getChunkId());
+        assertEquals("[A > 退款]\n7天内退款", DocumentUtils.textOf(refund));
+        assertArrayEquals(new double[]{0.4, 0.5, 0.6}, refund.getEmbedding(), 1e-6);
+        assertArrayEquals(new double[]{1, 0, 0}, contents.chunksByHash().get("hash-b").get(0).getEmbedding(), 1e-6);
+        assertNull(contents.hnswGraph(), "没有写入图结构时不应返回图");
+    }
+
+    @Test
+    void testWriteAndRead_WithHnswGraph_ShouldRestoreIndexDirectly() throws IOException {
+        List<Document> chunks = List.of(
+                chunk("file:a.md", "0", "[A > 计费]\n按量付费", 1, 0, 0),
+                chunk("file:a.md", "1", "[A > 退款]\n7天内退款", 0, 1, 0),
+                chunk("file:b.md", "0", "监控告警", 0, 0, 1));
+        HnswVectorStore built = new HnswVectorStore(3, 2, 10, 10);
+        built.add(chunks).block();
+        ByteArrayOutputStream graph = new ByteArrayOutputStream();
+        built.writeTo(new DataOutputStream(graph), "text-embedding-v4");
+        Path path = tempDir.resolve("knowledge-index.bin");
+        KnowledgeIndexArtifact.write(path, "text-embedding-v4", 3, "markdown-v1/512", List.of(
+                new KnowledgeIndexArtifact.Source("hash-a", chunks.subList(0, 2)),
+                new KnowledgeIndexArtifact.Source("hash-b", chunks.subList(2, 3))), graph.toByteArray());
+
+        KnowledgeIndexArtifact.Contents contents = KnowledgeIndexArtifact.read(ByteBuffer.wrap(Files.readAllBytes(path)));
+        List<Document> loaded = contents.chunksByHash().values().stream().flatMap(List::stream).toList();
+        AgentScopeProperties properties = new AgentScopeProperties();
+        properties.getEmbedding().setModelName("text-embedding-v4");
+        AgentScopeProperties.IndexConfig index = properties.getRag().getIndex();
+        index.setType(VectorIndexType.HNSW);
+        index.setPersist(false);
+        index.setDimensions(3);
+        index.getHnsw().setM(2);
+        VDBStoreBase restored = new VectorIndexFactory(properties).restore(loaded, contents.hnswGraph()).orElseThrow();
+
+        List<Document> results = restored.search(new double[]{0, 0.9, 0.1}, 1, null).block();
+        assertEquals("[A > 退款]\n7天内退款", DocumentUtils.textOf(results.get(0)), "内嵌图结构应直接恢复为可检索的索引");
+        index.getHnsw().setM(4);
+        assertTrue(new VectorIndexFactory(properties).restore(loaded, contents.hnswGraph()).isEmpty(),
+                "HNSW 参数不一致时不应使用内嵌图结构");
+    }
+
+    @Test
+    void testRead_CorruptedOrTruncatedFile_ShouldThrow() throws IOException {
+        Path path = tempDir.resolve("knowledge-index.bin");
+        KnowledgeIndexArtifact.write(path, "m", 2, "c", List.of(
+                new KnowledgeIndexArtifact.Source("h", List.of(chunk("file:a.md", "0", "text", 1, 0)))));
+        byte[] bytes = Files.readAllBytes(path);
+
+        byte[] corrupted = bytes.clone();
+        corrupted[bytes.length / 2] ^= 0x01;
+        IOException checksum = assertThrows(IOException.class,
+                () -> KnowledgeIndexArtifact.read(ByteBuffer.wrap(corrupted)));
+        assertTrue(checksum.getMessage().contains("checksum"), "内容被修改时应校验失败");
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 5);
+        assertThrows(IOException.class, () -> KnowledgeIndexArtifact.read(ByteBuffer.wrap(truncated)),
+                "文件不完整时应拒绝使用");
+    }
+
+    @Test
+    void testWrite_ChunkWithoutEmbedding_ShouldFail() {
+        Document chunk = new Document(new DocumentMetadata(TextBlock.builder().text("text").build(), "file:a.md", "0"));
+
+        assertThrows(IOException.class, () -> KnowledgeIndexArtifact.write(tempDir.resolve("index.bin"), "m", 2, "c",
+                List.of(new KnowledgeIndexArtifact.Source("h", List.of(chunk)))));
+    }
+
+    @Test
+    void testReadContent_ShouldHashSameAsLineByLineReading() throws IOException {
+        for (String raw : List.of("# 标题\r\n正文\r\n", "# 标题\n正文", "a\rb\n\n", "")) {
+            String content = KnowledgeIndexArtifact.readContent(
+                    new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8)));
+
+            assertEquals(readLines(raw), content, "换行统一后应与逐行读取的结果一致");
+            assertEquals(KnowledgeIndexArtifact.contentHash(readLines(raw)), KnowledgeIndexArtifact.contentHash(content));
+        }
+    }
+
+    private static String readLines(String raw) throws IOException {
+        StringBuilder content = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new StringReader(raw))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                content.append(line).append("\n");
+            }
+        }
+        return content.toString();
+    }
+
+    private static Document chunk(String docId, String chunkId, String text, double... embedding) {
+        Document document = new Document(new DocumentMetadata(TextBlock.builder().text(text).build(), docId, chunkId));
+        document.setEmbedding(embedding);
+        return document;
+    }
+}
@@ -0,0 +1,205 @@
+package com.oneagent.monitor.rag.store;
+
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HnswVectorStore 单元测试
+ */
+class HnswVectorStoreTest {
+
+    private static final int DIMENSIONS = 32;
+    private static final int COUNT = 2000;
+    private static final int QUERIES = 50;
+    private static final int K = 10;
+
+    private List<Document> documents;
+    private List<double[]> queries;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        documents = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            Document document = new Document(new DocumentMetadata(
+                    TextBlock.builder().text("chunk-" + i).build(), "doc-" + i, "0"));
+            document.setEmbedding(randomVector(random));
+            documents.add(document);
+        }
+        queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(randomVector(random));
+        }
+    }
+
+    @Test
+    void testSearch_ShouldMatchBruteForceRecall() {
+        HnswVectorStore store = newStore();
+        store.add(documents).block();
+
+        assertEquals(COUNT, store.size());
+        assertTrue(recall(store) >= 0.9, "top-" + K + " 召回率应不低于 0.9");
+    }
+
+    @Test
+    void testSearch_AfterConcurrentInserts_ShouldKeepRecall() throws Exception {
+        HnswVectorStore store = newStore();
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int from = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = from; i < COUNT; i += threads) {
+                        store.add(List.of(documents.get(i))).block();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(COUNT, store.size());
+        assertTrue(recall(store) >= 0.9, "并发插入后 top-" + K + " 召回率应不低于 0.9");
+    }
+
+    @Test
+    void testCopy_DeleteAndAddOnCopy_ShouldNotAffectOriginal() {
+        HnswVectorStore store = newStore();
+        List<Document> initial = documents.subList(0, COUNT - 200);
+        store.add(initial).block();
+        List<List<String>> before = queries.stream().map(query -> ids(store.search(query, K, null).block())).toList();
+
+        HnswVectorStore copy = store.copy();
+        List<Document> removed = documents.subList(0, 100);
+        for (Document document : removed) {
+            copy.delete(document.getId()).block();
+        }
+        copy.add(documents.subList(COUNT - 200, COUNT)).block();
+
+        assertEquals(COUNT - 200, store.size());
+        for (int i = 0; i < QUERIES; i++) {
+            assertEquals(before.get(i), ids(store.search(queries.get(i), K, null).block()),
+                    "副本上的修改不应影响原索引的检索结果");
+        }
+        assertEquals(COUNT - 100, copy.size());
+        assertEquals(100, copy.deletedCount());
+        List<Document> remaining = documents.subList(100, COUNT);
+        assertTrue(recall(copy, remaining) >= 0.9, "增量更新后 top-" + K + " 召回率应不低于 0.9");
+        Set<String> removedIds = new HashSet<>(ids(removed));
+        for (double[] query : queries) {
+            assertTrue(ids(copy.search(query, K, null).block()).stream().noneMatch(removedIds::contains),
+                    "已删除的分块不应出现在结果中");
+        }
+    }
+
+    @Test
+    void testSaveAndLoad_ShouldReturnSameResults() throws Exception {
+        HnswVectorStore store = newStore();
+        store.add(documents).block();
+        Path path = tempDir.resolve("index.hnsw");
+
+        store.save(path, "test-model");
+        HnswVectorStore loaded = HnswVectorStore.load(path, "test-model", documents, DIMENSIONS, 16, 100, 64)
+                .orElseThrow();
+
+        assertEquals(COUNT, loaded.size());
+        for (double[] query : queries) {
+            assertEquals(ids(store.search(query, K, null).block()), ids(loaded.search(query, K, null).block()),
+                    "恢复后的索引应返回相同的结果");
+        }
+    }
+
+    @Test
+    void testLoad_WithDifferentChunksOrModel_ShouldRebuild() throws Exception {
+        HnswVectorStore store = newStore();
+        store.add(documents).block();
+        Path path = tempDir.resolve("index.hnsw");
+        store.save(path, "test-model");
+
+        assertTrue(HnswVectorStore.load(path, "other-model", documents, DIMENSIONS, 16, 100, 64).isEmpty(),
+                "模型不同时不应复用索引");
+        assertTrue(HnswVectorStore.load(path, "test-model", documents.subList(1, COUNT), DIMENSIONS, 16, 100, 64)
+                .isEmpty(), "分块不一致时不应复用索引");
+    }
+
+    private HnswVectorStore newStore() {
+        return new HnswVectorStore(DIMENSIONS, 16, 100, 64);
+    }
+
+    /**
+     * 与暴力检索的 top-K 结果比较，计算平均召回率
+     */
+    private double recall(HnswVectorStore store) {
+        return recall(store, documents);
+    }
+
+    private double recall(HnswVectorStore store, List<Document> corpus) {
+        int hits = 0;
+        for (double[] query : queries) {
+            Set<String> expected = new HashSet<>(bruteForce(query, corpus));
+            for (String id : ids(store.search(query, K, null).block())) {
+                if (expected.contains(id)) {
+                    hits++;
+                }
+            }
+        }
+        return (double) hits / (QUERIES * K);
+    }
+
+    private List<String> bruteForce(double[] query, List<Document> corpus) {
+        return corpus.stream()
+                .sorted(Comparator.comparingDouble((Document d) -> cosine(query, d.getEmbedding())).reversed())
+                .limit(K)
+                .map(Document::getId)
+                .toList();
+    }
+
+    private static List<String> ids(List<Document> results) {
+        return results.stream().map(Document::getId).toList();
+    }
+
+    private static double cosine(double[] a, double[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static double[] randomVector(Random random) {
+        double[] vector = new double[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = random.nextGaussian();
+        }
+        return vector;
+    }
+}
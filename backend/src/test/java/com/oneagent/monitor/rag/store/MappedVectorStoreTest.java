@@ -0,0 +1,125 @@
+package com.oneagent.monitor.rag.store;
+
+import io.agentscope.core.message.TextBlock;
+import io.agentscope.core.rag.model.Document;
+import io.agentscope.core.rag.model.DocumentMetadata;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MappedVectorStore 单元测试
+ */
+class MappedVectorStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MappedVectorStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new MappedVectorStore(3, tempDir, true, 4, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void testSearch_ShouldRankByCosineAcrossSegments() {
+        store.add(List.of(
+                doc("a", 1, 0, 0),
+                doc("b", 0, 1, 0),
+                doc("c", 0.9, 0.1, 0),
+                doc("d", 0, 0, 1))).block();
+
+        List<Document> results = store.search(new double[]{1, 0, 0}, 2, null).block();
+
+        assertEquals(List.of("a#0", "c#0"), results.stream().map(Document::getId).toList());
+        assertEquals(1.0, results.get(0).getScore(), 1e-3);
+    }
+
+    @Test
+    void testAddFrom_UnchangedChunks_ShouldCopyVectorsWithoutEmbeddings() throws Exception {
+        Document a = doc("a", 3, 0, 4);
+        Document b = doc("b", 0, 2, 0);
+        store.add(List.of(a, b)).block();
+        a.setEmbedding(null);
+        b.setEmbedding(null);
+        Document added = doc("c", 0, 0, 1);
+
+        try (MappedVectorStore next = new MappedVectorStore(3, tempDir, true, 4, 2)) {
+            List<Document> missing = next.addFrom(store, List.of(a, b, added));
+
+            assertEquals(List.of(added), missing, "旧存储中没有的分块需要重新向量化");
+            assertEquals(2, next.size());
+            List<Document> results = next.search(new double[]{0.6, 0, 0.8}, 1, null).block();
+            assertEquals(a.getId(), results.get(0).getId());
+            assertEquals(1.0, results.get(0).getScore(), 1e-3, "复制的向量应保持归一化后的值");
+        }
+    }
+
+    @Test
+    void testAddFrom_ChangedTextOrDeleted_ShouldReturnAsMissing() throws Exception {
+        Document a = doc("a", 1, 0, 0);
+        Document b = doc("b", 0, 1, 0);
+        store.add(List.of(a, b)).block();
+        store.delete(b.getId()).block();
+        // 同一 id 的分块文本已变化，旧向量不能复用
+        Document changed = new Document(new DocumentMetadata(TextBlock.builder().text("a v2").build(), "a", "0"));
+
+        try (MappedVectorStore next = new MappedVectorStore(3, tempDir, false, 1, 2)) {
+            List<Document> missing = next.addFrom(store, List.of(changed, b));
+
+            assertEquals(List.of(changed, b), missing);
+            assertEquals(0, next.size());
+        }
+    }
+
+    @Test
+    void testCopy_ShouldShareFullSegmentsAndKeepOriginalUnchanged() throws Exception {
+        Document a = doc("a", 1, 0, 0);
+        Document b = doc("b", 0, 1, 0);
+        Document c = doc("c", 0, 0, 1);
+        store.add(List.of(a, b, c)).block();
+
+        MappedVectorStore copy = store.copy();
+        copy.delete(a.getId()).block();
+        copy.add(List.of(doc("d", 0.9, 0.1, 0))).block();
+
+        assertEquals(3, store.size());
+        assertEquals("a#0", store.search(new double[]{1, 0, 0}, 1, null).block().get(0).getId(),
+                "副本上的修改不应影响原存储");
+        assertEquals(3, copy.size());
+        assertEquals(1, copy.deletedCount());
+        assertEquals(List.of("d#0", "b#0"), copy.search(new double[]{1, 0.2, 0}, 2, null).block().stream()
+                .map(Document::getId).toList());
+
+        // 原存储关闭后，副本共享的段仍然可用；全部关闭后映射文件被删除
+        store.close();
+        assertEquals("c#0", copy.search(new double[]{0, 0, 1}, 1, null).block().get(0).getId());
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertTrue(files.findAny().isPresent(), "副本仍在使用的映射文件不应被删除");
+        }
+        copy.close();
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertTrue(files.findAny().isEmpty(), "所有存储关闭后映射文件应被删除");
+        }
+    }
+
+    private static Document doc(String docId, double... embedding) {
+        Document document = new Document(new DocumentMetadata(TextBlock.builder().text(docId).build(), docId, "0"));
+        document.setEmbedding(embedding);
+        return document;
+    }
+}
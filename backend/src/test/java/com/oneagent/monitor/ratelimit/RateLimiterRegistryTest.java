@@ -0,0 +1,23 @@
+package com.oneagent.monitor.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RateLimiterRegistry 单元测试
+ */
+class RateLimiterRegistryTest {
+
+    @Test
+    void testParseRetryAfter_ShouldClampToBounds() {
+        assertEquals(Duration.ofSeconds(30), RateLimiterRegistry.parseRetryAfter("30"));
+        assertEquals(Duration.ofSeconds(1), RateLimiterRegistry.parseRetryAfter("0"));
+        assertEquals(Duration.ofSeconds(1), RateLimiterRegistry.parseRetryAfter("-5"));
+        assertEquals(Duration.ofMinutes(5), RateLimiterRegistry.parseRetryAfter("86400"), "过大的 Retry-After 应被截断");
+        assertEquals(Duration.ofSeconds(1), RateLimiterRegistry.parseRetryAfter("Wed, 21 Oct 2026 07:28:00 GMT"));
+        assertEquals(Duration.ofSeconds(1), RateLimiterRegistry.parseRetryAfter(null));
+    }
+}
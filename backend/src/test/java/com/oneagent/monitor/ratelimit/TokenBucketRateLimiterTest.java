@@ -0,0 +1,86 @@
+package com.oneagent.monitor.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TokenBucketRateLimiter 单元测试
+ */
+class TokenBucketRateLimiterTest {
+
+    @Test
+    void testTryAcquire_ShouldAllowBurstUpToCapacity() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", 3, 1, Duration.ofMinutes(1));
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire(), "超过桶容量后应拒绝");
+        assertTrue(limiter.nanosUntilAvailable() > 0);
+        assertEquals(3, limiter.snapshot().granted());
+    }
+
+    @Test
+    void testAcquire_ShouldWaitForRefillWithinDeadline() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", 1, 1, Duration.ofMillis(50));
+
+        assertTrue(limiter.tryAcquire());
+        long start = System.nanoTime();
+        assertTrue(limiter.acquire(Duration.ofSeconds(1)), "令牌补充后应获取成功");
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(30).toNanos());
+        assertEquals(1, limiter.snapshot().waited());
+    }
+
+    @Test
+    void testAcquire_ShouldGiveUpWhenDeadlineTooShort() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", 1, 1, Duration.ofSeconds(10));
+
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.acquire(Duration.ofMillis(20)));
+    }
+
+    @Test
+    void testOnThrottled_ShouldBlockUntilRetryAfter() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", 5, 5, Duration.ofMillis(10));
+
+        limiter.onThrottled(Duration.ofSeconds(5));
+
+        assertFalse(limiter.tryAcquire(), "收到 429 后应暂停放行");
+        assertEquals(1, limiter.snapshot().throttledByProvider());
+    }
+
+    @Test
+    void testAcquireUnbounded_ShouldParkUntilTokenAvailable() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", 1, 1, Duration.ofMillis(50));
+
+        assertTrue(limiter.tryAcquire());
+        long start = System.nanoTime();
+        limiter.acquire();
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(30).toNanos(), "应等待令牌补充");
+        assertEquals(1, limiter.snapshot().waited());
+    }
+
+    @Test
+    void testAcquireUnbounded_WhenInterrupted_ShouldThrow() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("test", 1, 1, Duration.ofMinutes(10));
+        assertTrue(limiter.tryAcquire());
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire();
+                fail("令牌不可用时不应返回");
+            } catch (InterruptedException expected) {
+                // 预期被中断
+            }
+        });
+
+        waiter.start();
+        Thread.sleep(50);
+        waiter.interrupt();
+        waiter.join(1000);
+
+        assertFalse(waiter.isAlive(), "中断后应停止等待");
+    }
+}
@@ -0,0 +1,75 @@
+package com.oneagent.monitor.service;
+
+import com.oneagent.monitor.MonitorAgentApplication;
+import com.oneagent.monitor.model.dto.InputCase;
+import com.oneagent.monitor.model.dto.ResultCase;
+import com.oneagent.monitor.stub.StubLlmServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChatService 离线集成测试
+ * 模型与 Embedding 调用全部由进程内的 StubLlmServer 响应，不消耗真实 token
+ */
+@SpringBootTest(classes = MonitorAgentApplication.class)
+@ActiveProfiles({"test", "stub"})
+class ChatServiceStubTest {
+
+    private static final String ANSWER = "我们按实际消耗的 token 计费。";
+
+    private static final StubLlmServer STUB = startStub();
+
+    @Autowired
+    private ChatService chatService;
+
+    @DynamicPropertySource
+    static void stubProperties(DynamicPropertyRegistry registry) {
+        registry.add("agentscope.llm.base-url", STUB::baseUrl);
+        registry.add("agentscope.embedding.base-url", STUB::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Test
+    void testProcessQuery_WithScriptedToolCall_ShouldReturnStubAnswer() {
+        InputCase inputCase = new InputCase();
+        inputCase.setCaseId("S001");
+        inputCase.setUserQuery("你们平台的计费模式是怎样的？");
+        inputCase.setApiStatus("200 OK");
+        inputCase.setApiResponseTime("120ms");
+        inputCase.setMonitorLog(new ArrayList<>());
+
+        long before = STUB.chatRequests();
+        ResultCase result = chatService.processQuery(inputCase);
+
+        assertEquals("S001", result.getCaseId());
+        assertEquals(ANSWER, result.getReply());
+        assertTrue(STUB.chatRequests() - before >= 2, "应先返回工具调用，再返回最终回答");
+    }
+
+    private static StubLlmServer startStub() {
+        try {
+            return StubLlmServer.builder()
+                    .script(List.of(StubLlmServer.Step.toolCall("check_monitor_status", "{}")))
+                    .answer(ANSWER)
+                    .start(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -6,16 +6,22 @@ import com.oneagent.monitor.MonitorAgentApplication;
 import com.oneagent.monitor.model.dto.InputCase;
 import com.oneagent.monitor.model.dto.MonitorLog;
 import com.oneagent.monitor.model.dto.ResultCase;
+import com.oneagent.monitor.stub.StubLlmServer;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,13 +29,20 @@ import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * ResultService 集成测试
- * 使用真实的 Spring Boot 环境，不使用 mock
+ * 使用真实的 Spring Boot 环境，不使用 mock；模型与 Embedding 调用由进程内的 StubLlmServer 响应，
+ * 按配置的首 token 延迟和输出速率返回，并可注入错误
  * 测试 ResultService 中的 processBatch 方法
  */
 @SpringBootTest(classes = MonitorAgentApplication.class)
-@ActiveProfiles("test")
+@ActiveProfiles({"test", "stub"})
 class ResultServiceTest {
 
+    private static final String ANSWER = "您好，这是批量处理的回答。";
+    private static final Duration TIME_TO_FIRST_TOKEN = Duration.ofMillis(80);
+    private static final double TOKENS_PER_SECOND = 100;
+
+    private static final StubLlmServer STUB = startStub();
+
     @Autowired
     private ResultService resultService;
 
@@ -38,6 +51,17 @@ class ResultServiceTest {
     private Path inputFilePath;
     private Path outputFilePath;
 
+    @DynamicPropertySource
+    static void stubProperties(DynamicPropertyRegistry registry) {
+        registry.add("agentscope.llm.base-url", STUB::baseUrl);
+        registry.add("agentscope.embedding.base-url", STUB::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
     @BeforeEach
     void setUp() throws IOException {
         objectMapper = new ObjectMapper();
@@ -75,12 +99,90 @@ class ResultServiceTest {
                 new TypeReference<List<ResultCase>>() {});
 
         assertEquals(caseCount, results.size(), "应该生成 " + caseCount + " 个结果");
+        assertTrue(results.stream().allMatch(result -> ANSWER.equals(result.getReply())),
+                "每个用例都应得到 stub 模型的回答");
 
         System.out.println("测试通过: 成功处理 " + results.size() + " 个用例，耗时 " + duration + "ms");
     }
 
+    @Test
+    void testProcessBatch_WithStubLatency_ShouldWaitForFirstTokenAndGeneration() throws IOException {
+        InputCase inputCase = newCase("L001", "批量处理的延迟测试问题，只出现在这个用例中");
+        Files.writeString(inputFilePath, objectMapper.writeValueAsString(List.of(inputCase)));
+
+        long before = STUB.chatRequests();
+        long startTime = System.nanoTime();
+        resultService.processBatch(inputFilePath.toString(), outputFilePath.toString());
+        Duration duration = Duration.ofNanos(System.nanoTime() - startTime);
+
+        long chatCalls = STUB.chatRequests() - before;
+        // 每次模型调用先等待首 token，最终回答再按输出速率逐个返回（中文每字一个 token）
+        Duration expected = TIME_TO_FIRST_TOKEN.multipliedBy(chatCalls)
+                .plusMillis((long) (ANSWER.length() * 1000 / TOKENS_PER_SECOND));
+        assertTrue(chatCalls >= 1, "应调用 stub 模型");
+        assertTrue(duration.compareTo(expected) >= 0,
+                "耗时 " + duration.toMillis() + "ms 应不少于首 token 延迟与生成时间之和 " + expected.toMillis() + "ms");
+        List<ResultCase> results = readResults();
+        assertEquals(ANSWER, results.get(0).getReply());
+    }
+
+    @Test
+    void testProcessBatch_WithInjectedErrors_ShouldStillWriteEveryCase() throws IOException {
+        List<InputCase> inputCases = List.of(
+                newCase("E001", "错误注入测试：第一个从未问过的问题"),
+                newCase("E002", "错误注入测试：第二个从未问过的问题"));
+        Files.writeString(inputFilePath, objectMapper.writeValueAsString(inputCases));
+
+        long errorsBefore = STUB.injectedErrors();
+        STUB.injectErrors(1.0, 500);
+        try {
+            resultService.processBatch(inputFilePath.toString(), outputFilePath.toString());
+        } finally {
+            STUB.injectErrors(0, 500);
+        }
+
+        List<ResultCase> results = readResults();
+        assertEquals(2, results.size(), "模型调用失败时每个用例仍应写出结果");
+        assertTrue(STUB.injectedErrors() > errorsBefore, "请求应命中注入的错误");
+        for (ResultCase result : results) {
+            assertEquals(inputCases.get(results.indexOf(result)).getCaseId(), result.getCaseId());
+            assertNotEquals(ANSWER, result.getReply(), "失败的调用不应返回正常回答");
+        }
+
+        // 失败的回答不进入缓存，服务商恢复后同一个问题得到正常回答
+        resultService.processBatch(inputFilePath.toString(), outputFilePath.toString());
+        assertTrue(readResults().stream().allMatch(result -> ANSWER.equals(result.getReply())),
+                "恢复后应重新调用模型并得到正常回答");
+    }
+
     // ========== 辅助方法 ==========
 
+    private List<ResultCase> readResults() throws IOException {
+        return objectMapper.readValue(Files.readString(outputFilePath), new TypeReference<List<ResultCase>>() {});
+    }
+
+    private static InputCase newCase(String caseId, String query) {
+        InputCase inputCase = new InputCase();
+        inputCase.setCaseId(caseId);
+        inputCase.setUserQuery(query);
+        inputCase.setApiStatus("200 OK");
+        inputCase.setApiResponseTime("100ms");
+        inputCase.setMonitorLog(new ArrayList<>());
+        return inputCase;
+    }
+
+    private static StubLlmServer startStub() {
+        try {
+            return StubLlmServer.builder()
+                    .timeToFirstToken(TIME_TO_FIRST_TOKEN)
+                    .tokensPerSecond(TOKENS_PER_SECOND)
+                    .answer(ANSWER)
+                    .start(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * 创建真实的输入用例列表
      */
@@ -0,0 +1,578 @@
+package com.oneagent.monitor.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的 OpenAI 兼容 stub 服务，用于离线、可重复的集成测试和压测
+ * <p>
+ * 支持 /v1/chat/completions（流式与非流式、工具调用）和 /v1/embeddings。
+ * 可配置首 token 延迟、输出速率、错误注入（固定随机种子，结果可复现）以及按步骤编排的工具调用序列：
+ * 第 N 次推理（本轮用户消息之后已有 N 条助手消息）返回脚本中的第 N 步，脚本用完后返回最终回答。
+ * 一步中可以包含多个工具调用；最近一次发出的工具调用 id 和最近一次请求中收到的工具结果 id 按顺序记录，用于检查结果回写顺序。
+ * <p>
+ * 单独运行：{@code java ... StubLlmServer [port]}，再以 stub profile 启动应用。
+ */
+public class StubLlmServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Builder config;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Random random;
+    private final AtomicLong chatRequests = new AtomicLong();
+    private final AtomicLong embeddingRequests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private volatile double errorRate;
+    private volatile int errorStatus;
+    private volatile List<String> emittedToolCallIds = List.of();
+    private volatile List<String> receivedToolResultIds = List.of();
+
+    private StubLlmServer(Builder config, int port) throws IOException {
+        this.config = config;
+        this.random = new Random(config.seed);
+        this.errorRate = config.errorRate;
+        this.errorStatus = config.errorStatus;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-llm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.createContext("/v1/chat/completions", this::handleChat);
+        this.server.createContext("/v1/embeddings", this::handleEmbeddings);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 供 agentscope.llm.base-url / agentscope.embedding.base-url 使用的地址
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public long chatRequests() {
+        return chatRequests.get();
+    }
+
+    public long embeddingRequests() {
+        return embeddingRequests.get();
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * 运行中调整错误注入，同一个应用上下文中的测试可以分别模拟正常和故障的服务商
+     */
+    public void injectErrors(double errorRate, int errorStatus) {
+        this.errorStatus = errorStatus;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * 最近一次返回的工具调用 id，按调用顺序
+     */
+    public List<String> emittedToolCallIds() {
+        return emittedToolCallIds;
+    }
+
+    /**
+     * 最近一次请求中本轮用户消息之后的工具结果 id，按消息顺序
+     */
+    public List<String> receivedToolResultIds() {
+        return receivedToolResultIds;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ========== chat/completions ==========
+
+    private void handleChat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            chatRequests.incrementAndGet();
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            if (injectError(exchange)) {
+                return;
+            }
+
+            String model = request.path("model").asText("stub-model");
+            recordToolResults(request.path("messages"));
+            Step step = nextStep(request.path("messages"));
+            int promptTokens = estimateTokens(request.path("messages").toString());
+
+            sleep(config.timeToFirstToken);
+            if (request.path("stream").asBoolean(false)) {
+                streamChat(exchange, model, step, promptTokens);
+            } else {
+                writeJson(exchange, 200, completion(model, step, promptTokens));
+            }
+        }
+    }
+
+    /**
+     * 根据本轮用户消息之后的助手消息数量决定返回脚本中的哪一步
+     */
+    private Step nextStep(JsonNode messages) {
+        int assistantTurns = 0;
+        for (JsonNode message : messages) {
+            String role = message.path("role").asText();
+            if ("user".equals(role)) {
+                assistantTurns = 0;
+            } else if ("assistant".equals(role)) {
+                assistantTurns++;
+            }
+        }
+        return assistantTurns < config.script.size()
+                ? config.script.get(assistantTurns)
+                : Step.answer(config.answer);
+    }
+
+    private void recordToolResults(JsonNode messages) {
+        List<String> ids = new ArrayList<>();
+        for (JsonNode message : messages) {
+            String role = message.path("role").asText();
+            if ("user".equals(role)) {
+                ids.clear();
+            } else if ("tool".equals(role)) {
+                ids.add(message.path("tool_call_id").asText());
+            }
+        }
+        receivedToolResultIds = List.copyOf(ids);
+    }
+
+    private ObjectNode completion(String model, Step step, int promptTokens) {
+        ObjectNode message = MAPPER.createObjectNode();
+        message.put("role", "assistant");
+        if (step.isToolCall()) {
+            message.putNull("content");
+            message.set("tool_calls", toolCalls(step, false));
+        } else {
+            message.put("content", step.text());
+            simulateGeneration(step.text());
+        }
+
+        ObjectNode choice = MAPPER.createObjectNode();
+        choice.put("index", 0);
+        choice.set("message", message);
+        choice.put("finish_reason", step.isToolCall() ? "tool_calls" : "stop");
+
+        ObjectNode body = envelope(model, "chat.completion");
+        body.set("choices", MAPPER.createArrayNode().add(choice));
+        body.set("usage", usage(promptTokens, completionTokens(step)));
+        return body;
+    }
+
+    private void streamChat(HttpExchange exchange, String model, Step step, int promptTokens) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+
+        if (step.isToolCall()) {
+            ObjectNode delta = MAPPER.createObjectNode();
+            delta.put("role", "assistant");
+            delta.set("tool_calls", toolCalls(step, true));
+            writeEvent(out, chunk(model, delta, null));
+        } else {
+            boolean first = true;
+            for (String token : tokens(step.text())) {
+                ObjectNode delta = MAPPER.createObjectNode();
+                if (first) {
+                    delta.put("role", "assistant");
+                    first = false;
+                }
+                delta.put("content", token);
+                writeEvent(out, chunk(model, delta, null));
+                sleep(tokenInterval());
+            }
+        }
+
+        ObjectNode last = chunk(model, MAPPER.createObjectNode(), step.isToolCall() ? "tool_calls" : "stop");
+        last.set("usage", usage(promptTokens, completionTokens(step)));
+        writeEvent(out, last);
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private ArrayNode toolCalls(Step step, boolean streaming) {
+        ArrayNode calls = MAPPER.createArrayNode();
+        List<String> ids = new ArrayList<>();
+        List<Step> steps = step.toolCallSteps();
+        for (int i = 0; i < steps.size(); i++) {
+            ObjectNode call = calls.addObject();
+            if (streaming) {
+                call.put("index", i);
+            }
+            String id;
+            synchronized (random) {
+                id = "call_" + Long.toHexString(random.nextLong() & Long.MAX_VALUE);
+            }
+            ids.add(id);
+            call.put("id", id);
+            call.put("type", "function");
+            ObjectNode function = call.putObject("function");
+            function.put("name", steps.get(i).toolName());
+            function.put("arguments", steps.get(i).arguments());
+        }
+        emittedToolCallIds = List.copyOf(ids);
+        return calls;
+    }
+
+    private ObjectNode chunk(String model, ObjectNode delta, String finishReason) {
+        ObjectNode choice = MAPPER.createObjectNode();
+        choice.put("index", 0);
+        choice.set("delta", delta);
+        if (finishReason == null) {
+            choice.putNull("finish_reason");
+        } else {
+            choice.put("finish_reason", finishReason);
+        }
+        ObjectNode body = envelope(model, "chat.completion.chunk");
+        body.set("choices", MAPPER.createArrayNode().add(choice));
+        return body;
+    }
+
+    // ========== embeddings ==========
+
+    private void handleEmbeddings(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            embeddingRequests.incrementAndGet();
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            if (injectError(exchange)) {
+                return;
+            }
+            sleep(config.embeddingLatency);
+
+            List<String> inputs = new ArrayList<>();
+            JsonNode input = request.path("input");
+            if (input.isArray()) {
+                input.forEach(node -> inputs.add(node.asText()));
+            } else {
+                inputs.add(input.asText());
+            }
+            int dimensions = request.path("dimensions").asInt(config.dimensions);
+
+            ArrayNode data = MAPPER.createArrayNode();
+            int tokens = 0;
+            for (int i = 0; i < inputs.size(); i++) {
+                ObjectNode item = data.addObject();
+                item.put("object", "embedding");
+                item.put("index", i);
+                ArrayNode vector = item.putArray("embedding");
+                for (float value : embed(inputs.get(i), dimensions)) {
+                    vector.add(value);
+                }
+                tokens += estimateTokens(inputs.get(i));
+            }
+
+            ObjectNode body = MAPPER.createObjectNode();
+            body.put("object", "list");
+            body.set("data", data);
+            body.put("model", request.path("model").asText("stub-embedding"));
+            ObjectNode usage = body.putObject("usage");
+            usage.put("prompt_tokens", tokens);
+            usage.put("total_tokens", tokens);
+            writeJson(exchange, 200, body);
+        }
+    }
+
+    /**
+     * 由文本字符二元组哈希得到的确定性单位向量：相同文本向量相同，字面相近的文本余弦相似度较高
+     */
+    static float[] embed(String text, int dimensions) {
+        float[] vector = new float[dimensions];
+        String compact = text == null ? "" : text.replaceAll("\\s+", "");
+        for (int i = 0; i + 1 <= compact.length(); i++) {
+            String gram = compact.substring(i, Math.min(compact.length(), i + 2));
+            int hash = gram.hashCode() * 0x9E3779B9;
+            vector[Math.floorMod(hash, dimensions)] += (hash & 1) == 0 ? 1f : -1f;
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            vector[0] = 1f;
+            return vector;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    // ========== 公共辅助 ==========
+
+    /**
+     * 按配置的错误率返回错误响应
+     */
+    private boolean injectError(HttpExchange exchange) throws IOException {
+        double rate = errorRate;
+        int status = errorStatus;
+        boolean fail;
+        synchronized (random) {
+            fail = rate > 0 && random.nextDouble() < rate;
+        }
+        if (!fail) {
+            return false;
+        }
+        injectedErrors.incrementAndGet();
+        ObjectNode body = MAPPER.createObjectNode();
+        ObjectNode error = body.putObject("error");
+        error.put("message", "stub injected error");
+        error.put("type", status == 429 ? "rate_limit_exceeded" : "server_error");
+        if (status == 429) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        }
+        writeJson(exchange, status, body);
+        return true;
+    }
+
+    private ObjectNode envelope(String model, String object) {
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("id", "chatcmpl-stub-" + chatRequests.get());
+        body.put("object", object);
+        body.put("created", System.currentTimeMillis() / 1000);
+        body.put("model", model);
+        return body;
+    }
+
+    private ObjectNode usage(int promptTokens, int completionTokens) {
+        ObjectNode usage = MAPPER.createObjectNode();
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", promptTokens + completionTokens);
+        return usage;
+    }
+
+    private int completionTokens(Step step) {
+        if (!step.isToolCall()) {
+            return estimateTokens(step.text());
+        }
+        return step.toolCallSteps().stream().mapToInt(call -> estimateTokens(call.toolName() + call.arguments())).sum();
+    }
+
+    /**
+     * 流式输出的切分：中文每字一个 token，其余每 4 个字符一个 token
+     */
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) {
+                if (!word.isEmpty()) {
+                    tokens.add(word.toString());
+                    word.setLength(0);
+                }
+                tokens.add(String.valueOf(c));
+            } else {
+                word.append(c);
+                if (word.length() == 4) {
+                    tokens.add(word.toString());
+                    word.setLength(0);
+                }
+            }
+        }
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+        }
+        return tokens;
+    }
+
+    private static int estimateTokens(String text) {
+        return text == null ? 0 : tokens(text).size();
+    }
+
+    private void simulateGeneration(String text) {
+        Duration interval = tokenInterval();
+        sleep(interval.multipliedBy(estimateTokens(text)));
+    }
+
+    private Duration tokenInterval() {
+        return config.tokensPerSecond <= 0
+                ? Duration.ZERO
+                : Duration.ofNanos((long) (1_000_000_000L / config.tokensPerSecond));
+    }
+
+    private static void writeEvent(OutputStream out, ObjectNode data) throws IOException {
+        out.write(("data: " + MAPPER.writeValueAsString(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void writeJson(HttpExchange exchange, int status, ObjectNode body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero() || duration.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 单独启动 stub 服务，供本地压测使用
+     * <p>
+     * 参数：端口（默认 18089）；系统属性 stub.ttft-ms、stub.tps、stub.error-rate、stub.script（JSON 文件路径）
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 18089;
+        Builder builder = builder()
+                .timeToFirstToken(Duration.ofMillis(Long.getLong("stub.ttft-ms", 300)))
+                .tokensPerSecond(Double.parseDouble(System.getProperty("stub.tps", "50")))
+                .errorRate(Double.parseDouble(System.getProperty("stub.error-rate", "0")));
+        String scriptPath = System.getProperty("stub.script");
+        if (scriptPath != null) {
+            List<Step> steps = new ArrayList<>();
+            for (JsonNode node : MAPPER.readTree(Files.readString(Path.of(scriptPath)))) {
+                steps.add(node.has("tool")
+                        ? Step.toolCall(node.path("tool").asText(), node.path("arguments").toString())
+                        : Step.answer(node.path("answer").asText()));
+            }
+            builder.script(steps);
+        }
+        StubLlmServer server = builder.start(port);
+        System.out.println("Stub LLM server listening on " + server.baseUrl());
+        Thread.currentThread().join();
+    }
+
+    /**
+     * 脚本中的一步：一个或多个工具调用，或文本回答
+     */
+    public record Step(String toolName, String arguments, String text, List<Step> calls) {
+
+        public static Step toolCall(String toolName, String arguments) {
+            return new Step(toolName, arguments, null, List.of());
+        }
+
+        /**
+         * 同一步推理中一次返回的多个工具调用
+         */
+        public static Step toolCalls(Step... calls) {
+            return new Step(null, null, null, List.of(calls));
+        }
+
+        public static Step answer(String text) {
+            return new Step(null, null, text, List.of());
+        }
+
+        boolean isToolCall() {
+            return toolName != null || !calls.isEmpty();
+        }
+
+        List<Step> toolCallSteps() {
+            return calls.isEmpty() ? List.of(this) : calls;
+        }
+    }
+
+    public static final class Builder {
+        private Duration timeToFirstToken = Duration.ZERO;
+        private double tokensPerSecond = 0;
+        private Duration embeddingLatency = Duration.ZERO;
+        private double errorRate = 0;
+        private int errorStatus = 500;
+        private long seed = 42;
+        private int dimensions = 1536;
+        private List<Step> script = List.of();
+        private String answer = "这是来自 stub 模型的回答。";
+
+        public Builder timeToFirstToken(Duration timeToFirstToken) {
+            this.timeToFirstToken = timeToFirstToken;
+            return this;
+        }
+
+        /**
+         * 输出速率，0 表示不限速
+         */
+        public Builder tokensPerSecond(double tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+            return this;
+        }
+
+        public Builder embeddingLatency(Duration embeddingLatency) {
+            this.embeddingLatency = embeddingLatency;
+            return this;
+        }
+
+        /**
+         * 请求失败的概率（0~1），失败时返回 errorStatus
+         */
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public Builder errorStatus(int errorStatus) {
+            this.errorStatus = errorStatus;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder dimensions(int dimensions) {
+            this.dimensions = dimensions;
+            return this;
+        }
+
+        public Builder script(List<Step> script) {
+            this.script = List.copyOf(script);
+            return this;
+        }
+
+        /**
+         * 脚本用完后的最终回答
+         */
+        public Builder answer(String answer) {
+            this.answer = answer;
+            return this;
+        }
+
+        /**
+         * 在指定端口启动，0 表示随机端口
+         */
+        public StubLlmServer start(int port) throws IOException {
+            return new StubLlmServer(this, port);
+        }
+    }
+}
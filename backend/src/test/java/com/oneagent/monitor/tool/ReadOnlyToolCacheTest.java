@@ -0,0 +1,112 @@
+package com.oneagent.monitor.tool;
+
+import com.oneagent.monitor.service.MonitorService;
+import io.agentscope.core.tool.Tool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReadOnlyToolCache 单元测试
+ */
+class ReadOnlyToolCacheTest {
+
+    private MonitorService monitorService;
+    private SimpleMeterRegistry meterRegistry;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        List<Object> events = new ArrayList<>();
+        monitorService = new MonitorService(events::add);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testMemoize_SameCall_ShouldExecuteReadOnlyToolOnce() {
+        ReadOnlyToolCache cache = cache();
+
+        assertEquals("status#1", cache.memoize("check_status", List.of(), this::execute));
+        assertEquals("status#1", cache.memoize("check_status", List.of(), this::execute));
+
+        assertEquals(1, executions.get(), "同一次调用内重复调用只读工具应复用结果");
+    }
+
+    @Test
+    void testMemoize_NextCall_ShouldExecuteAgain() {
+        ReadOnlyToolCache cache = cache();
+        cache.memoize("check_status", List.of(), this::execute);
+
+        cache.beginCall();
+        cache.memoize("check_status", List.of(), this::execute);
+
+        assertEquals(2, executions.get(), "新的一次 Agent 调用不应看到上一次调用的结果");
+    }
+
+    @Test
+    void testMemoize_DifferentAgents_ShouldNotShareResults() {
+        ReadOnlyToolCache first = cache();
+        ReadOnlyToolCache second = cache();
+
+        first.memoize("check_status", List.of(), this::execute);
+        second.memoize("check_status", List.of(), this::execute);
+
+        assertEquals(2, executions.get(), "不同 Agent 的缓存应互相隔离");
+    }
+
+    @Test
+    void testMemoize_StateChangedDuringCall_ShouldExecuteAgain() {
+        ReadOnlyToolCache cache = cache();
+        cache.memoize("check_status", List.of(), this::execute);
+
+        monitorService.updateStatus("500 Internal Server Error", "100ms", List.of());
+        cache.memoize("check_status", List.of(), this::execute);
+
+        assertEquals(2, executions.get(), "监控状态变化后不应复用旧结果");
+    }
+
+    @Test
+    void testMemoize_ToolWithoutReadOnlyMarker_ShouldAlwaysExecute() {
+        ReadOnlyToolCache cache = cache();
+
+        cache.memoize("send_alert", List.of("msg"), this::execute);
+        cache.memoize("send_alert", List.of("msg"), this::execute);
+
+        assertFalse(cache.isReadOnly("send_alert"), "未标记只读的工具不应登记为只读");
+        assertTrue(cache.isReadOnly("check_status"));
+        assertEquals(2, executions.get(), "有副作用的工具每次都应真正执行");
+    }
+
+    private ReadOnlyToolCache cache() {
+        ReadOnlyToolCache cache = new ReadOnlyToolCache(monitorService, meterRegistry);
+        cache.register(new SampleTools());
+        return cache;
+    }
+
+    private String execute() {
+        return "status#" + executions.incrementAndGet();
+    }
+
+    /**
+     * 一个只读工具和一个有副作用的工具
+     */
+    public static class SampleTools {
+
+        @ReadOnlyTool
+        @Tool(name = "check_status", description = "查询状态")
+        public String checkStatus() {
+            return "";
+        }
+
+        @Tool(name = "send_alert", description = "发送告警")
+        public String sendAlert(String message) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.oneagent.monitor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TermTokenizer 单元测试
+ */
+class TermTokenizerTest {
+
+    @Test
+    void testTokenize_MixedText_ShouldSplitCjkIntoBigramsAndKeepWords() {
+        assertEquals(List.of("企业", "业版", "sla", "99.9"), TermTokenizer.tokenize("企业版SLA 99.9%"));
+    }
+
+    @Test
+    void testTokenize_SingleCjkChar_ShouldKeepUnigram() {
+        assertEquals(List.of("价"), TermTokenizer.tokenize("价"));
+        assertEquals(List.of("多", "少钱"), TermTokenizer.tokenize("多，少钱"), "单字片段保留单字，多字片段只取二元组");
+    }
+
+    @Test
+    void testTokenize_DecimalPoint_ShouldOnlyJoinDigits() {
+        assertEquals(List.of("版本", "1.0", "和", "2"), TermTokenizer.tokenize("版本 1.0 和 2"));
+        assertEquals(List.of("99.9"), TermTokenizer.tokenize("99.9."), "末尾的句点不是小数点");
+        assertEquals(List.of("a", "b"), TermTokenizer.tokenize("a.b"), "字母之间的句点是分隔符");
+    }
+
+    @Test
+    void testTokenize_ShouldLowercaseAndKeepRepeats() {
+        assertEquals(List.of("api", "api"), TermTokenizer.tokenize("API api"));
+    }
+
+    @Test
+    void testTokenize_EmptyInput_ShouldReturnEmpty() {
+        assertTrue(TermTokenizer.tokenize(null).isEmpty());
+        assertTrue(TermTokenizer.tokenize("").isEmpty());
+        assertTrue(TermTokenizer.tokenize("，。！").isEmpty());
+    }
+}
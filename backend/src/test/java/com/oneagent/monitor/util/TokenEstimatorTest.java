@@ -0,0 +1,60 @@
+package com.oneagent.monitor.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TokenEstimator 单元测试
+ */
+class TokenEstimatorTest {
+
+    @Test
+    void testEstimate_MixedText_ShouldCountCjkWordsAndPunctuation() {
+        assertEquals(0, TokenEstimator.estimate(null));
+        assertEquals(0, TokenEstimator.estimate(""));
+        assertEquals(2, TokenEstimator.estimate("价格"), "中文每个字计 1 个 token");
+        assertEquals(2, TokenEstimator.estimate("monitor"), "连续字母按 4 个字符 1 个 token 计");
+        assertEquals(4, TokenEstimator.estimate("API 价格？"), "空白不计，标点各计 1 个 token");
+    }
+
+    @Test
+    void testTruncate_WithinBudget_ShouldReturnSameText() {
+        String text = "专业版 299元/月";
+
+        assertSame(text, TokenEstimator.truncate(text, 100));
+    }
+
+    @Test
+    void testTruncate_OverBudget_ShouldFitBudget() {
+        String text = "专业版每月二百九十九元，企业版每月九百九十九元";
+
+        String truncated = TokenEstimator.truncate(text, 5);
+
+        assertEquals("专业版每月", truncated);
+        assertTrue(TokenEstimator.estimate(truncated) <= 5);
+    }
+
+    @Test
+    void testTruncate_WithSurrogatePairs_ShouldNotSplitCodePoint() {
+        String text = "ab😀cd𝐀𝐁价格😀e";
+
+        for (int budget = 0; budget <= TokenEstimator.estimate(text); budget++) {
+            String truncated = TokenEstimator.truncate(text, budget);
+
+            assertTrue(TokenEstimator.estimate(truncated) <= budget);
+            assertFalse(!truncated.isEmpty() && Character.isHighSurrogate(truncated.charAt(truncated.length() - 1)),
+                    "预算为 " + budget + " 时截断结果不应以孤立的高代理字符结尾: " + truncated);
+        }
+    }
+
+    @Test
+    void testTruncate_Emoji_ShouldKeepWholeCodePoints() {
+        String text = "😀😀😀😀";
+
+        for (int budget = 0; budget < 4; budget++) {
+            assertEquals(budget * 2, TokenEstimator.truncate(text, budget).length(),
+                    "预算为 " + budget + " 时应保留完整的表情");
+        }
+    }
+}